@@ -22,13 +22,30 @@
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveException;
@@ -305,6 +322,120 @@ public void writeEntryDataTo(ArchiveEntry entry, OutputStream out) throws IOExce
         }, targetDirectory);
     }
 
+    /**
+     * Expands {@code archive} into {@code targetDirectory} using
+     * {@code parallelism} threads.
+     *
+     * @param archive the file to expand
+     * @param targetDirectory the directory to write to
+     * @param parallelism the number of entries to expand concurrently
+     * @param listener is informed about each expanded entry, may be null
+     * @throws IOException if an I/O error occurs
+     * @throws ArchiveException if the archive cannot be read for other reasons
+     * @throws IllegalArgumentException if parallelism is not positive
+     * @see #expand(ZipFile, File, ExecutorService, ExpansionListener)
+     * @since 1.20
+     */
+    public void expand(final ZipFile archive, File targetDirectory, int parallelism, ExpansionListener listener)
+        throws IOException, ArchiveException {
+        final ExecutorService executorService = Executors.newFixedThreadPool(parallelism);
+        try {
+            expand(archive, targetDirectory, executorService, listener);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Expands {@code archive} into {@code targetDirectory} using
+     * the given executor to expand several entries concurrently.
+     *
+     * <p>All directories are created before any file is written.
+     * Files are then expanded by tasks submitted to {@code
+     * executorService}, largest entries first so the work spreads
+     * evenly across the threads. This is most effective if the
+     * archive has been opened from a file as {@link ZipFile} can
+     * read data of several entries from a file at the same time
+     * without any locking.</p>
+     *
+     * <p>If the archive contains several file entries of the same
+     * name only the last one is expanded, like {@link #expand(ZipFile,
+     * File)} would overwrite the earlier ones. A file entry whose
+     * name is also used by a directory is rejected before anything
+     * has been written.</p>
+     *
+     * <p>If any entry fails to expand the tasks that have not been
+     * started are skipped and the method waits for those that are
+     * still running, files that have already been written are not
+     * removed. Running tasks are never interrupted, so the archive
+     * can still be used afterwards. The executor is not shut down by
+     * this method.</p>
+     *
+     * @param archive the file to expand
+     * @param targetDirectory the directory to write to
+     * @param executorService the executor that expands the files
+     * @param listener is informed about each expanded entry, may be
+     * null. It will be invoked by the executor's threads for files.
+     * @throws IOException if an I/O error occurs
+     * @throws ArchiveException if the archive cannot be read for other reasons
+     * @since 1.20
+     */
+    public void expand(final ZipFile archive, File targetDirectory, ExecutorService executorService,
+        ExpansionListener listener) throws IOException, ArchiveException {
+        final String targetDirPath = getTargetDirPath(targetDirectory);
+        final Set<File> createdDirectories = new HashSet<>();
+        final Map<File, FileExpansion> files = new LinkedHashMap<>();
+        final AtomicBoolean aborted = new AtomicBoolean();
+        final Enumeration<ZipArchiveEntry> entries = archive.getEntries();
+        while (entries.hasMoreElements()) {
+            final ZipArchiveEntry entry = entries.nextElement();
+            if (!archive.canReadEntryData(entry)) {
+                continue;
+            }
+            final File f = getTargetFile(targetDirectory, targetDirPath, entry);
+            if (entry.isDirectory()) {
+                createDirectory(f, createdDirectories);
+                if (listener != null) {
+                    listener.entryExpanded(entry, f);
+                }
+            } else {
+                createDirectory(f.getParentFile(), createdDirectories);
+                // a later entry of the same name replaces the earlier one
+                files.put(f, new FileExpansion(archive, entry, f, listener, aborted));
+            }
+        }
+        for (final File f : files.keySet()) {
+            if (createdDirectories.contains(f)) {
+                throw new IOException("Failed to expand " + f + " as it is a directory");
+            }
+        }
+        final List<FileExpansion> sorted = new ArrayList<>(files.values());
+        Collections.sort(sorted, LARGEST_FIRST);
+
+        final CompletionService<Void> completionService = new ExecutorCompletionService<>(executorService);
+        final List<Future<Void>> futures = new ArrayList<>(sorted.size());
+        try {
+            for (final FileExpansion file : sorted) {
+                futures.add(completionService.submit(file));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                completionService.take().get();
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while expanding " + archive);
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        } finally {
+            aborted.set(true);
+            awaitCompletion(futures);
+        }
+    }
+
     /**
      * Expands {@code archive} into {@code targetDirectory}.
      *
@@ -338,17 +469,10 @@ private boolean prefersSeekableByteChannel(String format) {
 
     private void expand(ArchiveEntrySupplier supplier, EntryWriter writer, File targetDirectory)
         throws IOException {
-        String targetDirPath = targetDirectory.getCanonicalPath();
-        if (!targetDirPath.endsWith(File.separator)) {
-            targetDirPath += File.separator;
-        }
+        String targetDirPath = getTargetDirPath(targetDirectory);
         ArchiveEntry nextEntry = supplier.getNextReadableEntry();
         while (nextEntry != null) {
-            File f = new File(targetDirectory, nextEntry.getName());
-            if (!f.getCanonicalPath().startsWith(targetDirPath)) {
-                throw new IOException("Expanding " + nextEntry.getName()
-                    + " would create file outside of " + targetDirectory);
-            }
+            File f = getTargetFile(targetDirectory, targetDirPath, nextEntry);
             if (nextEntry.isDirectory()) {
                 if (!f.isDirectory() && !f.mkdirs()) {
                     throw new IOException("Failed to create directory " + f);
@@ -366,4 +490,85 @@ private void expand(ArchiveEntrySupplier supplier, EntryWriter writer, File targ
         }
     }
 
+    private static String getTargetDirPath(File targetDirectory) throws IOException {
+        String targetDirPath = targetDirectory.getCanonicalPath();
+        if (!targetDirPath.endsWith(File.separator)) {
+            targetDirPath += File.separator;
+        }
+        return targetDirPath;
+    }
+
+    private static File getTargetFile(File targetDirectory, String targetDirPath, ArchiveEntry entry)
+        throws IOException {
+        File f = new File(targetDirectory, entry.getName());
+        if (!f.getCanonicalPath().startsWith(targetDirPath)) {
+            throw new IOException("Expanding " + entry.getName()
+                + " would create file outside of " + targetDirectory);
+        }
+        return f;
+    }
+
+    private static void createDirectory(File dir, Set<File> createdDirectories) throws IOException {
+        if (createdDirectories.add(dir) && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Failed to create directory " + dir);
+        }
+    }
+
+    /**
+     * Waits for all tasks without interrupting any of them, as an
+     * interrupted read would close the archive's channel.
+     */
+    private static void awaitCompletion(List<Future<Void>> futures) {
+        try {
+            for (final Future<Void> future : futures) {
+                try {
+                    future.get();
+                } catch (final ExecutionException ex) { // NOSONAR
+                    // only the first failure is reported
+                }
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final Comparator<FileExpansion> LARGEST_FIRST = new Comparator<FileExpansion>() {
+        @Override
+        public int compare(FileExpansion e1, FileExpansion e2) {
+            return Long.compare(e2.entry.getSize(), e1.entry.getSize());
+        }
+    };
+
+    private static class FileExpansion implements Callable<Void> {
+        private final ZipFile archive;
+        private final ZipArchiveEntry entry;
+        private final File target;
+        private final ExpansionListener listener;
+        private final AtomicBoolean aborted;
+
+        FileExpansion(ZipFile archive, ZipArchiveEntry entry, File target, ExpansionListener listener,
+            AtomicBoolean aborted) {
+            this.archive = archive;
+            this.entry = entry;
+            this.target = target;
+            this.listener = listener;
+            this.aborted = aborted;
+        }
+
+        @Override
+        public Void call() throws IOException {
+            if (aborted.get()) {
+                return null;
+            }
+            try (InputStream in = archive.getInputStream(entry);
+                 OutputStream o = Files.newOutputStream(target.toPath())) {
+                IOUtils.copy(in, o);
+            }
+            if (listener != null) {
+                listener.entryExpanded(entry, target);
+            }
+            return null;
+        }
+    }
+
 }
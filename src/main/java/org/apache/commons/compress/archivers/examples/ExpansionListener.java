@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.archivers.examples;
+
+import java.io.File;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+
+/**
+ * Callback that is informed about the progress of an expansion
+ * performed by {@link Expander}.
+ *
+ * <p>When expanding an archive in parallel the callback is invoked
+ * by the threads performing the expansion and thus may be invoked
+ * concurrently.</p>
+ *
+ * @since 1.20
+ */
+public interface ExpansionListener {
+    /**
+     * Invoked after an entry has been expanded.
+     *
+     * @param entry the entry that has been expanded
+     * @param target the file or directory created for the entry
+     */
+    void entryExpanded(ArchiveEntry entry, File target);
+}
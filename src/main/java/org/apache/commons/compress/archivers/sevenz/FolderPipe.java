@@ -0,0 +1,183 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.sevenz;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Hands the uncompressed content of a folder from the thread adding
+ * entries to {@link SevenZOutputFile} to the thread compressing the
+ * folder.
+ *
+ * <p>At most a fixed number of chunks is buffered, the writing side
+ * blocks if the reading side doesn't keep up.</p>
+ *
+ * @ThreadSafe
+ */
+class FolderPipe {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final Deque<byte[]> chunks = new ArrayDeque<>();
+    private final int maxChunks;
+    private boolean closedForWriting, closedForReading;
+
+    private final OutputStream outputStream = new OutputStream() {
+        private final byte[] oneByte = new byte[1];
+        private byte[] chunk = new byte[CHUNK_SIZE];
+        private int chunkLength;
+
+        @Override
+        public void write(final int b) throws IOException {
+            oneByte[0] = (byte) b;
+            write(oneByte, 0, 1);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            int written = 0;
+            while (written < len) {
+                final int toCopy = Math.min(len - written, chunk.length - chunkLength);
+                System.arraycopy(b, off + written, chunk, chunkLength, toCopy);
+                chunkLength += toCopy;
+                written += toCopy;
+                if (chunkLength == chunk.length) {
+                    put(chunk);
+                    chunk = new byte[CHUNK_SIZE];
+                    chunkLength = 0;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (chunk != null) {
+                if (chunkLength > 0) {
+                    put(Arrays.copyOf(chunk, chunkLength));
+                }
+                chunk = null;
+                closeForWriting();
+            }
+        }
+    };
+
+    private final InputStream inputStream = new InputStream() {
+        private final byte[] oneByte = new byte[1];
+        private byte[] chunk;
+        private int chunkOffset;
+
+        @Override
+        public int read() throws IOException {
+            return read(oneByte, 0, 1) == -1 ? -1 : oneByte[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (chunk == null || chunkOffset == chunk.length) {
+                chunk = take();
+                chunkOffset = 0;
+                if (chunk == null) {
+                    return -1;
+                }
+            }
+            final int toCopy = Math.min(len, chunk.length - chunkOffset);
+            System.arraycopy(chunk, chunkOffset, b, off, toCopy);
+            chunkOffset += toCopy;
+            return toCopy;
+        }
+
+        @Override
+        public void close() {
+            closeForReading();
+        }
+    };
+
+    FolderPipe(final int maxChunks) {
+        this.maxChunks = maxChunks;
+    }
+
+    /**
+     * The stream the uncompressed content is written to, closing it
+     * signals the end of the folder.
+     */
+    OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    /**
+     * The stream the compressing side reads from.
+     */
+    InputStream getInputStream() {
+        return inputStream;
+    }
+
+    /**
+     * Makes any pending or future write fail, used when the
+     * compressing side gives up.
+     */
+    synchronized void closeForReading() {
+        closedForReading = true;
+        chunks.clear();
+        notifyAll();
+    }
+
+    private synchronized void closeForWriting() {
+        closedForWriting = true;
+        notifyAll();
+    }
+
+    private synchronized void put(final byte[] chunk) throws IOException {
+        try {
+            while (chunks.size() >= maxChunks && !closedForReading) {
+                wait();
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while handing over folder content");
+        }
+        if (closedForReading) {
+            throw new IOException("Compressing the folder has failed");
+        }
+        chunks.add(chunk);
+        notifyAll();
+    }
+
+    private synchronized byte[] take() throws IOException {
+        try {
+            while (chunks.isEmpty() && !closedForWriting && !closedForReading) {
+                wait();
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for folder content");
+        }
+        final byte[] chunk = chunks.poll();
+        if (chunk != null) {
+            notifyAll();
+        }
+        return chunk;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.sevenz;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Receives the entries of a 7z archive decoded by {@link
+ * SevenZFile#decodeInParallel}.
+ *
+ * <p>Entries of the same folder are passed to the handler one after
+ * the other in archive order and on the same thread, entries of
+ * different folders may be passed concurrently on different
+ * threads. Implementations must therefore be thread-safe.</p>
+ *
+ * @since 1.20
+ */
+public interface SevenZEntryHandler {
+    /**
+     * Processes the contents of a single entry.
+     *
+     * <p>The stream is only valid until this method returns, any
+     * content that hasn't been read by then is skipped. Entries
+     * without content are passed an empty stream.</p>
+     *
+     * @param entry the entry
+     * @param content the decoded content of the entry
+     * @throws IOException if processing the entry fails, this aborts
+     * the decoding of the whole archive
+     */
+    void handle(SevenZArchiveEntry entry, InputStream content) throws IOException;
+}
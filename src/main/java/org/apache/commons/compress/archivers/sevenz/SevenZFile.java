@@ -25,6 +25,7 @@
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.CharBuffer;
@@ -37,10 +38,21 @@
 import java.util.Arrays;
 import java.util.BitSet;
 import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.zip.CRC32;
 
 import org.apache.commons.compress.utils.BoundedInputStream;
+import org.apache.commons.compress.utils.BoundedPositionedReadInputStream;
 import org.apache.commons.compress.utils.CRC32VerifyingInputStream;
 import org.apache.commons.compress.utils.CharsetNames;
 import org.apache.commons.compress.utils.IOUtils;
@@ -99,6 +111,8 @@ public class SevenZFile implements Closeable {
 
     private final ArrayList<InputStream> deferredBlockStreams = new ArrayList<>();
 
+    private final FolderCache folderCache;
+
     // shared with SevenZOutputFile and tests, neither mutates it
     static final byte[] sevenZSignature = { //NOSONAR
         (byte)'7', (byte)'z', (byte)0xBC, (byte)0xAF, (byte)0x27, (byte)0x1C
@@ -330,6 +344,7 @@ private SevenZFile(final SeekableByteChannel channel, String filename,
         this.channel = channel;
         this.fileName = filename;
         this.options = options;
+        this.folderCache = new FolderCache(options.getFolderCacheSizeInKb() * 1024L);
         try {
             archive = readHeaders(password);
             if (password != null) {
@@ -1235,7 +1250,7 @@ private void buildDecodingStream(int entryIndex) throws IOException {
     private InputStream buildDecoderStack(final Folder folder, final long folderOffset,
                 final int firstPackStreamIndex, final SevenZArchiveEntry entry) throws IOException {
         channel.position(folderOffset);
-        InputStream inputStreamStack = new FilterInputStream(new BufferedInputStream(
+        final InputStream packedStream = new FilterInputStream(new BufferedInputStream(
               new BoundedSeekableByteChannelInputStream(channel,
                   archive.packSizes[firstPackStreamIndex]))) {
             @Override
@@ -1265,6 +1280,12 @@ private void count(int c) {
                 compressedBytesReadFromCurrentEntry += c;
             }
         };
+        return buildDecoderStack(folder, packedStream, entry);
+    }
+
+    private InputStream buildDecoderStack(final Folder folder, final InputStream packedStream,
+                final SevenZArchiveEntry entry) throws IOException {
+        InputStream inputStreamStack = packedStream;
         final LinkedList<SevenZMethodConfiguration> methods = new LinkedList<>();
         for (final Coder coder : folder.getOrderedCoders()) {
             if (coder.numInStreams != 1 || coder.numOutStreams != 1) {
@@ -1351,6 +1372,314 @@ public InputStream getInputStream(SevenZArchiveEntry entry) throws IOException {
         return getCurrentStream();
     }
 
+    /**
+     * Decodes all entries of the archive and decodes independent
+     * folders in parallel.
+     *
+     * <p>Each folder is decoded by a task of its own that uses
+     * positioned reads on the archive's channel and a decoder stack
+     * of its own, so archives that consist of many folders - because
+     * they have been created without or with limited solid
+     * compression - can be decoded using several threads. Entries
+     * without any content are passed to the handler on the calling
+     * thread.</p>
+     *
+     * <p>This method blocks until all entries have been handled or
+     * decoding has failed. After a failure folders that have not
+     * been started are skipped and the method waits for the tasks
+     * still running to finish their current entry, running tasks are
+     * never interrupted. It must not be called concurrently with
+     * any other method of this class and it ends the processing of
+     * the current entry, if any. Entries are positioned as if {@link
+     * #getNextEntry} had never been called after this method
+     * returns.</p>
+     *
+     * @param executor the executor that decodes the folders, it is
+     * not shut down by this method
+     * @param handler receives the decoded entries
+     * @throws IOException if decoding any folder or the handler fails
+     * @since 1.20
+     */
+    public void decodeInParallel(final ExecutorService executor, final SevenZEntryHandler handler)
+        throws IOException {
+        if (archive.streamMap == null) {
+            throw new IOException("Archive doesn't contain stream information to read entries");
+        }
+        resetCurrentEntry();
+        final int numFolders = archive.folders != null ? archive.folders.length : 0;
+        final List<List<SevenZArchiveEntry>> folderEntries = new ArrayList<>(numFolders);
+        for (int i = 0; i < numFolders; i++) {
+            folderEntries.add(new ArrayList<SevenZArchiveEntry>());
+        }
+        final List<SevenZArchiveEntry> entriesWithoutContent = new ArrayList<>();
+        for (int i = 0; i < archive.files.length; i++) {
+            final SevenZArchiveEntry entry = archive.files[i];
+            if (entry.getName() == null && options.getUseDefaultNameForUnnamedEntries()) {
+                entry.setName(getDefaultName());
+            }
+            final int folderIndex = archive.streamMap.fileFolderIndex[i];
+            if (folderIndex < 0 || !entry.hasStream()) {
+                entriesWithoutContent.add(entry);
+            } else {
+                folderEntries.get(folderIndex).add(entry);
+            }
+        }
+
+        final AtomicBoolean aborted = new AtomicBoolean();
+        final List<Future<Void>> futures = new ArrayList<>(numFolders);
+        try {
+            for (int i = 0; i < numFolders; i++) {
+                final List<SevenZArchiveEntry> entries = folderEntries.get(i);
+                if (!entries.isEmpty()) {
+                    final int folderIndex = i;
+                    futures.add(executor.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() throws IOException {
+                            decodeFolder(folderIndex, entries, handler, aborted);
+                            return null;
+                        }
+                    }));
+                }
+            }
+            for (final SevenZArchiveEntry entry : entriesWithoutContent) {
+                handler.handle(entry, new ByteArrayInputStream(new byte[0]));
+            }
+            for (final Future<Void> f : futures) {
+                try {
+                    f.get();
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while decoding folders");
+                } catch (final ExecutionException ex) {
+                    final Throwable cause = ex.getCause();
+                    throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+                }
+            }
+        } finally {
+            // interrupting a task that reads from a FileChannel would close the channel
+            aborted.set(true);
+            for (final Future<Void> f : futures) {
+                try {
+                    f.get();
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (final ExecutionException ex) { // NOSONAR
+                    // only the first failure is reported
+                }
+            }
+        }
+    }
+
+    /**
+     * Extracts the given entries, decoding each folder at most once.
+     *
+     * <p>Using {@link #getInputStream} to read entries of a solid
+     * archive in random order is expensive as the folder containing
+     * the entry has to be decoded from its start whenever an entry
+     * preceeding the current one is requested. This method sorts the
+     * requested entries by folder and by their position inside of
+     * the folder, decodes each folder exactly once and skips over
+     * the data of entries that have not been requested. Decoding of
+     * a folder stops after its last requested entry.</p>
+     *
+     * <p>Entries are passed to the handler in the order they appear
+     * inside the archive, not the order of the given entries. Entries
+     * without any content are passed to the handler with an empty
+     * stream. Entries given more than once are only handled
+     * once.</p>
+     *
+     * <p>If {@link SevenZFileOptions#getFolderCacheSizeInKb} is
+     * positive, folders small enough to fit into the cache are
+     * decoded completely and kept in memory so later calls to this
+     * method or {@link #decodeInParallel} can extract entries of the
+     * same folder without decoding it again.</p>
+     *
+     * <p>This method must not be called concurrently with any other
+     * method of this class and it ends the processing of the current
+     * entry, if any. Entries are positioned as if {@link
+     * #getNextEntry} had never been called after this method
+     * returns.</p>
+     *
+     * @param entries the entries to extract, all of them must have
+     * been obtained from this archive
+     * @param handler receives the decoded entries
+     * @throws IOException if decoding any folder or the handler fails
+     * @throws IllegalArgumentException if any of the entries doesn't belong to this archive
+     * @since 1.20
+     */
+    public void extract(final Iterable<SevenZArchiveEntry> entries, final SevenZEntryHandler handler)
+        throws IOException {
+        if (archive.streamMap == null) {
+            throw new IOException("Archive doesn't contain stream information to read entries");
+        }
+        final Map<SevenZArchiveEntry, Integer> indexes = new IdentityHashMap<>(archive.files.length);
+        for (int i = 0; i < archive.files.length; i++) {
+            indexes.put(archive.files[i], i);
+        }
+        final BitSet wanted = new BitSet(archive.files.length);
+        for (final SevenZArchiveEntry entry : entries) {
+            final Integer index = indexes.get(entry);
+            if (index == null) {
+                throw new IllegalArgumentException("Can not find " + entry.getName() + " in " + this.fileName);
+            }
+            wanted.set(index);
+        }
+        resetCurrentEntry();
+
+        final List<SevenZArchiveEntry> folderEntries = new ArrayList<>();
+        int folderIndex = -1;
+        for (int i = wanted.nextSetBit(0); i >= 0; i = wanted.nextSetBit(i + 1)) {
+            final SevenZArchiveEntry entry = archive.files[i];
+            if (entry.getName() == null && options.getUseDefaultNameForUnnamedEntries()) {
+                entry.setName(getDefaultName());
+            }
+            final int entryFolderIndex = archive.streamMap.fileFolderIndex[i];
+            if (entryFolderIndex < 0 || !entry.hasStream()) {
+                handler.handle(entry, new ByteArrayInputStream(new byte[0]));
+                continue;
+            }
+            if (entryFolderIndex != folderIndex && !folderEntries.isEmpty()) {
+                decodeFolder(folderIndex, folderEntries, handler, new AtomicBoolean());
+                folderEntries.clear();
+            }
+            folderIndex = entryFolderIndex;
+            folderEntries.add(entry);
+        }
+        if (!folderEntries.isEmpty()) {
+            decodeFolder(folderIndex, folderEntries, handler, new AtomicBoolean());
+        }
+    }
+
+    /**
+     * Decodes a folder and passes the given entries to the handler.
+     *
+     * @param entries entries of the folder in archive order, the
+     * data of all other entries of the folder is skipped
+     * @param aborted stops decoding before the next entry once set
+     */
+    private void decodeFolder(final int folderIndex, final List<SevenZArchiveEntry> entries,
+        final SevenZEntryHandler handler, final AtomicBoolean aborted) throws IOException {
+        if (aborted.get()) {
+            return;
+        }
+        final Folder folder = archive.folders[folderIndex];
+        final Iterator<SevenZArchiveEntry> wanted = entries.iterator();
+        SevenZArchiveEntry next = wanted.next();
+        final byte[] buffer = new byte[8192];
+        try (InputStream folderStream = openFolder(folderIndex, folder, next)) {
+            final Iterable<? extends SevenZMethodConfiguration> methods = next.getContentMethods();
+            for (int i = archive.streamMap.folderFirstFileIndex[folderIndex]; next != null && !aborted.get(); i++) {
+                final SevenZArchiveEntry entry = archive.files[i];
+                if (!entry.hasStream()) {
+                    continue;
+                }
+                InputStream entryStream = new BoundedInputStream(folderStream, entry.getSize());
+                if (entry == next) {
+                    entry.setContentMethods(methods);
+                    if (entry.getHasCrc()) {
+                        entryStream = new CRC32VerifyingInputStream(entryStream, entry.getSize(),
+                            entry.getCrcValue());
+                    }
+                    handler.handle(entry, entryStream);
+                    next = wanted.hasNext() ? wanted.next() : null;
+                }
+                // verifies the CRC, if any, and moves to the next entry
+                drain(entryStream, buffer);
+            }
+        }
+    }
+
+    private InputStream openFolder(final int folderIndex, final Folder folder, final SevenZArchiveEntry first)
+        throws IOException {
+        final CachedFolder cached = folderCache.get(folderIndex);
+        if (cached != null) {
+            first.setContentMethods(cached.methods);
+            return new ByteArrayInputStream(cached.content);
+        }
+        final int firstPackStreamIndex = archive.streamMap.folderFirstPackStreamIndex[folderIndex];
+        final long folderOffset = SIGNATURE_HEADER_SIZE + archive.packPos +
+                archive.streamMap.packStreamOffsets[firstPackStreamIndex];
+        final InputStream packedStream = new BufferedInputStream(
+            new BoundedPositionedReadInputStream(folderOffset, archive.packSizes[firstPackStreamIndex], channel));
+        final InputStream folderStream = buildDecoderStack(folder, packedStream, first);
+        final long unpackSize = folder.getUnpackSize();
+        if (!folderCache.fits(unpackSize)) {
+            return folderStream;
+        }
+        final byte[] content = new byte[(int) unpackSize];
+        try (InputStream in = folderStream) {
+            if (IOUtils.readFully(in, content) < content.length) {
+                throw new IOException("Truncated 7z archive: folder " + folderIndex + " is incomplete");
+            }
+            // verifies the folder CRC, if any
+            drain(in, new byte[1]);
+        }
+        folderCache.put(folderIndex, new CachedFolder(content, first.getContentMethods()));
+        return new ByteArrayInputStream(content);
+    }
+
+    private static void drain(final InputStream in, final byte[] buffer) throws IOException {
+        while (in.read(buffer) >= 0) { // NOPMD
+            // discard
+        }
+    }
+
+    private static final class CachedFolder {
+        private final byte[] content;
+        private final Iterable<? extends SevenZMethodConfiguration> methods;
+
+        private CachedFolder(final byte[] content, final Iterable<? extends SevenZMethodConfiguration> methods) {
+            this.content = content;
+            this.methods = methods;
+        }
+    }
+
+    /**
+     * Keeps the most recently used decoded folders up to a total
+     * size, shared by the threads of {@link #decodeInParallel}.
+     */
+    private static final class FolderCache {
+        private final long maxSize;
+        private final LinkedHashMap<Integer, CachedFolder> folders = new LinkedHashMap<>(16, 0.75f, true);
+        private long size;
+
+        private FolderCache(final long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        boolean fits(final long folderSize) {
+            return maxSize > 0 && folderSize <= maxSize && folderSize < Integer.MAX_VALUE;
+        }
+
+        synchronized CachedFolder get(final int folderIndex) {
+            return folders.get(folderIndex);
+        }
+
+        synchronized void put(final int folderIndex, final CachedFolder folder) {
+            final CachedFolder old = folders.put(folderIndex, folder);
+            if (old != null) {
+                size -= old.content.length;
+            }
+            size += folder.content.length;
+            final Iterator<CachedFolder> eldest = folders.values().iterator();
+            while (size > maxSize) {
+                size -= eldest.next().content.length;
+                eldest.remove();
+            }
+        }
+    }
+
+    private void resetCurrentEntry() throws IOException {
+        currentEntryIndex = -1;
+        currentFolderIndex = -1;
+        deferredBlockStreams.clear();
+        if (currentFolderInputStream != null) {
+            currentFolderInputStream.close();
+            currentFolderInputStream = null;
+        }
+    }
+
     /**
      * Reads data into an array of bytes.
      *
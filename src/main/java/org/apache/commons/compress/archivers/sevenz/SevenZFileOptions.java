@@ -26,13 +26,17 @@
 public class SevenZFileOptions {
     private static final int DEFAUL_MEMORY_LIMIT_IN_KB = Integer.MAX_VALUE;
     private static final boolean DEFAULT_USE_DEFAULTNAME_FOR_UNNAMED_ENTRIES= false;
+    private static final int DEFAULT_FOLDER_CACHE_SIZE_IN_KB = 0;
 
     private final int maxMemoryLimitInKb;
     private final boolean useDefaultNameForUnnamedEntries;
+    private final int folderCacheSizeInKb;
 
-    private SevenZFileOptions(int maxMemoryLimitInKb, boolean useDefaultNameForUnnamedEntries) {
+    private SevenZFileOptions(int maxMemoryLimitInKb, boolean useDefaultNameForUnnamedEntries,
+        int folderCacheSizeInKb) {
         this.maxMemoryLimitInKb = maxMemoryLimitInKb;
         this.useDefaultNameForUnnamedEntries = useDefaultNameForUnnamedEntries;
+        this.folderCacheSizeInKb = folderCacheSizeInKb;
     }
 
     /**
@@ -41,10 +45,11 @@ private SevenZFileOptions(int maxMemoryLimitInKb, boolean useDefaultNameForUnnam
      * <ul>
      *   <li>no memory limit</li>
      *   <li>don't modifiy the name of unnamed entries</li>
+     *   <li>don't cache decoded folders</li>
      * </ul>
      */
     public static final SevenZFileOptions DEFAULT = new SevenZFileOptions(DEFAUL_MEMORY_LIMIT_IN_KB,
-        DEFAULT_USE_DEFAULTNAME_FOR_UNNAMED_ENTRIES);
+        DEFAULT_USE_DEFAULTNAME_FOR_UNNAMED_ENTRIES, DEFAULT_FOLDER_CACHE_SIZE_IN_KB);
 
     /**
      * Obtains a builder for SevenZFileOptions.
@@ -74,6 +79,17 @@ public boolean getUseDefaultNameForUnnamedEntries() {
         return useDefaultNameForUnnamedEntries;
     }
 
+    /**
+     * Gets the maximum amount of memory used to keep decoded folders
+     * around for {@link SevenZFile#extract} and
+     * {@link SevenZFile#decodeInParallel}.
+     * @return the size of the folder cache, 0 means folders are not cached
+     * @since 1.20
+     */
+    public int getFolderCacheSizeInKb() {
+        return folderCacheSizeInKb;
+    }
+
     /**
      * Mutable builder for the immutable {@link SevenZFileOptions}.
      *
@@ -82,6 +98,7 @@ public boolean getUseDefaultNameForUnnamedEntries() {
     public static class Builder {
         private int maxMemoryLimitInKb = DEFAUL_MEMORY_LIMIT_IN_KB;
         private boolean useDefaultNameForUnnamedEntries = DEFAULT_USE_DEFAULTNAME_FOR_UNNAMED_ENTRIES;
+        private int folderCacheSizeInKb = DEFAULT_FOLDER_CACHE_SIZE_IN_KB;
         /**
          * Sets the maximum amount of memory to use for
          * extraction. Not all codecs will honor this
@@ -108,13 +125,34 @@ public Builder withUseDefaultNameForUnnamedEntries(boolean useDefaultNameForUnna
             return this;
         }
 
+        /**
+         * Sets the maximum amount of memory used to keep decoded
+         * folders around for {@link SevenZFile#extract} and {@link
+         * SevenZFile#decodeInParallel}.
+         *
+         * <p>Folders whose uncompressed size fits into the cache are
+         * decoded completely and kept in memory, so extracting
+         * further entries of the same folder later doesn't require
+         * decoding the folder again. The least recently used folders
+         * are evicted once the limit is reached.</p>
+         *
+         * @param folderCacheSizeInKb the size of the folder cache, 0 disables caching
+         * @return the reconfigured builder
+         * @since 1.20
+         */
+        public Builder withFolderCacheSizeInKb(int folderCacheSizeInKb) {
+            this.folderCacheSizeInKb = folderCacheSizeInKb;
+            return this;
+        }
+
         /**
          * Create the {@link SevenZFileOptions}.
          *
          * @return configured {@link SevenZFileOptions}.
          */
         public SevenZFileOptions build() {
-            return new SevenZFileOptions(maxMemoryLimitInKb, useDefaultNameForUnnamedEntries);
+            return new SevenZFileOptions(maxMemoryLimitInKb, useDefaultNameForUnnamedEntries,
+                folderCacheSizeInKb);
         }
     }
 }
@@ -23,43 +23,76 @@
 import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
 import java.util.EnumSet;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.LinkedList;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.CRC32;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.parallel.FileBasedScatterGatherBackingStore;
+import org.apache.commons.compress.parallel.ScatterGatherBackingStore;
+import org.apache.commons.compress.parallel.ScatterGatherBackingStoreSupplier;
 import org.apache.commons.compress.utils.CountingOutputStream;
+import org.apache.commons.compress.utils.IOUtils;
 
 /**
  * Writes a 7z file.
+ *
+ * <p>By default every entry is compressed into a folder of its
+ * own. {@link #setMaxEntriesPerFolder} and {@link
+ * #setMaxBytesPerFolder} can be used to create solid blocks holding
+ * several entries instead, which usually improves the compression
+ * ratio for many small files. Folders can be compressed in parallel
+ * after {@link #setParallelCompression} has been called.</p>
+ *
  * @since 1.6
  */
 public class SevenZOutputFile implements Closeable {
+    // number of 64k chunks of uncompressed data buffered per folder in parallel mode
+    private static final int MAX_PIPED_CHUNKS = 16;
+
     private final SeekableByteChannel channel;
     private final List<SevenZArchiveEntry> files = new ArrayList<>();
-    private int numNonEmptyStreams = 0;
+    private final List<OutputFolder> folders = new ArrayList<>();
     private final CRC32 crc32 = new CRC32();
+    private final CRC32 folderCrc32 = new CRC32();
     private final CRC32 compressedCrc32 = new CRC32();
     private long fileBytesWritten = 0;
     private boolean finished = false;
     private CountingOutputStream currentOutputStream;
+    private OutputFolder currentFolder;
+    private OutputStream currentFolderOutputStream;
     private CountingOutputStream[] additionalCountingStreams;
     private Iterable<? extends SevenZMethodConfiguration> contentMethods =
             Collections.singletonList(new SevenZMethodConfiguration(SevenZMethod.LZMA2));
-    private final Map<SevenZArchiveEntry, long[]> additionalSizes = new HashMap<>();
+    private int maxEntriesPerFolder = 1;
+    private long maxBytesPerFolder = Long.MAX_VALUE;
+
+    // only used when compressing folders in parallel
+    private ExecutorService executor;
+    private ScatterGatherBackingStoreSupplier backingStoreSupplier;
+    private int maxFoldersInFlight;
+    private final Deque<FolderInFlight> foldersInFlight = new ArrayDeque<>();
 
     /**
      * Opens file to write a 7z archive to.
@@ -123,6 +156,83 @@ public void setContentMethods(final Iterable<? extends SevenZMethodConfiguration
         this.contentMethods = reverse(methods);
     }
 
+    /**
+     * Sets the maximum number of entries that are compressed
+     * together into a single folder (a "solid block") - the default
+     * is 1 which creates an archive without solid compression.
+     *
+     * <p>Only entries with content count, directories and empty
+     * files don't occupy any space inside of a folder. An entry that
+     * uses different content methods than its predecessor always
+     * starts a new folder.</p>
+     *
+     * @param maxEntriesPerFolder the maximum number of entries per folder
+     * @throws IllegalArgumentException if maxEntriesPerFolder is smaller than 1
+     * @since 1.20
+     */
+    public void setMaxEntriesPerFolder(final int maxEntriesPerFolder) {
+        if (maxEntriesPerFolder < 1) {
+            throw new IllegalArgumentException("maxEntriesPerFolder must be positive");
+        }
+        this.maxEntriesPerFolder = maxEntriesPerFolder;
+    }
+
+    /**
+     * Sets the number of uncompressed bytes after which a folder is
+     * closed and a new folder is started for the next entry - by
+     * default there is no limit.
+     *
+     * <p>Entries are never split between folders, so a folder may
+     * exceed the limit by the size of its last entry. This limit only
+     * has an effect if {@link #setMaxEntriesPerFolder} has been set
+     * to a value bigger than 1.</p>
+     *
+     * @param maxBytesPerFolder the limit for the uncompressed size of a folder
+     * @throws IllegalArgumentException if maxBytesPerFolder is smaller than 1
+     * @since 1.20
+     */
+    public void setMaxBytesPerFolder(final long maxBytesPerFolder) {
+        if (maxBytesPerFolder < 1) {
+            throw new IllegalArgumentException("maxBytesPerFolder must be positive");
+        }
+        this.maxBytesPerFolder = maxBytesPerFolder;
+    }
+
+    /**
+     * Compresses folders in parallel.
+     *
+     * <p>The content of each folder is handed to a task running on
+     * the executor which compresses it into a {@link
+     * ScatterGatherBackingStore}. Compressed folders are copied to
+     * the archive in order once they are complete. This only helps if
+     * the archive consists of several folders, i.e. if solid
+     * compression is disabled or limited.</p>
+     *
+     * @param executor the executor that compresses the folders, it is
+     * not shut down by this class
+     * @param backingStoreSupplier supplies the stores holding the
+     * compressed folders, if null temporary files are used
+     * @param maxFoldersInFlight the maximum number of folders that
+     * have been handed to the executor but haven't been copied to the
+     * archive, yet. Adding entries blocks while this limit is reached.
+     * @throws IllegalArgumentException if maxFoldersInFlight is smaller than 1
+     * @throws IllegalStateException if entries have already been added
+     * @since 1.20
+     */
+    public void setParallelCompression(final ExecutorService executor,
+        final ScatterGatherBackingStoreSupplier backingStoreSupplier, final int maxFoldersInFlight) {
+        if (maxFoldersInFlight < 1) {
+            throw new IllegalArgumentException("maxFoldersInFlight must be positive");
+        }
+        if (!files.isEmpty()) {
+            throw new IllegalStateException("Parallel compression must be enabled before adding entries");
+        }
+        this.executor = executor;
+        this.backingStoreSupplier = backingStoreSupplier != null ? backingStoreSupplier
+            : new TempFileBackingStoreSupplier();
+        this.maxFoldersInFlight = maxFoldersInFlight;
+    }
+
     /**
      * Closes the archive, calling {@link #finish} if necessary.
      *
@@ -176,26 +286,17 @@ public void putArchiveEntry(final ArchiveEntry archiveEntry) throws IOException
      * @throws IOException on error
      */
     public void closeArchiveEntry() throws IOException {
-        if (currentOutputStream != null) {
-            currentOutputStream.flush();
-            currentOutputStream.close();
-        }
-
         final SevenZArchiveEntry entry = files.get(files.size() - 1);
-        if (fileBytesWritten > 0) { // this implies currentOutputStream != null
+        if (currentOutputStream != null && currentOutputStream.getBytesWritten() > 0) {
             entry.setHasStream(true);
-            ++numNonEmptyStreams;
-            entry.setSize(currentOutputStream.getBytesWritten()); //NOSONAR
-            entry.setCompressedSize(fileBytesWritten);
+            entry.setSize(currentOutputStream.getBytesWritten());
             entry.setCrcValue(crc32.getValue());
-            entry.setCompressedCrcValue(compressedCrc32.getValue());
             entry.setHasCrc(true);
-            if (additionalCountingStreams != null) {
-                final long[] sizes = new long[additionalCountingStreams.length];
-                for (int i = 0; i < additionalCountingStreams.length; i++) {
-                    sizes[i] = additionalCountingStreams[i].getBytesWritten();
-                }
-                additionalSizes.put(entry, sizes);
+            currentFolder.entries.add(entry);
+            currentFolder.unpackSize += entry.getSize();
+            if (currentFolder.entries.size() >= maxEntriesPerFolder
+                || currentFolder.unpackSize >= maxBytesPerFolder) {
+                closeFolder();
             }
         } else {
             entry.setHasStream(false);
@@ -204,10 +305,7 @@ public void closeArchiveEntry() throws IOException {
             entry.setHasCrc(false);
         }
         currentOutputStream = null;
-        additionalCountingStreams = null;
         crc32.reset();
-        compressedCrc32.reset();
-        fileBytesWritten = 0;
     }
 
     /**
@@ -252,6 +350,21 @@ public void finish() throws IOException {
         }
         finished = true;
 
+        boolean success = false;
+        try {
+            if (currentFolder != null) {
+                closeFolder();
+            }
+            while (!foldersInFlight.isEmpty()) {
+                copyOldestFolderInFlight();
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                abortFoldersInFlight();
+            }
+        }
+
         final long headerPosition = channel.position();
 
         final ByteArrayOutputStream headerBaos = new ByteArrayOutputStream();
@@ -309,32 +422,27 @@ private CountingOutputStream setupFileOutputStream() throws IOException {
             throw new IllegalStateException("No current 7z entry");
         }
 
-        OutputStream out = new OutputStreamWrapper();
-        final ArrayList<CountingOutputStream> moreStreams = new ArrayList<>();
-        boolean first = true;
-        for (final SevenZMethodConfiguration m : getContentMethods(files.get(files.size() - 1))) {
-            if (!first) {
-                final CountingOutputStream cos = new CountingOutputStream(out);
-                moreStreams.add(cos);
-                out = cos;
-            }
-            out = Coders.addEncoder(out, m.getMethod(), m.getOptions());
-            first = false;
+        final Iterable<? extends SevenZMethodConfiguration> methods = getContentMethods(files.get(files.size() - 1));
+        if (currentFolder != null && !sameMethods(currentFolder.methods, methods)) {
+            closeFolder();
         }
-        if (!moreStreams.isEmpty()) {
-            additionalCountingStreams = moreStreams.toArray(new CountingOutputStream[0]);
+        if (currentFolder == null) {
+            openFolder(methods);
         }
-        return new CountingOutputStream(out) {
+        // the folder stream is closed by closeFolder, never by the entry's stream
+        return new CountingOutputStream(currentFolderOutputStream) {
             @Override
             public void write(final int b) throws IOException {
                 super.write(b);
                 crc32.update(b);
+                folderCrc32.update(b);
             }
 
             @Override
             public void write(final byte[] b) throws IOException {
                 super.write(b);
                 crc32.update(b);
+                folderCrc32.update(b);
             }
 
             @Override
@@ -342,10 +450,188 @@ public void write(final byte[] b, final int off, final int len)
                 throws IOException {
                 super.write(b, off, len);
                 crc32.update(b, off, len);
+                folderCrc32.update(b, off, len);
             }
         };
     }
 
+    private void openFolder(final Iterable<? extends SevenZMethodConfiguration> methods) throws IOException {
+        if (executor != null) {
+            while (foldersInFlight.size() >= maxFoldersInFlight) {
+                copyOldestFolderInFlight();
+            }
+        }
+        currentFolder = new OutputFolder(methods);
+        folders.add(currentFolder);
+        folderCrc32.reset();
+        if (executor == null) {
+            final List<CountingOutputStream> moreStreams = new ArrayList<>();
+            currentFolderOutputStream = addEncoders(new OutputStreamWrapper(), methods, moreStreams);
+            if (!moreStreams.isEmpty()) {
+                additionalCountingStreams = moreStreams.toArray(new CountingOutputStream[0]);
+            }
+        } else {
+            final FolderPipe pipe = new FolderPipe(MAX_PIPED_CHUNKS);
+            final Future<CompressedFolder> future = executor.submit(new Callable<CompressedFolder>() {
+                @Override
+                public CompressedFolder call() throws IOException {
+                    return compressFolder(pipe, methods);
+                }
+            });
+            foldersInFlight.add(new FolderInFlight(currentFolder, future));
+            currentFolderOutputStream = pipe.getOutputStream();
+        }
+    }
+
+    private void closeFolder() throws IOException {
+        final OutputFolder folder = currentFolder;
+        currentFolder = null;
+        try {
+            currentFolderOutputStream.close();
+        } finally {
+            currentFolderOutputStream = null;
+        }
+        folder.crc = folderCrc32.getValue();
+        if (executor == null) {
+            folder.packSize = fileBytesWritten;
+            folder.packCrc = compressedCrc32.getValue();
+            folder.additionalSizes = getBytesWritten(additionalCountingStreams);
+            setCompressedSizeOfSingleEntry(folder);
+            additionalCountingStreams = null;
+            compressedCrc32.reset();
+            fileBytesWritten = 0;
+        }
+    }
+
+    /**
+     * Runs on the executor and compresses the content of a folder
+     * read from the pipe into a backing store.
+     */
+    private CompressedFolder compressFolder(final FolderPipe pipe,
+        final Iterable<? extends SevenZMethodConfiguration> methods) throws IOException {
+        final ScatterGatherBackingStore store = backingStoreSupplier.get();
+        boolean success = false;
+        try (InputStream in = pipe.getInputStream()) {
+            final CRC32 packCrc = new CRC32();
+            final CountingOutputStream packed = new CountingOutputStream(new OutputStream() {
+                @Override
+                public void write(final int b) throws IOException {
+                    write(new byte[] { (byte) b }, 0, 1);
+                }
+
+                @Override
+                public void write(final byte[] b, final int off, final int len) throws IOException {
+                    store.writeOut(b, off, len);
+                    packCrc.update(b, off, len);
+                }
+            });
+            final List<CountingOutputStream> moreStreams = new ArrayList<>();
+            try (OutputStream out = addEncoders(packed, methods, moreStreams)) {
+                IOUtils.copy(in, out);
+            }
+            store.closeForWriting();
+            final CompressedFolder result = new CompressedFolder(store, packed.getBytesWritten(),
+                packCrc.getValue(), getBytesWritten(moreStreams.toArray(new CountingOutputStream[0])));
+            success = true;
+            return result;
+        } finally {
+            if (!success) {
+                store.close();
+            }
+        }
+    }
+
+    private void copyOldestFolderInFlight() throws IOException {
+        final FolderInFlight inFlight = foldersInFlight.remove();
+        final CompressedFolder compressed;
+        try {
+            compressed = inFlight.future.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a compressed folder");
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+        try (ScatterGatherBackingStore store = compressed.store;
+             InputStream in = store.getInputStream()) {
+            final byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                final ByteBuffer bb = ByteBuffer.wrap(buffer, 0, n);
+                while (bb.hasRemaining()) {
+                    channel.write(bb);
+                }
+            }
+        }
+        final OutputFolder folder = inFlight.folder;
+        folder.packSize = compressed.packSize;
+        folder.packCrc = compressed.packCrc;
+        folder.additionalSizes = compressed.additionalSizes;
+        setCompressedSizeOfSingleEntry(folder);
+    }
+
+    private void abortFoldersInFlight() {
+        for (final FolderInFlight inFlight : foldersInFlight) {
+            inFlight.future.cancel(true);
+            if (inFlight.future.isDone() && !inFlight.future.isCancelled()) {
+                try {
+                    inFlight.future.get().store.close();
+                } catch (final Exception ex) { // NOSONAR
+                    // the original exception is more interesting
+                }
+            }
+        }
+        foldersInFlight.clear();
+    }
+
+    private OutputStream addEncoders(OutputStream out, final Iterable<? extends SevenZMethodConfiguration> methods,
+        final List<CountingOutputStream> moreStreams) throws IOException {
+        boolean first = true;
+        for (final SevenZMethodConfiguration m : methods) {
+            if (!first) {
+                final CountingOutputStream cos = new CountingOutputStream(out);
+                moreStreams.add(cos);
+                out = cos;
+            }
+            out = Coders.addEncoder(out, m.getMethod(), m.getOptions());
+            first = false;
+        }
+        return out;
+    }
+
+    private static long[] getBytesWritten(final CountingOutputStream[] streams) {
+        if (streams == null || streams.length == 0) {
+            return null;
+        }
+        final long[] sizes = new long[streams.length];
+        for (int i = 0; i < streams.length; i++) {
+            sizes[i] = streams[i].getBytesWritten();
+        }
+        return sizes;
+    }
+
+    private static void setCompressedSizeOfSingleEntry(final OutputFolder folder) {
+        // compressed size and CRC of an entry are only known if it occupies a folder of its own
+        if (folder.entries.size() == 1) {
+            final SevenZArchiveEntry entry = folder.entries.get(0);
+            entry.setCompressedSize(folder.packSize);
+            entry.setCompressedCrcValue(folder.packCrc);
+        }
+    }
+
+    private static boolean sameMethods(final Iterable<? extends SevenZMethodConfiguration> a,
+        final Iterable<? extends SevenZMethodConfiguration> b) {
+        final Iterator<? extends SevenZMethodConfiguration> i1 = a.iterator();
+        final Iterator<? extends SevenZMethodConfiguration> i2 = b.iterator();
+        while (i1.hasNext() && i2.hasNext()) {
+            if (!i1.next().equals(i2.next())) {
+                return false;
+            }
+        }
+        return !i1.hasNext() && !i2.hasNext();
+    }
+
     private Iterable<? extends SevenZMethodConfiguration> getContentMethods(final SevenZArchiveEntry entry) {
         final Iterable<? extends SevenZMethodConfiguration> ms = entry.getContentMethods();
         return ms == null ? contentMethods : ms;
@@ -361,7 +647,7 @@ private void writeHeader(final DataOutput header) throws IOException {
     }
 
     private void writeStreamsInfo(final DataOutput header) throws IOException {
-        if (numNonEmptyStreams > 0) {
+        if (!folders.isEmpty()) {
             writePackInfo(header);
             writeUnpackInfo(header);
         }
@@ -375,21 +661,17 @@ private void writePackInfo(final DataOutput header) throws IOException {
         header.write(NID.kPackInfo);
 
         writeUint64(header, 0);
-        writeUint64(header, 0xffffFFFFL & numNonEmptyStreams);
+        writeUint64(header, 0xffffFFFFL & folders.size());
 
         header.write(NID.kSize);
-        for (final SevenZArchiveEntry entry : files) {
-            if (entry.hasStream()) {
-                writeUint64(header, entry.getCompressedSize());
-            }
+        for (final OutputFolder folder : folders) {
+            writeUint64(header, folder.packSize);
         }
 
         header.write(NID.kCRC);
         header.write(1); // "allAreDefined" == true
-        for (final SevenZArchiveEntry entry : files) {
-            if (entry.hasStream()) {
-                header.writeInt(Integer.reverseBytes((int) entry.getCompressedCrcValue()));
-            }
+        for (final OutputFolder folder : folders) {
+            header.writeInt(Integer.reverseBytes((int) folder.packCrc));
         }
 
         header.write(NID.kEnd);
@@ -399,42 +681,36 @@ private void writeUnpackInfo(final DataOutput header) throws IOException {
         header.write(NID.kUnpackInfo);
 
         header.write(NID.kFolder);
-        writeUint64(header, numNonEmptyStreams);
+        writeUint64(header, folders.size());
         header.write(0);
-        for (final SevenZArchiveEntry entry : files) {
-            if (entry.hasStream()) {
-                writeFolder(header, entry);
-            }
+        for (final OutputFolder folder : folders) {
+            writeFolder(header, folder.methods);
         }
 
         header.write(NID.kCodersUnpackSize);
-        for (final SevenZArchiveEntry entry : files) {
-            if (entry.hasStream()) {
-                final long[] moreSizes = additionalSizes.get(entry);
-                if (moreSizes != null) {
-                    for (final long s : moreSizes) {
-                        writeUint64(header, s);
-                    }
+        for (final OutputFolder folder : folders) {
+            if (folder.additionalSizes != null) {
+                for (final long s : folder.additionalSizes) {
+                    writeUint64(header, s);
                 }
-                writeUint64(header, entry.getSize());
             }
+            writeUint64(header, folder.unpackSize);
         }
 
         header.write(NID.kCRC);
         header.write(1); // "allAreDefined" == true
-        for (final SevenZArchiveEntry entry : files) {
-            if (entry.hasStream()) {
-                header.writeInt(Integer.reverseBytes((int) entry.getCrcValue()));
-            }
+        for (final OutputFolder folder : folders) {
+            header.writeInt(Integer.reverseBytes((int) folder.crc));
         }
 
         header.write(NID.kEnd);
     }
 
-    private void writeFolder(final DataOutput header, final SevenZArchiveEntry entry) throws IOException {
+    private void writeFolder(final DataOutput header, final Iterable<? extends SevenZMethodConfiguration> methods)
+        throws IOException {
         final ByteArrayOutputStream bos = new ByteArrayOutputStream();
         int numCoders = 0;
-        for (final SevenZMethodConfiguration m : getContentMethods(entry)) {
+        for (final SevenZMethodConfiguration m : methods) {
             numCoders++;
             writeSingleCodec(m, bos);
         }
@@ -467,15 +743,37 @@ private void writeSingleCodec(final SevenZMethodConfiguration m, final OutputStr
 
     private void writeSubStreamsInfo(final DataOutput header) throws IOException {
         header.write(NID.kSubStreamsInfo);
-//
-//        header.write(NID.kCRC);
-//        header.write(1);
-//        for (final SevenZArchiveEntry entry : files) {
-//            if (entry.getHasCrc()) {
-//                header.writeInt(Integer.reverseBytes(entry.getCrc()));
-//            }
-//        }
-//
+
+        boolean solid = false;
+        for (final OutputFolder folder : folders) {
+            solid |= folder.entries.size() != 1;
+        }
+        if (solid) {
+            header.write(NID.kNumUnpackStream);
+            for (final OutputFolder folder : folders) {
+                writeUint64(header, folder.entries.size());
+            }
+
+            header.write(NID.kSize);
+            for (final OutputFolder folder : folders) {
+                // the size of the last entry is implied by the folder's size
+                for (int i = 0; i < folder.entries.size() - 1; i++) {
+                    writeUint64(header, folder.entries.get(i).getSize());
+                }
+            }
+
+            // CRCs of folders holding a single entry are implied by the folder's CRC
+            header.write(NID.kCRC);
+            header.write(1); // "allAreDefined" == true
+            for (final OutputFolder folder : folders) {
+                if (folder.entries.size() != 1) {
+                    for (final SevenZArchiveEntry entry : folder.entries) {
+                        header.writeInt(Integer.reverseBytes((int) entry.getCrcValue()));
+                    }
+                }
+            }
+        }
+
         header.write(NID.kEnd);
     }
 
@@ -767,6 +1065,58 @@ private static <T> Iterable<T> reverse(final Iterable<T> i) {
         return l;
     }
 
+    /**
+     * A folder and the entries it contains.
+     */
+    private static final class OutputFolder {
+        private final Iterable<? extends SevenZMethodConfiguration> methods;
+        private final List<SevenZArchiveEntry> entries = new ArrayList<>();
+        private long unpackSize;
+        private long crc;
+        private long packSize;
+        private long packCrc;
+        private long[] additionalSizes;
+
+        private OutputFolder(final Iterable<? extends SevenZMethodConfiguration> methods) {
+            this.methods = methods;
+        }
+    }
+
+    private static final class CompressedFolder {
+        private final ScatterGatherBackingStore store;
+        private final long packSize;
+        private final long packCrc;
+        private final long[] additionalSizes;
+
+        private CompressedFolder(final ScatterGatherBackingStore store, final long packSize, final long packCrc,
+            final long[] additionalSizes) {
+            this.store = store;
+            this.packSize = packSize;
+            this.packCrc = packCrc;
+            this.additionalSizes = additionalSizes;
+        }
+    }
+
+    private static final class FolderInFlight {
+        private final OutputFolder folder;
+        private final Future<CompressedFolder> future;
+
+        private FolderInFlight(final OutputFolder folder, final Future<CompressedFolder> future) {
+            this.folder = folder;
+            this.future = future;
+        }
+    }
+
+    private static class TempFileBackingStoreSupplier implements ScatterGatherBackingStoreSupplier {
+        private final AtomicInteger storeNum = new AtomicInteger(0);
+
+        @Override
+        public ScatterGatherBackingStore get() throws IOException {
+            final File tempFile = File.createTempFile("sevenzscatter", "n" + storeNum.incrementAndGet());
+            return new FileBasedScatterGatherBackingStore(tempFile);
+        }
+    }
+
     private class OutputStreamWrapper extends OutputStream {
         private static final int BUF_SIZE = 8192;
         private final ByteBuffer buffer = ByteBuffer.allocate(BUF_SIZE);
@@ -29,6 +29,7 @@
 import java.util.Map;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.EntryStreamOffsets;
 import org.apache.commons.compress.archivers.zip.ZipEncoding;
 import org.apache.commons.compress.utils.ArchiveUtils;
 
@@ -146,7 +147,7 @@
  * @NotThreadSafe
  */
 
-public class TarArchiveEntry implements ArchiveEntry, TarConstants {
+public class TarArchiveEntry implements ArchiveEntry, TarConstants, EntryStreamOffsets {
     private static final TarArchiveEntry[] EMPTY_TAR_ARCHIVE_ENTRIES = new TarArchiveEntry[0];
 
     /**
@@ -228,6 +229,9 @@ public class TarArchiveEntry implements ArchiveEntry, TarConstants {
     /** Extra, user supplied pax headers     */
     private final Map<String,String> extraPaxHeaders = new HashMap<>();
 
+    /** Offset of the entry's data inside of the archive, if known */
+    private long dataOffset = EntryStreamOffsets.OFFSET_UNKNOWN;
+
     /** Maximum length of a user's name in the tar file */
     public static final int MAX_NAMELEN = 31;
 
@@ -438,6 +442,25 @@ public TarArchiveEntry(final byte[] headerBuf, final ZipEncoding encoding, boole
         parseTarHeader(headerBuf, encoding, false, lenient);
     }
 
+    /**
+     * Construct an entry from an archive's header bytes for an entry
+     * whose data starts at the given offset inside of the archive.
+     * File is set to null.
+     *
+     * @param headerBuf The header bytes from a tar archive entry.
+     * @param encoding encoding to use for file names
+     * @param lenient when set to true illegal values for group/userid, mode, device numbers and timestamp will be
+     * ignored and the fields set to {@link #UNKNOWN}. When set to false such illegal fields cause an exception instead.
+     * @param dataOffset position of the entry data in the archive
+     * @throws IllegalArgumentException if any of the numeric fields have an invalid format
+     * @throws IOException on error
+     */
+    TarArchiveEntry(final byte[] headerBuf, final ZipEncoding encoding, final boolean lenient,
+        final long dataOffset) throws IOException {
+        this(headerBuf, encoding, lenient);
+        setDataOffset(dataOffset);
+    }
+
     /**
      * Determine if the two entries are equal. Equality is determined
      * by the header names being equal.
@@ -1043,6 +1066,46 @@ public boolean isSparse() {
         return isGNUSparse() || isStarSparse();
     }
 
+    /**
+     * Gets the offset of the entry's data inside of the archive.
+     *
+     * <p>Only entries obtained from {@link TarFile} know their
+     * offset.</p>
+     *
+     * @return the offset of the entry's data, {@code OFFSET_UNKNOWN}
+     * if not known.
+     * @since 1.20
+     */
+    @Override
+    public long getDataOffset() {
+        return dataOffset;
+    }
+
+    /**
+     * Sets the offset of the entry's data inside of the archive.
+     *
+     * @param dataOffset the new offset of the entry's data
+     * @throws IllegalArgumentException if the offset is &lt; 0
+     * and not {@code OFFSET_UNKNOWN}.
+     */
+    void setDataOffset(final long dataOffset) {
+        if (dataOffset < 0 && dataOffset != OFFSET_UNKNOWN) {
+            throw new IllegalArgumentException("The offset can not be smaller than 0");
+        }
+        this.dataOffset = dataOffset;
+    }
+
+    /**
+     * Tar entries are always stored as a contiguous stream of bytes.
+     *
+     * @return true
+     * @since 1.20
+     */
+    @Override
+    public boolean isStreamContiguous() {
+        return true;
+    }
+
     /**
      * get extra PAX Headers
      * @return read-only map containing any extra PAX Headers
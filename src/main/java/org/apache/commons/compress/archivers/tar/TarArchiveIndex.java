@@ -0,0 +1,477 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.archivers.tar;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.compress.compressors.gzip.GzipIndex;
+import org.apache.commons.compress.compressors.gzip.GzipIndexingInputStream;
+import org.apache.commons.compress.utils.BoundedInputStream;
+import org.apache.commons.compress.utils.BoundedPositionedReadInputStream;
+import org.apache.commons.compress.utils.CharsetNames;
+import org.apache.commons.compress.utils.IOUtils;
+
+/**
+ * Persistent index of the entries of a tar archive that allows
+ * random access to the archive without scanning it.
+ *
+ * <p>The index records name, header offset, data offset and size of
+ * each entry. It is built by reading the archive once and can then be
+ * stored next to the archive using {@link #writeTo} and loaded again
+ * using {@link #readFrom}.</p>
+ *
+ * <p>Indexes can be built for uncompressed tar archives and for
+ * gzip compressed tar archives. For the later the index contains a
+ * {@link GzipIndex} and all offsets refer to the uncompressed
+ * archive, reading an entry only needs to decompress the data
+ * following the closest access point in front of the entry.</p>
+ *
+ * <p>Global PAX headers are not applied to entries read via {@link
+ * #readEntry}.</p>
+ *
+ * @Immutable
+ * @since 1.20
+ */
+public class TarArchiveIndex {
+
+    private static final byte[] MAGIC = {
+        'C', 'C', 'T', 'A', 'R', 'I', 'D', 'X'
+    };
+    private static final int FORMAT_VERSION = 1;
+
+    private final List<Entry> entries;
+    private final Map<String, Entry> nameMap = new HashMap<>();
+    private final int recordSize;
+    private final String encoding;
+    private final GzipIndex gzipIndex;
+
+    private TarArchiveIndex(final List<Entry> entries, final int recordSize, final String encoding,
+        final GzipIndex gzipIndex) {
+        this.entries = Collections.unmodifiableList(entries);
+        this.recordSize = recordSize;
+        this.encoding = encoding;
+        this.gzipIndex = gzipIndex;
+        for (final Entry e : entries) {
+            nameMap.put(e.name, e);
+        }
+    }
+
+    /**
+     * Builds the index of an uncompressed tar archive using the
+     * platform's default encoding.
+     *
+     * @param archive stream of the archive, must be positioned at the start of the archive
+     * @return the index
+     * @throws IOException if the archive cannot be read
+     */
+    public static TarArchiveIndex create(final InputStream archive) throws IOException {
+        return create(archive, null);
+    }
+
+    /**
+     * Builds the index of an uncompressed tar archive.
+     *
+     * @param archive stream of the archive, must be positioned at the start of the archive
+     * @param encoding encoding of the file names, null for the platform's default
+     * @return the index
+     * @throws IOException if the archive cannot be read
+     */
+    public static TarArchiveIndex create(final InputStream archive, final String encoding) throws IOException {
+        return new TarArchiveIndex(scan(archive, encoding), TarConstants.DEFAULT_RCDSIZE, encoding, null);
+    }
+
+    /**
+     * Builds the index of a gzip compressed tar archive using the
+     * platform's default encoding and {@link GzipIndex#DEFAULT_SPAN}.
+     *
+     * @param archive stream of the compressed archive, must be positioned at the start of the .gz file
+     * @return the index
+     * @throws IOException if the archive cannot be read
+     */
+    public static TarArchiveIndex createForGzip(final InputStream archive) throws IOException {
+        return createForGzip(archive, GzipIndex.DEFAULT_SPAN, null);
+    }
+
+    /**
+     * Builds the index of a gzip compressed tar archive.
+     *
+     * @param archive stream of the compressed archive, must be positioned at the start of the .gz file
+     * @param span minimum distance between two access points inside
+     * the uncompressed archive, see {@link GzipIndexingInputStream}
+     * @param encoding encoding of the file names, null for the platform's default
+     * @return the index
+     * @throws IOException if the archive cannot be read
+     */
+    public static TarArchiveIndex createForGzip(final InputStream archive, final long span, final String encoding)
+        throws IOException {
+        final GzipIndexingInputStream gzip = new GzipIndexingInputStream(archive, span);
+        final List<Entry> entries = scan(gzip, encoding);
+        // the index needs all of the compressed data, not only the tar entries
+        IOUtils.skip(gzip, Long.MAX_VALUE);
+        return new TarArchiveIndex(entries, TarConstants.DEFAULT_RCDSIZE, encoding, gzip.getIndex());
+    }
+
+    /**
+     * Reads an index previously written by {@link #writeTo}.
+     *
+     * @param in stream to read from
+     * @return the index
+     * @throws IOException if the stream cannot be read or doesn't contain a valid index
+     */
+    public static TarArchiveIndex readFrom(final InputStream in) throws IOException {
+        final byte[] magic = new byte[MAGIC.length];
+        if (IOUtils.readFully(in, magic) != MAGIC.length || !Arrays.equals(MAGIC, magic)) {
+            throw new IOException("Not a tar archive index");
+        }
+        // the InflaterInputStream must not be closed as that would close in
+        final Inflater inflater = new Inflater();
+        try {
+            return readIndex(new DataInputStream(new InflaterInputStream(in, inflater)));
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static TarArchiveIndex readIndex(final DataInputStream data) throws IOException {
+        final int version = data.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported tar archive index version " + version);
+        }
+        final int recordSize = data.readInt();
+        final String encoding = data.readBoolean() ? readString(data) : null;
+        final int count = data.readInt();
+        if (recordSize <= 0 || count < 0) {
+            throw new IOException("Corrupted tar archive index");
+        }
+        final List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final String name = readString(data);
+            final long headerOffset = data.readLong();
+            final long dataOffset = data.readLong();
+            final long size = data.readLong();
+            final boolean sparse = data.readBoolean();
+            if (headerOffset < 0 || dataOffset < headerOffset || size < 0) {
+                throw new IOException("Corrupted tar archive index");
+            }
+            entries.add(new Entry(name, headerOffset, dataOffset, size, sparse));
+        }
+        final GzipIndex gzipIndex = data.readBoolean() ? GzipIndex.readFrom(data) : null;
+        return new TarArchiveIndex(entries, recordSize, encoding, gzipIndex);
+    }
+
+    /**
+     * Writes the index.
+     *
+     * <p>The index is written in a compressed binary format starting
+     * with a magic number and a version number.</p>
+     *
+     * @param out stream to write to, is not closed
+     * @throws IOException if writing fails
+     */
+    public void writeTo(final OutputStream out) throws IOException {
+        out.write(MAGIC);
+        // the DeflaterOutputStream must not be closed as that would close out
+        final Deflater deflater = new Deflater();
+        try {
+            final DeflaterOutputStream deflaterStream = new DeflaterOutputStream(out, deflater);
+            writeIndex(new DataOutputStream(deflaterStream));
+            deflaterStream.finish();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeIndex(final DataOutputStream data) throws IOException {
+        data.writeInt(FORMAT_VERSION);
+        data.writeInt(recordSize);
+        data.writeBoolean(encoding != null);
+        if (encoding != null) {
+            writeString(data, encoding);
+        }
+        data.writeInt(entries.size());
+        for (final Entry e : entries) {
+            writeString(data, e.name);
+            data.writeLong(e.headerOffset);
+            data.writeLong(e.dataOffset);
+            data.writeLong(e.size);
+            data.writeBoolean(e.sparse);
+        }
+        data.writeBoolean(gzipIndex != null);
+        if (gzipIndex != null) {
+            gzipIndex.writeTo(data);
+        }
+        data.flush();
+    }
+
+    /**
+     * All entries of the archive in the order they appear inside the archive.
+     * @return all entries of the archive
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Gets the entry for the given name.
+     *
+     * <p>If the archive contains several entries of the same name the
+     * last one is returned.</p>
+     *
+     * @param name name of the entry
+     * @return the entry or null if the archive doesn't contain an entry of that name
+     */
+    public Entry getEntry(final String name) {
+        return nameMap.get(name);
+    }
+
+    /**
+     * The index of the compressed archive.
+     * @return the index of the compressed archive or null if the archive is not compressed
+     */
+    public GzipIndex getGzipIndex() {
+        return gzipIndex;
+    }
+
+    /**
+     * Reads the full entry including all of its metadata from the archive.
+     *
+     * @param archive the archive this index has been built for
+     * @param entry the entry to read
+     * @return the entry as read from the archive
+     * @throws IOException if the archive cannot be read
+     */
+    public TarArchiveEntry readEntry(final SeekableByteChannel archive, final Entry entry) throws IOException {
+        try (final TarArchiveInputStream in = openAt(archive, entry)) {
+            final TarArchiveEntry e = in.getNextTarEntry();
+            if (e == null) {
+                throw new IOException("Truncated TAR archive");
+            }
+            e.setDataOffset(entry.dataOffset);
+            return e;
+        }
+    }
+
+    /**
+     * Returns a stream of the entry's content.
+     *
+     * <p>Data of entries that are not sparse is read using positioned
+     * reads, so several streams can be used concurrently.</p>
+     *
+     * @param archive the archive this index has been built for
+     * @param entry the entry to read
+     * @return stream of the entry's content
+     * @throws IOException if the archive cannot be read
+     */
+    public InputStream getInputStream(final SeekableByteChannel archive, final Entry entry) throws IOException {
+        if (entry.sparse) {
+            final TarArchiveInputStream in = openAt(archive, entry);
+            if (in.getNextTarEntry() == null) {
+                in.close();
+                throw new IOException("Truncated TAR archive");
+            }
+            return in;
+        }
+        if (gzipIndex != null) {
+            return new BoundedInputStream(gzipIndex.getInputStream(archive, entry.dataOffset), entry.size);
+        }
+        return new BoundedPositionedReadInputStream(entry.dataOffset, entry.size, archive);
+    }
+
+    private TarArchiveInputStream openAt(final SeekableByteChannel archive, final Entry entry) throws IOException {
+        final InputStream in = gzipIndex != null ? gzipIndex.getInputStream(archive, entry.headerOffset)
+            : new BoundedPositionedReadInputStream(entry.headerOffset,
+                archive.size() - entry.headerOffset, archive);
+        return new TarArchiveInputStream(in, TarConstants.DEFAULT_BLKSIZE, recordSize, encoding);
+    }
+
+    private static List<Entry> scan(final InputStream archive, final String encoding) throws IOException {
+        final List<Entry> entries = new ArrayList<>();
+        final PositionTrackingInputStream position = new PositionTrackingInputStream(archive);
+        final HeaderTrackingInputStream in = new HeaderTrackingInputStream(position, encoding);
+        TarArchiveEntry e;
+        while ((e = in.getNextTarEntry()) != null) {
+            // all headers (and the sparse map of PAX 1.0 sparse files) have been consumed
+            entries.add(new Entry(e.getName(), in.headerOffset, position.position, e.getRealSize(),
+                e.isSparse()));
+            in.headerOffset = -1;
+        }
+        return entries;
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Corrupted tar archive index");
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, CharsetNames.UTF_8);
+    }
+
+    private static void writeString(final DataOutputStream out, final String s) throws IOException {
+        final byte[] bytes = s.getBytes(CharsetNames.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Keeps track of the position inside the archive.
+     *
+     * <p>{@link TarArchiveInputStream#getBytesRead} can't be used as
+     * it counts the expanded size of sparse entries.</p>
+     */
+    private static class PositionTrackingInputStream extends FilterInputStream {
+        private long position;
+
+        PositionTrackingInputStream(final InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            final int r = in.read();
+            if (r >= 0) {
+                position++;
+            }
+            return r;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            final int r = in.read(b, off, len);
+            if (r > 0) {
+                position += r;
+            }
+            return r;
+        }
+
+        @Override
+        public long skip(final long n) throws IOException {
+            final long skipped = in.skip(n);
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    /**
+     * Remembers the position of the first record read for an entry,
+     * which may be the header of a pseudo entry like a PAX header.
+     */
+    private static class HeaderTrackingInputStream extends TarArchiveInputStream {
+        private final PositionTrackingInputStream position;
+        private long headerOffset = -1;
+
+        HeaderTrackingInputStream(final PositionTrackingInputStream position, final String encoding) {
+            super(position, TarConstants.DEFAULT_BLKSIZE, TarConstants.DEFAULT_RCDSIZE, encoding);
+            this.position = position;
+        }
+
+        @Override
+        protected byte[] readRecord() throws IOException {
+            if (headerOffset == -1) {
+                headerOffset = position.position;
+            }
+            return super.readRecord();
+        }
+    }
+
+    /**
+     * An entry of the index.
+     */
+    public static final class Entry {
+        private final String name;
+        private final long headerOffset;
+        private final long dataOffset;
+        private final long size;
+        private final boolean sparse;
+
+        Entry(final String name, final long headerOffset, final long dataOffset, final long size,
+            final boolean sparse) {
+            this.name = name;
+            this.headerOffset = headerOffset;
+            this.dataOffset = dataOffset;
+            this.size = size;
+            this.sparse = sparse;
+        }
+
+        /**
+         * The name of the entry.
+         * @return the name of the entry
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Offset of the first header record that belongs to the
+         * entry, this may be the header of a PAX header or GNU long
+         * name entry preceding the entry's own header.
+         * @return offset of the entry's first header record
+         */
+        public long getHeaderOffset() {
+            return headerOffset;
+        }
+
+        /**
+         * Offset of the entry's data.
+         * @return offset of the entry's data
+         */
+        public long getDataOffset() {
+            return dataOffset;
+        }
+
+        /**
+         * Size of the entry's content, for sparse entries this is
+         * the real size including the holes.
+         * @return size of the entry's content
+         */
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Whether the entry is a sparse file.
+         * @return true if the entry is a sparse file
+         */
+        public boolean isSparse() {
+            return sparse;
+        }
+    }
+}
@@ -0,0 +1,652 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.tar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.compress.archivers.EntryStreamOffsets;
+import org.apache.commons.compress.archivers.zip.ZipEncoding;
+import org.apache.commons.compress.archivers.zip.ZipEncodingHelper;
+import org.apache.commons.compress.utils.ArchiveUtils;
+import org.apache.commons.compress.utils.BoundedArchiveInputStream;
+import org.apache.commons.compress.utils.BoundedInputStream;
+import org.apache.commons.compress.utils.CountingInputStream;
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+
+/**
+ * Provides random access to UNIX tar archives.
+ *
+ * <p>This is the tar counterpart of {@link
+ * org.apache.commons.compress.archivers.zip.ZipFile}. The headers of
+ * the archive are read once when the archive is opened, PAX headers,
+ * GNU long names and links as well as the supported sparse formats
+ * are handled the same way {@link TarArchiveInputStream} handles
+ * them. Afterwards the contents of any entry can be read without
+ * touching the data of any other entry.</p>
+ *
+ * <p>The streams returned by {@link #getInputStream} use positioned
+ * reads and don't share any state, so several threads may read
+ * different entries at the same time. When the underlying channel
+ * is a {@link FileChannel} no locking is involved at all.</p>
+ *
+ * @since 1.20
+ */
+public class TarFile implements Closeable {
+
+    private static final int SMALL_BUFFER_SIZE = 256;
+
+    private final byte[] smallBuf = new byte[SMALL_BUFFER_SIZE];
+
+    /**
+     * The actual data source.
+     */
+    private final SeekableByteChannel archive;
+
+    /**
+     * The encoding of the file names.
+     */
+    private final ZipEncoding zipEncoding;
+
+    /**
+     * List of entries in the order they appear inside the archive.
+     */
+    private final List<TarArchiveEntry> entries = new ArrayList<>();
+
+    /**
+     * Maps the name of an entry to the last entry of that name.
+     */
+    private final Map<String, TarArchiveEntry> nameMap = new HashMap<>();
+
+    /** The size the TAR header */
+    private final int recordSize;
+
+    private final ByteBuffer recordBuffer;
+
+    private final boolean lenient;
+
+    // the global sparse headers, this is only used in PAX Format 0.X
+    private final List<TarArchiveStructSparse> globalSparseHeaders = new ArrayList<>();
+
+    // the global PAX header
+    private Map<String, String> globalPaxHeaders = new HashMap<>();
+
+    /** True if the scan has hit the EOF record */
+    private boolean hasHitEOF;
+
+    /** The entry currently being scanned */
+    private TarArchiveEntry currEntry;
+
+    /** Position of the header following the entry currently being scanned */
+    private long nextHeaderOffset;
+
+    /**
+     * Opens the given in-memory archive for reading.
+     *
+     * @param content the content of the archive.
+     * @throws IOException if the archive can not be read.
+     */
+    public TarFile(final byte[] content) throws IOException {
+        this(new SeekableInMemoryByteChannel(content));
+    }
+
+    /**
+     * Opens the given in-memory archive for reading.
+     *
+     * @param content the content of the archive.
+     * @param encoding the encoding to use for file names, use null
+     * for the platform's default encoding
+     * @throws IOException if the archive can not be read.
+     */
+    public TarFile(final byte[] content, final String encoding) throws IOException {
+        this(new SeekableInMemoryByteChannel(content), TarConstants.DEFAULT_RCDSIZE, encoding, false);
+    }
+
+    /**
+     * Opens the given in-memory archive for reading.
+     *
+     * @param content the content of the archive.
+     * @param lenient when set to true illegal values for group/userid, mode, device numbers and timestamp will be
+     * ignored and the fields set to {@link TarArchiveEntry#UNKNOWN}. When set to false such illegal fields cause an
+     * exception instead.
+     * @throws IOException if the archive can not be read.
+     */
+    public TarFile(final byte[] content, final boolean lenient) throws IOException {
+        this(new SeekableInMemoryByteChannel(content), TarConstants.DEFAULT_RCDSIZE, null, lenient);
+    }
+
+    /**
+     * Opens the given file for reading.
+     *
+     * @param archive the archive.
+     * @throws IOException if the archive can not be read.
+     */
+    public TarFile(final File archive) throws IOException {
+        this(archive, null, false);
+    }
+
+    /**
+     * Opens the given file for reading.
+     *
+     * @param archive the archive.
+     * @param encoding the encoding to use for file names, use null
+     * for the platform's default encoding
+     * @throws IOException if the archive can not be read.
+     */
+    public TarFile(final File archive, final String encoding) throws IOException {
+        this(archive, encoding, false);
+    }
+
+    /**
+     * Opens the given file for reading.
+     *
+     * @param archive the archive.
+     * @param lenient when set to true illegal values for group/userid, mode, device numbers and timestamp will be
+     * ignored and the fields set to {@link TarArchiveEntry#UNKNOWN}. When set to false such illegal fields cause an
+     * exception instead.
+     * @throws IOException if the archive can not be read.
+     */
+    public TarFile(final File archive, final boolean lenient) throws IOException {
+        this(archive, null, lenient);
+    }
+
+    private TarFile(final File archive, final String encoding, final boolean lenient) throws IOException {
+        this(Files.newByteChannel(archive.toPath(), EnumSet.of(StandardOpenOption.READ)),
+             TarConstants.DEFAULT_RCDSIZE, encoding, lenient, true);
+    }
+
+    /**
+     * Opens the given channel for reading.
+     *
+     * <p>{@link SeekableInMemoryByteChannel} allows you to read from
+     * an in-memory archive.</p>
+     *
+     * @param channel the archive.
+     * @throws IOException if the archive can not be read.
+     */
+    public TarFile(final SeekableByteChannel channel) throws IOException {
+        this(channel, TarConstants.DEFAULT_RCDSIZE, null, false);
+    }
+
+    /**
+     * Opens the given channel for reading.
+     *
+     * <p>{@link SeekableInMemoryByteChannel} allows you to read from
+     * an in-memory archive.</p>
+     *
+     * @param channel the archive.
+     * @param recordSize the record size to use
+     * @param encoding the encoding to use for file names, use null
+     * for the platform's default encoding
+     * @param lenient when set to true illegal values for group/userid, mode, device numbers and timestamp will be
+     * ignored and the fields set to {@link TarArchiveEntry#UNKNOWN}. When set to false such illegal fields cause an
+     * exception instead.
+     * @throws IOException if the archive can not be read.
+     */
+    public TarFile(final SeekableByteChannel channel, final int recordSize, final String encoding,
+                   final boolean lenient) throws IOException {
+        this(channel, recordSize, encoding, lenient, false);
+    }
+
+    private TarFile(final SeekableByteChannel channel, final int recordSize, final String encoding,
+                    final boolean lenient, final boolean closeOnError) throws IOException {
+        this.archive = channel;
+        this.recordSize = recordSize;
+        this.recordBuffer = ByteBuffer.allocate(recordSize);
+        this.zipEncoding = ZipEncodingHelper.getZipEncoding(encoding);
+        this.lenient = lenient;
+        boolean success = false;
+        try {
+            TarArchiveEntry entry;
+            while ((entry = getNextTarEntry()) != null) {
+                entries.add(entry);
+                nameMap.put(entry.getName(), entry);
+            }
+            success = true;
+        } finally {
+            if (!success && closeOnError) {
+                IOUtils.closeQuietly(archive);
+            }
+        }
+    }
+
+    /**
+     * Returns all entries in the order they appear within the archive.
+     *
+     * @return all entries of the archive
+     */
+    public List<TarArchiveEntry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Returns a named entry - or {@code null} if no entry by that
+     * name exists.
+     *
+     * <p>If multiple entries with the same name exist the last one
+     * inside of the archive is returned - this is the one a tar
+     * program would leave behind when extracting the archive.</p>
+     *
+     * @param name name of the entry.
+     * @return the entry corresponding to the given name - or {@code
+     * null} if not present.
+     */
+    public TarArchiveEntry getEntry(final String name) {
+        return nameMap.get(name);
+    }
+
+    /**
+     * Returns an InputStream for reading the contents of the given entry.
+     *
+     * <p>The entry must have been obtained from this TarFile. Sparse
+     * entries are expanded, i.e. the stream provides {@link
+     * TarArchiveEntry#getRealSize} bytes with the holes filled by
+     * zeros.</p>
+     *
+     * @param entry the entry to get the stream for.
+     * @return a stream to read the entry from.
+     * @throws IOException if unable to create an input stream from the entry
+     * @throws IllegalArgumentException if the entry doesn't know its data offset
+     */
+    public InputStream getInputStream(final TarArchiveEntry entry) throws IOException {
+        final long start = entry.getDataOffset();
+        if (start == EntryStreamOffsets.OFFSET_UNKNOWN) {
+            throw new IllegalArgumentException("Entry " + entry.getName() + " has not been read from a TarFile");
+        }
+        if (entry.isDirectory()) {
+            return new BoundedTarEntryInputStream(start, 0);
+        }
+        if (entry.isSparse()) {
+            return createSparseInputStream(entry);
+        }
+        return new BoundedTarEntryInputStream(start, entry.getSize());
+    }
+
+    /**
+     * Closes the archive.
+     * @throws IOException if an error occurs closing the archive.
+     */
+    @Override
+    public void close() throws IOException {
+        archive.close();
+    }
+
+    /**
+     * Reads the next entry from the archive, processes any of the
+     * pseudo entries (GNU long names and links, PAX headers) that
+     * may precede it and records the offset of its data.
+     */
+    private TarArchiveEntry getNextTarEntry() throws IOException {
+        if (hasHitEOF) {
+            return null;
+        }
+
+        if (currEntry != null) {
+            if (nextHeaderOffset > archive.size()) {
+                throw new IOException("Truncated TAR archive");
+            }
+            archive.position(nextHeaderOffset);
+        }
+
+        final ByteBuffer headerBuf = getRecord();
+        if (headerBuf == null) {
+            /* hit EOF */
+            currEntry = null;
+            return null;
+        }
+
+        try {
+            currEntry = new TarArchiveEntry(headerBuf.array(), zipEncoding, lenient, archive.position());
+        } catch (final IllegalArgumentException e) {
+            throw new IOException("Error detected parsing the header", e);
+        }
+        updateNextHeaderOffset();
+
+        // the pseudo entries below read the entry following them
+        // recursively, that one has been processed completely once
+        // the recursion returns.
+        if (currEntry.isGNULongLinkEntry()) {
+            final byte[] longLinkData = getLongNameData();
+            if (longLinkData == null) {
+                // Bugzilla: 40334
+                // Malformed tar file - long link entry name not followed by
+                // entry
+                return null;
+            }
+            currEntry.setLinkName(zipEncoding.decode(longLinkData));
+            return currEntry;
+        }
+
+        if (currEntry.isGNULongNameEntry()) {
+            final byte[] longNameData = getLongNameData();
+            if (longNameData == null) {
+                // Bugzilla: 40334
+                // Malformed tar file - long entry name not followed by
+                // entry
+                return null;
+            }
+            currEntry.setName(zipEncoding.decode(longNameData));
+            return currEntry;
+        }
+
+        if (currEntry.isGlobalPaxHeader()) { // Process Global Pax headers
+            readGlobalPaxHeaders();
+            return currEntry;
+        }
+
+        if (currEntry.isPaxHeader()) { // Process Pax headers
+            paxHeaders();
+            return currEntry;
+        }
+
+        if (!globalPaxHeaders.isEmpty()) {
+            applyPaxHeadersToCurrentEntry(globalPaxHeaders, globalSparseHeaders);
+        }
+
+        if (currEntry.isOldGNUSparse()) { // Process sparse files
+            readOldGNUSparse();
+        }
+
+        return currEntry;
+    }
+
+    /**
+     * Records where the header following the current entry starts.
+     *
+     * <p>Like {@link TarArchiveInputStream} this ignores any data
+     * that may be stored for directory entries.</p>
+     */
+    private void updateNextHeaderOffset() {
+        final long start = currEntry.getDataOffset();
+        final long size = currEntry.getSize();
+        if (currEntry.isDirectory() || size == 0) {
+            nextHeaderOffset = start;
+        } else {
+            final long numRecords = (size + recordSize - 1) / recordSize;
+            nextHeaderOffset = start + numRecords * recordSize;
+        }
+    }
+
+    /**
+     * Get the data of the current entry as longname data and
+     * advances to the entry following it.
+     *
+     * @return The data of the current entry as longname data, or null.
+     * @throws IOException on error
+     */
+    private byte[] getLongNameData() throws IOException {
+        final ByteArrayOutputStream longName = new ByteArrayOutputStream();
+        int length;
+        try (final InputStream in = getInputStream(currEntry)) {
+            while ((length = in.read(smallBuf)) >= 0) {
+                longName.write(smallBuf, 0, length);
+            }
+        }
+        getNextTarEntry();
+        if (currEntry == null) {
+            // Bugzilla: 40334
+            // Malformed tar file - long entry name not followed by entry
+            return null;
+        }
+        byte[] longNameData = longName.toByteArray();
+        // remove trailing null terminator(s)
+        length = longNameData.length;
+        while (length > 0 && longNameData[length - 1] == 0) {
+            --length;
+        }
+        if (length != longNameData.length) {
+            final byte[] l = new byte[length];
+            System.arraycopy(longNameData, 0, l, 0, length);
+            longNameData = l;
+        }
+        return longNameData;
+    }
+
+    /**
+     * Reads the next record of the archive, returns null and marks
+     * the scan as finished if the EOF record has been reached.
+     *
+     * <p>There is no need to consume the second EOF record or the
+     * remainder of the last block as nothing is going to be read
+     * after it.</p>
+     */
+    private ByteBuffer getRecord() throws IOException {
+        final ByteBuffer headerBuf = readRecord();
+        hasHitEOF = isEOFRecord(headerBuf);
+        return hasHitEOF ? null : headerBuf;
+    }
+
+    private boolean isEOFRecord(final ByteBuffer headerBuf) {
+        return headerBuf == null || ArchiveUtils.isArrayZero(headerBuf.array(), recordSize);
+    }
+
+    /**
+     * Reads a record from the current position of the archive.
+     *
+     * @return The record data or null if EOF has been hit.
+     */
+    private ByteBuffer readRecord() throws IOException {
+        if (archive.position() + recordSize > archive.size()) {
+            return null;
+        }
+        recordBuffer.rewind();
+        IOUtils.readFully(archive, recordBuffer);
+        return recordBuffer;
+    }
+
+    private void readGlobalPaxHeaders() throws IOException {
+        try (final InputStream input = getInputStream(currEntry)) {
+            globalPaxHeaders = TarUtils.parsePaxHeaders(input, globalSparseHeaders, globalPaxHeaders);
+        }
+        getNextTarEntry(); // Get the actual file entry
+        if (currEntry == null) {
+            throw new IOException("Error detected parsing the pax header");
+        }
+    }
+
+    /**
+     * Processes the local PAX headers of the entry following the
+     * current one, see {@link TarArchiveInputStream} for the
+     * supported sparse formats.
+     */
+    private void paxHeaders() throws IOException {
+        List<TarArchiveStructSparse> sparseHeaders = new ArrayList<>();
+        final Map<String, String> headers;
+        try (final InputStream input = getInputStream(currEntry)) {
+            headers = TarUtils.parsePaxHeaders(input, sparseHeaders, globalPaxHeaders);
+        }
+
+        // for 0.1 PAX Headers
+        if (headers.containsKey("GNU.sparse.map")) {
+            sparseHeaders = TarUtils.parsePAX01SparseHeaders(headers.get("GNU.sparse.map"));
+        }
+        getNextTarEntry(); // Get the actual file entry
+        if (currEntry == null) {
+            throw new IOException("Error detected parsing the pax header");
+        }
+        applyPaxHeadersToCurrentEntry(headers, sparseHeaders);
+
+        // for 1.0 PAX Format, the sparse map is stored in the file data block
+        if (currEntry.isPaxGNU1XSparse()) {
+            final long start = currEntry.getDataOffset();
+            try (final CountingInputStream input =
+                 new CountingInputStream(new BoundedTarEntryInputStream(start, currEntry.getSize()))) {
+                sparseHeaders = TarUtils.parsePAX1XSparseHeaders(input, recordSize);
+                // the map is padded to the next record boundary
+                final long mapLength = input.getBytesRead();
+                currEntry.setDataOffset(start + mapLength + recordSize - mapLength % recordSize);
+            }
+            currEntry.setSparseHeaders(sparseHeaders);
+        }
+    }
+
+    private void applyPaxHeadersToCurrentEntry(final Map<String, String> headers,
+        final List<TarArchiveStructSparse> sparseHeaders) {
+        currEntry.updateEntryFromPaxHeaders(headers);
+        currEntry.setSparseHeaders(sparseHeaders);
+        // the size may have been overridden by the PAX headers
+        updateNextHeaderOffset();
+    }
+
+    /**
+     * Adds the sparse chunks from the extension headers following
+     * the current entry to the sparse chunks of the entry, the data
+     * of the entry starts after the last of them.
+     */
+    private void readOldGNUSparse() throws IOException {
+        if (currEntry.isExtended()) {
+            TarArchiveSparseEntry entry;
+            do {
+                final ByteBuffer headerBuf = getRecord();
+                if (headerBuf == null) {
+                    throw new IOException("premature end of tar archive. Didn't find extended_header after header "
+                        + "with extended flag.");
+                }
+                entry = new TarArchiveSparseEntry(headerBuf.array());
+                currEntry.getSparseHeaders().addAll(entry.getSparseHeaders());
+            } while (entry.isExtended());
+            currEntry.setDataOffset(archive.position());
+            updateNextHeaderOffset();
+        }
+    }
+
+    /**
+     * Creates a stream that fills the holes of a sparse entry with
+     * zeros and reads the non-zero chunks from the archive.
+     *
+     * <p>Chunks of size 0 are skipped, see the corresponding logic
+     * inside of {@link TarArchiveInputStream}.</p>
+     */
+    private InputStream createSparseInputStream(final TarArchiveEntry entry) throws IOException {
+        final List<TarArchiveStructSparse> sparseHeaders = entry.getSparseHeaders() == null
+            ? new ArrayList<TarArchiveStructSparse>()
+            : new ArrayList<>(entry.getSparseHeaders());
+        // sort the sparse headers in case they are written in wrong order
+        Collections.sort(sparseHeaders, new Comparator<TarArchiveStructSparse>() {
+            @Override
+            public int compare(final TarArchiveStructSparse p, final TarArchiveStructSparse q) {
+                return Long.valueOf(p.getOffset()).compareTo(q.getOffset());
+            }
+        });
+
+        final List<InputStream> streams = new ArrayList<>();
+        final InputStream zeroInputStream = new ZeroInputStream();
+        long offset = 0;
+        long dataPosition = entry.getDataOffset();
+        for (final TarArchiveStructSparse sparseHeader : sparseHeaders) {
+            if (sparseHeader.getOffset() == 0 && sparseHeader.getNumbytes() == 0) {
+                break;
+            }
+
+            if (sparseHeader.getOffset() - offset < 0) {
+                throw new IOException("Corrupted struct sparse detected");
+            }
+
+            if (sparseHeader.getOffset() - offset > 0) {
+                streams.add(new BoundedInputStream(zeroInputStream, sparseHeader.getOffset() - offset));
+            }
+
+            if (sparseHeader.getNumbytes() > 0) {
+                streams.add(new BoundedTarEntryInputStream(dataPosition, sparseHeader.getNumbytes()));
+                dataPosition += sparseHeader.getNumbytes();
+            }
+
+            offset = sparseHeader.getOffset() + sparseHeader.getNumbytes();
+        }
+
+        if (streams.isEmpty()) {
+            return new BoundedTarEntryInputStream(entry.getDataOffset(), entry.getSize());
+        }
+        if (offset < entry.getRealSize()) {
+            streams.add(new BoundedInputStream(zeroInputStream, entry.getRealSize() - offset));
+        }
+        return new SequenceInputStream(Collections.enumeration(streams));
+    }
+
+    /**
+     * InputStream that reads a range of the archive using positioned
+     * reads on the underlying channel.
+     */
+    private class BoundedTarEntryInputStream extends BoundedArchiveInputStream {
+
+        BoundedTarEntryInputStream(final long start, final long remaining) {
+            super(start, remaining);
+        }
+
+        @Override
+        protected int read(final long pos, final ByteBuffer buf) throws IOException {
+            final int read;
+            if (archive instanceof FileChannel) {
+                read = ((FileChannel) archive).read(buf, pos);
+            } else {
+                synchronized (archive) {
+                    archive.position(pos);
+                    read = archive.read(buf);
+                }
+            }
+            if (read == -1) {
+                throw new IOException("Truncated TAR archive");
+            }
+            buf.flip();
+            return read;
+        }
+    }
+
+    /**
+     * This is an inputstream that always returns 0, this is used
+     * when reading the "holes" of a sparse file.
+     */
+    private static class ZeroInputStream extends InputStream {
+        @Override
+        public int read() {
+            return 0;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (len <= 0) {
+                return 0;
+            }
+            Arrays.fill(b, off, off + len, (byte) 0);
+            return len;
+        }
+
+        @Override
+        public long skip(final long n) {
+            return n;
+        }
+    }
+}
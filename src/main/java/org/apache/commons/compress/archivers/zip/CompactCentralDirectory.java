@@ -0,0 +1,335 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.zip;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.zip.ZipException;
+
+import org.apache.commons.compress.utils.IOUtils;
+
+import static org.apache.commons.compress.archivers.zip.ZipConstants.DWORD;
+import static org.apache.commons.compress.archivers.zip.ZipConstants.SHORT;
+import static org.apache.commons.compress.archivers.zip.ZipConstants.WORD;
+import static org.apache.commons.compress.archivers.zip.ZipConstants.ZIP64_MAGIC;
+import static org.apache.commons.compress.archivers.zip.ZipConstants.ZIP64_MAGIC_SHORT;
+
+/**
+ * Keeps the records of a central directory as raw bytes together
+ * with the positions of the entries' contents and a hash table over
+ * the raw names of the entries.
+ *
+ * <p>Used by {@link ZipFile} when the compact index has been enabled
+ * in {@link ZipFileOptions}. Once {@link #finish} has been called the
+ * index is never modified again and can be used by multiple threads
+ * concurrently.</p>
+ */
+final class CompactCentralDirectory {
+
+    // offsets inside the central file header, the signature not included
+    private static final int GPB_OFFSET = 2 * SHORT;
+    // general purpose bits, method, time and date, CRC
+    private static final int COMPRESSED_SIZE_OFFSET = GPB_OFFSET + 2 * SHORT + 2 * WORD;
+    private static final int SIZE_OFFSET = COMPRESSED_SIZE_OFFSET + WORD;
+    private static final int NAME_LENGTH_OFFSET = SIZE_OFFSET + WORD;
+    private static final int EXTRA_LENGTH_OFFSET = NAME_LENGTH_OFFSET + SHORT;
+    private static final int COMMENT_LENGTH_OFFSET = EXTRA_LENGTH_OFFSET + SHORT;
+    private static final int DISK_NUMBER_OFFSET = COMMENT_LENGTH_OFFSET + SHORT;
+    private static final int LFH_OFFSET_OFFSET = DISK_NUMBER_OFFSET + SHORT + SHORT + WORD;
+    private static final int RECORD_HEADER_LENGTH = LFH_OFFSET_OFFSET + WORD;
+
+    private static final int UFT8_NAMES_FLAG = 1 << 11;
+    private static final int MAX_DATA_SIZE = Integer.MAX_VALUE - 8;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private byte[] data = new byte[RECORD_HEADER_LENGTH * INITIAL_CAPACITY];
+    private int dataLength;
+    private int count;
+
+    private int[] recordOffsets = new int[INITIAL_CAPACITY];
+    private long[] localHeaderOffsets = new long[INITIAL_CAPACITY];
+    private int[] diskNumbers = new int[INITIAL_CAPACITY];
+
+    private int[] buckets;
+    private int[] nextInBucket;
+    private int[] namesNotRoundTripping = new int[0];
+
+    /**
+     * Adds a record of the central directory.
+     *
+     * @param header the fixed part of the central file header without
+     * the signature
+     * @param in channel positioned right behind the fixed part of
+     * the header, the name, extra field and comment are read from it
+     * @throws IOException if reading fails
+     */
+    void add(final byte[] header, final ReadableByteChannel in) throws IOException {
+        final int variableLength = ZipShort.getValue(header, NAME_LENGTH_OFFSET)
+            + ZipShort.getValue(header, EXTRA_LENGTH_OFFSET)
+            + ZipShort.getValue(header, COMMENT_LENGTH_OFFSET);
+        final int offset = dataLength;
+        ensureDataCapacity((long) offset + RECORD_HEADER_LENGTH + variableLength);
+        System.arraycopy(header, 0, data, offset, RECORD_HEADER_LENGTH);
+        IOUtils.readFully(in, ByteBuffer.wrap(data, offset + RECORD_HEADER_LENGTH, variableLength));
+        dataLength += RECORD_HEADER_LENGTH + variableLength;
+
+        if (count == recordOffsets.length) {
+            final int capacity = count * 2;
+            recordOffsets = Arrays.copyOf(recordOffsets, capacity);
+            localHeaderOffsets = Arrays.copyOf(localHeaderOffsets, capacity);
+            diskNumbers = Arrays.copyOf(diskNumbers, capacity);
+        }
+        recordOffsets[count] = offset;
+        diskNumbers[count] = ZipShort.getValue(data, offset + DISK_NUMBER_OFFSET);
+        localHeaderOffsets[count] = ZipLong.getValue(data, offset + LFH_OFFSET_OFFSET);
+        readZip64Values(count);
+        count++;
+    }
+
+    /**
+     * Releases unused capacity and creates the hash table, must be
+     * called after the last record has been added.
+     */
+    void finish() {
+        data = Arrays.copyOf(data, dataLength);
+        recordOffsets = Arrays.copyOf(recordOffsets, count);
+        localHeaderOffsets = Arrays.copyOf(localHeaderOffsets, count);
+        diskNumbers = Arrays.copyOf(diskNumbers, count);
+
+        buckets = new int[Integer.highestOneBit(Math.max(count, 1)) * 2];
+        Arrays.fill(buckets, -1);
+        nextInBucket = new int[count];
+        // insert backwards so each bucket lists its entries in central directory order
+        for (int i = count - 1; i >= 0; i--) {
+            final int bucket = bucket(hash(data, getNameOffset(i), getNameLength(i)));
+            nextInBucket[i] = buckets[bucket];
+            buckets[bucket] = i;
+        }
+    }
+
+    /**
+     * Finds the entries with the given raw name.
+     *
+     * @param utf8Name the name encoded as UTF-8, used for entries
+     * with the language encoding flag set
+     * @param nonUtf8Name the name encoded with the archive's
+     * encoding, used for all other entries
+     * @return the indexes of the matching entries in central
+     * directory order
+     */
+    int[] find(final byte[] utf8Name, final byte[] nonUtf8Name) {
+        int[] result = new int[0];
+        if (count == 0) {
+            return result;
+        }
+        result = collect(result, utf8Name, true);
+        result = collect(result, nonUtf8Name, false);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Records an entry whose raw name is not obtained when encoding
+     * its decoded name again, so it can't be found by {@link #find}.
+     */
+    void addNameNotRoundTripping(final int index) {
+        namesNotRoundTripping = Arrays.copyOf(namesNotRoundTripping, namesNotRoundTripping.length + 1);
+        namesNotRoundTripping[namesNotRoundTripping.length - 1] = index;
+    }
+
+    int[] getNamesNotRoundTripping() {
+        return namesNotRoundTripping;
+    }
+
+    int size() {
+        return count;
+    }
+
+    byte[] getData() {
+        return data;
+    }
+
+    int getRecordOffset(final int index) {
+        return recordOffsets[index];
+    }
+
+    int getRecordHeaderLength() {
+        return RECORD_HEADER_LENGTH;
+    }
+
+    int getNameLength(final int index) {
+        return ZipShort.getValue(data, recordOffsets[index] + NAME_LENGTH_OFFSET);
+    }
+
+    int getExtraLength(final int index) {
+        return ZipShort.getValue(data, recordOffsets[index] + EXTRA_LENGTH_OFFSET);
+    }
+
+    int getCommentLength(final int index) {
+        return ZipShort.getValue(data, recordOffsets[index] + COMMENT_LENGTH_OFFSET);
+    }
+
+    boolean usesUTF8ForNames(final int index) {
+        return (ZipShort.getValue(data, recordOffsets[index] + GPB_OFFSET) & UFT8_NAMES_FLAG) != 0;
+    }
+
+    /**
+     * Sorts the given indexes by the position of the entries'
+     * contents, disk number first and local file header offset
+     * second, the order of entries at the same position is kept.
+     *
+     * @param indexes the indexes to sort
+     * @return the sorted indexes
+     */
+    int[] sortInPhysicalOrder(final int[] indexes) {
+        final Integer[] boxed = new Integer[indexes.length];
+        for (int i = 0; i < indexes.length; i++) {
+            boxed[i] = indexes[i];
+        }
+        Arrays.sort(boxed, new Comparator<Integer>() {
+            @Override
+            public int compare(final Integer i1, final Integer i2) {
+                final int byDisk = Integer.compare(diskNumbers[i1], diskNumbers[i2]);
+                return byDisk != 0 ? byDisk : Long.compare(localHeaderOffsets[i1], localHeaderOffsets[i2]);
+            }
+        });
+        final int[] sorted = new int[indexes.length];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = boxed[i];
+        }
+        return sorted;
+    }
+
+    byte[] getName(final int index) {
+        final int offset = getNameOffset(index);
+        return Arrays.copyOfRange(data, offset, offset + getNameLength(index));
+    }
+
+    boolean hasAsciiName(final int index) {
+        final int offset = getNameOffset(index);
+        for (int i = offset; i < offset + getNameLength(index); i++) {
+            if (data[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int getNameOffset(final int index) {
+        return recordOffsets[index] + RECORD_HEADER_LENGTH;
+    }
+
+    private int[] collect(final int[] found, final byte[] name, final boolean utf8) {
+        int[] result = found;
+        for (int i = buckets[bucket(hash(name, 0, name.length))]; i >= 0; i = nextInBucket[i]) {
+            if (usesUTF8ForNames(i) == utf8 && nameEquals(i, name)) {
+                result = Arrays.copyOf(result, result.length + 1);
+                result[result.length - 1] = i;
+            }
+        }
+        return result;
+    }
+
+    private boolean nameEquals(final int index, final byte[] name) {
+        if (getNameLength(index) != name.length) {
+            return false;
+        }
+        final int offset = getNameOffset(index);
+        for (int i = 0; i < name.length; i++) {
+            if (data[offset + i] != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int bucket(final int hash) {
+        return (hash ^ (hash >>> 16)) & (buckets.length - 1);
+    }
+
+    private static int hash(final byte[] bytes, final int offset, final int length) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + bytes[i];
+        }
+        return h;
+    }
+
+    private void ensureDataCapacity(final long required) throws IOException {
+        if (required > MAX_DATA_SIZE) {
+            throw new IOException("Central directory is too big for the compact index");
+        }
+        if (required > data.length) {
+            data = Arrays.copyOf(data, (int) Math.min(MAX_DATA_SIZE, Math.max(required, 2L * data.length)));
+        }
+    }
+
+    /**
+     * Replaces the offset and disk number by the values of the Zip64
+     * extended information extra field, if present, in the same way
+     * {@link
+     * Zip64ExtendedInformationExtraField#reparseCentralDirectoryData}
+     * does.
+     */
+    private void readZip64Values(final int index) throws IOException {
+        final int recordOffset = recordOffsets[index];
+        final boolean hasSize = ZipLong.getValue(data, recordOffset + SIZE_OFFSET) == ZIP64_MAGIC;
+        final boolean hasCompressedSize = ZipLong.getValue(data, recordOffset + COMPRESSED_SIZE_OFFSET)
+            == ZIP64_MAGIC;
+        final boolean hasOffset = localHeaderOffsets[index] == ZIP64_MAGIC;
+        final boolean hasDiskStart = diskNumbers[index] == ZIP64_MAGIC_SHORT;
+        if (!hasSize && !hasCompressedSize && !hasOffset && !hasDiskStart) {
+            return;
+        }
+        int off = getNameOffset(index) + getNameLength(index);
+        final int end = off + getExtraLength(index);
+        while (off + WORD <= end) {
+            final int id = ZipShort.getValue(data, off);
+            final int length = ZipShort.getValue(data, off + SHORT);
+            off += WORD;
+            if (id == Zip64ExtendedInformationExtraField.HEADER_ID.getValue()) {
+                final int expectedLength = (hasSize ? DWORD : 0) + (hasCompressedSize ? DWORD : 0)
+                    + (hasOffset ? DWORD : 0) + (hasDiskStart ? WORD : 0);
+                if (length < expectedLength || off + length > end) {
+                    throw new ZipException("Central directory zip64 extended information extra field's length"
+                        + " doesn't match central directory data.  Expected length " + expectedLength
+                        + " but is " + length);
+                }
+                // sizes come first but are read when the entry is created
+                if (hasSize) {
+                    off += DWORD;
+                }
+                if (hasCompressedSize) {
+                    off += DWORD;
+                }
+                if (hasOffset) {
+                    localHeaderOffsets[index] = ZipEightByteInteger.getLongValue(data, off);
+                    off += DWORD;
+                }
+                if (hasDiskStart) {
+                    diskNumbers[index] = (int) ZipLong.getValue(data, off);
+                }
+                return;
+            }
+            off += length;
+        }
+    }
+}
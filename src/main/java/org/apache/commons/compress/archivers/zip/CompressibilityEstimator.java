@@ -0,0 +1,151 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.zip;
+
+import java.util.zip.Deflater;
+
+/**
+ * Decides whether it is worth deflating the content of an entry by looking at its first bytes.
+ *
+ * <p>Content that has already been compressed or encrypted - JPEG images, gzipped files and the like - shrinks by
+ * hardly anything when being deflated, so deflating it only burns CPU time. This class estimates the savings deflate
+ * would achieve for a sample taken from the start of the content and considers the content incompressible if they are
+ * below a threshold.</p>
+ *
+ * <p>The order-0 entropy of the sample is computed first, if it shows that Huffman coding alone achieves the required
+ * savings the sample is compressible. Otherwise the sample is deflated using {@link Deflater#BEST_SPEED} as repeated
+ * strings may still make it compressible.</p>
+ *
+ * @since 1.20
+ * @ThreadSafe
+ * @see ZipArchiveOutputStream#setCompressibilityEstimator
+ * @see ScatterZipOutputStream#setCompressibilityEstimator
+ */
+public class CompressibilityEstimator {
+
+    /**
+     * Default number of bytes sampled.
+     */
+    public static final int DEFAULT_SAMPLE_SIZE = 64 * 1024;
+
+    /**
+     * Default minimum savings, content must shrink by at least five percent.
+     */
+    public static final double DEFAULT_MINIMUM_SAVINGS = 0.05;
+
+    private static final int BYTE_VALUES = 256;
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int sampleSize;
+    private final double minimumSavings;
+
+    /**
+     * Create an estimator using the default sample size and minimum savings.
+     */
+    public CompressibilityEstimator() {
+        this(DEFAULT_SAMPLE_SIZE, DEFAULT_MINIMUM_SAVINGS);
+    }
+
+    /**
+     * Create an estimator.
+     *
+     * @param sampleSize the number of bytes at the start of the content to look at
+     * @param minimumSavings the fraction of the size deflate must save at least in order to be used, must be at least 0
+     * and smaller than 1
+     * @throws IllegalArgumentException if sampleSize is not positive or minimumSavings is out of range
+     */
+    public CompressibilityEstimator(final int sampleSize, final double minimumSavings) {
+        if (sampleSize <= 0) {
+            throw new IllegalArgumentException("sampleSize must be positive but is " + sampleSize);
+        }
+        if (minimumSavings < 0 || minimumSavings >= 1) {
+            throw new IllegalArgumentException("minimumSavings must be in [0, 1) but is " + minimumSavings);
+        }
+        this.sampleSize = sampleSize;
+        this.minimumSavings = minimumSavings;
+    }
+
+    /**
+     * The number of bytes at the start of the content to look at.
+     * @return the sample size
+     */
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * The fraction of the size deflate must save at least in order to be used.
+     * @return the minimum savings
+     */
+    public double getMinimumSavings() {
+        return minimumSavings;
+    }
+
+    /**
+     * Whether content starting with the given sample is worth deflating.
+     *
+     * <p>An empty sample is never worth deflating.</p>
+     *
+     * @param sample the array holding the sample
+     * @param offset the start of the sample inside the array
+     * @param length the length of the sample
+     * @return true if deflating the sample saves at least the minimum savings
+     */
+    public boolean isWorthDeflating(final byte[] sample, final int offset, final int length) {
+        if (length == 0) {
+            return false;
+        }
+        if (1 - entropy(sample, offset, length) / Byte.SIZE >= minimumSavings) {
+            return true;
+        }
+        return 1 - (double) deflatedSize(sample, offset, length) / length >= minimumSavings;
+    }
+
+    /**
+     * The order-0 entropy of the given bytes in bits per byte.
+     */
+    static double entropy(final byte[] data, final int offset, final int length) {
+        final int[] counts = new int[BYTE_VALUES];
+        for (int i = offset; i < offset + length; i++) {
+            counts[data[i] & 0xff]++;
+        }
+        double entropy = 0;
+        for (final int count : counts) {
+            if (count > 0) {
+                final double p = (double) count / length;
+                entropy -= p * Math.log(p);
+            }
+        }
+        return entropy / Math.log(2);
+    }
+
+    private static long deflatedSize(final byte[] data, final int offset, final int length) {
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(data, offset, length);
+            deflater.finish();
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                deflater.deflate(buffer);
+            }
+            return deflater.getBytesWritten();
+        } finally {
+            deflater.end();
+        }
+    }
+}
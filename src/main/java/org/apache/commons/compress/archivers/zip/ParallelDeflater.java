@@ -0,0 +1,147 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.zip;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.ParallelDeflateUtils;
+import org.apache.commons.compress.utils.ParallelDeflateUtils.DeflatedChunk;
+
+/**
+ * Deflates a stream using several threads by splitting it into chunks.
+ *
+ * <p>The chunks are deflated using {@link ParallelDeflateUtils#deflateChunk}, so the concatenated output forms a
+ * single raw DEFLATE stream. The CRC32 checksums of the chunks are combined into the checksum of the whole
+ * stream.</p>
+ *
+ * @NotThreadSafe
+ */
+final class ParallelDeflater {
+    private final ExecutorService executorService;
+    private final int level;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+    private final Deque<Future<DeflatedChunk>> inFlight = new ArrayDeque<>();
+    private long crc;
+    private long bytesRead;
+
+    ParallelDeflater(final ExecutorService executorService, final int level, final int chunkSize,
+        final int maxChunksInFlight) {
+        this.executorService = executorService;
+        this.level = level;
+        this.chunkSize = chunkSize;
+        this.maxChunksInFlight = maxChunksInFlight;
+    }
+
+    /**
+     * Deflates the given stream and writes the result to the given compressor without compressing it any further.
+     *
+     * @param source the stream to deflate, it is read until its end but not closed
+     * @param target receives the deflated data
+     * @throws IOException if reading, deflating or writing fails
+     */
+    void deflate(final InputStream source, final StreamCompressor target) throws IOException {
+        crc = 0;
+        bytesRead = 0;
+        boolean success = false;
+        try {
+            byte[] dictionary = null;
+            byte[] current = readChunk(source);
+            while (true) {
+                final byte[] next = current.length < chunkSize ? null : readChunk(source);
+                final boolean last = next == null || next.length == 0;
+                while (inFlight.size() >= maxChunksInFlight) {
+                    writeOldestChunk(target);
+                }
+                final byte[] data = current;
+                final byte[] dict = dictionary;
+                inFlight.addLast(executorService.submit(new Callable<DeflatedChunk>() {
+                    @Override
+                    public DeflatedChunk call() {
+                        return ParallelDeflateUtils.deflateChunk(data, data.length, dict, level, last);
+                    }
+                }));
+                if (last) {
+                    break;
+                }
+                dictionary = current;
+                current = next;
+            }
+            while (!inFlight.isEmpty()) {
+                writeOldestChunk(target);
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                for (final Future<DeflatedChunk> future : inFlight) {
+                    future.cancel(true);
+                }
+                inFlight.clear();
+            }
+        }
+    }
+
+    /**
+     * The CRC32 checksum of the data read by the last invocation of {@link #deflate}.
+     */
+    long getCrc32() {
+        return crc;
+    }
+
+    /**
+     * The number of bytes read by the last invocation of {@link #deflate}.
+     */
+    long getBytesRead() {
+        return bytesRead;
+    }
+
+    private byte[] readChunk(final InputStream source) throws IOException {
+        final byte[] chunk = new byte[chunkSize];
+        final int read = IOUtils.readFully(source, chunk);
+        return read < chunkSize ? Arrays.copyOf(chunk, read) : chunk;
+    }
+
+    private void writeOldestChunk(final StreamCompressor target) throws IOException {
+        final DeflatedChunk chunk;
+        try {
+            chunk = inFlight.removeFirst().get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for a chunk to be deflated");
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+        target.writeCounted(chunk.getData(), 0, chunk.getLength());
+        crc = ParallelDeflateUtils.combineCrc32(crc, chunk.getCrc32(), chunk.getSize());
+        bytesRead += chunk.getSize();
+    }
+}
@@ -19,6 +19,7 @@
 
 import org.apache.commons.compress.parallel.FileBasedScatterGatherBackingStore;
 import org.apache.commons.compress.parallel.InputStreamSupplier;
+import org.apache.commons.compress.parallel.MemoryBasedScatterGatherBackingStore;
 import org.apache.commons.compress.parallel.ScatterGatherBackingStore;
 import org.apache.commons.compress.parallel.ScatterGatherBackingStoreSupplier;
 
@@ -48,10 +49,14 @@
  * The client can supply an {@link java.util.concurrent.ExecutorService}, but for reasons of
  * memory model consistency, this will be shut down by this class prior to completion.
  * </p>
+ * <p>
+ * Use {@link PipelinedScatterZipCreator} if entries should be written while others are still being compressed.
+ * </p>
  * @since 1.10
  */
 public class ParallelScatterZipCreator {
     private final Deque<ScatterZipOutputStream> streams = new ConcurrentLinkedDeque<>();
+    private final Deque<ScatterGatherBackingStore> backingStores = new ConcurrentLinkedDeque<>();
     private final ExecutorService es;
     private final ScatterGatherBackingStoreSupplier backingStoreSupplier;
     private final Deque<Future<? extends ScatterZipOutputStream>> futures = new ConcurrentLinkedDeque<>();
@@ -59,8 +64,9 @@ public class ParallelScatterZipCreator {
     private final long startedAt = System.currentTimeMillis();
     private long compressionDoneAt = 0;
     private long scatterDoneAt;
+    private volatile CompressibilityEstimator compressibilityEstimator;
 
-    private static class DefaultBackingStoreSupplier implements ScatterGatherBackingStoreSupplier {
+    static class DefaultBackingStoreSupplier implements ScatterGatherBackingStoreSupplier {
         final AtomicInteger storeNum = new AtomicInteger(0);
 
         @Override
@@ -73,9 +79,12 @@ public ScatterGatherBackingStore get() throws IOException {
     private ScatterZipOutputStream createDeferred(final ScatterGatherBackingStoreSupplier scatterGatherBackingStoreSupplier)
             throws IOException {
         final ScatterGatherBackingStore bs = scatterGatherBackingStoreSupplier.get();
+        backingStores.add(bs);
         // lifecycle is bound to the ScatterZipOutputStream returned
         final StreamCompressor sc = StreamCompressor.create(Deflater.DEFAULT_COMPRESSION, bs); //NOSONAR
-        return new ScatterZipOutputStream(bs, sc);
+        final ScatterZipOutputStream scatterStream = new ScatterZipOutputStream(bs, sc);
+        scatterStream.setCompressibilityEstimator(compressibilityEstimator);
+        return scatterStream;
     }
 
     private final ThreadLocal<ScatterZipOutputStream> tlScatterStreams = new ThreadLocal<ScatterZipOutputStream>() {
@@ -122,6 +131,21 @@ public ParallelScatterZipCreator(final ExecutorService executorService,
         es = executorService;
     }
 
+    /**
+     * Sets the estimator used to decide whether the content of
+     * DEFLATED entries is worth deflating, entries whose content is
+     * considered incompressible are stored instead.
+     *
+     * <p>Must be called before the first entry is added. The default
+     * is null, which deflates all DEFLATED entries.</p>
+     *
+     * @param compressibilityEstimator the estimator, may be null
+     * @since 1.20
+     */
+    public void setCompressibilityEstimator(final CompressibilityEstimator compressibilityEstimator) {
+        this.compressibilityEstimator = compressibilityEstimator;
+    }
+
     /**
      * Adds an archive entry to this archive.
      * <p>
@@ -295,7 +319,17 @@ public void writeTo(final ZipArchiveOutputStream targetStream)
      * @return A string
      */
     public ScatterStatistics getStatisticsMessage() {
-        return new ScatterStatistics(compressionDoneAt - startedAt, scatterDoneAt - compressionDoneAt);
+        int spilledStores = 0;
+        long spilledBytes = 0;
+        for (final ScatterGatherBackingStore bs : backingStores) {
+            if (bs instanceof MemoryBasedScatterGatherBackingStore
+                && ((MemoryBasedScatterGatherBackingStore) bs).isSpilled()) {
+                spilledStores++;
+                spilledBytes += ((MemoryBasedScatterGatherBackingStore) bs).getSpilledBytes();
+            }
+        }
+        return new ScatterStatistics(compressionDoneAt - startedAt, scatterDoneAt - compressionDoneAt,
+            spilledStores, spilledBytes);
     }
 
     private void closeAll() {
@@ -0,0 +1,294 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.zip;
+
+import org.apache.commons.compress.parallel.InputStreamSupplier;
+import org.apache.commons.compress.parallel.ScatterGatherBackingStore;
+import org.apache.commons.compress.parallel.ScatterGatherBackingStoreSupplier;
+import org.apache.commons.compress.utils.ZlibPool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
+
+import static org.apache.commons.compress.archivers.zip.ZipArchiveEntryRequest.createZipArchiveEntryRequest;
+
+/**
+ * Creates a zip in parallel, writing each entry to the target stream as soon as it and all entries added before it
+ * have been compressed.
+ *
+ * <p>Unlike {@link ParallelScatterZipCreator}, which only starts writing once all entries have been compressed,
+ * compression and output overlap. Each entry is compressed into a backing store of its own that is released as soon
+ * as the entry has been written, and at most {@code maxEntriesInFlight} entries are being compressed or waiting to be
+ * written at any time - {@link #addArchiveEntry addArchiveEntry} writes the oldest entries until this is the case
+ * again - so the amount of temporary storage is bounded as well.</p>
+ *
+ * <p>Entries are written in the order they have been added. All methods are expected to be called from a single
+ * client thread, the {@link ExecutorService} is not shut down by this class.</p>
+ *
+ * <p>Call {@link #finish} once all entries have been added and {@link #close} in any case in order to release the
+ * backing stores of entries that have not been written.</p>
+ *
+ * @since 1.20
+ * @NotThreadSafe
+ */
+public class PipelinedScatterZipCreator implements Closeable {
+    private final ExecutorService executorService;
+    private final ScatterGatherBackingStoreSupplier backingStoreSupplier;
+    private final ZipArchiveOutputStream target;
+    private final int maxEntriesInFlight;
+    private final ZlibPool zlibPool = new ZlibPool();
+    private final Deque<EntryCompression> inFlight = new ArrayDeque<>();
+    private volatile CompressibilityEstimator compressibilityEstimator;
+
+    /**
+     * Create a PipelinedScatterZipCreator that compresses entries into temporary files.
+     *
+     * @param executorService The executorService to use for compressing entries.
+     * @param target The stream to write the compressed entries to.
+     * @param maxEntriesInFlight The maximum number of entries that are being compressed or waiting to be written.
+     * @throws IllegalArgumentException if maxEntriesInFlight is smaller than 1
+     */
+    public PipelinedScatterZipCreator(final ExecutorService executorService, final ZipArchiveOutputStream target,
+        final int maxEntriesInFlight) {
+        this(executorService, new ParallelScatterZipCreator.DefaultBackingStoreSupplier(), target,
+            maxEntriesInFlight);
+    }
+
+    /**
+     * Create a PipelinedScatterZipCreator.
+     *
+     * @param executorService The executorService to use for compressing entries.
+     * @param backingStoreSupplier The supplier of backing stores, one store is used per entry.
+     * @param target The stream to write the compressed entries to.
+     * @param maxEntriesInFlight The maximum number of entries that are being compressed or waiting to be written.
+     * @throws IllegalArgumentException if maxEntriesInFlight is smaller than 1
+     */
+    public PipelinedScatterZipCreator(final ExecutorService executorService,
+        final ScatterGatherBackingStoreSupplier backingStoreSupplier, final ZipArchiveOutputStream target,
+        final int maxEntriesInFlight) {
+        if (maxEntriesInFlight < 1) {
+            throw new IllegalArgumentException("maxEntriesInFlight must be positive but is " + maxEntriesInFlight);
+        }
+        this.executorService = executorService;
+        this.backingStoreSupplier = backingStoreSupplier;
+        this.target = target;
+        this.maxEntriesInFlight = maxEntriesInFlight;
+    }
+
+    /**
+     * Sets the estimator used to decide whether the content of
+     * DEFLATED entries is worth deflating, entries whose content is
+     * considered incompressible are stored instead.
+     *
+     * <p>Must be called before the first entry is added. The default
+     * is null, which deflates all DEFLATED entries.</p>
+     *
+     * @param compressibilityEstimator the estimator, may be null
+     * @since 1.20
+     */
+    public void setCompressibilityEstimator(final CompressibilityEstimator compressibilityEstimator) {
+        this.compressibilityEstimator = compressibilityEstimator;
+    }
+
+    /**
+     * Adds an archive entry to this archive.
+     *
+     * <p>Blocks while the maximum number of entries in flight is reached, writing the oldest entries as soon as they
+     * have been compressed.</p>
+     *
+     * @param zipArchiveEntry The entry to add.
+     * @param source          The source input stream supplier
+     * @throws IOException if compressing or writing an earlier entry has failed
+     * @throws IllegalArgumentException if the entry's method has not been set
+     */
+    public void addArchiveEntry(final ZipArchiveEntry zipArchiveEntry, final InputStreamSupplier source)
+        throws IOException {
+        final int method = zipArchiveEntry.getMethod();
+        if (method == ZipMethod.UNKNOWN_CODE) {
+            throw new IllegalArgumentException("Method must be set on zipArchiveEntry: " + zipArchiveEntry);
+        }
+        final ZipArchiveEntryRequest zipArchiveEntryRequest = createZipArchiveEntryRequest(zipArchiveEntry, source);
+        addArchiveEntry(new ZipArchiveEntryRequestSupplier() {
+            @Override
+            public ZipArchiveEntryRequest get() {
+                return zipArchiveEntryRequest;
+            }
+        });
+    }
+
+    /**
+     * Adds an archive entry to this archive.
+     *
+     * <p>Blocks while the maximum number of entries in flight is reached, writing the oldest entries as soon as they
+     * have been compressed.</p>
+     *
+     * @param zipArchiveEntryRequestSupplier Should supply the entry to be added.
+     * @throws IOException if compressing or writing an earlier entry has failed
+     */
+    public void addArchiveEntry(final ZipArchiveEntryRequestSupplier zipArchiveEntryRequestSupplier)
+        throws IOException {
+        while (inFlight.size() >= maxEntriesInFlight) {
+            writeOldestEntry();
+        }
+        final EntryCompression compression = new EntryCompression(zipArchiveEntryRequestSupplier);
+        executorService.execute(compression);
+        inFlight.addLast(compression);
+        while (!inFlight.isEmpty() && inFlight.peekFirst().isDone()) {
+            writeOldestEntry();
+        }
+    }
+
+    /**
+     * Writes all entries that have not been written, yet, waiting for their compression to finish.
+     *
+     * <p>Does not finish the target stream.</p>
+     *
+     * @throws IOException if compressing or writing an entry fails
+     */
+    public void finish() throws IOException {
+        while (!inFlight.isEmpty()) {
+            writeOldestEntry();
+        }
+    }
+
+    /**
+     * Releases the backing stores of all entries that have not been written and the resources used for compression.
+     *
+     * <p>Entries that are currently being compressed are waited for, even if the current thread is interrupted.
+     * Does not close the target stream.</p>
+     */
+    @Override
+    public void close() {
+        try {
+            for (final EntryCompression compression : inFlight) {
+                if (!compression.cancelUnlessStarted()) {
+                    closeQuietly(compression);
+                }
+            }
+            inFlight.clear();
+        } finally {
+            zlibPool.clear();
+        }
+    }
+
+    private ScatterZipOutputStream compress(final ZipArchiveEntryRequest zipArchiveEntryRequest) throws IOException {
+        final ScatterGatherBackingStore bs = backingStoreSupplier.get();
+        // lifecycle is bound to the ScatterZipOutputStream returned
+        final StreamCompressor sc = StreamCompressor.create(Deflater.DEFAULT_COMPRESSION, bs, zlibPool); //NOSONAR
+        final ScatterZipOutputStream scatterStream = new ScatterZipOutputStream(bs, sc);
+        scatterStream.setCompressibilityEstimator(compressibilityEstimator);
+        try {
+            scatterStream.addArchiveEntry(zipArchiveEntryRequest);
+            return scatterStream;
+        } catch (IOException | RuntimeException ex) {
+            scatterStream.close();
+            throw ex;
+        }
+    }
+
+    private void writeOldestEntry() throws IOException {
+        final ScatterZipOutputStream scatterStream;
+        try {
+            scatterStream = inFlight.peekFirst().get();
+        } catch (final InterruptedException ex) {
+            // the entry stays in flight so close can release its backing store
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for an entry to be compressed");
+        } catch (final ExecutionException ex) {
+            inFlight.removeFirst();
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause);
+        }
+        inFlight.removeFirst();
+        try {
+            scatterStream.zipEntryWriter().writeNextZipEntry(target);
+        } finally {
+            scatterStream.close();
+        }
+    }
+
+    private static void closeQuietly(final Future<ScatterZipOutputStream> future) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    future.get().close();
+                    return;
+                } catch (final InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException | IOException ex) { //NOSONAR
+            // the entry has failed or no way to properly log this
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Compresses a single entry.
+     *
+     * <p>A {@link FutureTask} stays in its initial state while it is running, so it cannot tell whether {@link
+     * FutureTask#cancel cancel} has prevented the compression or merely discarded its result. The started flag is
+     * claimed either by the executor or by {@link #close} and ensures every backing store created is also
+     * released.</p>
+     */
+    private final class EntryCompression extends FutureTask<ScatterZipOutputStream> {
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        EntryCompression(final ZipArchiveEntryRequestSupplier zipArchiveEntryRequestSupplier) {
+            super(new Callable<ScatterZipOutputStream>() {
+                @Override
+                public ScatterZipOutputStream call() throws Exception {
+                    return compress(zipArchiveEntryRequestSupplier.get());
+                }
+            });
+        }
+
+        @Override
+        public void run() {
+            if (started.compareAndSet(false, true)) {
+                super.run();
+            }
+        }
+
+        /**
+         * Cancels the compression if it has not been started.
+         *
+         * @return whether the compression has been cancelled, otherwise it is running or done
+         */
+        boolean cancelUnlessStarted() {
+            return started.compareAndSet(false, true) && cancel(false);
+        }
+    }
+}
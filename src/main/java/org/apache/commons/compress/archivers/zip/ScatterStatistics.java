@@ -26,10 +26,19 @@
 public class ScatterStatistics {
     private final long compressionElapsed;
     private final long mergingElapsed;
+    private final int spilledStores;
+    private final long spilledBytes;
 
     ScatterStatistics(final long compressionElapsed, final long mergingElapsed) {
+        this(compressionElapsed, mergingElapsed, 0, 0);
+    }
+
+    ScatterStatistics(final long compressionElapsed, final long mergingElapsed, final int spilledStores,
+        final long spilledBytes) {
         this.compressionElapsed = compressionElapsed;
         this.mergingElapsed = mergingElapsed;
+        this.spilledStores = spilledStores;
+        this.spilledBytes = spilledBytes;
     }
 
     /**
@@ -48,9 +57,30 @@ public long getMergingElapsed() {
         return mergingElapsed;
     }
 
+    /**
+     * The number of memory based backing stores that have spilled their payload to disk
+     * @return The number of spilled backing stores
+     * @see org.apache.commons.compress.parallel.MemoryBasedScatterGatherBackingStore
+     * @since 1.20
+     */
+    public int getSpilledStores() {
+        return spilledStores;
+    }
+
+    /**
+     * The number of bytes memory based backing stores have written to disk after spilling
+     * @return The number of spilled bytes
+     * @see org.apache.commons.compress.parallel.MemoryBasedScatterGatherBackingStore
+     * @since 1.20
+     */
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
     @Override
     public String toString() {
-        return "compressionElapsed=" + compressionElapsed + "ms, mergingElapsed=" + mergingElapsed + "ms";
+        return "compressionElapsed=" + compressionElapsed + "ms, mergingElapsed=" + mergingElapsed + "ms"
+            + ", spilledStores=" + spilledStores + ", spilledBytes=" + spilledBytes;
     }
 
 }
@@ -18,6 +18,7 @@
 package org.apache.commons.compress.archivers.zip;
 
 
+import org.apache.commons.compress.parallel.ChannelScatterGatherBackingStore;
 import org.apache.commons.compress.parallel.FileBasedScatterGatherBackingStore;
 import org.apache.commons.compress.parallel.ScatterGatherBackingStore;
 import org.apache.commons.compress.utils.BoundedInputStream;
@@ -27,6 +28,7 @@
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.util.Iterator;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -53,15 +55,23 @@ public class ScatterZipOutputStream implements Closeable {
     private final StreamCompressor streamCompressor;
     private AtomicBoolean isClosed = new AtomicBoolean();
     private ZipEntryWriter zipEntryWriter = null;
+    private volatile CompressibilityEstimator compressibilityEstimator;
 
     private static class CompressedEntry {
         final ZipArchiveEntryRequest zipArchiveEntryRequest;
+        final int method;
         final long crc;
         final long compressedSize;
         final long size;
 
         public CompressedEntry(final ZipArchiveEntryRequest zipArchiveEntryRequest, final long crc, final long compressedSize, final long size) {
+            this(zipArchiveEntryRequest, zipArchiveEntryRequest.getMethod(), crc, compressedSize, size);
+        }
+
+        CompressedEntry(final ZipArchiveEntryRequest zipArchiveEntryRequest, final int method, final long crc,
+            final long compressedSize, final long size) {
             this.zipArchiveEntryRequest = zipArchiveEntryRequest;
+            this.method = method;
             this.crc = crc;
             this.compressedSize = compressedSize;
             this.size = size;
@@ -78,7 +88,7 @@ public ZipArchiveEntry transferToArchiveEntry(){
             entry.setCompressedSize(compressedSize);
             entry.setSize(size);
             entry.setCrc(crc);
-            entry.setMethod(zipArchiveEntryRequest.getMethod());
+            entry.setMethod(method);
             return entry;
         }
     }
@@ -89,6 +99,21 @@ public ScatterZipOutputStream(final ScatterGatherBackingStore backingStore,
         this.streamCompressor = streamCompressor;
     }
 
+    /**
+     * Sets the estimator used to decide whether the content of
+     * DEFLATED entries added subsequently is worth deflating.
+     *
+     * <p>Entries whose content is considered incompressible are
+     * stored instead. The default is null, which deflates all
+     * DEFLATED entries.</p>
+     *
+     * @param compressibilityEstimator the estimator, may be null
+     * @since 1.20
+     */
+    public void setCompressibilityEstimator(final CompressibilityEstimator compressibilityEstimator) {
+        this.compressibilityEstimator = compressibilityEstimator;
+    }
+
     /**
      * Add an archive entry to this scatter stream.
      *
@@ -96,10 +121,12 @@ public ScatterZipOutputStream(final ScatterGatherBackingStore backingStore,
      * @throws IOException    If writing fails
      */
     public void addArchiveEntry(final ZipArchiveEntryRequest zipArchiveEntryRequest) throws IOException {
+        final int method;
         try (final InputStream payloadStream = zipArchiveEntryRequest.getPayloadStream()) {
-            streamCompressor.deflate(payloadStream, zipArchiveEntryRequest.getMethod());
+            method = streamCompressor.deflate(payloadStream, zipArchiveEntryRequest.getMethod(),
+                compressibilityEstimator);
         }
-        items.add(new CompressedEntry(zipArchiveEntryRequest, streamCompressor.getCrc32(),
+        items.add(new CompressedEntry(zipArchiveEntryRequest, method, streamCompressor.getCrc32(),
                                       streamCompressor.getBytesWrittenForLastEntry(), streamCompressor.getBytesRead()));
     }
 
@@ -111,25 +138,33 @@ public void addArchiveEntry(final ZipArchiveEntryRequest zipArchiveEntryRequest)
      * @see #zipEntryWriter()
      */
     public void writeTo(final ZipArchiveOutputStream target) throws IOException {
-        backingStore.closeForWriting();
-        try (final InputStream data = backingStore.getInputStream()) {
-            for (final CompressedEntry compressedEntry : items) {
-                try (final BoundedInputStream rawStream = new BoundedInputStream(data,
-                        compressedEntry.compressedSize)) {
-                    target.addRawArchiveEntry(compressedEntry.transferToArchiveEntry(), rawStream);
-                }
+        try (final ZipEntryWriter writer = new ZipEntryWriter(this)) {
+            while (writer.itemsIterator.hasNext()) {
+                writer.writeNextZipEntry(target);
             }
         }
     }
 
+    /**
+     * Writes the entries of a scatter stream one by one.
+     *
+     * <p>If the backing store keeps its payload in a file the entries
+     * are transferred from the file's channel, which avoids copying
+     * them to the heap when the target archive is written to a file
+     * as well.</p>
+     */
     public static class ZipEntryWriter implements Closeable {
         private final Iterator<CompressedEntry> itemsIterator;
         private final InputStream itemsIteratorData;
+        private final FileChannel itemsIteratorChannel;
+        private long itemsIteratorPosition;
 
         public ZipEntryWriter(ScatterZipOutputStream scatter) throws IOException {
             scatter.backingStore.closeForWriting();
             itemsIterator = scatter.items.iterator();
-            itemsIteratorData = scatter.backingStore.getInputStream();
+            itemsIteratorChannel = scatter.backingStore instanceof ChannelScatterGatherBackingStore
+                ? ((ChannelScatterGatherBackingStore) scatter.backingStore).getFileChannel() : null;
+            itemsIteratorData = itemsIteratorChannel == null ? scatter.backingStore.getInputStream() : null;
         }
 
         @Override
@@ -137,10 +172,19 @@ public void close() throws IOException {
             if (itemsIteratorData != null) {
                 itemsIteratorData.close();
             }
+            if (itemsIteratorChannel != null) {
+                itemsIteratorChannel.close();
+            }
         }
 
         public void writeNextZipEntry(final ZipArchiveOutputStream target) throws IOException {
             CompressedEntry compressedEntry = itemsIterator.next();
+            if (itemsIteratorChannel != null) {
+                target.addRawArchiveEntry(compressedEntry.transferToArchiveEntry(), itemsIteratorChannel,
+                    itemsIteratorPosition);
+                itemsIteratorPosition += compressedEntry.compressedSize;
+                return;
+            }
             try (final BoundedInputStream rawStream = new BoundedInputStream(itemsIteratorData, compressedEntry.compressedSize)) {
                 target.addRawArchiveEntry(compressedEntry.transferToArchiveEntry(), rawStream);
             }
@@ -18,13 +18,17 @@
 package org.apache.commons.compress.archivers.zip;
 
 import org.apache.commons.compress.parallel.ScatterGatherBackingStore;
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.ZlibPool;
 
 import java.io.Closeable;
 import java.io.DataOutput;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.util.zip.CRC32;
 import java.util.zip.Deflater;
@@ -60,6 +64,10 @@ public abstract class StreamCompressor implements Closeable {
     private final byte[] outputBuffer = new byte[BUFFER_SIZE];
     private final byte[] readerBuf = new byte[BUFFER_SIZE];
 
+    private ZlibPool zlibPool;
+    private int zlibPoolLevel;
+    private boolean deflaterReleased;
+
     StreamCompressor(final Deflater deflater) {
         this.def = deflater;
     }
@@ -120,6 +128,27 @@ public static StreamCompressor create(final int compressionLevel, final ScatterG
         return new ScatterGatherBackingStoreCompressor(deflater, bs);
     }
 
+    /**
+     * Create a stream compressor with the given compression level
+     * that borrows its deflater from a pool.
+     *
+     * <p>The deflater is returned to the pool when the compressor
+     * is closed.</p>
+     *
+     * @param compressionLevel The {@link Deflater}  compression level
+     * @param bs               The ScatterGatherBackingStore to receive output
+     * @param zlibPool         The pool to borrow the deflater from
+     * @return A stream compressor
+     * @since 1.20
+     */
+    public static StreamCompressor create(final int compressionLevel, final ScatterGatherBackingStore bs,
+        final ZlibPool zlibPool) {
+        final StreamCompressor compressor =
+            new ScatterGatherBackingStoreCompressor(zlibPool.borrowDeflater(compressionLevel, true), bs);
+        compressor.returnDeflaterTo(zlibPool, compressionLevel);
+        return compressor;
+    }
+
     /**
      * Create a stream compressor with the default compression level.
      *
@@ -178,6 +207,37 @@ public long getTotalBytesWritten() {
 
     public void deflate(final InputStream source, final int method) throws IOException {
         reset();
+        writeRemaining(source, method);
+    }
+
+    /**
+     * Deflate the given source using the supplied compression method
+     * unless the estimator considers the start of the source
+     * incompressible, in which case it is stored.
+     *
+     * @param source The source to compress
+     * @param method The #ZipArchiveEntry compression method
+     * @param estimator The estimator to consult for DEFLATED sources, may be null
+     * @return the compression method that has actually been used
+     * @throws IOException When failures happen
+     */
+    int deflate(final InputStream source, final int method, final CompressibilityEstimator estimator)
+        throws IOException {
+        if (method != ZipEntry.DEFLATED || estimator == null) {
+            deflate(source, method);
+            return method;
+        }
+        reset();
+        final byte[] sample = new byte[estimator.getSampleSize()];
+        final int sampleLength = IOUtils.readFully(source, sample);
+        final int actualMethod = estimator.isWorthDeflating(sample, 0, sampleLength)
+            ? ZipEntry.DEFLATED : ZipEntry.STORED;
+        write(sample, 0, sampleLength, actualMethod);
+        writeRemaining(source, actualMethod);
+        return actualMethod;
+    }
+
+    private void writeRemaining(final InputStream source, final int method) throws IOException {
         int length;
 
         while ((length = source.read(readerBuf, 0, readerBuf.length)) >= 0) {
@@ -220,7 +280,39 @@ void reset() {
 
     @Override
     public void close() throws IOException {
-        def.end();
+        if (deflaterReleased) {
+            return;
+        }
+        deflaterReleased = true;
+        if (zlibPool != null) {
+            zlibPool.returnDeflater(def, zlibPoolLevel, true);
+        } else {
+            def.end();
+        }
+    }
+
+    /**
+     * Makes the compressor count bytes as if the given number of
+     * bytes had already been written, used when appending to an
+     * existing archive.
+     *
+     * @param totalBytesWritten the number of bytes preceding the
+     * output of this compressor
+     */
+    void setTotalBytesWritten(final long totalBytesWritten) {
+        totalWrittenToOutputStream = totalBytesWritten;
+    }
+
+    /**
+     * Makes {@link #close} return the deflater to the given pool
+     * rather than ending it.
+     *
+     * @param pool the pool the deflater has been borrowed from
+     * @param level the level the deflater has been borrowed with
+     */
+    void returnDeflaterTo(final ZlibPool pool, final int level) {
+        zlibPool = pool;
+        zlibPoolLevel = level;
     }
 
     void flushDeflater() throws IOException {
@@ -275,8 +367,45 @@ public void writeCounted(final byte[] data, final int offset, final int length)
         totalWrittenToOutputStream += length;
     }
 
+    /**
+     * Writes a part of the given channel without compressing it.
+     *
+     * @param source the channel to read from
+     * @param position the position of the first byte to write
+     * @param count the number of bytes to write
+     * @throws IOException on error
+     */
+    void writeCounted(final FileChannel source, final long position, final long count) throws IOException {
+        writeOut(source, position, count);
+        writtenToOutputStreamForLastEntry += count;
+        totalWrittenToOutputStream += count;
+    }
+
     protected abstract void writeOut(byte[] data, int offset, int length) throws IOException;
 
+    /**
+     * Copies a part of the given channel to the output.
+     *
+     * <p>Reads the data into a buffer, subclasses may override this
+     * method if their output allows the bytes to be transferred
+     * without copying them.</p>
+     */
+    void writeOut(final FileChannel source, final long position, final long count) throws IOException {
+        final ByteBuffer buf = ByteBuffer.wrap(readerBuf);
+        long pos = position;
+        final long end = position + count;
+        while (pos < end) {
+            buf.clear();
+            buf.limit((int) Math.min(buf.capacity(), end - pos));
+            final int read = source.read(buf, pos);
+            if (read < 0) {
+                throw new EOFException();
+            }
+            writeOut(readerBuf, 0, read);
+            pos += read;
+        }
+    }
+
     private static final class ScatterGatherBackingStoreCompressor extends StreamCompressor {
         private final ScatterGatherBackingStore bs;
 
@@ -336,5 +465,23 @@ protected final void writeOut(final byte[] data, final int offset, final int len
                 throws IOException {
             channel.write(ByteBuffer.wrap(data, offset, length));
         }
+
+        @Override
+        void writeOut(final FileChannel source, final long position, final long count) throws IOException {
+            if (!(channel instanceof FileChannel)) {
+                super.writeOut(source, position, count);
+                return;
+            }
+            // lets the operating system move the bytes between the files
+            long pos = position;
+            final long end = position + count;
+            while (pos < end) {
+                final long transferred = source.transferTo(pos, end - pos, channel);
+                if (transferred <= 0 && pos >= source.size()) {
+                    throw new EOFException();
+                }
+                pos += transferred;
+            }
+        }
     }
 }
@@ -40,6 +40,7 @@
 import org.apache.commons.compress.utils.ArchiveUtils;
 import org.apache.commons.compress.utils.IOUtils;
 import org.apache.commons.compress.utils.InputStreamStatistics;
+import org.apache.commons.compress.utils.ZlibPool;
 
 import static org.apache.commons.compress.archivers.zip.ZipConstants.DWORD;
 import static org.apache.commons.compress.archivers.zip.ZipConstants.SHORT;
@@ -93,7 +94,10 @@ public class ZipArchiveInputStream extends ArchiveInputStream implements InputSt
     private final InputStream in;
 
     /** Inflater used for all deflated entries. */
-    private final Inflater inf = new Inflater(true);
+    private final Inflater inf;
+
+    /** Pool the inflater has been borrowed from, if any. */
+    private final ZlibPool zlibPool;
 
     /** Buffer used to read from the wrapped stream. */
     private final ByteBuffer buf = ByteBuffer.allocate(ZipArchiveOutputStream.BUFFER_SIZE);
@@ -238,6 +242,36 @@ public ZipArchiveInputStream(final InputStream inputStream,
                                  final boolean useUnicodeExtraFields,
                                  final boolean allowStoredEntriesWithDataDescriptor,
                                  final boolean skipSplitSig) {
+        this(inputStream, encoding, useUnicodeExtraFields, allowStoredEntriesWithDataDescriptor, skipSplitSig,
+            null);
+    }
+
+    /**
+     * Create an instance using the specified encoding that borrows
+     * its inflater from a pool.
+     * @param inputStream the stream to wrap
+     * @param encoding the encoding to use for file names, use null
+     * for the platform's default encoding
+     * @param useUnicodeExtraFields whether to use InfoZIP Unicode
+     * Extra Fields (if present) to set the file names.
+     * @param allowStoredEntriesWithDataDescriptor whether the stream
+     * will try to read STORED entries that use a data descriptor
+     * @param skipSplitSig Whether the stream will try to skip the zip
+     * split signature(08074B50) at the beginning. You will need to
+     * set this to true if you want to read a split archive.
+     * @param zlibPool the pool to borrow the inflater from, it is
+     * returned when this stream is closed. If null a new inflater is
+     * created and ended when the stream is closed.
+     * @since 1.20
+     */
+    public ZipArchiveInputStream(final InputStream inputStream,
+                                 final String encoding,
+                                 final boolean useUnicodeExtraFields,
+                                 final boolean allowStoredEntriesWithDataDescriptor,
+                                 final boolean skipSplitSig,
+                                 final ZlibPool zlibPool) {
+        this.zlibPool = zlibPool;
+        inf = zlibPool != null ? zlibPool.borrowInflater(true) : new Inflater(true);
         this.encoding = encoding;
         zipEncoding = ZipEncodingHelper.getZipEncoding(encoding);
         this.useUnicodeExtraFields = useUnicodeExtraFields;
@@ -626,7 +660,11 @@ public void close() throws IOException {
             try {
                 in.close();
             } finally {
-                inf.end();
+                if (zlibPool != null) {
+                    zlibPool.returnInflater(inf, true);
+                } else {
+                    inf.end();
+                }
             }
         }
     }
@@ -17,28 +17,35 @@
  */
 package org.apache.commons.compress.archivers.zip;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
 import java.util.zip.Deflater;
 import java.util.zip.ZipException;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
 import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.ZlibPool;
 
 import static org.apache.commons.compress.archivers.zip.ZipConstants.DATA_DESCRIPTOR_MIN_VERSION;
 import static org.apache.commons.compress.archivers.zip.ZipConstants.DEFLATE_MIN_VERSION;
@@ -172,6 +179,12 @@ public class ZipArchiveOutputStream extends ArchiveOutputStream {
      */
     private int method = java.util.zip.ZipEntry.DEFLATED;
 
+    /**
+     * Decides whether DEFLATED entries added together with their
+     * content are worth deflating, null means always deflate.
+     */
+    private CompressibilityEstimator compressibilityEstimator;
+
     /**
      * List of ZipArchiveEntries written so far.
      */
@@ -288,6 +301,13 @@ public class ZipArchiveOutputStream extends ArchiveOutputStream {
      */
     private final Map<Integer, Integer> numberOfCDInDiskData = new HashMap<>();
 
+    /**
+     * Central directory headers of entries that have been written
+     * before this stream has been created, only used when appending
+     * to an existing archive.
+     */
+    private List<byte[]> existingCentralFileHeaders = Collections.emptyList();
+
     /**
      * Creates a new ZIP OutputStream filtering the underlying stream.
      * @param out the outputstream to zip
@@ -300,6 +320,26 @@ public ZipArchiveOutputStream(final OutputStream out) {
         isSplitZip = false;
     }
 
+    /**
+     * Creates a new ZIP OutputStream filtering the underlying stream
+     * that borrows its deflater from a pool.
+     *
+     * <p>The deflater is returned to the pool when the archive is
+     * finished.</p>
+     *
+     * @param out the outputstream to zip
+     * @param zlibPool the pool to borrow the deflater from
+     * @since 1.20
+     */
+    public ZipArchiveOutputStream(final OutputStream out, final ZlibPool zlibPool) {
+        this.out = out;
+        this.channel = null;
+        def = zlibPool.borrowDeflater(level, true);
+        streamCompressor = StreamCompressor.create(out, def);
+        streamCompressor.returnDeflaterTo(zlibPool, level);
+        isSplitZip = false;
+    }
+
     /**
      * Creates a new ZIP OutputStream writing to a File.  Will use
      * random access if possible.
@@ -379,6 +419,49 @@ public ZipArchiveOutputStream(SeekableByteChannel channel) throws IOException {
         isSplitZip = false;
     }
 
+    /**
+     * Creates a new ZIP OutputStream writing to a SeekableByteChannel
+     * that borrows its deflater from a pool.
+     *
+     * <p>The deflater is returned to the pool when the archive is
+     * finished.</p>
+     *
+     * @param channel the channel to zip to
+     * @param zlibPool the pool to borrow the deflater from
+     * @throws IOException on error
+     * @since 1.20
+     */
+    public ZipArchiveOutputStream(final SeekableByteChannel channel, final ZlibPool zlibPool) throws IOException {
+        this.channel = channel;
+        def = zlibPool.borrowDeflater(level, true);
+        streamCompressor = StreamCompressor.create(channel, def);
+        streamCompressor.returnDeflaterTo(zlibPool, level);
+        out = null;
+        isSplitZip = false;
+    }
+
+    /**
+     * Creates a stream that appends entries to an existing archive
+     * stored in a SeekableByteChannel, used by {@link
+     * ZipArchiveUpdater}.
+     *
+     * @param channel the channel holding the archive
+     * @param offset the position the first new local file header is
+     * written to, everything after it is overwritten
+     * @param existingCentralFileHeaders raw central directory headers
+     * of the existing entries to keep, they are written before the
+     * headers of new entries. The list is only read when the archive
+     * is finished.
+     * @throws IOException on error
+     */
+    ZipArchiveOutputStream(final SeekableByteChannel channel, final long offset,
+        final List<byte[]> existingCentralFileHeaders) throws IOException {
+        this(channel);
+        channel.position(offset);
+        streamCompressor.setTotalBytesWritten(offset);
+        this.existingCentralFileHeaders = existingCentralFileHeaders;
+    }
+
     /**
      * This method indicates whether this archive is writing to a
      * seekable stream (i.e., to a random access file).
@@ -551,6 +634,7 @@ public void finish() throws IOException {
         writeCentralDirectoryEnd();
         metaData.clear();
         entries.clear();
+        existingCentralFileHeaders = Collections.emptyList();
         streamCompressor.close();
         if (isSplitZip) {
             // trigger the ZipSplitOutputStream to write the final split segment
@@ -563,6 +647,14 @@ private void writeCentralDirectoryInChunks() throws IOException {
         final int NUM_PER_WRITE = 1000;
         final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(70 * NUM_PER_WRITE);
         int count = 0;
+        for (final byte[] existing : existingCentralFileHeaders) {
+            byteArrayOutputStream.write(existing);
+            if (++count > NUM_PER_WRITE){
+                writeCounted(byteArrayOutputStream.toByteArray());
+                byteArrayOutputStream.reset();
+                count = 0;
+            }
+        }
         for (final ZipArchiveEntry ze : entries) {
             byteArrayOutputStream.write(createCentralFileHeader(ze));
             if (++count > NUM_PER_WRITE){
@@ -587,9 +679,146 @@ public void closeArchiveEntry() throws IOException {
 
         flushDeflater();
 
+        closeWrittenEntry(streamCompressor.getCrc32(), streamCompressor.getBytesRead());
+    }
+
+    /**
+     * Adds an archive entry together with its content.
+     *
+     * <p>If a {@link #setCompressibilityEstimator compressibility
+     * estimator} has been set and it considers the start of the
+     * content of a DEFLATED entry incompressible, the entry is not
+     * deflated. It is stored instead if the whole content fits into
+     * the sample or this stream writes to a {@link
+     * SeekableByteChannel}, otherwise it is written as DEFLATED
+     * entry using compression level {@link
+     * Deflater#NO_COMPRESSION}, as the size of a STORED entry would
+     * have to be known in advance.</p>
+     *
+     * <p>Like {@link #putArchiveEntry} this method works on the
+     * given entry rather than a copy. If the entry gets stored its
+     * method is changed to {@link #STORED} and, if the whole content
+     * fits into the sample, its size, compressed size and CRC are set
+     * before it is written.</p>
+     *
+     * @param archiveEntry the entry to add
+     * @param content the content of the entry, it is read until its
+     * end but not closed
+     * @throws IOException if reading or writing fails
+     * @throws Zip64RequiredException if the entry's uncompressed or
+     * compressed size exceeds 4 GByte and {@link #setUseZip64}
+     * is {@link Zip64Mode#Never}.
+     * @since 1.20
+     */
+    public void addArchiveEntry(final ZipArchiveEntry archiveEntry, final InputStream content)
+            throws IOException {
+        IOUtils.copy(putSampledArchiveEntry(archiveEntry, content), this);
+        closeArchiveEntry();
+    }
+
+    /**
+     * Adds an archive entry and deflates its content using several
+     * threads.
+     *
+     * <p>The content is split into chunks of the given size that
+     * are deflated concurrently, each chunk using the end of the
+     * preceding chunk as preset dictionary. The deflated chunks are
+     * joined at sync flush boundaries into a single DEFLATE stream
+     * and their CRC32 checksums are combined, so the entry can be
+     * read by any zip implementation. This pays off for very big
+     * entries, chunks of 128 KiB or more work well.</p>
+     *
+     * <p>Entries using a method other than DEFLATED or whose
+     * content is considered incompressible by the {@link
+     * #setCompressibilityEstimator compressibility estimator} are
+     * written like {@link #addArchiveEntry(ZipArchiveEntry,
+     * InputStream)} does, which may change the method, sizes and CRC
+     * of the given entry. The executor is not shut down by this
+     * method.</p>
+     *
+     * @param archiveEntry the entry to add
+     * @param content the content of the entry, it is read until its
+     * end but not closed
+     * @param executorService the executor used to deflate the chunks
+     * @param chunkSize the number of bytes of content per chunk
+     * @param maxChunksInFlight the maximum number of chunks that are
+     * being deflated or waiting to be written at any time
+     * @throws IOException if reading, deflating or writing fails
+     * @throws IllegalArgumentException if chunkSize or
+     * maxChunksInFlight is not positive
+     * @throws Zip64RequiredException if the entry's uncompressed or
+     * compressed size exceeds 4 GByte and {@link #setUseZip64}
+     * is {@link Zip64Mode#Never}.
+     * @since 1.20
+     */
+    public void addArchiveEntry(final ZipArchiveEntry archiveEntry, final InputStream content,
+            final ExecutorService executorService, final int chunkSize, final int maxChunksInFlight)
+            throws IOException {
+        if (chunkSize <= 0 || maxChunksInFlight <= 0) {
+            throw new IllegalArgumentException("chunkSize and maxChunksInFlight must be positive");
+        }
+        final InputStream sampledContent = putSampledArchiveEntry(archiveEntry, content);
+        if (entry.entry.getMethod() != DEFLATED || entry.incompressible) {
+            IOUtils.copy(sampledContent, this);
+            closeArchiveEntry();
+            return;
+        }
+        ZipUtil.checkRequestedFeatures(entry.entry);
+        entry.hasWritten = true;
+        final ParallelDeflater deflater = new ParallelDeflater(executorService, level, chunkSize,
+            maxChunksInFlight);
+        deflater.deflate(sampledContent, streamCompressor);
+        count(streamCompressor.getTotalBytesWritten() - entry.dataStart);
+        preClose();
+        closeWrittenEntry(deflater.getCrc32(), deflater.getBytesRead());
+    }
+
+    /**
+     * Puts the given entry, consulting the compressibility estimator
+     * for DEFLATED entries.
+     *
+     * @return the content to write including the bytes consumed as
+     * sample
+     */
+    private InputStream putSampledArchiveEntry(final ZipArchiveEntry archiveEntry, final InputStream content)
+            throws IOException {
+        final int entryMethod = archiveEntry.getMethod() == ZipMethod.UNKNOWN_CODE
+            ? method : archiveEntry.getMethod();
+        if (entryMethod != DEFLATED || compressibilityEstimator == null) {
+            putArchiveEntry(archiveEntry);
+            return content;
+        }
+        final byte[] sample = new byte[compressibilityEstimator.getSampleSize()];
+        final int sampleLength = IOUtils.readFully(content, sample);
+        boolean incompressible = false;
+        if (!compressibilityEstimator.isWorthDeflating(sample, 0, sampleLength)) {
+            if (sampleLength < sample.length) {
+                // the whole content is known, so is everything a STORED entry needs
+                final CRC32 crc = new CRC32();
+                crc.update(sample, 0, sampleLength);
+                archiveEntry.setMethod(STORED);
+                archiveEntry.setSize(sampleLength);
+                archiveEntry.setCompressedSize(sampleLength);
+                archiveEntry.setCrc(crc.getValue());
+            } else if (channel != null) {
+                archiveEntry.setMethod(STORED);
+            } else {
+                incompressible = true;
+            }
+        }
+        putArchiveEntry(archiveEntry);
+        if (incompressible) {
+            entry.incompressible = true;
+            def.setLevel(Deflater.NO_COMPRESSION);
+            // restore the configured level for the next entry
+            hasCompressionLevelChanged = true;
+        }
+        return new SequenceInputStream(new ByteArrayInputStream(sample, 0, sampleLength), content);
+    }
+
+    private void closeWrittenEntry(final long realCrc, final long bytesRead) throws IOException {
         final long bytesWritten = streamCompressor.getTotalBytesWritten() - entry.dataStart;
-        final long realCrc = streamCompressor.getCrc32();
-        entry.bytesRead = streamCompressor.getBytesRead();
+        entry.bytesRead = bytesRead;
         final Zip64Mode effectiveMode = getEffectiveZip64Mode(entry.entry);
         final boolean actuallyNeedsZip64 = handleSizesAndCrc(bytesWritten, realCrc, effectiveMode);
         closeEntry(actuallyNeedsZip64, false);
@@ -654,6 +883,43 @@ private void preClose() throws IOException {
      */
     public void addRawArchiveEntry(final ZipArchiveEntry entry, final InputStream rawStream)
             throws IOException {
+        final boolean is2PhaseSource = putRawArchiveEntry(entry);
+        copyFromZipInputStream(rawStream);
+        closeCopiedEntry(is2PhaseSource);
+    }
+
+    /**
+     * Adds an archive entry with the raw content read from a part
+     * of the given channel.
+     *
+     * <p>The entry's compressed size determines the number of bytes
+     * to copy. If this stream writes to a {@link FileChannel} the
+     * bytes are transferred by the operating system without being
+     * copied to the heap.</p>
+     *
+     * @param entry The entry to add, size, compressed size and CRC
+     * must be known
+     * @param source channel holding the raw content of the entry
+     * @param position position of the entry's raw content inside
+     * the channel
+     * @throws IOException If copying fails
+     */
+    void addRawArchiveEntry(final ZipArchiveEntry entry, final FileChannel source, final long position)
+            throws IOException {
+        if (entry.getCrc() == ZipArchiveEntry.CRC_UNKNOWN || entry.getSize() == ArchiveEntry.SIZE_UNKNOWN
+            || entry.getCompressedSize() == ArchiveEntry.SIZE_UNKNOWN) {
+            throw new IllegalArgumentException("size, compressed size and CRC of entry " + entry.getName()
+                + " must be known");
+        }
+        putRawArchiveEntry(entry);
+        ZipUtil.checkRequestedFeatures(this.entry.entry);
+        this.entry.hasWritten = true;
+        streamCompressor.writeCounted(source, position, entry.getCompressedSize());
+        count(entry.getCompressedSize());
+        closeCopiedEntry(true);
+    }
+
+    private boolean putRawArchiveEntry(final ZipArchiveEntry entry) throws IOException {
         final ZipArchiveEntry ae = new ZipArchiveEntry(entry);
         if (hasZip64Extra(ae)) {
             // Will be re-added as required. this may make the file generated with this method
@@ -665,8 +931,7 @@ public void addRawArchiveEntry(final ZipArchiveEntry entry, final InputStream ra
                 && ae.getSize() != ArchiveEntry.SIZE_UNKNOWN
                 && ae.getCompressedSize() != ArchiveEntry.SIZE_UNKNOWN;
         putArchiveEntry(ae, is2PhaseSource);
-        copyFromZipInputStream(rawStream);
-        closeCopiedEntry(is2PhaseSource);
+        return is2PhaseSource;
     }
 
     /**
@@ -962,6 +1227,27 @@ public void setLevel(final int level) {
         this.level = level;
     }
 
+    /**
+     * Sets the estimator used by {@link
+     * #addArchiveEntry(ZipArchiveEntry, InputStream)} and {@link
+     * #addArchiveEntry(ZipArchiveEntry, InputStream, ExecutorService,
+     * int, int)} to decide whether the content of DEFLATED entries
+     * is worth deflating.
+     *
+     * <p>Entries the estimator considers incompressible may be
+     * changed to STORED entries, this modifies the {@link
+     * ZipArchiveEntry} instances passed to these methods. Entries
+     * written via {@link #putArchiveEntry} and {@link #write} are not
+     * affected. Default is null, which deflates all DEFLATED
+     * entries.</p>
+     *
+     * @param compressibilityEstimator the estimator, may be null
+     * @since 1.20
+     */
+    public void setCompressibilityEstimator(final CompressibilityEstimator compressibilityEstimator) {
+        this.compressibilityEstimator = compressibilityEstimator;
+    }
+
     /**
      * Sets the default compression method for subsequent entries.
      *
@@ -1473,7 +1759,7 @@ protected void writeCentralDirectoryEnd() throws IOException {
         writeCounted(ZipShort.getBytes((int)cdDiskNumberStart));
 
         // number of entries
-        final int numberOfEntries = entries.size();
+        final int numberOfEntries = getNumberOfEntries();
         if (numberOfEntries > ZIP64_MAGIC_SHORT
             && zip64Mode == Zip64Mode.Never) {
             throw new Zip64RequiredException(Zip64RequiredException
@@ -1508,6 +1794,10 @@ protected void writeCentralDirectoryEnd() throws IOException {
         streamCompressor.writeCounted(data.array(), data.arrayOffset(), dataLen);
     }
 
+    private int getNumberOfEntries() {
+        return existingCentralFileHeaders.size() + entries.size();
+    }
+
     /**
      * Writes the &quot;ZIP64 End of central dir record&quot; and
      * &quot;ZIP64 End of central dir locator&quot;.
@@ -1521,7 +1811,7 @@ protected void writeZip64CentralDirectory() throws IOException {
 
         if (!hasUsedZip64
             && (cdOffset >= ZIP64_MAGIC || cdLength >= ZIP64_MAGIC
-                || entries.size() >= ZIP64_MAGIC_SHORT)) {
+                || getNumberOfEntries() >= ZIP64_MAGIC_SHORT)) {
             // actually "will use"
             hasUsedZip64 = true;
         }
@@ -1572,12 +1862,12 @@ protected void writeZip64CentralDirectory() throws IOException {
         // total number of entries in the central directory on this disk
         int numOfEntriesOnThisDisk = isSplitZip
             ? (numberOfCDInDiskData.get(numberOfThisDisk) == null ? 0 : numberOfCDInDiskData.get(numberOfThisDisk))
-            : entries.size();
+            : getNumberOfEntries();
         final byte[] numOfEntriesOnThisDiskData = ZipEightByteInteger.getBytes(numOfEntriesOnThisDisk);
         writeOut(numOfEntriesOnThisDiskData);
 
         // number of entries
-        final byte[] num = ZipEightByteInteger.getBytes(entries.size());
+        final byte[] num = ZipEightByteInteger.getBytes(getNumberOfEntries());
         writeOut(num);
 
         // length and location of CD
@@ -1845,6 +2135,11 @@ private CurrentEntry(final ZipArchiveEntry entry) {
          * the stream at all.</p>
          */
         private boolean hasWritten;
+        /**
+         * Whether the content has been found incompressible and is
+         * deflated using compression level NO_COMPRESSION.
+         */
+        private boolean incompressible;
     }
 
     private static final class EntryMetaData {
@@ -0,0 +1,442 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.zip;
+
+import static org.apache.commons.compress.archivers.zip.ZipConstants.DWORD;
+import static org.apache.commons.compress.archivers.zip.ZipConstants.SHORT;
+import static org.apache.commons.compress.archivers.zip.ZipConstants.WORD;
+import static org.apache.commons.compress.archivers.zip.ZipConstants.ZIP64_MAGIC;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipException;
+
+import org.apache.commons.compress.utils.IOUtils;
+
+/**
+ * Updates a zip archive in place.
+ *
+ * <p>Rather than copying all entries into a new archive this class
+ * only rewrites the central directory of an existing archive. New
+ * entries are written behind the data of the last existing entry,
+ * overwriting the old central directory, and deleted entries are
+ * simply left out of the new central directory. The cost of an
+ * update thus depends on the size of the change and the central
+ * directory rather than on the size of the archive.</p>
+ *
+ * <p>The data of deleted entries remains inside the file unless
+ * {@link #compact} is invoked, which moves the remaining entries so
+ * that no gaps remain.</p>
+ *
+ * <p>As the archive is modified in place it will most likely be
+ * corrupt if the update doesn't complete, for example because the
+ * process gets killed. Split archives can't be updated.</p>
+ *
+ * @NotThreadSafe
+ * @since 1.20
+ */
+public class ZipArchiveUpdater implements Closeable {
+
+    private static final int CFH_LEN = 46;
+    private static final int CFH_COMPRESSED_SIZE_OFFSET = 6 * SHORT + 2 * WORD;
+    private static final int CFH_ORIGINAL_SIZE_OFFSET = CFH_COMPRESSED_SIZE_OFFSET + WORD;
+    private static final int CFH_FILENAME_LENGTH_OFFSET = CFH_ORIGINAL_SIZE_OFFSET + WORD;
+    private static final int CFH_LFH_OFFSET = CFH_FILENAME_LENGTH_OFFSET + 5 * SHORT + WORD;
+    private static final int EOCD_COMMENT_LENGTH_OFFSET = 4 * SHORT + 3 * WORD;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final Comparator<ExistingEntry> BY_OFFSET = new Comparator<ExistingEntry>() {
+        @Override
+        public int compare(final ExistingEntry e1, final ExistingEntry e2) {
+            return Long.compare(e1.entry.getLocalHeaderOffset(), e2.entry.getLocalHeaderOffset());
+        }
+    };
+
+    private final SeekableByteChannel channel;
+    private final String encoding;
+    private final ZipFile zipFile;
+    /** Entries of the original archive in central directory order. */
+    private final List<ExistingEntry> existingEntries;
+    /** Entries of the original archive that have not been deleted by name. */
+    private final Map<String, LinkedList<ExistingEntry>> entriesByName = new HashMap<>();
+    /** Central directory headers of the entries kept, filled when finishing. */
+    private final List<byte[]> keptHeaders = new ArrayList<>();
+    private final String comment;
+
+    /** Position the first new entry will be written to. */
+    private long appendOffset;
+    private ZipArchiveOutputStream out;
+    private boolean finished;
+
+    /**
+     * Opens the given file for updating, assuming file names are
+     * encoded using UTF-8.
+     *
+     * @param file the archive to update
+     * @throws IOException if an error occurs while reading the archive
+     */
+    public ZipArchiveUpdater(final File file) throws IOException {
+        this(file, ZipEncodingHelper.UTF8);
+    }
+
+    /**
+     * Opens the given file for updating.
+     *
+     * @param file the archive to update
+     * @param encoding the encoding to use for file names and the
+     * archive comment, use null for the platform's default encoding
+     * @throws IOException if an error occurs while reading the archive
+     */
+    public ZipArchiveUpdater(final File file, final String encoding) throws IOException {
+        this(Files.newByteChannel(file.toPath(), EnumSet.of(StandardOpenOption.READ, StandardOpenOption.WRITE)),
+            file.getAbsolutePath(), encoding, true);
+    }
+
+    /**
+     * Updates the archive stored in the given channel, assuming file
+     * names are encoded using UTF-8.
+     *
+     * <p>The channel will be closed when this updater is closed.</p>
+     *
+     * @param channel the channel holding the archive, it must be
+     * both readable and writable
+     * @throws IOException if an error occurs while reading the archive
+     */
+    public ZipArchiveUpdater(final SeekableByteChannel channel) throws IOException {
+        this(channel, ZipEncodingHelper.UTF8);
+    }
+
+    /**
+     * Updates the archive stored in the given channel.
+     *
+     * <p>The channel will be closed when this updater is closed.</p>
+     *
+     * @param channel the channel holding the archive, it must be
+     * both readable and writable
+     * @param encoding the encoding to use for file names and the
+     * archive comment, use null for the platform's default encoding
+     * @throws IOException if an error occurs while reading the archive
+     */
+    public ZipArchiveUpdater(final SeekableByteChannel channel, final String encoding) throws IOException {
+        this(channel, "unknown archive", encoding, false);
+    }
+
+    private ZipArchiveUpdater(final SeekableByteChannel channel, final String archiveName, final String encoding,
+        final boolean closeOnError) throws IOException {
+        if (channel instanceof ZipSplitReadOnlySeekableByteChannel) {
+            throw new IllegalArgumentException("Split archives can't be updated");
+        }
+        this.channel = channel;
+        this.encoding = encoding;
+        ZipFile z = null;
+        boolean success = false;
+        try {
+            z = new ZipFile(channel, archiveName, ZipFileOptions.builder().withEncoding(encoding)
+                .withIgnoreLocalFileHeader(true).build());
+            zipFile = z;
+            existingEntries = readCentralDirectory();
+            comment = readComment();
+            appendOffset = zipFile.getCentralDirectoryStartOffset();
+            success = true;
+        } finally {
+            if (!success && closeOnError) {
+                IOUtils.closeQuietly(z != null ? z : channel);
+            }
+        }
+    }
+
+    /**
+     * Returns the entries of the original archive that have not been
+     * deleted in the order they appear inside the central directory.
+     *
+     * @return the entries of the original archive still present
+     */
+    public List<ZipArchiveEntry> getEntries() {
+        final List<ZipArchiveEntry> entries = new ArrayList<>(existingEntries.size());
+        for (final ExistingEntry e : existingEntries) {
+            if (!e.deleted) {
+                entries.add(e.entry);
+            }
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Removes all entries of the original archive with the given name.
+     *
+     * @param name the name of the entries to remove
+     * @return whether any entry has been removed
+     * @throws IllegalStateException if the update has already been
+     * finished
+     */
+    public boolean delete(final String name) {
+        if (finished) {
+            throw new IllegalStateException("This archive has already been finished");
+        }
+        final List<ExistingEntry> entriesOfThatName = entriesByName.remove(name);
+        if (entriesOfThatName == null) {
+            return false;
+        }
+        for (final ExistingEntry e : entriesOfThatName) {
+            e.deleted = true;
+        }
+        return true;
+    }
+
+    /**
+     * Adds an entry to the archive, compressing it according to the
+     * entry's method.
+     *
+     * <p>The content must not be read from the archive being
+     * updated.</p>
+     *
+     * @param entry the entry to add
+     * @param content the uncompressed content of the entry
+     * @throws IOException if an error occurs while writing the entry
+     */
+    public void addArchiveEntry(final ZipArchiveEntry entry, final InputStream content) throws IOException {
+        final ZipArchiveOutputStream o = getOutputStream();
+        o.putArchiveEntry(entry);
+        IOUtils.copy(content, o);
+        o.closeArchiveEntry();
+    }
+
+    /**
+     * Adds an entry whose content has already been compressed, see
+     * {@link ZipArchiveOutputStream#addRawArchiveEntry}.
+     *
+     * <p>The content must not be read from the archive being
+     * updated.</p>
+     *
+     * @param entry the entry to add
+     * @param rawStream the compressed content of the entry
+     * @throws IOException if an error occurs while writing the entry
+     */
+    public void addRawArchiveEntry(final ZipArchiveEntry entry, final InputStream rawStream) throws IOException {
+        getOutputStream().addRawArchiveEntry(entry, rawStream);
+    }
+
+    /**
+     * Moves the entries of the original archive that have not been
+     * deleted so no gaps remain between them, the space used by
+     * deleted entries is reclaimed when the update is finished.
+     *
+     * <p>This needs to read and write all data following the first
+     * deleted entry and must be invoked before any entry is
+     * added.</p>
+     *
+     * @throws IOException if an error occurs while moving the entries
+     * @throws IllegalStateException if entries have already been
+     * added or the update has already been finished
+     */
+    public void compact() throws IOException {
+        if (out != null) {
+            throw new IllegalStateException("Entries have already been added to this archive");
+        }
+        final List<ExistingEntry> physicalOrder = new ArrayList<>(existingEntries);
+        Collections.sort(physicalOrder, BY_OFFSET);
+        long target = physicalOrder.isEmpty() ? appendOffset : physicalOrder.get(0).entry.getLocalHeaderOffset();
+        for (int i = 0; i < physicalOrder.size(); i++) {
+            final ExistingEntry e = physicalOrder.get(i);
+            final long start = e.entry.getLocalHeaderOffset();
+            final long end = i + 1 < physicalOrder.size()
+                ? physicalOrder.get(i + 1).entry.getLocalHeaderOffset() : appendOffset;
+            if (end <= start) {
+                throw new ZipException("Archive contains overlapping entries, can't compact it");
+            }
+            if (e.deleted) {
+                continue;
+            }
+            if (start != target) {
+                move(start, target, end - start);
+                e.setLocalHeaderOffset(target);
+            }
+            target += end - start;
+        }
+        for (final Iterator<ExistingEntry> it = existingEntries.iterator(); it.hasNext(); ) {
+            if (it.next().deleted) {
+                it.remove();
+            }
+        }
+        appendOffset = target;
+    }
+
+    /**
+     * Writes the new central directory and truncates the archive
+     * behind it.
+     *
+     * @throws IOException if an error occurs while writing the
+     * central directory or the update has already been finished
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            throw new IOException("This archive has already been finished");
+        }
+        final ZipArchiveOutputStream o = getOutputStream();
+        keptHeaders.clear();
+        for (final ExistingEntry e : existingEntries) {
+            if (!e.deleted) {
+                keptHeaders.add(e.centralFileHeader);
+            }
+        }
+        o.finish();
+        channel.truncate(channel.position());
+        finished = true;
+    }
+
+    /**
+     * Finishes the update if necessary and closes the archive.
+     *
+     * @throws IOException if an error occurs while finishing the update
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (!finished) {
+                finish();
+            }
+        } finally {
+            zipFile.close();
+        }
+    }
+
+    private ZipArchiveOutputStream getOutputStream() throws IOException {
+        if (out == null) {
+            out = new ZipArchiveOutputStream(channel, appendOffset, keptHeaders);
+            out.setEncoding(encoding);
+            out.setComment(comment);
+        }
+        return out;
+    }
+
+    private List<ExistingEntry> readCentralDirectory() throws IOException {
+        final List<ExistingEntry> result = new ArrayList<>();
+        final ByteBuffer fixed = ByteBuffer.allocate(CFH_LEN);
+        channel.position(zipFile.getCentralDirectoryStartOffset());
+        final Enumeration<ZipArchiveEntry> entries = zipFile.getEntries();
+        while (entries.hasMoreElements()) {
+            fixed.clear();
+            IOUtils.readFully(channel, fixed);
+            final byte[] fixedPart = fixed.array();
+            if (!ZipLong.CFH_SIG.equals(new ZipLong(fixedPart))) {
+                throw new ZipException("Expected a central directory header");
+            }
+            final int variableLength = ZipShort.getValue(fixedPart, CFH_FILENAME_LENGTH_OFFSET)
+                + ZipShort.getValue(fixedPart, CFH_FILENAME_LENGTH_OFFSET + SHORT)
+                + ZipShort.getValue(fixedPart, CFH_FILENAME_LENGTH_OFFSET + 2 * SHORT);
+            final byte[] header = Arrays.copyOf(fixedPart, CFH_LEN + variableLength);
+            IOUtils.readFully(channel, ByteBuffer.wrap(header, CFH_LEN, variableLength));
+            final ExistingEntry e = new ExistingEntry(entries.nextElement(), header);
+            result.add(e);
+            LinkedList<ExistingEntry> entriesOfThatName = entriesByName.get(e.entry.getName());
+            if (entriesOfThatName == null) {
+                entriesOfThatName = new LinkedList<>();
+                entriesByName.put(e.entry.getName(), entriesOfThatName);
+            }
+            entriesOfThatName.addLast(e);
+        }
+        return result;
+    }
+
+    private String readComment() throws IOException {
+        channel.position(zipFile.getEndOfCentralDirectoryOffset() + EOCD_COMMENT_LENGTH_OFFSET);
+        final ByteBuffer length = ByteBuffer.allocate(SHORT);
+        IOUtils.readFully(channel, length);
+        final byte[] rawComment = new byte[ZipShort.getValue(length.array())];
+        IOUtils.readFully(channel, ByteBuffer.wrap(rawComment));
+        return ZipEncodingHelper.getZipEncoding(encoding).decode(rawComment);
+    }
+
+    private void move(final long from, final long to, final long length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, length));
+        long moved = 0;
+        while (moved < length) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), length - moved));
+            channel.position(from + moved);
+            IOUtils.readFully(channel, buffer);
+            buffer.flip();
+            channel.position(to + moved);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            moved += buffer.limit();
+        }
+    }
+
+    private static class ExistingEntry {
+        private final ZipArchiveEntry entry;
+        private final byte[] centralFileHeader;
+        private boolean deleted;
+
+        ExistingEntry(final ZipArchiveEntry entry, final byte[] centralFileHeader) {
+            this.entry = entry;
+            this.centralFileHeader = centralFileHeader;
+        }
+
+        void setLocalHeaderOffset(final long offset) throws ZipException {
+            entry.setLocalHeaderOffset(offset);
+            if (ZipLong.getValue(centralFileHeader, CFH_LFH_OFFSET) != ZIP64_MAGIC) {
+                ZipLong.putLong(offset, centralFileHeader, CFH_LFH_OFFSET);
+                return;
+            }
+            // the offset is stored inside the Zip64 extended information extra field
+            int pos = CFH_LEN + ZipShort.getValue(centralFileHeader, CFH_FILENAME_LENGTH_OFFSET);
+            final int end = pos + ZipShort.getValue(centralFileHeader, CFH_FILENAME_LENGTH_OFFSET + SHORT);
+            while (pos + 2 * SHORT <= end) {
+                final int dataLength = ZipShort.getValue(centralFileHeader, pos + SHORT);
+                if (ZipShort.getValue(centralFileHeader, pos)
+                    == Zip64ExtendedInformationExtraField.HEADER_ID.getValue()) {
+                    int offsetPos = pos + 2 * SHORT;
+                    if (ZipLong.getValue(centralFileHeader, CFH_ORIGINAL_SIZE_OFFSET) == ZIP64_MAGIC) {
+                        offsetPos += DWORD;
+                    }
+                    if (ZipLong.getValue(centralFileHeader, CFH_COMPRESSED_SIZE_OFFSET) == ZIP64_MAGIC) {
+                        offsetPos += DWORD;
+                    }
+                    if (offsetPos + DWORD <= Math.min(end, pos + 2 * SHORT + dataLength)) {
+                        System.arraycopy(ZipEightByteInteger.getBytes(offset), 0, centralFileHeader, offsetPos,
+                            DWORD);
+                        return;
+                    }
+                    break;
+                }
+                pos += 2 * SHORT + dataLength;
+            }
+            throw new ZipException("Central directory header of " + entry.getName()
+                + " lacks the Zip64 extended information extra field");
+        }
+    }
+}
@@ -26,10 +26,14 @@
 import java.io.InputStream;
 import java.io.SequenceInputStream;
 import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
@@ -39,6 +43,7 @@
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.zip.Inflater;
 import java.util.zip.ZipException;
 
@@ -48,6 +53,8 @@
 import org.apache.commons.compress.utils.CountingInputStream;
 import org.apache.commons.compress.utils.IOUtils;
 import org.apache.commons.compress.utils.InputStreamStatistics;
+import org.apache.commons.compress.utils.PositionedReadable;
+import org.apache.commons.compress.utils.ZlibPool;
 
 import static org.apache.commons.compress.archivers.zip.ZipConstants.DWORD;
 import static org.apache.commons.compress.archivers.zip.ZipConstants.SHORT;
@@ -148,6 +155,44 @@ public class ZipFile implements Closeable {
      */
     private final boolean isSplitZipArchive;
 
+    /**
+     * Compact representation of the central directory, only used if
+     * requested by the options in which case entries and nameMap
+     * remain empty.
+     */
+    private final CompactCentralDirectory compactIndex;
+
+    /**
+     * Whether the archive's encoding encodes ASCII characters as
+     * ASCII, only used by the compact index.
+     */
+    private Boolean asciiCompatible;
+
+    /**
+     * Whether local file headers are read when an entry's data is
+     * accessed for the first time.
+     */
+    private final boolean resolveLocalFileHeadersLazily;
+
+    /**
+     * Regions of the archive mapped into memory, null unless memory
+     * mapping has been requested and the archive is a file.
+     */
+    private final MappedByteBuffer[] mappedRegions;
+
+    private final int mappedRegionSize;
+
+    /**
+     * Pool inflaters are borrowed from, may be null.
+     */
+    private final ZlibPool zlibPool;
+
+    /**
+     * Position of the first central directory header and of the end
+     * of central directory record.
+     */
+    private long centralDirectoryStartOffset, endOfCentralDirectoryOffset;
+
     // cached buffers - must only be used locally in the class (COMPRESS-172 - reduce garbage collection)
     private final byte[] dwordBuf = new byte[DWORD];
     private final byte[] wordBuf = new byte[WORD];
@@ -257,6 +302,20 @@ public ZipFile(final File f, final String encoding, final boolean useUnicodeExtr
              f.getAbsolutePath(), encoding, useUnicodeExtraFields, true, ignoreLocalFileHeader);
     }
 
+    /**
+     * Opens the given file for reading using the given options.
+     *
+     * @param f the archive.
+     * @param options the options to apply
+     *
+     * @throws IOException if an error occurs while reading the file.
+     * @since 1.20
+     */
+    public ZipFile(final File f, final ZipFileOptions options) throws IOException {
+        this(Files.newByteChannel(f.toPath(), EnumSet.of(StandardOpenOption.READ)),
+             f.getAbsolutePath(), options, true);
+    }
+
     /**
      * Opens the given channel for reading, assuming "UTF8" for file names.
      *
@@ -354,22 +413,61 @@ public ZipFile(final SeekableByteChannel channel, final String archiveName,
         this(channel, archiveName, encoding, useUnicodeExtraFields, false, ignoreLocalFileHeader);
     }
 
+    /**
+     * Opens the given channel for reading using the given options.
+     *
+     * <p>{@link
+     * org.apache.commons.compress.utils.SeekableInMemoryByteChannel}
+     * allows you to read from an in-memory archive.</p>
+     *
+     * @param channel the archive.
+     * @param archiveName name of the archive, used for error messages only.
+     * @param options the options to apply
+     *
+     * @throws IOException if an error occurs while reading the file.
+     * @since 1.20
+     */
+    public ZipFile(final SeekableByteChannel channel, final String archiveName,
+                   final ZipFileOptions options)
+        throws IOException {
+        this(channel, archiveName, options, false);
+    }
+
     private ZipFile(final SeekableByteChannel channel, final String archiveName,
                     final String encoding, final boolean useUnicodeExtraFields,
                     final boolean closeOnError, final boolean ignoreLocalFileHeader)
         throws IOException {
+        this(channel, archiveName, ZipFileOptions.builder()
+             .withEncoding(encoding)
+             .withUseUnicodeExtraFields(useUnicodeExtraFields)
+             .withIgnoreLocalFileHeader(ignoreLocalFileHeader)
+             .build(), closeOnError);
+    }
+
+    private ZipFile(final SeekableByteChannel channel, final String archiveName,
+                    final ZipFileOptions options, final boolean closeOnError)
+        throws IOException {
         isSplitZipArchive = (channel instanceof ZipSplitReadOnlySeekableByteChannel);
 
         this.archiveName = archiveName;
-        this.encoding = encoding;
+        this.encoding = options.getEncoding();
         this.zipEncoding = ZipEncodingHelper.getZipEncoding(encoding);
-        this.useUnicodeExtraFields = useUnicodeExtraFields;
+        this.useUnicodeExtraFields = options.getUseUnicodeExtraFields();
+        this.compactIndex = options.getUseCompactIndex() ? new CompactCentralDirectory() : null;
+        this.resolveLocalFileHeadersLazily = options.getResolveLocalFileHeadersLazily()
+            && !options.getIgnoreLocalFileHeader();
+        this.mappedRegionSize = options.getMappedRegionSize();
+        this.zlibPool = options.getZlibPool();
         archive = channel;
         boolean success = false;
         try {
+            mappedRegions = options.getUseMemoryMapping() && channel instanceof FileChannel
+                ? map((FileChannel) channel) : null;
             final Map<ZipArchiveEntry, NameAndComment> entriesWithoutUTF8Flag =
-                populateFromCentralDirectory();
-            if (!ignoreLocalFileHeader) {
+                populateFromCentralDirectory(options.getReadCentralDirectoryInBulk());
+            if (resolveLocalFileHeadersLazily) {
+                setNamesAndCommentsFromCentralDirectoryExtraFields(entriesWithoutUTF8Flag);
+            } else if (!options.getIgnoreLocalFileHeader() && compactIndex == null) {
                 resolveLocalFileHeaderData(entriesWithoutUTF8Flag);
             }
             fillNameMap();
@@ -423,6 +521,24 @@ public static void closeQuietly(final ZipFile zipfile) {
      * @return all entries as {@link ZipArchiveEntry} instances
      */
     public Enumeration<ZipArchiveEntry> getEntries() {
+        if (compactIndex != null) {
+            return new Enumeration<ZipArchiveEntry>() {
+                private int next;
+
+                @Override
+                public boolean hasMoreElements() {
+                    return next < compactIndex.size();
+                }
+
+                @Override
+                public ZipArchiveEntry nextElement() {
+                    if (!hasMoreElements()) {
+                        throw new NoSuchElementException();
+                    }
+                    return createEntry(next++);
+                }
+            };
+        }
         return Collections.enumeration(entries);
     }
 
@@ -437,6 +553,29 @@ public Enumeration<ZipArchiveEntry> getEntries() {
      * @since 1.1
      */
     public Enumeration<ZipArchiveEntry> getEntriesInPhysicalOrder() {
+        if (compactIndex != null) {
+            final int[] allIndexes = new int[compactIndex.size()];
+            for (int i = 0; i < allIndexes.length; i++) {
+                allIndexes[i] = i;
+            }
+            final int[] sorted = compactIndex.sortInPhysicalOrder(allIndexes);
+            return new Enumeration<ZipArchiveEntry>() {
+                private int next;
+
+                @Override
+                public boolean hasMoreElements() {
+                    return next < sorted.length;
+                }
+
+                @Override
+                public ZipArchiveEntry nextElement() {
+                    if (!hasMoreElements()) {
+                        throw new NoSuchElementException();
+                    }
+                    return createEntry(sorted[next++]);
+                }
+            };
+        }
         final ZipArchiveEntry[] allEntries = entries.toArray(new ZipArchiveEntry[entries.size()]);
         Arrays.sort(allEntries, offsetComparator);
         return Collections.enumeration(Arrays.asList(allEntries));
@@ -455,6 +594,10 @@ public Enumeration<ZipArchiveEntry> getEntriesInPhysicalOrder() {
      * {@code null} if not present.
      */
     public ZipArchiveEntry getEntry(final String name) {
+        if (compactIndex != null) {
+            final int[] found = findInCompactIndex(name);
+            return found.length > 0 ? createEntry(found[0]) : null;
+        }
         final LinkedList<ZipArchiveEntry> entriesOfThatName = nameMap.get(name);
         return entriesOfThatName != null ? entriesOfThatName.getFirst() : null;
     }
@@ -469,6 +612,9 @@ public ZipArchiveEntry getEntry(final String name) {
      * @since 1.6
      */
     public Iterable<ZipArchiveEntry> getEntries(final String name) {
+        if (compactIndex != null) {
+            return createEntries(findInCompactIndex(name));
+        }
         final List<ZipArchiveEntry> entriesOfThatName = nameMap.get(name);
         return entriesOfThatName != null ? entriesOfThatName
             : Collections.<ZipArchiveEntry>emptyList();
@@ -485,7 +631,10 @@ public Iterable<ZipArchiveEntry> getEntries(final String name) {
      */
     public Iterable<ZipArchiveEntry> getEntriesInPhysicalOrder(final String name) {
         ZipArchiveEntry[] entriesOfThatName = new ZipArchiveEntry[0];
-        if (nameMap.containsKey(name)) {
+        if (compactIndex != null) {
+            entriesOfThatName = createEntries(compactIndex.sortInPhysicalOrder(findInCompactIndex(name)))
+                .toArray(entriesOfThatName);
+        } else if (nameMap.containsKey(name)) {
             entriesOfThatName = nameMap.get(name).toArray(entriesOfThatName);
             Arrays.sort(entriesOfThatName, offsetComparator);
         }
@@ -519,6 +668,13 @@ public InputStream getRawInputStream(final ZipArchiveEntry ze) {
         if (!(ze instanceof Entry)) {
             return null;
         }
+        if (resolveLocalFileHeadersLazily) {
+            try {
+                resolveLocalFileHeader((Entry) ze);
+            } catch (final IOException ex) {
+                throw new RuntimeException(ex); //NOSONAR
+            }
+        }
         final long start = ze.getDataOffset();
         if (start == EntryStreamOffsets.OFFSET_UNKNOWN) {
             return null;
@@ -562,6 +718,9 @@ public InputStream getInputStream(final ZipArchiveEntry ze)
         }
         // cast validity is checked just above
         ZipUtil.checkRequestedFeatures(ze);
+        if (resolveLocalFileHeadersLazily) {
+            resolveLocalFileHeader((Entry) ze);
+        }
         final long start = getDataOffset(ze);
 
         // doesn't get closed if the method is not supported - which
@@ -578,7 +737,7 @@ public InputStream getInputStream(final ZipArchiveEntry ze)
                 return new ExplodingInputStream(ze.getGeneralPurposeBit().getSlidingDictionarySize(),
                         ze.getGeneralPurposeBit().getNumberOfShannonFanoTrees(), is);
             case DEFLATED:
-                final Inflater inflater = new Inflater(true);
+                final Inflater inflater = zlibPool != null ? zlibPool.borrowInflater(true) : new Inflater(true);
                 // Inflater with nowrap=true has this odd contract for a zero padding
                 // byte following the data stream; this used to be zlib's requirement
                 // and has been fixed a long time ago, but the contract persists so
@@ -586,12 +745,20 @@ public InputStream getInputStream(final ZipArchiveEntry ze)
                 // https://docs.oracle.com/javase/7/docs/api/java/util/zip/Inflater.html#Inflater(boolean)
                 return new InflaterInputStreamWithStatistics(new SequenceInputStream(is, new ByteArrayInputStream(ONE_ZERO_BYTE)),
                     inflater) {
+                    private boolean inflaterReleased;
                     @Override
                     public void close() throws IOException {
                         try {
                             super.close();
                         } finally {
-                            inflater.end();
+                            if (!inflaterReleased) {
+                                inflaterReleased = true;
+                                if (zlibPool != null) {
+                                    zlibPool.returnInflater(inflater, true);
+                                } else {
+                                    inflater.end();
+                                }
+                            }
                         }
                     }
                 };
@@ -617,6 +784,91 @@ public void close() throws IOException {
         }
     }
 
+    /**
+     * Provides the content of an entry that has been stored without
+     * compression as a read-only buffer.
+     *
+     * <p>If the archive has been {@link
+     * ZipFileOptions.Builder#withUseMemoryMapping mapped into memory}
+     * the buffer is a slice of the mapped region holding the entry
+     * and no data is copied. Otherwise the entry's data is mapped
+     * into memory for archives read from a {@link FileChannel} or
+     * read into a heap buffer for all other channels.</p>
+     *
+     * @param ze the entry to get the content of
+     * @return a read-only buffer positioned at the start of the
+     * entry's data, the buffer's limit marks its end
+     * @throws IOException if reading the local file header or the
+     * data fails
+     * @throws IllegalArgumentException if the entry doesn't belong to
+     * this archive, is not stored without compression or is too big
+     * to fit into a single buffer
+     * @since 1.20
+     */
+    public ByteBuffer getStoredContent(final ZipArchiveEntry ze) throws IOException {
+        if (!(ze instanceof Entry)) {
+            throw new IllegalArgumentException("entry doesn't belong to " + archiveName);
+        }
+        if (ze.getMethod() != ZipMethod.STORED.getCode()) {
+            throw new IllegalArgumentException("entry " + ze.getName() + " is not stored without compression");
+        }
+        if (ze.getCompressedSize() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("entry " + ze.getName() + " is too big for a single buffer");
+        }
+        if (resolveLocalFileHeadersLazily) {
+            resolveLocalFileHeader((Entry) ze);
+        }
+        final long start = getDataOffset(ze);
+        final int size = (int) ze.getCompressedSize();
+        if (mappedRegions != null) {
+            final int region = (int) (start / mappedRegionSize);
+            final int offset = (int) (start % mappedRegionSize);
+            if (region < mappedRegions.length && offset + (long) size <= mappedRegions[region].capacity()) {
+                final ByteBuffer slice = mappedRegions[region].duplicate();
+                slice.position(offset).limit(offset + size);
+                return slice.slice().asReadOnlyBuffer();
+            }
+        }
+        if (archive instanceof FileChannel) {
+            return ((FileChannel) archive).map(FileChannel.MapMode.READ_ONLY, start, size).asReadOnlyBuffer();
+        }
+        final byte[] content = new byte[size];
+        readFully(start, content);
+        return ByteBuffer.wrap(content).asReadOnlyBuffer();
+    }
+
+    /**
+     * Reads the local file headers of the given entries if they have
+     * not been read, yet.
+     *
+     * <p>Only has an effect if the archive has been opened with
+     * {@link ZipFileOptions.Builder#withResolveLocalFileHeadersLazily
+     * local file headers being resolved lazily}, in which case it
+     * adds the extra fields of the local file header to the entries
+     * and records the offsets of their data. The headers are read in
+     * the order they appear inside the archive.</p>
+     *
+     * @param entries the entries to resolve, entries not obtained
+     * from this archive are ignored
+     * @throws IOException if reading any local file header fails
+     * @since 1.20
+     */
+    public void resolveLocalFileHeaders(final Iterable<ZipArchiveEntry> entries) throws IOException {
+        if (!resolveLocalFileHeadersLazily) {
+            return;
+        }
+        final List<Entry> toResolve = new ArrayList<>();
+        for (final ZipArchiveEntry entry : entries) {
+            if (entry instanceof Entry) {
+                toResolve.add((Entry) entry);
+            }
+        }
+        Collections.sort(toResolve, offsetComparator);
+        for (final Entry entry : toResolve) {
+            resolveLocalFileHeader(entry);
+        }
+    }
+
     /**
      * <p>
      * Convenience method to return the entry's content as a String if isUnixSymlink()
@@ -658,6 +910,12 @@ protected void finalize() throws Throwable {
         }
     }
 
+    /**
+     * Maximum size of the buffer used when reading the central
+     * directory in bulk.
+     */
+    private static final int MAX_CENTRAL_DIRECTORY_BUFFER_SIZE = 16 * 1024 * 1024;
+
     /**
      * Length of a "central directory" entry structure without file
      * name, extra fields or comment.
@@ -680,6 +938,12 @@ protected void finalize() throws Throwable {
         /* external file attributes        */ + WORD
         /* relative offset of local header */ + WORD;
 
+    /**
+     * Offset of the file name length inside the central file header
+     * without the signature.
+     */
+    private static final int CFH_FILENAME_LENGTH_OFFSET = 6 * SHORT + 3 * WORD;
+
     private static final long CFH_SIG =
         ZipLong.getValue(ZipArchiveOutputStream.CFH_SIG);
 
@@ -694,15 +958,17 @@ protected void finalize() throws Throwable {
      * @return a map of zipentries that didn't have the language
      * encoding flag set when read.
      */
-    private Map<ZipArchiveEntry, NameAndComment> populateFromCentralDirectory()
+    private Map<ZipArchiveEntry, NameAndComment> populateFromCentralDirectory(final boolean readInBulk)
         throws IOException {
         final HashMap<ZipArchiveEntry, NameAndComment> noUTF8Flag =
             new HashMap<>();
 
         positionAtCentralDirectory();
+        centralDirectoryStartOffset = archive.position();
+        final ReadableByteChannel cd = readInBulk ? createBulkCentralDirectoryChannel() : archive;
 
         wordBbuf.rewind();
-        IOUtils.readFully(archive, wordBbuf);
+        IOUtils.readFully(cd, wordBbuf);
         long sig = ZipLong.getValue(wordBuf);
 
         if (sig != CFH_SIG && startsWithLocalFileHeader()) {
@@ -711,40 +977,97 @@ private Map<ZipArchiveEntry, NameAndComment> populateFromCentralDirectory()
         }
 
         while (sig == CFH_SIG) {
-            readCentralDirectoryEntry(noUTF8Flag);
+            if (compactIndex != null) {
+                cfhBbuf.rewind();
+                IOUtils.readFully(cd, cfhBbuf);
+                compactIndex.add(cfhBuf, cd);
+                checkNameRoundTrips(compactIndex.size() - 1);
+            } else {
+                readCentralDirectoryEntry(cd, noUTF8Flag);
+            }
             wordBbuf.rewind();
-            IOUtils.readFully(archive, wordBbuf);
+            IOUtils.readFully(cd, wordBbuf);
             sig = ZipLong.getValue(wordBuf);
         }
+        if (compactIndex != null) {
+            compactIndex.finish();
+        }
         return noUTF8Flag;
     }
 
+    /**
+     * Creates a channel that reads the central directory using a
+     * few large reads - a single one unless the central directory is
+     * bigger than {@link #MAX_CENTRAL_DIRECTORY_BUFFER_SIZE} - rather
+     * than several small reads per entry.
+     *
+     * <p>Expects the archive to be positioned at the first central
+     * directory header, the central directory ends before the end of
+     * central directory record.</p>
+     */
+    private ReadableByteChannel createBulkCentralDirectoryChannel() {
+        final long size = endOfCentralDirectoryOffset - centralDirectoryStartOffset + WORD;
+        final int bufferSize = (int) Math.max(WORD, Math.min(size, MAX_CENTRAL_DIRECTORY_BUFFER_SIZE));
+        return Channels.newChannel(new BufferedInputStream(Channels.newInputStream(archive), bufferSize));
+    }
+
     /**
      * Reads an individual entry of the central directory, creats an
      * ZipArchiveEntry from it and adds it to the global maps.
      *
+     * @param cd channel positioned behind the signature of the entry
      * @param noUTF8Flag map used to collect entries that don't have
      * their UTF-8 flag set and whose name will be set by data read
      * from the local file header later.  The current entry may be
      * added to this map.
      */
     private void
-        readCentralDirectoryEntry(final Map<ZipArchiveEntry, NameAndComment> noUTF8Flag)
+        readCentralDirectoryEntry(final ReadableByteChannel cd,
+                                  final Map<ZipArchiveEntry, NameAndComment> noUTF8Flag)
         throws IOException {
         cfhBbuf.rewind();
-        IOUtils.readFully(archive, cfhBbuf);
-        int off = 0;
+        IOUtils.readFully(cd, cfhBbuf);
+        final int fileNameLen = ZipShort.getValue(cfhBuf, CFH_FILENAME_LENGTH_OFFSET);
+        final int extraLen = ZipShort.getValue(cfhBuf, CFH_FILENAME_LENGTH_OFFSET + SHORT);
+        final int commentLen = ZipShort.getValue(cfhBuf, CFH_FILENAME_LENGTH_OFFSET + 2 * SHORT);
+
+        final byte[] fileName = new byte[fileNameLen];
+        IOUtils.readFully(cd, ByteBuffer.wrap(fileName));
+        final byte[] cdExtraData = new byte[extraLen];
+        IOUtils.readFully(cd, ByteBuffer.wrap(cdExtraData));
+        final byte[] comment = new byte[commentLen];
+        IOUtils.readFully(cd, ByteBuffer.wrap(comment));
+
+        final Entry ze = createEntry(cfhBuf, 0, fileName, cdExtraData, comment);
+        // data offset will be filled later
+        entries.add(ze);
+
+        if (!ze.getGeneralPurposeBit().usesUTF8ForNames() && useUnicodeExtraFields) {
+            noUTF8Flag.put(ze, new NameAndComment(fileName, comment));
+        }
+    }
+
+    /**
+     * Creates an entry from the data of a central directory record.
+     *
+     * @param cfh buffer holding the fixed part of the central file
+     * header without the signature
+     * @param cfhOffset offset of the fixed part inside the buffer
+     */
+    private Entry createEntry(final byte[] cfh, final int cfhOffset, final byte[] fileName,
+        final byte[] cdExtraData, final byte[] comment) throws IOException {
+        int off = cfhOffset;
         final Entry ze = new Entry();
 
-        final int versionMadeBy = ZipShort.getValue(cfhBuf, off);
+        final int versionMadeBy = ZipShort.getValue(cfh, off);
         off += SHORT;
         ze.setVersionMadeBy(versionMadeBy);
         ze.setPlatform((versionMadeBy >> BYTE_SHIFT) & NIBLET_MASK);
 
-        ze.setVersionRequired(ZipShort.getValue(cfhBuf, off));
+        ze.setVersionRequired(ZipShort.getValue(cfh, off));
         off += SHORT; // version required
 
-        final GeneralPurposeBit gpFlag = GeneralPurposeBit.parse(cfhBuf, off);
+        final GeneralPurposeBit gpFlag = GeneralPurposeBit.parse(cfh, off);
         final boolean hasUTF8Flag = gpFlag.usesUTF8ForNames();
         final ZipEncoding entryEncoding =
             hasUTF8Flag ? ZipEncodingHelper.UTF8_ZIP_ENCODING : zipEncoding;
@@ -752,69 +1075,138 @@ private Map<ZipArchiveEntry, NameAndComment> populateFromCentralDirectory()
             ze.setNameSource(ZipArchiveEntry.NameSource.NAME_WITH_EFS_FLAG);
         }
         ze.setGeneralPurposeBit(gpFlag);
-        ze.setRawFlag(ZipShort.getValue(cfhBuf, off));
+        ze.setRawFlag(ZipShort.getValue(cfh, off));
 
         off += SHORT;
 
         //noinspection MagicConstant
-        ze.setMethod(ZipShort.getValue(cfhBuf, off));
+        ze.setMethod(ZipShort.getValue(cfh, off));
         off += SHORT;
 
-        final long time = ZipUtil.dosToJavaTime(ZipLong.getValue(cfhBuf, off));
+        final long time = ZipUtil.dosToJavaTime(ZipLong.getValue(cfh, off));
         ze.setTime(time);
         off += WORD;
 
-        ze.setCrc(ZipLong.getValue(cfhBuf, off));
+        ze.setCrc(ZipLong.getValue(cfh, off));
         off += WORD;
 
-        ze.setCompressedSize(ZipLong.getValue(cfhBuf, off));
+        ze.setCompressedSize(ZipLong.getValue(cfh, off));
         off += WORD;
 
-        ze.setSize(ZipLong.getValue(cfhBuf, off));
+        ze.setSize(ZipLong.getValue(cfh, off));
         off += WORD;
 
-        final int fileNameLen = ZipShort.getValue(cfhBuf, off);
-        off += SHORT;
-
-        final int extraLen = ZipShort.getValue(cfhBuf, off);
-        off += SHORT;
+        // file name, extra field and comment lengths
+        off += 3 * SHORT;
 
-        final int commentLen = ZipShort.getValue(cfhBuf, off);
+        ze.setDiskNumberStart(ZipShort.getValue(cfh, off));
         off += SHORT;
 
-        ze.setDiskNumberStart(ZipShort.getValue(cfhBuf, off));
+        ze.setInternalAttributes(ZipShort.getValue(cfh, off));
         off += SHORT;
 
-        ze.setInternalAttributes(ZipShort.getValue(cfhBuf, off));
-        off += SHORT;
-
-        ze.setExternalAttributes(ZipLong.getValue(cfhBuf, off));
+        ze.setExternalAttributes(ZipLong.getValue(cfh, off));
         off += WORD;
 
-        final byte[] fileName = new byte[fileNameLen];
-        IOUtils.readFully(archive, ByteBuffer.wrap(fileName));
         ze.setName(entryEncoding.decode(fileName), fileName);
 
         // LFH offset,
-        ze.setLocalHeaderOffset(ZipLong.getValue(cfhBuf, off));
-        // data offset will be filled later
-        entries.add(ze);
+        ze.setLocalHeaderOffset(ZipLong.getValue(cfh, off));
 
-        final byte[] cdExtraData = new byte[extraLen];
-        IOUtils.readFully(archive, ByteBuffer.wrap(cdExtraData));
         ze.setCentralDirectoryExtra(cdExtraData);
 
         setSizesAndOffsetFromZip64Extra(ze);
 
-        final byte[] comment = new byte[commentLen];
-        IOUtils.readFully(archive, ByteBuffer.wrap(comment));
         ze.setComment(entryEncoding.decode(comment));
 
-        if (!hasUTF8Flag && useUnicodeExtraFields) {
-            noUTF8Flag.put(ze, new NameAndComment(fileName, comment));
+        ze.setStreamContiguous(true);
+        return ze;
+    }
+
+    /**
+     * Creates the entry at the given position of the compact index.
+     */
+    private Entry createEntry(final int index) {
+        final byte[] data = compactIndex.getData();
+        final int headerOffset = compactIndex.getRecordOffset(index);
+        int off = headerOffset + compactIndex.getRecordHeaderLength();
+        final byte[] fileName = Arrays.copyOfRange(data, off, off += compactIndex.getNameLength(index));
+        final byte[] cdExtraData = Arrays.copyOfRange(data, off, off += compactIndex.getExtraLength(index));
+        final byte[] comment = Arrays.copyOfRange(data, off, off + compactIndex.getCommentLength(index));
+        try {
+            return createEntry(data, headerOffset, fileName, cdExtraData, comment);
+        } catch (final IOException ex) {
+            // the record has been read successfully when the archive has been opened
+            throw new RuntimeException(ex); //NOSONAR
         }
+    }
 
-        ze.setStreamContiguous(true);
+    private List<ZipArchiveEntry> createEntries(final int[] indexes) {
+        final List<ZipArchiveEntry> result = new ArrayList<>(indexes.length);
+        for (final int index : indexes) {
+            result.add(createEntry(index));
+        }
+        return result;
+    }
+
+    private int[] findInCompactIndex(final String name) {
+        try {
+            final byte[] utf8Name = encode(ZipEncodingHelper.UTF8_ZIP_ENCODING, name);
+            final byte[] nonUtf8Name = ZipEncodingHelper.isUTF8(encoding) ? utf8Name : encode(zipEncoding, name);
+            int[] found = compactIndex.find(utf8Name, nonUtf8Name);
+            final int[] candidates = compactIndex.getNamesNotRoundTripping();
+            if (candidates.length > 0) {
+                for (final int index : candidates) {
+                    if (name.equals(getEncoding(index).decode(compactIndex.getName(index)))) {
+                        found = Arrays.copyOf(found, found.length + 1);
+                        found[found.length - 1] = index;
+                    }
+                }
+                Arrays.sort(found);
+            }
+            return found;
+        } catch (final IOException ex) {
+            throw new RuntimeException(ex); //NOSONAR
+        }
+    }
+
+    /**
+     * The compact index looks up names by their encoded form, names
+     * that are not encoded to the same raw bytes they have been
+     * decoded from - because they contain bytes that are invalid in
+     * the encoding, for example - need to be handled separately.
+     */
+    private void checkNameRoundTrips(final int index) throws IOException {
+        final ZipEncoding entryEncoding = getEncoding(index);
+        if (compactIndex.hasAsciiName(index)
+            && (entryEncoding == ZipEncodingHelper.UTF8_ZIP_ENCODING || isAsciiCompatible())) {
+            return;
+        }
+        final byte[] rawName = compactIndex.getName(index);
+        if (!Arrays.equals(rawName, encode(entryEncoding, entryEncoding.decode(rawName)))) {
+            compactIndex.addNameNotRoundTripping(index);
+        }
+    }
+
+    private ZipEncoding getEncoding(final int index) {
+        return compactIndex.usesUTF8ForNames(index) ? ZipEncodingHelper.UTF8_ZIP_ENCODING : zipEncoding;
+    }
+
+    private boolean isAsciiCompatible() throws IOException {
+        if (asciiCompatible == null) {
+            final byte[] ascii = new byte[128];
+            for (int i = 0; i < ascii.length; i++) {
+                ascii[i] = (byte) i;
+            }
+            asciiCompatible = Arrays.equals(ascii, encode(zipEncoding, new String(ascii, "US-ASCII")));
+        }
+        return asciiCompatible;
+    }
+
+    private static byte[] encode(final ZipEncoding zipEncoding, final String name) throws IOException {
+        final ByteBuffer encoded = zipEncoding.encode(name);
+        return Arrays.copyOfRange(encoded.array(), encoded.arrayOffset(),
+            encoded.arrayOffset() + encoded.limit() - encoded.position());
     }
 
     /**
@@ -1010,6 +1402,22 @@ private void setSizesAndOffsetFromZip64Extra(final ZipArchiveEntry ze)
             /* central directory               */ + DWORD
             /* size of the central directory   */ + DWORD;
 
+    /**
+     * Position of the first central directory header inside the
+     * archive, used by {@link ZipArchiveUpdater}.
+     */
+    long getCentralDirectoryStartOffset() {
+        return centralDirectoryStartOffset;
+    }
+
+    /**
+     * Position of the end of central directory record inside the
+     * archive, used by {@link ZipArchiveUpdater}.
+     */
+    long getEndOfCentralDirectoryOffset() {
+        return endOfCentralDirectoryOffset;
+    }
+
     /**
      * Searches for either the &quot;Zip64 end of central directory
      * locator&quot; or the &quot;End of central dir record&quot;, parses
@@ -1019,6 +1427,7 @@ private void setSizesAndOffsetFromZip64Extra(final ZipArchiveEntry ze)
     private void positionAtCentralDirectory()
         throws IOException {
         positionAtEndOfCentralDirectoryRecord();
+        endOfCentralDirectoryOffset = archive.position();
         boolean found = false;
         final boolean searchedForZip64EOCD =
             archive.position() > ZIP64_EOCDL_LENGTH;
@@ -1244,6 +1653,55 @@ private void resolveLocalFileHeaderData(final Map<ZipArchiveEntry, NameAndCommen
         }
     }
 
+    private void setNamesAndCommentsFromCentralDirectoryExtraFields(
+        final Map<ZipArchiveEntry, NameAndComment> entriesWithoutUTF8Flag) {
+        for (final Map.Entry<ZipArchiveEntry, NameAndComment> e : entriesWithoutUTF8Flag.entrySet()) {
+            ZipUtil.setNameAndCommentFromExtraFields(e.getKey(), e.getValue().name, e.getValue().comment);
+        }
+    }
+
+    /**
+     * Reads the local file header of an entry unless this has
+     * happened before.
+     *
+     * <p>Uses positioned reads so it may be invoked by several
+     * threads concurrently, like {@link #getInputStream}.</p>
+     */
+    private void resolveLocalFileHeader(final Entry ze) throws IOException {
+        synchronized (ze) {
+            if (ze.localFileHeaderResolved) {
+                return;
+            }
+            long offset = ze.getLocalHeaderOffset();
+            if (isSplitZipArchive) {
+                synchronized (archive) {
+                    ((ZipSplitReadOnlySeekableByteChannel) archive)
+                        .position(ze.getDiskNumberStart(), offset);
+                    // the offset should be updated to the global offset
+                    offset = archive.position();
+                }
+            }
+            final byte[] lengths = new byte[WORD];
+            readFully(offset + LFH_OFFSET_FOR_FILENAME_LENGTH, lengths);
+            final int fileNameLen = ZipShort.getValue(lengths, 0);
+            final int extraFieldLen = ZipShort.getValue(lengths, SHORT);
+            final long extraFieldOffset = offset + LFH_OFFSET_FOR_FILENAME_LENGTH + WORD + fileNameLen;
+            final byte[] localExtraData = new byte[extraFieldLen];
+            readFully(extraFieldOffset, localExtraData);
+            ze.setExtra(localExtraData);
+            ze.setDataOffset(extraFieldOffset + extraFieldLen);
+            ze.localFileHeaderResolved = true;
+        }
+    }
+
+    private void readFully(final long position, final byte[] b) throws IOException {
+        try (InputStream in = createBoundedInputStream(position, b.length)) {
+            if (IOUtils.readFully(in, b) < b.length) {
+                throw new EOFException();
+            }
+        }
+    }
+
     private void fillNameMap() {
         for (final ZipArchiveEntry ze : entries) {
             // entries is filled in populateFromCentralDirectory and
@@ -1305,8 +1763,14 @@ private boolean startsWithLocalFileHeader() throws IOException {
      * underlying archive channel.
      */
     private BoundedInputStream createBoundedInputStream(long start, long remaining) {
-        return archive instanceof FileChannel ?
-            new BoundedFileChannelInputStream(start, remaining) :
+        if (mappedRegions != null) {
+            return new BoundedMappedInputStream(start, remaining);
+        }
+        if (archive instanceof FileChannel) {
+            return new BoundedFileChannelInputStream(start, remaining);
+        }
+        return archive instanceof PositionedReadable ?
+            new BoundedPositionedReadableInputStream(start, remaining) :
             new BoundedInputStream(start, remaining);
     }
 
@@ -1404,6 +1868,68 @@ protected int read(long pos, ByteBuffer buf) throws IOException {
         }
     }
 
+    /**
+     * Lock-free implementation of BoundedInputStream for archive
+     * channels that support positioned reads without being file
+     * channels, like in-memory or concatenated channels.
+     */
+    private class BoundedPositionedReadableInputStream extends BoundedInputStream {
+        private final PositionedReadable archive;
+
+        BoundedPositionedReadableInputStream(final long start, final long remaining) {
+            super(start, remaining);
+            archive = (PositionedReadable) ZipFile.this.archive;
+        }
+
+        @Override
+        protected int read(long pos, ByteBuffer buf) throws IOException {
+            int read = archive.read(buf, pos);
+            buf.flip();
+            return read;
+        }
+    }
+
+    /**
+     * Reads from the regions of the archive that have been mapped
+     * into memory.
+     */
+    private class BoundedMappedInputStream extends BoundedInputStream {
+
+        BoundedMappedInputStream(final long start, final long remaining) {
+            super(start, remaining);
+        }
+
+        @Override
+        protected int read(long pos, ByteBuffer buf) throws IOException {
+            final int region = (int) (pos / mappedRegionSize);
+            if (region >= mappedRegions.length) {
+                return -1;
+            }
+            final ByteBuffer src = mappedRegions[region].duplicate();
+            final int offset = (int) (pos % mappedRegionSize);
+            if (offset >= src.limit()) {
+                return -1;
+            }
+            src.position(offset);
+            final int read = Math.min(src.remaining(), buf.remaining());
+            src.limit(offset + read);
+            buf.put(src);
+            buf.flip();
+            return read;
+        }
+    }
+
+    private MappedByteBuffer[] map(final FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final int numberOfRegions = (int) ((size + mappedRegionSize - 1) / mappedRegionSize);
+        final MappedByteBuffer[] regions = new MappedByteBuffer[numberOfRegions];
+        for (int i = 0; i < numberOfRegions; i++) {
+            final long start = (long) i * mappedRegionSize;
+            regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(mappedRegionSize, size - start));
+        }
+        return regions;
+    }
+
     private static final class NameAndComment {
         private final byte[] name;
         private final byte[] comment;
@@ -1454,6 +1980,12 @@ public int compare(final ZipArchiveEntry e1, final ZipArchiveEntry e2) {
      */
     private static class Entry extends ZipArchiveEntry {
 
+        /**
+         * Whether the local file header has been read if local file
+         * headers are resolved lazily - guarded by the entry itself.
+         */
+        private boolean localFileHeaderResolved;
+
         Entry() {
         }
 
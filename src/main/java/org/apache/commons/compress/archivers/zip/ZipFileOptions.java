@@ -0,0 +1,375 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.zip;
+
+import org.apache.commons.compress.utils.ZlibPool;
+
+/**
+ * Collects options for reading zip archives using {@link ZipFile}.
+ *
+ * @since 1.20
+ * @Immutable
+ */
+public class ZipFileOptions {
+    private static final boolean DEFAULT_USE_UNICODE_EXTRA_FIELDS = true;
+    private static final boolean DEFAULT_IGNORE_LOCAL_FILE_HEADER = false;
+    private static final boolean DEFAULT_USE_COMPACT_INDEX = false;
+    private static final boolean DEFAULT_RESOLVE_LOCAL_FILE_HEADERS_LAZILY = false;
+    private static final boolean DEFAULT_USE_MEMORY_MAPPING = false;
+    private static final int DEFAULT_MAPPED_REGION_SIZE = 1 << 30;
+    private static final boolean DEFAULT_READ_CENTRAL_DIRECTORY_IN_BULK = false;
+
+    private final String encoding;
+    private final boolean useUnicodeExtraFields;
+    private final boolean ignoreLocalFileHeader;
+    private final boolean useCompactIndex;
+    private final boolean resolveLocalFileHeadersLazily;
+    private final boolean useMemoryMapping;
+    private final int mappedRegionSize;
+    private final ZlibPool zlibPool;
+    private final boolean readCentralDirectoryInBulk;
+
+    private ZipFileOptions(String encoding, boolean useUnicodeExtraFields, boolean ignoreLocalFileHeader,
+        boolean useCompactIndex, boolean resolveLocalFileHeadersLazily, boolean useMemoryMapping,
+        int mappedRegionSize, ZlibPool zlibPool, boolean readCentralDirectoryInBulk) {
+        this.encoding = encoding;
+        this.useUnicodeExtraFields = useUnicodeExtraFields;
+        this.ignoreLocalFileHeader = ignoreLocalFileHeader;
+        this.useCompactIndex = useCompactIndex;
+        this.resolveLocalFileHeadersLazily = resolveLocalFileHeadersLazily;
+        this.useMemoryMapping = useMemoryMapping;
+        this.mappedRegionSize = mappedRegionSize;
+        this.zlibPool = zlibPool;
+        this.readCentralDirectoryInBulk = readCentralDirectoryInBulk;
+    }
+
+    /**
+     * The default options.
+     *
+     * <ul>
+     *   <li>file names are encoded using UTF-8</li>
+     *   <li>use Unicode extra fields if present</li>
+     *   <li>read the local file headers when opening the archive</li>
+     *   <li>keep all entries of the central directory in memory</li>
+     *   <li>don't map the archive into memory</li>
+     *   <li>create a new inflater for each deflated entry read</li>
+     *   <li>read each part of each central directory header separately</li>
+     * </ul>
+     */
+    public static final ZipFileOptions DEFAULT = new ZipFileOptions(ZipEncodingHelper.UTF8,
+        DEFAULT_USE_UNICODE_EXTRA_FIELDS, DEFAULT_IGNORE_LOCAL_FILE_HEADER, DEFAULT_USE_COMPACT_INDEX,
+        DEFAULT_RESOLVE_LOCAL_FILE_HEADERS_LAZILY, DEFAULT_USE_MEMORY_MAPPING, DEFAULT_MAPPED_REGION_SIZE,
+        null, DEFAULT_READ_CENTRAL_DIRECTORY_IN_BULK);
+
+    /**
+     * Obtains a builder for ZipFileOptions.
+     * @return a builder for ZipFileOptions.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Gets the encoding to use for file names and the file comment.
+     * @return the encoding, null means the platform's default encoding
+     */
+    public String getEncoding() {
+        return encoding;
+    }
+
+    /**
+     * Gets whether to use InfoZIP Unicode Extra Fields (if present)
+     * to set the file names.
+     * @return whether to use InfoZIP Unicode Extra Fields
+     */
+    public boolean getUseUnicodeExtraFields() {
+        return useUnicodeExtraFields;
+    }
+
+    /**
+     * Gets whether to ignore information stored inside the local
+     * file headers.
+     * @return whether to ignore information stored inside the local
+     * file headers
+     * @see ZipFile#ZipFile(java.io.File, String, boolean, boolean)
+     */
+    public boolean getIgnoreLocalFileHeader() {
+        return ignoreLocalFileHeader;
+    }
+
+    /**
+     * Gets whether the central directory is kept in a compact form
+     * and entries are only created when they are requested.
+     * @return whether to use a compact index of the central directory
+     */
+    public boolean getUseCompactIndex() {
+        return useCompactIndex;
+    }
+
+    /**
+     * Gets whether local file headers are read when the data of an
+     * entry is accessed for the first time rather than when opening
+     * the archive.
+     * @return whether local file headers are resolved lazily
+     */
+    public boolean getResolveLocalFileHeadersLazily() {
+        return resolveLocalFileHeadersLazily;
+    }
+
+    /**
+     * Gets whether archives stored in files are mapped into memory.
+     * @return whether archives stored in files are mapped into memory
+     */
+    public boolean getUseMemoryMapping() {
+        return useMemoryMapping;
+    }
+
+    /**
+     * Gets the pool inflaters for deflated entries are borrowed from.
+     * @return the pool, null if a new inflater is created for each
+     * entry
+     */
+    public ZlibPool getZlibPool() {
+        return zlibPool;
+    }
+
+    /**
+     * Gets whether the central directory is read using a few large
+     * reads rather than several small reads per entry.
+     * @return whether the central directory is read in bulk
+     */
+    public boolean getReadCentralDirectoryInBulk() {
+        return readCentralDirectoryInBulk;
+    }
+
+    /**
+     * Maximum size of a single region when mapping the archive into
+     * memory.
+     */
+    int getMappedRegionSize() {
+        return mappedRegionSize;
+    }
+
+    /**
+     * Mutable builder for the immutable {@link ZipFileOptions}.
+     */
+    public static class Builder {
+        private String encoding = ZipEncodingHelper.UTF8;
+        private boolean useUnicodeExtraFields = DEFAULT_USE_UNICODE_EXTRA_FIELDS;
+        private boolean ignoreLocalFileHeader = DEFAULT_IGNORE_LOCAL_FILE_HEADER;
+        private boolean useCompactIndex = DEFAULT_USE_COMPACT_INDEX;
+        private boolean resolveLocalFileHeadersLazily = DEFAULT_RESOLVE_LOCAL_FILE_HEADERS_LAZILY;
+        private boolean useMemoryMapping = DEFAULT_USE_MEMORY_MAPPING;
+        private int mappedRegionSize = DEFAULT_MAPPED_REGION_SIZE;
+        private ZlibPool zlibPool;
+        private boolean readCentralDirectoryInBulk = DEFAULT_READ_CENTRAL_DIRECTORY_IN_BULK;
+
+        /**
+         * Sets the encoding to use for file names and the file comment.
+         *
+         * @param encoding the encoding to use for file names, use
+         * null for the platform's default encoding
+         * @return the reconfigured builder
+         */
+        public Builder withEncoding(String encoding) {
+            this.encoding = encoding;
+            return this;
+        }
+
+        /**
+         * Sets whether to use InfoZIP Unicode Extra Fields (if
+         * present) to set the file names.
+         *
+         * @param useUnicodeExtraFields whether to use InfoZIP Unicode
+         * Extra Fields
+         * @return the reconfigured builder
+         */
+        public Builder withUseUnicodeExtraFields(boolean useUnicodeExtraFields) {
+            this.useUnicodeExtraFields = useUnicodeExtraFields;
+            return this;
+        }
+
+        /**
+         * Sets whether to ignore information stored inside the local
+         * file headers.
+         *
+         * @param ignoreLocalFileHeader whether to ignore information
+         * stored inside the local file header
+         * @return the reconfigured builder
+         * @see ZipFile#ZipFile(java.io.File, String, boolean, boolean)
+         */
+        public Builder withIgnoreLocalFileHeader(boolean ignoreLocalFileHeader) {
+            this.ignoreLocalFileHeader = ignoreLocalFileHeader;
+            return this;
+        }
+
+        /**
+         * Sets whether the central directory is kept in a compact
+         * form and entries are only created when they are requested.
+         *
+         * <p>By default {@link ZipFile} creates a {@link
+         * ZipArchiveEntry} for each entry when the archive is opened
+         * and keeps all of them in memory, which may require a lot of
+         * memory for archives with millions of entries. When using
+         * the compact index the raw bytes of the central directory
+         * are kept together with a few tables of primitive values
+         * instead, so the memory required grows with the size of the
+         * central directory rather than the number of objects
+         * created. Entries are created when they are requested by
+         * any of the {@code getEntr*} methods, each call returns new
+         * - but equal - instances.</p>
+         *
+         * <p>The compact index never reads the local file headers
+         * when opening the archive. Unless they are {@link
+         * #withResolveLocalFileHeadersLazily resolved lazily} they
+         * are ignored, see {@link #withIgnoreLocalFileHeader}.</p>
+         *
+         * @param useCompactIndex whether to use a compact index of
+         * the central directory
+         * @return the reconfigured builder
+         */
+        public Builder withUseCompactIndex(boolean useCompactIndex) {
+            this.useCompactIndex = useCompactIndex;
+            return this;
+        }
+
+        /**
+         * Sets whether local file headers are read when the data of
+         * an entry is accessed for the first time rather than when
+         * opening the archive.
+         *
+         * <p>By default {@link ZipFile} reads the local file headers
+         * of all entries when opening the archive, which means one
+         * random access read per entry. When resolving them lazily
+         * only the central directory is read when opening the
+         * archive and the local file header of an entry is read
+         * when {@link ZipFile#getInputStream}, {@link
+         * ZipFile#getRawInputStream} or {@link
+         * ZipFile#resolveLocalFileHeaders} is invoked for it. This
+         * adds the local extra fields to the entry and records the
+         * offset of its data.</p>
+         *
+         * <p>Unlike the default mode, names and comments of entries
+         * are only ever taken from Unicode extra fields stored in the
+         * central directory as names must not change after the
+         * archive has been opened.</p>
+         *
+         * <p>This setting has no effect if the local file headers
+         * are {@link #withIgnoreLocalFileHeader ignored}.</p>
+         *
+         * @param resolveLocalFileHeadersLazily whether local file
+         * headers are resolved lazily
+         * @return the reconfigured builder
+         */
+        public Builder withResolveLocalFileHeadersLazily(boolean resolveLocalFileHeadersLazily) {
+            this.resolveLocalFileHeadersLazily = resolveLocalFileHeadersLazily;
+            return this;
+        }
+
+        /**
+         * Sets whether archives stored in files are mapped into
+         * memory.
+         *
+         * <p>When enabled and the archive is read from a {@link
+         * java.nio.channels.FileChannel} - which is the case when
+         * opening a {@link java.io.File} - the archive is mapped into
+         * memory using one or more regions of up to 1 GB each, and
+         * {@link ZipFile#getInputStream} as well as {@link
+         * ZipFile#getRawInputStream} read from the mapped regions
+         * instead of issuing reads on the channel. {@link
+         * ZipFile#getStoredContent} returns slices of the mapped
+         * regions without copying any data.</p>
+         *
+         * <p>The mapped regions are only released when they are
+         * garbage collected, not when the archive is closed. On some
+         * platforms this means the file can't be deleted or modified
+         * while mapped regions still exist. The setting is ignored
+         * for all other kinds of channels.</p>
+         *
+         * @param useMemoryMapping whether archives stored in files
+         * are mapped into memory
+         * @return the reconfigured builder
+         */
+        public Builder withUseMemoryMapping(boolean useMemoryMapping) {
+            this.useMemoryMapping = useMemoryMapping;
+            return this;
+        }
+
+        /**
+         * Sets the pool inflaters for deflated entries are borrowed
+         * from.
+         *
+         * <p>Inflaters are returned to the pool when the stream
+         * returned by {@link ZipFile#getInputStream} is closed. The
+         * same pool may be shared by many archives as well as by
+         * other streams using inflaters or deflaters.</p>
+         *
+         * @param zlibPool the pool, use null to create a new inflater
+         * for each entry
+         * @return the reconfigured builder
+         */
+        public Builder withZlibPool(ZlibPool zlibPool) {
+            this.zlibPool = zlibPool;
+            return this;
+        }
+
+        /**
+         * Sets whether the central directory is read using a few
+         * large reads rather than several small reads per entry.
+         *
+         * <p>By default {@link ZipFile} issues four reads for each
+         * entry of the central directory, one each for the fixed
+         * part of the header, the file name, the extra field and the
+         * comment. When reading the central directory in bulk it is
+         * read in chunks of up to 16 MB - whose size is derived from
+         * the location of the central directory - and the entries are
+         * parsed from memory. This greatly reduces the number of
+         * system calls when opening archives with many entries, which
+         * is most noticeable on storage with a high latency for each
+         * read like network file systems.</p>
+         *
+         * @param readCentralDirectoryInBulk whether the central
+         * directory is read in bulk
+         * @return the reconfigured builder
+         */
+        public Builder withReadCentralDirectoryInBulk(boolean readCentralDirectoryInBulk) {
+            this.readCentralDirectoryInBulk = readCentralDirectoryInBulk;
+            return this;
+        }
+
+        /**
+         * Sets the maximum size of a single region when mapping the
+         * archive into memory, only used by tests.
+         */
+        Builder withMappedRegionSize(int mappedRegionSize) {
+            this.mappedRegionSize = mappedRegionSize;
+            return this;
+        }
+
+        /**
+         * Create the {@link ZipFileOptions}.
+         *
+         * @return configured {@link ZipFileOptions}.
+         */
+        public ZipFileOptions build() {
+            return new ZipFileOptions(encoding, useUnicodeExtraFields, ignoreLocalFileHeader, useCompactIndex,
+                resolveLocalFileHeadersLazily, useMemoryMapping, mappedRegionSize, zlibPool,
+                readCentralDirectoryInBulk);
+        }
+    }
+}
@@ -20,15 +20,19 @@
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
 import org.apache.commons.compress.archivers.ArchiveOutputStream;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.apache.commons.compress.utils.IOUtils;
 
@@ -79,6 +83,10 @@ public ChangeSetResults perform(final ArchiveInputStream in, final ArchiveOutput
      * This method finishes the stream, no other entries should be added
      * after that.
      *
+     * <p>If {@code out} is a {@link ZipArchiveOutputStream} entries
+     * kept from the ZipFile are copied without decompressing and
+     * recompressing them.</p>
+     *
      * @param in
      *            the ZipFile to perform the changes on
      * @param out
@@ -125,36 +133,17 @@ private ChangeSetResults perform(final ArchiveEntryIterator entryIterator,
             }
         }
 
+        final DeletionIndex deletions = new DeletionIndex(workingSet);
         while (entryIterator.hasNext()) {
             final ArchiveEntry entry = entryIterator.next();
-            boolean copy = true;
-
-            for (final Iterator<Change> it = workingSet.iterator(); it.hasNext();) {
-                final Change change = it.next();
+            final String name = entry.getName();
 
-                final int type = change.type();
-                final String name = entry.getName();
-                if (type == Change.TYPE_DELETE && name != null) {
-                    if (name.equals(change.targetFile())) {
-                        copy = false;
-                        it.remove();
-                        results.deleted(name);
-                        break;
-                    }
-                } else if (type == Change.TYPE_DELETE_DIR && name != null) {
-                    // don't combine ifs to make future extensions more easy
-                    if (name.startsWith(change.targetFile() + "/")) { // NOPMD NOSONAR
-                        copy = false;
-                        results.deleted(name);
-                        break;
-                    }
+            if (name != null && deletions.deletes(name)) {
+                results.deleted(name);
+            } else if (!results.hasBeenAdded(name)) {
+                if (!entryIterator.copyRawTo(out)) {
+                    copyStream(entryIterator.getInputStream(), out, entry);
                 }
-            }
-
-            if (copy
-                && !isDeletedLater(workingSet, entry)
-                && !results.hasBeenAdded(entry.getName())) {
-                copyStream(entryIterator.getInputStream(), out, entry);
                 results.addedFromStream(entry.getName());
             }
         }
@@ -175,34 +164,6 @@ private ChangeSetResults perform(final ArchiveEntryIterator entryIterator,
         return results;
     }
 
-    /**
-     * Checks if an ArchiveEntry is deleted later in the ChangeSet. This is
-     * necessary if an file is added with this ChangeSet, but later became
-     * deleted in the same set.
-     *
-     * @param entry
-     *            the entry to check
-     * @return true, if this entry has an deletion change later, false otherwise
-     */
-    private boolean isDeletedLater(final Set<Change> workingSet, final ArchiveEntry entry) {
-        final String source = entry.getName();
-
-        if (!workingSet.isEmpty()) {
-            for (final Change change : workingSet) {
-                final int type = change.type();
-                final String target = change.targetFile();
-                if (type == Change.TYPE_DELETE && source.equals(target)) {
-                    return true;
-                }
-
-                if (type == Change.TYPE_DELETE_DIR && source.startsWith(target + "/")){
-                    return true;
-                }
-            }
-        }
-        return false;
-    }
-
     /**
      * Copies the ArchiveEntry to the Output stream
      *
@@ -222,6 +183,75 @@ private void copyStream(final InputStream in, final ArchiveOutputStream out,
         out.closeArchiveEntry();
     }
 
+    /**
+     * Indexes the delete and delete dir changes of a change set by
+     * name so entries can be matched without looking at every
+     * change.
+     *
+     * <p>An entry is deleted by the first change in change set order
+     * that matches it. A delete change is used up by the first entry
+     * it deletes, so a second entry of the same name is only deleted
+     * by another delete change or a delete dir change, delete dir
+     * changes are never used up.</p>
+     */
+    private static class DeletionIndex {
+        /** Positions of delete changes in change set order, keyed by name. */
+        private final Map<String, ArrayDeque<Integer>> deletes = new HashMap<>();
+        /** Position of the first delete dir change for each directory. */
+        private final Map<String, Integer> deleteDirs = new HashMap<>();
+
+        DeletionIndex(final Set<Change> changes) {
+            int position = 0;
+            for (final Change change : changes) {
+                if (change.type() == Change.TYPE_DELETE) {
+                    ArrayDeque<Integer> positions = deletes.get(change.targetFile());
+                    if (positions == null) {
+                        positions = new ArrayDeque<>();
+                        deletes.put(change.targetFile(), positions);
+                    }
+                    positions.addLast(position);
+                } else if (change.type() == Change.TYPE_DELETE_DIR
+                    && !deleteDirs.containsKey(change.targetFile())) {
+                    deleteDirs.put(change.targetFile(), position);
+                }
+                position++;
+            }
+        }
+
+        /**
+         * Checks whether the entry of the given name is deleted and
+         * uses up the matching delete change, if any.
+         */
+        boolean deletes(final String name) {
+            final int dirPosition = firstDeleteDirPosition(name);
+            final ArrayDeque<Integer> positions = deletes.get(name);
+            if (positions != null && !positions.isEmpty() && positions.peekFirst() < dirPosition) {
+                positions.removeFirst();
+                return true;
+            }
+            return dirPosition != Integer.MAX_VALUE;
+        }
+
+        /**
+         * Position of the first delete dir change whose directory
+         * followed by a slash is a prefix of name or
+         * Integer.MAX_VALUE if there is none.
+         */
+        private int firstDeleteDirPosition(final String name) {
+            int first = Integer.MAX_VALUE;
+            if (deleteDirs.isEmpty()) {
+                return first;
+            }
+            for (int slash = name.indexOf('/'); slash >= 0; slash = name.indexOf('/', slash + 1)) {
+                final Integer position = deleteDirs.get(name.substring(0, slash));
+                if (position != null && position < first) {
+                    first = position;
+                }
+            }
+            return first;
+        }
+    }
+
     /**
      * Used in perform to abstract out getting entries and streams for
      * those entries.
@@ -235,6 +265,15 @@ interface ArchiveEntryIterator {
         boolean hasNext() throws IOException;
         ArchiveEntry next();
         InputStream getInputStream() throws IOException;
+        /**
+         * Copies the current entry to the output stream without
+         * decompressing it, if the source and output stream support
+         * it.
+         *
+         * @return false if the entry must be copied using {@link
+         * #getInputStream} instead
+         */
+        boolean copyRawTo(ArchiveOutputStream out) throws IOException;
     }
 
     private static class ArchiveInputStreamIterator
@@ -256,6 +295,10 @@ public ArchiveEntry next() {
         public InputStream getInputStream() {
             return in;
         }
+        @Override
+        public boolean copyRawTo(final ArchiveOutputStream out) {
+            return false;
+        }
     }
 
     private static class ZipFileIterator
@@ -280,5 +323,18 @@ public ArchiveEntry next() {
         public InputStream getInputStream() throws IOException {
             return in.getInputStream(current);
         }
+        @Override
+        public boolean copyRawTo(final ArchiveOutputStream out) throws IOException {
+            if (!(out instanceof ZipArchiveOutputStream)) {
+                return false;
+            }
+            try (InputStream raw = in.getRawInputStream(current)) {
+                if (raw == null) {
+                    return false;
+                }
+                ((ZipArchiveOutputStream) out).addRawArchiveEntry(current, raw);
+            }
+            return true;
+        }
     }
 }
@@ -19,7 +19,9 @@
 package org.apache.commons.compress.changes;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Stores the results of an performed ChangeSet operation.
@@ -28,6 +30,7 @@ public class ChangeSetResults {
     private final List<String> addedFromChangeSet = new ArrayList<>();
     private final List<String> addedFromStream = new ArrayList<>();
     private final List<String> deleted = new ArrayList<>();
+    private final Set<String> added = new HashSet<>();
 
     /**
      * Adds the file name of a recently deleted file to the result list.
@@ -44,6 +47,7 @@ void deleted(final String fileName) {
      */
     void addedFromStream(final String fileName) {
         addedFromStream.add(fileName);
+        added.add(fileName);
     }
 
     /**
@@ -53,6 +57,7 @@ void addedFromStream(final String fileName) {
      */
     void addedFromChangeSet(final String fileName) {
         addedFromChangeSet.add(fileName);
+        added.add(fileName);
     }
 
     /**
@@ -85,6 +90,6 @@ public List<String> getDeleted() {
      * @return true, if this file name already has been added
      */
     boolean hasBeenAdded(final String fileName) {
-        return addedFromChangeSet.contains(fileName) || addedFromStream.contains(fileName);
+        return added.contains(fileName);
     }
 }
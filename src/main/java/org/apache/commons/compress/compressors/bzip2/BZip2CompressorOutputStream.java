@@ -18,8 +18,16 @@
  */
 package org.apache.commons.compress.compressors.bzip2;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.compress.compressors.CompressorOutputStream;
 
@@ -117,6 +125,14 @@
  * Instances of this class are not threadsafe.
  * </p>
  *
+ * <p>If an {@link ExecutorService} is passed in at construction time
+ * the stream sorts and encodes blocks in parallel, similar to what
+ * pbzip2 does. Full blocks are handed to the executor and the
+ * encoded blocks are written in order, the output is identical to
+ * the output created without an executor for the same block
+ * size. Each block being encoded needs its own copy of the memory
+ * listed above.</p>
+ *
  * <p>
  * TODO: Update to BZip2 1.0.1
  * </p>
@@ -324,6 +340,17 @@ private static void hbMakeCodeLengths(final byte[] len, final int[] freq,
     private OutputStream out;
     private volatile boolean closed;
 
+    /*
+     * Only used in parallel mode: the encoder whose data is filled
+     * by the writing thread, idle encoders and blocks being encoded
+     * in the order they have been submitted.
+     */
+    private final ExecutorService executor;
+    private final int maxBlocksInFlight;
+    private BZip2CompressorOutputStream currentEncoder;
+    private final Deque<BZip2CompressorOutputStream> idleEncoders = new ArrayDeque<>();
+    private final Deque<Future<EncodedBlock>> blocksInFlight = new ArrayDeque<>();
+
     /**
      * Chooses a blocksize based on the given length of the data to compress.
      *
@@ -376,21 +403,101 @@ public BZip2CompressorOutputStream(final OutputStream out)
      * @see #MAX_BLOCKSIZE
      */
     public BZip2CompressorOutputStream(final OutputStream out, final int blockSize) throws IOException {
+        this(out, blockSize, null, 0);
+    }
+
+    /**
+     * Constructs a new {@code BZip2CompressorOutputStream} that
+     * sorts and encodes blocks in parallel using the given executor.
+     *
+     * <p>At most as many blocks as there are available processors
+     * are encoded at the same time.</p>
+     *
+     * @param out
+     *            the destination stream.
+     * @param blockSize
+     *            the blockSize as 100k units.
+     * @param executor
+     *            the executor that encodes the blocks. It is not
+     *            shut down by this stream.
+     *
+     * @throws IOException
+     *             if an I/O error occurs in the specified stream.
+     * @throws IllegalArgumentException
+     *             if <code>(blockSize &lt; 1) || (blockSize &gt; 9)</code>.
+     * @throws NullPointerException
+     *             if <code>out == null</code> or <code>executor == null</code>.
+     * @since 1.20
+     */
+    public BZip2CompressorOutputStream(final OutputStream out, final int blockSize,
+        final ExecutorService executor) throws IOException {
+        this(out, blockSize, executor, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a new {@code BZip2CompressorOutputStream} that
+     * sorts and encodes blocks in parallel using the given executor.
+     *
+     * @param out
+     *            the destination stream.
+     * @param blockSize
+     *            the blockSize as 100k units.
+     * @param executor
+     *            the executor that encodes the blocks. It is not
+     *            shut down by this stream.
+     * @param maxBlocksInFlight
+     *            the maximum number of blocks handed to the executor
+     *            that haven't been written, yet. This limits the
+     *            amount of memory used.
+     *
+     * @throws IOException
+     *             if an I/O error occurs in the specified stream.
+     * @throws IllegalArgumentException
+     *             if <code>(blockSize &lt; 1) || (blockSize &gt; 9)</code>
+     *             or <code>maxBlocksInFlight &lt; 1</code>.
+     * @throws NullPointerException
+     *             if <code>out == null</code> or <code>executor == null</code>.
+     * @since 1.20
+     */
+    public BZip2CompressorOutputStream(final OutputStream out, final int blockSize,
+        final ExecutorService executor, final int maxBlocksInFlight) throws IOException {
         if (blockSize < 1) {
             throw new IllegalArgumentException("blockSize(" + blockSize + ") < 1");
         }
         if (blockSize > 9) {
             throw new IllegalArgumentException("blockSize(" + blockSize + ") > 9");
         }
+        if (executor != null && maxBlocksInFlight < 1) {
+            throw new IllegalArgumentException("maxBlocksInFlight(" + maxBlocksInFlight + ") < 1");
+        }
 
         this.blockSize100k = blockSize;
         this.out = out;
+        this.executor = executor;
+        this.maxBlocksInFlight = maxBlocksInFlight;
 
         /* 20 is just a paranoia constant */
         this.allowableBlockSize = (this.blockSize100k * BZip2Constants.BASEBLOCKSIZE) - 20;
         init();
     }
 
+    /**
+     * Creates an encoder for a single block used in parallel mode.
+     *
+     * <p>An encoder is never used as a stream, it only uses the
+     * block sorting and Huffman coding methods of this class to
+     * write a block into a buffer of its own.</p>
+     */
+    private BZip2CompressorOutputStream(final int blockSize) {
+        this.blockSize100k = blockSize;
+        this.executor = null;
+        this.maxBlocksInFlight = 0;
+        this.allowableBlockSize = (this.blockSize100k * BZip2Constants.BASEBLOCKSIZE) - 20;
+        this.data = new Data(blockSize);
+        this.blockSorter = new BlockSort(this.data);
+        this.closed = true;
+    }
+
     @Override
     public void write(final int b) throws IOException {
         if (!closed) {
@@ -490,6 +597,12 @@ public void finish() throws IOException {
                 endBlock();
                 endCompression();
             } finally {
+                for (final Future<EncodedBlock> f : blocksInFlight) {
+                    f.cancel(true);
+                }
+                blocksInFlight.clear();
+                idleEncoders.clear();
+                this.currentEncoder = null;
                 this.out = null;
                 this.blockSorter = null;
                 this.data = null;
@@ -527,8 +640,10 @@ private void init() throws IOException {
         bsPutUByte('B');
         bsPutUByte('Z');
 
-        this.data = new Data(this.blockSize100k);
-        this.blockSorter = new BlockSort(this.data);
+        if (executor == null) {
+            this.data = new Data(this.blockSize100k);
+            this.blockSorter = new BlockSort(this.data);
+        }
 
         // huffmanised magic bytes
         bsPutUByte('h');
@@ -538,7 +653,11 @@ private void init() throws IOException {
         initBlock();
     }
 
-    private void initBlock() {
+    private void initBlock() throws IOException {
+        if (executor != null) {
+            currentEncoder = acquireEncoder();
+            this.data = currentEncoder.data;
+        }
         // blockNo++;
         this.crc.initialiseCRC();
         this.last = -1;
@@ -561,6 +680,14 @@ private void endBlock() throws IOException {
             return;
         }
 
+        if (executor != null) {
+            submitBlock();
+        } else {
+            writeBlock();
+        }
+    }
+
+    private void writeBlock() throws IOException {
         /* sort the block and establish posn of original string */
         blockSort();
 
@@ -593,6 +720,9 @@ private void endBlock() throws IOException {
     }
 
     private void endCompression() throws IOException {
+        while (!blocksInFlight.isEmpty()) {
+            writeOldestBlockInFlight();
+        }
         /*
          * Now another magic 48-bit number, 0x177245385090, to indicate the end
          * of the last block. (sqrt(pi), if you want to know. I did want to use
@@ -610,6 +740,74 @@ private void endCompression() throws IOException {
         bsFinishedWithStream();
     }
 
+    /**
+     * Hands the block filled by the writing thread to the executor.
+     */
+    private void submitBlock() {
+        final BZip2CompressorOutputStream encoder = currentEncoder;
+        final int lastShadow = this.last;
+        final int blockCRCShadow = this.blockCRC;
+        currentEncoder = null;
+        blocksInFlight.add(executor.submit(new Callable<EncodedBlock>() {
+            @Override
+            public EncodedBlock call() throws IOException {
+                return encoder.encodeBlock(lastShadow, blockCRCShadow);
+            }
+        }));
+    }
+
+    /**
+     * Provides an encoder for the next block, writing encoded blocks
+     * if too many blocks are in flight.
+     */
+    private BZip2CompressorOutputStream acquireEncoder() throws IOException {
+        while (blocksInFlight.size() >= maxBlocksInFlight) {
+            writeOldestBlockInFlight();
+        }
+        final BZip2CompressorOutputStream encoder = idleEncoders.poll();
+        return encoder != null ? encoder : new BZip2CompressorOutputStream(this.blockSize100k);
+    }
+
+    private void writeOldestBlockInFlight() throws IOException {
+        final EncodedBlock block;
+        try {
+            block = blocksInFlight.remove().get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an encoded block");
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+        final byte[] bits = block.bits;
+        final int fullBytes = block.bitCount >>> 3;
+        for (int i = 0; i < fullBytes; i++) {
+            bsW(8, bits[i] & 0xff);
+        }
+        final int remainingBits = block.bitCount & 7;
+        if (remainingBits > 0) {
+            bsW(remainingBits, (bits[fullBytes] & 0xff) >>> (8 - remainingBits));
+        }
+        idleEncoders.add(block.encoder);
+    }
+
+    /**
+     * Sorts and encodes the block stored in this encoder's data.
+     */
+    private EncodedBlock encodeBlock(final int lastIndex, final int crcOfBlock) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream(lastIndex / 2 + 64);
+        this.out = bos;
+        this.bsBuff = 0;
+        this.bsLive = 0;
+        this.last = lastIndex;
+        this.blockCRC = crcOfBlock;
+        writeBlock();
+        final int bitCount = bos.size() * 8 + this.bsLive;
+        bsFinishedWithStream();
+        this.out = null;
+        return new EncodedBlock(this, bos.toByteArray(), bitCount);
+    }
+
     /**
      * Returns the blocksize parameter specified at construction time.
      * @return the blocksize parameter specified at construction time
@@ -1276,6 +1474,21 @@ private void generateMTFValues() {
         this.nMTF = wr + 1;
     }
 
+    /**
+     * A block encoded in parallel mode, the bits are stored MSB first.
+     */
+    private static final class EncodedBlock {
+        private final BZip2CompressorOutputStream encoder;
+        private final byte[] bits;
+        private final int bitCount;
+
+        EncodedBlock(final BZip2CompressorOutputStream encoder, final byte[] bits, final int bitCount) {
+            this.encoder = encoder;
+            this.bits = bits;
+            this.bitCount = bitCount;
+        }
+    }
+
     static final class Data {
 
         // with blockSize 900k
@@ -0,0 +1,675 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.compressors.bzip2;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.compressors.CompressorInputStream;
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.InputStreamStatistics;
+
+/**
+ * An input stream that decompresses BZip2 data decoding several
+ * blocks in parallel.
+ *
+ * <p>The stream scans the compressed data for the 48 bit block
+ * magic at any bit alignment and hands the data between two magic
+ * numbers to an {@link ExecutorService}. Decoded blocks are returned
+ * in order, the CRC of each block and the combined CRC of each
+ * stream are verified.</p>
+ *
+ * <p>The block magic as well as the end of stream magic may appear
+ * by chance inside of the compressed data of a block. If a candidate
+ * block can not be decoded it is merged with the following
+ * candidate and decoded again. An end of stream marker is only
+ * trusted once the combined CRC of the stream has been verified, the
+ * input following it is kept until then so it can be scanned again
+ * as part of the block.</p>
+ *
+ * <p>At most {@code maxBlocksInFlight} blocks are read ahead, each
+ * of them needs the memory listed for decompression in {@link
+ * BZip2CompressorOutputStream} plus its decoded content. Unlike
+ * {@link BZip2CompressorInputStream} this class reads ahead and
+ * doesn't leave the input positioned right after the first stream
+ * when not decompressing concatenated streams.</p>
+ *
+ * @NotThreadSafe
+ * @since 1.20
+ */
+public class ParallelBZip2CompressorInputStream extends CompressorInputStream
+    implements InputStreamStatistics {
+
+    private static final long BLOCK_MAGIC = 0x314159265359L;
+    private static final long END_OF_STREAM_MAGIC = 0x177245385090L;
+    private static final long MAGIC_MASK = 0xffffffffffffL;
+    private static final int MAGIC_BITS = 48;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final InputStream in;
+    private final boolean decompressConcatenated;
+    private final ExecutorService executor;
+    private final int maxBlocksInFlight;
+
+    private final byte[] inBuffer = new byte[8192];
+    private int inPos, inLen;
+    private long compressedCount;
+    // the last eight bytes read, the last one is read bit by bit
+    private long window;
+    // position inside of the last byte read, 8 means it is used up
+    private int bitPos = 8;
+    // number of bytes read so far, including bytes read again
+    private long bytesRead;
+
+    // input that is read again after an end of stream candidate has been rejected
+    private byte[] replay = EMPTY;
+    private int replayPos;
+    // input read since the oldest end of stream candidate that hasn't been confirmed
+    private boolean recording;
+    private byte[] recorded = EMPTY;
+    private int recordedLength;
+    private long recordedStart;
+
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private boolean inStream;
+    private boolean inputExhausted;
+    private int blockSize100k;
+    private long pendingMagic;
+    private int computedCombinedCRC;
+
+    private byte[] current;
+    private int currentPos;
+    private final byte[] oneByte = new byte[1];
+
+    /**
+     * Constructs a new stream that decompresses the first BZip2
+     * stream of the input, at most as many blocks as there are
+     * available processors are decoded at the same time.
+     *
+     * @param in the InputStream from which this object should be created
+     * @param executor the executor that decodes the blocks, it is not
+     * shut down by this stream
+     * @throws IOException
+     *             if the stream content is malformed or an I/O error occurs.
+     */
+    public ParallelBZip2CompressorInputStream(final InputStream in, final ExecutorService executor)
+        throws IOException {
+        this(in, false, executor, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a new stream that decompresses BZip2 data decoding
+     * blocks in parallel.
+     *
+     * @param in the InputStream from which this object should be created
+     * @param decompressConcatenated
+     *                     if true, decompress until the end of the input;
+     *                     if false, stop after the first .bz2 stream
+     * @param executor the executor that decodes the blocks, it is not
+     * shut down by this stream
+     * @param maxBlocksInFlight the maximum number of blocks that are
+     * read ahead
+     * @throws IOException
+     *             if the stream content is malformed or an I/O error occurs.
+     * @throws IllegalArgumentException if maxBlocksInFlight is smaller than 1
+     */
+    public ParallelBZip2CompressorInputStream(final InputStream in, final boolean decompressConcatenated,
+        final ExecutorService executor, final int maxBlocksInFlight) throws IOException {
+        if (maxBlocksInFlight < 1) {
+            throw new IllegalArgumentException("maxBlocksInFlight(" + maxBlocksInFlight + ") < 1");
+        }
+        this.in = in;
+        this.decompressConcatenated = decompressConcatenated;
+        this.executor = executor;
+        this.maxBlocksInFlight = maxBlocksInFlight;
+        if (!startStream(true)) {
+            throw new IOException("Stream is not in the BZip2 format");
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(oneByte, 0, 1) == -1 ? -1 : oneByte[0] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (off < 0) {
+            throw new IndexOutOfBoundsException("offs(" + off + ") < 0.");
+        }
+        if (len < 0) {
+            throw new IndexOutOfBoundsException("len(" + len + ") < 0.");
+        }
+        if (off + len > b.length) {
+            throw new IndexOutOfBoundsException("offs(" + off + ") + len("
+                                                + len + ") > dest.length(" + b.length + ").");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        while (current == null || currentPos == current.length) {
+            if (!nextBlock()) {
+                return -1;
+            }
+        }
+        final int n = Math.min(len, current.length - currentPos);
+        System.arraycopy(current, currentPos, b, off, n);
+        currentPos += n;
+        count(n);
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        cancelSegments();
+        current = null;
+        inputExhausted = true;
+        if (in != System.in) {
+            in.close();
+        }
+    }
+
+    @Override
+    public long getCompressedCount() {
+        return compressedCount;
+    }
+
+    private boolean nextBlock() throws IOException {
+        while (true) {
+            fill();
+            final Segment s = segments.poll();
+            if (s == null) {
+                current = null;
+                return false;
+            }
+            if (s.failure != null) {
+                throw s.failure;
+            }
+            if (s.checkpoint != null) {
+                // a chance match inside of a block would have made the block preceding it fail
+                if (s.crc != computedCombinedCRC) {
+                    throw new IOException("BZip2 CRC error");
+                }
+                confirmEndOfStream();
+                computedCombinedCRC = 0;
+                continue;
+            }
+            current = resolve(s);
+            currentPos = 0;
+            computedCombinedCRC = (computedCombinedCRC << 1) | (computedCombinedCRC >>> 31);
+            computedCombinedCRC ^= s.crc;
+            return true;
+        }
+    }
+
+    private void fill() throws IOException {
+        while (segments.size() < maxBlocksInFlight && scanSegment()) {
+            // scanSegment adds to segments
+        }
+    }
+
+    /**
+     * Returns the decoded data of the segment, merges it with the
+     * following segments if it can't be decoded as the block magic
+     * or the end of stream magic may have appeared by chance inside
+     * of the compressed data.
+     */
+    private byte[] resolve(final Segment s) throws IOException {
+        try {
+            return get(s.decoded);
+        } catch (final IOException ex) {
+            final long maxBits = 3L * s.blockSize100k * BZip2Constants.BASEBLOCKSIZE * 8;
+            Segment merged = s;
+            while (true) {
+                if (segments.isEmpty()) {
+                    scanSegment();
+                }
+                if (!segments.isEmpty() && segments.peek().checkpoint != null) {
+                    rejectEndOfStream();
+                }
+                final Segment next = segments.peek();
+                if (next == null || next.failure != null || merged.bitCount + next.bitCount > maxBits) {
+                    throw ex;
+                }
+                segments.poll();
+                if (next.decoded != null) {
+                    next.decoded.cancel(true);
+                }
+                merged = merged.append(next);
+                try {
+                    return decode(merged);
+                } catch (final IOException ignored) { // NOSONAR
+                    // try to merge with the next segment
+                }
+            }
+        }
+    }
+
+    private static byte[] get(final Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a decoded block");
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    /**
+     * Decodes a single block by wrapping it into a BZip2 stream of its own.
+     */
+    private static byte[] decode(final Segment s) throws IOException {
+        final BitWriter w = new BitWriter((int) (s.bitCount / 8) + 16);
+        w.writeBits(8, 'B');
+        w.writeBits(8, 'Z');
+        w.writeBits(8, 'h');
+        w.writeBits(8, '0' + s.blockSize100k);
+        w.append(s.data, s.bitOffset, s.bitCount);
+        w.writeBits(MAGIC_BITS, END_OF_STREAM_MAGIC);
+        // the combined CRC of a stream with a single block is the block's CRC
+        w.writeBits(32, s.crc & 0xffffffffL);
+        try (InputStream block = new BZip2CompressorInputStream(
+                 new ByteArrayInputStream(w.buffer, 0, w.byteCount()))) {
+            return IOUtils.toByteArray(block);
+        } catch (final RuntimeException ex) {
+            throw new IOException("Corrupted BZip2 block", ex);
+        }
+    }
+
+    /**
+     * Scans the next block or end of stream marker.
+     * @return false if there is nothing left to scan
+     */
+    private boolean scanSegment() throws IOException {
+        if (inputExhausted) {
+            return false;
+        }
+        try {
+            if (!inStream && !startStream(false)) {
+                inputExhausted = true;
+                return false;
+            }
+            if (pendingMagic == END_OF_STREAM_MAGIC) {
+                scanEndOfStream();
+                return true;
+            }
+            if (pendingMagic != BLOCK_MAGIC) {
+                throw new IOException("Bad block header");
+            }
+            final Segment s = scanBlock();
+            s.decoded = executor.submit(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws IOException {
+                    return decode(s);
+                }
+            });
+            segments.add(s);
+            return true;
+        } catch (final IOException ex) {
+            if (!recording) {
+                throw ex;
+            }
+            // the end of stream read before may have been a chance match,
+            // report the problem once it has been confirmed
+            segments.add(new Segment(ex));
+            inputExhausted = true;
+            return true;
+        }
+    }
+
+    /**
+     * Reads the combined CRC following an end of stream magic and
+     * remembers where the magic has been found in case it turns out
+     * to be part of a block.
+     */
+    private void scanEndOfStream() throws IOException {
+        final Checkpoint checkpoint = new Checkpoint(window, bitPos, bytesRead, blockSize100k);
+        if (!recording) {
+            recording = true;
+            recordedStart = bytesRead;
+            recordedLength = 0;
+        }
+        segments.add(new Segment(checkpoint, (int) readBits(32)));
+        bitPos = 8;
+        inStream = false;
+        if (!decompressConcatenated) {
+            inputExhausted = true;
+        }
+    }
+
+    private void confirmEndOfStream() {
+        for (final Segment s : segments) {
+            if (s.checkpoint != null) {
+                final int drop = (int) (s.checkpoint.bytesRead - recordedStart);
+                System.arraycopy(recorded, drop, recorded, 0, recordedLength - drop);
+                recordedLength -= drop;
+                recordedStart = s.checkpoint.bytesRead;
+                return;
+            }
+        }
+        recording = false;
+        recordedLength = 0;
+    }
+
+    /**
+     * Drops the end of stream candidate at the head of the queue
+     * together with everything scanned after it and scans the input
+     * following its magic again as part of a block.
+     */
+    private void rejectEndOfStream() throws IOException {
+        final Checkpoint checkpoint = segments.poll().checkpoint;
+        cancelSegments();
+        final int from = (int) (checkpoint.bytesRead - recordedStart);
+        final int again = recordedLength - from;
+        final int unread = replay.length - replayPos;
+        final byte[] input = new byte[again + unread];
+        System.arraycopy(recorded, from, input, 0, again);
+        System.arraycopy(replay, replayPos, input, again, unread);
+        replay = input;
+        replayPos = 0;
+        recording = false;
+        recordedLength = 0;
+        window = checkpoint.window;
+        bitPos = checkpoint.bitPos;
+        bytesRead = checkpoint.bytesRead;
+        blockSize100k = checkpoint.blockSize100k;
+        inStream = true;
+        inputExhausted = false;
+        segments.add(scanBlock());
+    }
+
+    private void cancelSegments() {
+        for (final Segment s : segments) {
+            if (s.decoded != null) {
+                s.decoded.cancel(true);
+            }
+        }
+        segments.clear();
+    }
+
+    /**
+     * Collects the bits from the magic that has just been read up to
+     * the next block or end of stream magic.
+     *
+     * <p>The input is copied byte by byte and the last 64 bits read
+     * are searched for a magic ending at any of the bit positions of
+     * the byte just read. A magic may overlap the one starting the
+     * segment, a chance match is merged back later.</p>
+     */
+    private Segment scanBlock() throws IOException {
+        final int magicBits = MAGIC_BITS + 8 - bitPos;
+        final int headBytes = (magicBits + 7) >>> 3;
+        byte[] data = new byte[Math.max(blockSize100k * BZip2Constants.BASEBLOCKSIZE / 2, headBytes)];
+        for (int i = 0; i < headBytes; i++) {
+            data[i] = (byte) (window >>> (8 * (headBytes - 1 - i)));
+        }
+        final int bitOffset = 8 * headBytes - magicBits;
+        int length = headBytes;
+        // bits following the magic inside of the last byte
+        int unusedBits = 8 - bitPos;
+        while (true) {
+            for (int shift = unusedBits - 1; shift >= 0; shift--) {
+                final long candidate = (window >>> shift) & MAGIC_MASK;
+                if (candidate == BLOCK_MAGIC || candidate == END_OF_STREAM_MAGIC) {
+                    pendingMagic = candidate;
+                    bitPos = 8 - shift;
+                    final long bitCount = 8L * length - shift - MAGIC_BITS - bitOffset;
+                    final int crc = bitCount >= MAGIC_BITS + 32 ? readInt(data, bitOffset + MAGIC_BITS) : 0;
+                    return new Segment(Arrays.copyOf(data, (int) ((bitOffset + bitCount + 7) >>> 3)),
+                        bitOffset, bitCount, crc, blockSize100k);
+                }
+            }
+            final int b = nextByte();
+            if (b == -1) {
+                throw new EOFException("Truncated BZip2 stream");
+            }
+            if (length == data.length) {
+                data = Arrays.copyOf(data, length * 2);
+            }
+            data[length++] = (byte) b;
+            unusedBits = 8;
+        }
+    }
+
+    private boolean startStream(final boolean isFirstStream) throws IOException {
+        final int magic0 = nextByte();
+        if (magic0 == -1 && !isFirstStream) {
+            return false;
+        }
+        final int magic1 = nextByte();
+        final int magic2 = nextByte();
+        if (magic0 != 'B' || magic1 != 'Z' || magic2 != 'h') {
+            throw new IOException(isFirstStream
+                    ? "Stream is not in the BZip2 format"
+                    : "Garbage after a valid BZip2 stream");
+        }
+        final int blockSize = nextByte();
+        if ((blockSize < '1') || (blockSize > '9')) {
+            throw new IOException("BZip2 block size is invalid");
+        }
+        blockSize100k = blockSize - '0';
+        pendingMagic = readBits(MAGIC_BITS);
+        inStream = true;
+        return true;
+    }
+
+    private long readBits(final int n) throws IOException {
+        long result = 0;
+        for (int i = 0; i < n; i++) {
+            if (bitPos == 8) {
+                if (nextByte() == -1) {
+                    throw new EOFException("Truncated BZip2 stream");
+                }
+                bitPos = 0;
+            }
+            result = (result << 1) | ((window >>> (7 - bitPos++)) & 1);
+        }
+        return result;
+    }
+
+    private int nextByte() throws IOException {
+        final int b;
+        if (replayPos < replay.length) {
+            b = replay[replayPos++] & 0xff;
+        } else {
+            if (inPos == inLen) {
+                replay = EMPTY;
+                replayPos = 0;
+                inPos = 0;
+                inLen = in.read(inBuffer);
+                if (inLen <= 0) {
+                    inLen = 0;
+                    return -1;
+                }
+                compressedCount += inLen;
+            }
+            b = inBuffer[inPos++] & 0xff;
+        }
+        if (recording) {
+            if (recordedLength == recorded.length) {
+                recorded = Arrays.copyOf(recorded, Math.max(recordedLength * 2, inBuffer.length));
+            }
+            recorded[recordedLength++] = (byte) b;
+        }
+        window = (window << 8) | b;
+        bytesRead++;
+        return b;
+    }
+
+    private static int readInt(final byte[] bits, final long bitOffset) {
+        int result = 0;
+        for (int i = 0; i < 32; i++) {
+            result = (result << 1) | bit(bits, bitOffset + i);
+        }
+        return result;
+    }
+
+    private static int bit(final byte[] bits, final long bitOffset) {
+        return (bits[(int) (bitOffset >>> 3)] >>> (7 - (bitOffset & 7))) & 1;
+    }
+
+    /**
+     * Scanner state right after an end of stream magic.
+     */
+    private static final class Checkpoint {
+        private final long window;
+        private final int bitPos;
+        private final long bytesRead;
+        private final int blockSize100k;
+
+        Checkpoint(final long window, final int bitPos, final long bytesRead, final int blockSize100k) {
+            this.window = window;
+            this.bitPos = bitPos;
+            this.bytesRead = bytesRead;
+            this.blockSize100k = blockSize100k;
+        }
+    }
+
+    /**
+     * Compressed block, end of stream candidate or a problem found
+     * while reading ahead.
+     */
+    private static final class Segment {
+        // the bits of a block start at bitOffset inside of data
+        private final byte[] data;
+        private final int bitOffset;
+        private final long bitCount;
+        // block CRC or combined CRC for the end of stream marker
+        private final int crc;
+        private final int blockSize100k;
+        // only set for end of stream candidates
+        private final Checkpoint checkpoint;
+        private final IOException failure;
+        private Future<byte[]> decoded;
+
+        Segment(final Checkpoint checkpoint, final int combinedCRC) {
+            this(null, 0, 0, combinedCRC, 0, checkpoint, null);
+        }
+
+        Segment(final IOException failure) {
+            this(null, 0, 0, 0, 0, null, failure);
+        }
+
+        Segment(final byte[] data, final int bitOffset, final long bitCount, final int crc,
+            final int blockSize100k) {
+            this(data, bitOffset, bitCount, crc, blockSize100k, null, null);
+        }
+
+        private Segment(final byte[] data, final int bitOffset, final long bitCount, final int crc,
+            final int blockSize100k, final Checkpoint checkpoint, final IOException failure) {
+            this.data = data;
+            this.bitOffset = bitOffset;
+            this.bitCount = bitCount;
+            this.crc = crc;
+            this.blockSize100k = blockSize100k;
+            this.checkpoint = checkpoint;
+            this.failure = failure;
+        }
+
+        Segment append(final Segment other) {
+            final BitWriter w = new BitWriter((int) ((bitCount + other.bitCount) / 8) + 8);
+            w.append(data, bitOffset, bitCount);
+            w.append(other.data, other.bitOffset, other.bitCount);
+            return new Segment(w.toByteArray(), 0, w.bitCount, crc, blockSize100k);
+        }
+    }
+
+    /**
+     * Collects bits MSB first.
+     */
+    private static final class BitWriter {
+        private byte[] buffer;
+        private long bitCount;
+
+        BitWriter(final int initialCapacity) {
+            buffer = new byte[Math.max(initialCapacity, 16)];
+        }
+
+        void writeBit(final int bit) {
+            final int index = (int) (bitCount >>> 3);
+            ensureCapacity(index + 1);
+            if (bit != 0) {
+                buffer[index] |= 0x80 >>> (bitCount & 7);
+            }
+            bitCount++;
+        }
+
+        void writeBits(final int n, final long value) {
+            for (int i = n - 1; i >= 0; i--) {
+                writeBit((int) (value >>> i) & 1);
+            }
+        }
+
+        /**
+         * Appends count bits starting at bitOffset, once the buffer is
+         * byte aligned whole bytes are copied.
+         */
+        void append(final byte[] bits, final long bitOffset, final long count) {
+            long from = bitOffset;
+            long remaining = count;
+            while ((bitCount & 7) != 0 && remaining > 0) {
+                writeBit(bit(bits, from++));
+                remaining--;
+            }
+            final int fullBytes = (int) (remaining >>> 3);
+            final int dst = (int) (bitCount >>> 3);
+            ensureCapacity(dst + fullBytes + 1);
+            int src = (int) (from >>> 3);
+            final int shift = (int) (from & 7);
+            if (shift == 0) {
+                System.arraycopy(bits, src, buffer, dst, fullBytes);
+            } else {
+                for (int i = 0; i < fullBytes; i++, src++) {
+                    buffer[dst + i] = (byte) ((bits[src] << shift) | ((bits[src + 1] & 0xff) >>> (8 - shift)));
+                }
+            }
+            bitCount += 8L * fullBytes;
+            from += 8L * fullBytes;
+            for (remaining &= 7; remaining > 0; remaining--) {
+                writeBit(bit(bits, from++));
+            }
+        }
+
+        private void ensureCapacity(final int bytes) {
+            if (bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(bytes, buffer.length * 2));
+            }
+        }
+
+        int byteCount() {
+            return (int) ((bitCount + 7) >>> 3);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, byteCount());
+        }
+    }
+}
@@ -27,6 +27,7 @@
 import org.apache.commons.compress.utils.CountingInputStream;
 import org.apache.commons.compress.utils.IOUtils;
 import org.apache.commons.compress.utils.InputStreamStatistics;
+import org.apache.commons.compress.utils.ZlibPool;
 
 /**
  * Deflate decompressor.
@@ -44,6 +45,9 @@ public class DeflateCompressorInputStream extends CompressorInputStream
     private final CountingInputStream countingStream;
     private final InputStream in;
     private final Inflater inflater;
+    private final ZlibPool zlibPool;
+    private final boolean nowrap;
+    private boolean inflaterReleased;
 
     /**
      * Creates a new input stream that decompresses Deflate-compressed data
@@ -65,7 +69,27 @@ public DeflateCompressorInputStream(final InputStream inputStream) {
      */
     public DeflateCompressorInputStream(final InputStream inputStream,
                                         final DeflateParameters parameters) {
-        inflater = new Inflater(!parameters.withZlibHeader());
+        this(inputStream, parameters, null);
+    }
+
+    /**
+     * Creates a new input stream that decompresses Deflate-compressed data
+     * from the specified input stream, borrowing its inflater from a pool.
+     *
+     * @param       inputStream where to read the compressed data
+     * @param       parameters parameters
+     * @param       zlibPool the pool to borrow the inflater from, it
+     *              is returned when this stream is closed. If null a
+     *              new inflater is created and ended when the stream
+     *              is closed.
+     * @since 1.20
+     */
+    public DeflateCompressorInputStream(final InputStream inputStream,
+                                        final DeflateParameters parameters,
+                                        final ZlibPool zlibPool) {
+        this.zlibPool = zlibPool;
+        nowrap = !parameters.withZlibHeader();
+        inflater = zlibPool != null ? zlibPool.borrowInflater(nowrap) : new Inflater(nowrap);
         in = new InflaterInputStream(countingStream = new CountingInputStream(inputStream), inflater);
     }
 
@@ -106,7 +130,12 @@ public void close() throws IOException {
         try {
             in.close();
         } finally {
-            inflater.end();
+            if (zlibPool == null) {
+                inflater.end();
+            } else if (!inflaterReleased) {
+                inflaterReleased = true;
+                zlibPool.returnInflater(inflater, nowrap);
+            }
         }
     }
 
@@ -36,6 +36,7 @@
 import org.apache.commons.compress.utils.CountingInputStream;
 import org.apache.commons.compress.utils.IOUtils;
 import org.apache.commons.compress.utils.InputStreamStatistics;
+import org.apache.commons.compress.utils.ZlibPool;
 
 /**
  * Input stream that decompresses .gz files.
@@ -100,7 +101,10 @@ public class GzipCompressorInputStream extends CompressorInputStream
     private int bufUsed;
 
     // Decompressor
-    private Inflater inf = new Inflater(true);
+    private Inflater inf;
+
+    // Pool the decompressor has been borrowed from, if any
+    private final ZlibPool zlibPool;
 
     // CRC32 from uncompressed data
     private final CRC32 crc = new CRC32();
@@ -154,6 +158,32 @@ public GzipCompressorInputStream(final InputStream inputStream)
     public GzipCompressorInputStream(final InputStream inputStream,
                                      final boolean decompressConcatenated)
             throws IOException {
+        this(inputStream, decompressConcatenated, null);
+    }
+
+    /**
+     * Constructs a new input stream that decompresses gzip-compressed data
+     * from the specified input stream, borrowing its inflater from a pool.
+     *
+     * @param inputStream  the InputStream from which this object should
+     *                     be created of
+     * @param decompressConcatenated
+     *                     if true, decompress until the end of the input;
+     *                     if false, stop after the first .gz member
+     * @param zlibPool     the pool to borrow the inflater from, it is
+     *                     returned once the end of the compressed data
+     *                     has been reached or the stream is closed. If
+     *                     null a new inflater is created.
+     *
+     * @throws IOException if the stream could not be created
+     * @since 1.20
+     */
+    public GzipCompressorInputStream(final InputStream inputStream,
+                                     final boolean decompressConcatenated,
+                                     final ZlibPool zlibPool)
+            throws IOException {
+        this.zlibPool = zlibPool;
+        inf = zlibPool != null ? zlibPool.borrowInflater(true) : new Inflater(true);
         countingStream = new CountingInputStream(inputStream);
         // Mark support is strictly needed for concatenated files only,
         // but it's simpler if it is always available.
@@ -354,8 +384,7 @@ public int read(final byte[] b, int off, int len) throws IOException {
 
                 // See if this is the end of the file.
                 if (!decompressConcatenated || !init(false)) {
-                    inf.end();
-                    inf = null;
+                    releaseInflater();
                     endReached = true;
                     return size == 0 ? -1 : size;
                 }
@@ -385,16 +414,24 @@ public static boolean matches(final byte[] signature, final int length) {
      */
     @Override
     public void close() throws IOException {
-        if (inf != null) {
-            inf.end();
-            inf = null;
-        }
+        releaseInflater();
 
         if (this.in != System.in) {
             this.in.close();
         }
     }
 
+    private void releaseInflater() {
+        if (inf != null) {
+            if (zlibPool != null) {
+                zlibPool.returnInflater(inf, true);
+            } else {
+                inf.end();
+            }
+            inf = null;
+        }
+    }
+
     /**
      * @since 1.17
      */
@@ -82,10 +82,10 @@ public GzipCompressorOutputStream(final OutputStream out, final GzipParameters p
         this.out = out;
         this.deflater = new Deflater(parameters.getCompressionLevel(), true);
 
-        writeHeader(parameters);
+        writeHeader(out, parameters);
     }
 
-    private void writeHeader(final GzipParameters parameters) throws IOException {
+    static void writeHeader(final OutputStream out, final GzipParameters parameters) throws IOException {
         final String filename = parameters.getFilename();
         final String comment = parameters.getComment();
 
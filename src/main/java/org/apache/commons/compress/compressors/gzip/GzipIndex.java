@@ -0,0 +1,372 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.compressors.gzip;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.compress.utils.BoundedPositionedReadInputStream;
+import org.apache.commons.compress.utils.IOUtils;
+
+/**
+ * Set of access points into a .gz file that allows decompression to
+ * start close to an arbitrary offset of the uncompressed data.
+ *
+ * <p>An access point consists of the bit offset of a deflate block
+ * inside the compressed file, the matching offset inside the
+ * uncompressed data and the up to 32 KiB of uncompressed data
+ * preceding it that are needed to resolve back-references. Access
+ * points are recorded by {@link GzipIndexingInputStream} while
+ * reading the whole file once, the start of each gzip member is an
+ * access point as well.</p>
+ *
+ * <p>The index can be stored using {@link #writeTo} and restored
+ * using {@link #readFrom}. The serialized form doesn't compress the
+ * windows, callers storing the index are expected to wrap the output
+ * in a compressing stream.</p>
+ *
+ * @Immutable
+ * @since 1.20
+ */
+public class GzipIndex {
+
+    /**
+     * Default minimum distance in uncompressed bytes between two access points.
+     */
+    public static final long DEFAULT_SPAN = 1024 * 1024;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private final List<AccessPoint> accessPoints;
+    private final long uncompressedSize;
+
+    GzipIndex(final List<AccessPoint> accessPoints, final long uncompressedSize) {
+        this.accessPoints = Collections.unmodifiableList(new ArrayList<>(accessPoints));
+        this.uncompressedSize = uncompressedSize;
+    }
+
+    /**
+     * The access points of this index ordered by their uncompressed offset.
+     * @return the access points of this index
+     */
+    public List<AccessPoint> getAccessPoints() {
+        return accessPoints;
+    }
+
+    /**
+     * The size of the uncompressed data of all gzip members.
+     * @return the size of the uncompressed data
+     */
+    public long getUncompressedSize() {
+        return uncompressedSize;
+    }
+
+    /**
+     * Opens a stream that returns the uncompressed data starting at
+     * the given offset.
+     *
+     * <p>Decompression starts at the closest access point in front of
+     * the offset. The returned streams read from the channel using
+     * positioned reads, it is safe to use several of them at the same
+     * time.</p>
+     *
+     * @param compressed the channel of the .gz file this index has been built for
+     * @param uncompressedOffset the offset inside of the uncompressed data
+     * @return stream of uncompressed data
+     * @throws IOException if the compressed data cannot be read
+     * @throws IllegalArgumentException if the offset is bigger than
+     * the size of the uncompressed data
+     */
+    public InputStream getInputStream(final SeekableByteChannel compressed, final long uncompressedOffset)
+        throws IOException {
+        if (uncompressedOffset < 0 || uncompressedOffset > uncompressedSize) {
+            throw new IllegalArgumentException("Offset " + uncompressedOffset
+                + " is outside of the uncompressed data");
+        }
+        final int accessPoint = findAccessPoint(uncompressedOffset);
+        final InputStream result = new ResumedInputStream(compressed, accessPoint);
+        final long toSkip = uncompressedOffset - accessPoints.get(accessPoint).uncompressedOffset;
+        if (IOUtils.skip(result, toSkip) != toSkip) {
+            result.close();
+            throw new EOFException("Truncated gzip file");
+        }
+        return result;
+    }
+
+    /**
+     * Writes the index.
+     * @param out where to write to
+     * @throws IOException if writing fails
+     */
+    public void writeTo(final DataOutput out) throws IOException {
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(uncompressedSize);
+        out.writeInt(accessPoints.size());
+        for (final AccessPoint p : accessPoints) {
+            out.writeLong(p.uncompressedOffset);
+            out.writeLong(p.compressedBitOffset);
+            out.writeBoolean(p.startOfMember);
+            out.writeInt(p.window.length);
+            out.write(p.window);
+        }
+    }
+
+    /**
+     * Reads an index previously written by {@link #writeTo}.
+     * @param in where to read from
+     * @return the index
+     * @throws IOException if reading fails or the data is not a valid index
+     */
+    public static GzipIndex readFrom(final DataInput in) throws IOException {
+        final int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported gzip index version " + version);
+        }
+        final long size = in.readLong();
+        final int count = in.readInt();
+        if (size < 0 || count < 1) {
+            throw new IOException("Corrupted gzip index");
+        }
+        final List<AccessPoint> points = new ArrayList<>();
+        long lastOffset = 0;
+        for (int i = 0; i < count; i++) {
+            final long uncompressedOffset = in.readLong();
+            final long bitOffset = in.readLong();
+            final boolean startOfMember = in.readBoolean();
+            final int windowLength = in.readInt();
+            if (uncompressedOffset < lastOffset || uncompressedOffset > size || bitOffset < 0
+                || windowLength < 0 || windowLength > PositionTrackingInflater.WINDOW_SIZE) {
+                throw new IOException("Corrupted gzip index");
+            }
+            final byte[] window = new byte[windowLength];
+            in.readFully(window);
+            points.add(new AccessPoint(uncompressedOffset, bitOffset, startOfMember, window));
+            lastOffset = uncompressedOffset;
+        }
+        return new GzipIndex(points, size);
+    }
+
+    // index of the last access point at or before the offset
+    private int findAccessPoint(final long uncompressedOffset) {
+        int low = 0;
+        int high = accessPoints.size() - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (accessPoints.get(mid).uncompressedOffset <= uncompressedOffset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * A point where decompression can be resumed.
+     */
+    public static final class AccessPoint {
+        private final long uncompressedOffset;
+        private final long compressedBitOffset;
+        private final boolean startOfMember;
+        private final byte[] window;
+
+        AccessPoint(final long uncompressedOffset, final long compressedBitOffset,
+            final boolean startOfMember, final byte[] window) {
+            this.uncompressedOffset = uncompressedOffset;
+            this.compressedBitOffset = compressedBitOffset;
+            this.startOfMember = startOfMember;
+            this.window = window;
+        }
+
+        /**
+         * Offset of the access point inside the uncompressed data.
+         * @return offset of the access point inside the uncompressed data
+         */
+        public long getUncompressedOffset() {
+            return uncompressedOffset;
+        }
+
+        /**
+         * Offset in bits of the access point inside the compressed file.
+         * @return offset in bits of the access point inside the compressed file
+         */
+        public long getCompressedBitOffset() {
+            return compressedBitOffset;
+        }
+
+        /**
+         * Whether the access point is the start of the deflate
+         * stream of a gzip member.
+         * @return whether the access point starts a gzip member
+         */
+        public boolean isStartOfMember() {
+            return startOfMember;
+        }
+
+        /**
+         * Size of the window stored for this access point.
+         * @return size of the window stored for this access point
+         */
+        public int getWindowSize() {
+            return window.length;
+        }
+    }
+
+    /**
+     * Inflates the deflate streams starting at an access point,
+     * continues with the next member once a member's deflate stream
+     * has been exhausted.
+     */
+    private class ResumedInputStream extends InputStream {
+        private final SeekableByteChannel channel;
+        private final byte[] oneByte = new byte[1];
+        private int accessPoint;
+        private long position;
+        private Inflater inflater;
+        private InputStream inflated;
+
+        ResumedInputStream(final SeekableByteChannel channel, final int accessPoint) throws IOException {
+            this.channel = channel;
+            open(accessPoint);
+        }
+
+        @Override
+        public int read() throws IOException {
+            return read(oneByte, 0, 1) == -1 ? -1 : oneByte[0] & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (inflated != null) {
+                final int read = inflated.read(b, off, len);
+                if (read > 0) {
+                    position += read;
+                    return read;
+                }
+                if (!inflater.finished()) {
+                    throw new EOFException("Truncated gzip file");
+                }
+                openNextMember();
+            }
+            return -1;
+        }
+
+        @Override
+        public void close() {
+            if (inflater != null) {
+                inflater.end();
+                inflater = null;
+                inflated = null;
+            }
+        }
+
+        private void openNextMember() throws IOException {
+            for (int i = accessPoint + 1; i < accessPoints.size(); i++) {
+                final AccessPoint p = accessPoints.get(i);
+                if (p.startOfMember && p.uncompressedOffset == position) {
+                    inflater.end();
+                    open(i);
+                    return;
+                }
+            }
+            close();
+        }
+
+        private void open(final int index) throws IOException {
+            accessPoint = index;
+            final AccessPoint p = accessPoints.get(index);
+            position = p.uncompressedOffset;
+            final long start = p.compressedBitOffset / 8;
+            final InputStream compressed = new BufferedInputStream(
+                new BoundedPositionedReadInputStream(start, channel.size() - start, channel));
+            inflater = new Inflater(true);
+            if (p.window.length > 0) {
+                inflater.setDictionary(p.window);
+            }
+            // Inflater with nowrap needs an extra dummy byte, see its javadocs
+            inflated = new InflaterInputStream(new SequenceInputStream(
+                new BitShiftingInputStream(compressed, (int) (p.compressedBitOffset % 8)),
+                new ByteArrayInputStream(new byte[1])), inflater);
+        }
+    }
+
+    /**
+     * Drops the given number of bits from the start of a stream so
+     * data that doesn't start at a byte boundary can be fed to {@link
+     * Inflater}.
+     */
+    private static class BitShiftingInputStream extends InputStream {
+        private final InputStream in;
+        private final int shift;
+        private int current = -2;
+
+        BitShiftingInputStream(final InputStream in, final int shift) {
+            this.in = in;
+            this.shift = shift;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (shift == 0) {
+                return in.read();
+            }
+            if (current == -2) {
+                current = in.read();
+            }
+            if (current == -1) {
+                return -1;
+            }
+            final int next = in.read();
+            final int result = (current >>> shift) | (next == -1 ? 0 : (next << (8 - shift)));
+            current = next;
+            return result & 0xFF;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if (shift == 0) {
+                return in.read(b, off, len);
+            }
+            int i = 0;
+            for (; i < len; i++) {
+                final int r = read();
+                if (r == -1) {
+                    break;
+                }
+                b[off + i] = (byte) r;
+            }
+            return i == 0 && len > 0 ? -1 : i;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.compressors.gzip;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.apache.commons.compress.compressors.CompressorInputStream;
+import org.apache.commons.compress.utils.ByteUtils;
+import org.apache.commons.compress.utils.InputStreamStatistics;
+
+/**
+ * Input stream that decompresses .gz files and builds a {@link
+ * GzipIndex} while doing so.
+ *
+ * <p>Concatenated .gz files are always decompressed completely. The
+ * index becomes available once the end of the stream has been
+ * reached.</p>
+ *
+ * <p>Decompression is done by a pure Java implementation that keeps
+ * track of the deflate block boundaries, it is a lot slower than
+ * {@link GzipCompressorInputStream}. You only want to use this
+ * class if you need the index.</p>
+ *
+ * @NotThreadSafe
+ * @since 1.20
+ */
+public class GzipIndexingInputStream extends CompressorInputStream
+    implements InputStreamStatistics {
+
+    // Header flags, see GzipCompressorInputStream
+    private static final int FHCRC = 0x02;
+    private static final int FEXTRA = 0x04;
+    private static final int FNAME = 0x08;
+    private static final int FCOMMENT = 0x10;
+    private static final int FRESERVED = 0xE0;
+
+    private final InputStream in;
+    private final long span;
+    private final PositionTrackingInflater inflater;
+    private final DataInput headerInput;
+    private final CRC32 crc = new CRC32();
+    private final List<GzipIndex.AccessPoint> accessPoints = new ArrayList<>();
+    private final byte[] oneByte = new byte[1];
+    private long lastAccessPoint;
+    private boolean endReached;
+
+    /**
+     * Constructs a new input stream that decompresses gzip-compressed
+     * data from the specified input stream using {@link
+     * GzipIndex#DEFAULT_SPAN} as distance between access points.
+     *
+     * @param inputStream the stream to read from, must be positioned
+     * at the start of the .gz file
+     * @throws IOException if the stream could not be created
+     */
+    public GzipIndexingInputStream(final InputStream inputStream) throws IOException {
+        this(inputStream, GzipIndex.DEFAULT_SPAN);
+    }
+
+    /**
+     * Constructs a new input stream that decompresses gzip-compressed
+     * data from the specified input stream.
+     *
+     * @param inputStream the stream to read from, must be positioned
+     * at the start of the .gz file
+     * @param span minimum number of uncompressed bytes between two
+     * access points. Access points can only be created at the start
+     * of a deflate block so the real distance is usually bigger.
+     * @throws IOException if the stream could not be created
+     * @throws IllegalArgumentException if span is not positive
+     */
+    public GzipIndexingInputStream(final InputStream inputStream, final long span) throws IOException {
+        if (span <= 0) {
+            throw new IllegalArgumentException("span must be positive");
+        }
+        this.in = inputStream;
+        this.span = span;
+        inflater = new PositionTrackingInflater(inputStream);
+        headerInput = new DataInputStream(new InputStream() {
+            @Override
+            public int read() throws IOException {
+                return inflater.readByteOrEof();
+            }
+        });
+        if (!startMember(true)) {
+            throw new IOException("Input is not in the .gz format");
+        }
+    }
+
+    /**
+     * The index built while reading the stream.
+     * @return the index
+     * @throws IllegalStateException if the end of the stream has not been reached, yet
+     */
+    public GzipIndex getIndex() {
+        if (!endReached) {
+            throw new IllegalStateException("The stream must be read completely before the index is available");
+        }
+        return new GzipIndex(accessPoints, getBytesRead());
+    }
+
+    @Override
+    public int read() throws IOException {
+        return read(oneByte, 0, 1) == -1 ? -1 : oneByte[0] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (!endReached) {
+            if (inflater.isAtBlockBoundary() && getBytesRead() - lastAccessPoint >= span) {
+                lastAccessPoint = getBytesRead();
+                accessPoints.add(new GzipIndex.AccessPoint(lastAccessPoint, inflater.getBitPosition(), false,
+                    inflater.getWindow()));
+            }
+            final int read = inflater.inflate(b, off, len);
+            if (read > 0) {
+                crc.update(b, off, read);
+                count(read);
+                return read;
+            }
+            finishMember();
+            if (!startMember(false)) {
+                endReached = true;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if the signature matches what is expected for a .gz file.
+     *
+     * @param signature the bytes to check
+     * @param length    the number of bytes to check
+     * @return          true if this is a .gz stream, false otherwise
+     */
+    public static boolean matches(final byte[] signature, final int length) {
+        return GzipCompressorInputStream.matches(signature, length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.in != System.in) {
+            this.in.close();
+        }
+    }
+
+    @Override
+    public long getCompressedCount() {
+        return inflater.getBitPosition() / 8;
+    }
+
+    private boolean startMember(final boolean isFirstMember) throws IOException {
+        final int magic0 = inflater.readByteOrEof();
+        if (magic0 == -1 && !isFirstMember) {
+            return false;
+        }
+        if (magic0 != 31 || inflater.readByteOrEof() != 139) {
+            throw new IOException(isFirstMember
+                                  ? "Input is not in the .gz format"
+                                  : "Garbage after a valid .gz stream");
+        }
+        final int method = headerInput.readUnsignedByte();
+        if (method != Deflater.DEFLATED) {
+            throw new IOException("Unsupported compression method "
+                                  + method + " in the .gz header");
+        }
+        final int flg = headerInput.readUnsignedByte();
+        if ((flg & FRESERVED) != 0) {
+            throw new IOException("Reserved flags are set in the .gz header");
+        }
+        // modification time, extra flags and operating system
+        headerInput.skipBytes(6);
+        if ((flg & FEXTRA) != 0) {
+            int xlen = headerInput.readUnsignedByte();
+            xlen |= headerInput.readUnsignedByte() << 8;
+            while (xlen-- > 0) {
+                headerInput.readUnsignedByte();
+            }
+        }
+        if ((flg & FNAME) != 0) {
+            skipToNull();
+        }
+        if ((flg & FCOMMENT) != 0) {
+            skipToNull();
+        }
+        if ((flg & FHCRC) != 0) {
+            headerInput.readShort();
+        }
+        inflater.reset();
+        crc.reset();
+        lastAccessPoint = getBytesRead();
+        accessPoints.add(new GzipIndex.AccessPoint(lastAccessPoint, inflater.getBitPosition(), true,
+            new byte[0]));
+        return true;
+    }
+
+    private void skipToNull() throws IOException {
+        while (headerInput.readUnsignedByte() != 0x00) { // NOPMD NOSONAR
+            // skip
+        }
+    }
+
+    private void finishMember() throws IOException {
+        inflater.alignToByte();
+        try {
+            if (ByteUtils.fromLittleEndian(headerInput, 4) != crc.getValue()) {
+                throw new IOException("Gzip-compressed data is corrupt (CRC32 error)");
+            }
+            if (ByteUtils.fromLittleEndian(headerInput, 4) != (inflater.getBytesWritten() & 0xffffffffL)) {
+                throw new IOException("Gzip-compressed data is corrupt (uncompressed size mismatch)");
+            }
+        } catch (final EOFException ex) { // NOSONAR
+            throw new IOException("Truncated gzip file");
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.compressors.gzip;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.compressors.CompressorOutputStream;
+import org.apache.commons.compress.utils.ParallelDeflateUtils;
+import org.apache.commons.compress.utils.ParallelDeflateUtils.DeflatedChunk;
+
+/**
+ * Compressed output stream using the gzip format that deflates
+ * chunks of the input in parallel, similar to what pigz does.
+ *
+ * <p>The input is split into chunks of a fixed size that are
+ * deflated by an {@link ExecutorService}. Each chunk uses the last
+ * 32 KiB of the previous chunk as preset dictionary and ends with a
+ * sync flush, so the compressed chunks can be concatenated to a
+ * single deflate stream. The result is a standard single member .gz
+ * file, the compression ratio is only slightly worse than the one of
+ * {@link GzipCompressorOutputStream}.</p>
+ *
+ * <p>{@link #flush} only flushes the underlying stream, data that
+ * has not been compressed, yet, is not written.</p>
+ *
+ * @NotThreadSafe
+ * @since 1.20
+ */
+public class ParallelGzipCompressorOutputStream extends CompressorOutputStream {
+
+    /** Default size of the chunks compressed in parallel. */
+    public static final int DEFAULT_CHUNK_SIZE = 128 * 1024;
+
+    private static final int DICTIONARY_SIZE = ParallelDeflateUtils.DICTIONARY_SIZE;
+
+    private final OutputStream out;
+    private final ExecutorService executor;
+    private final int level;
+    private final int maxChunksInFlight;
+    private final Deque<Future<DeflatedChunk>> chunksInFlight = new ArrayDeque<>();
+
+    private byte[] chunk;
+    private int chunkLength;
+    private byte[] dictionary;
+
+    private long crc;
+    private long totalIn;
+    private boolean finished;
+    private boolean closed;
+
+    /**
+     * Creates a gzip compressed output stream with the default
+     * parameters and chunk size, at most as many chunks as there are
+     * available processors are compressed at the same time.
+     *
+     * @param out the stream to compress to
+     * @param executor the executor that compresses the chunks, it is
+     * not shut down by this stream
+     * @throws IOException if writing fails
+     */
+    public ParallelGzipCompressorOutputStream(final OutputStream out, final ExecutorService executor)
+        throws IOException {
+        this(out, new GzipParameters(), executor, DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a gzip compressed output stream with the specified parameters.
+     *
+     * @param out the stream to compress to
+     * @param parameters the parameters to use
+     * @param executor the executor that compresses the chunks, it is
+     * not shut down by this stream
+     * @param chunkSize size of the chunks compressed in parallel, must
+     * be at least 32 KiB
+     * @param maxChunksInFlight maximum number of chunks handed to the
+     * executor that haven't been written, yet
+     * @throws IOException if writing fails
+     * @throws IllegalArgumentException if chunkSize is smaller than 32
+     * KiB or maxChunksInFlight is smaller than 1
+     */
+    public ParallelGzipCompressorOutputStream(final OutputStream out, final GzipParameters parameters,
+        final ExecutorService executor, final int chunkSize, final int maxChunksInFlight) throws IOException {
+        if (chunkSize < DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("chunkSize must be at least " + DICTIONARY_SIZE);
+        }
+        if (maxChunksInFlight < 1) {
+            throw new IllegalArgumentException("maxChunksInFlight must be positive");
+        }
+        this.out = out;
+        this.executor = executor;
+        this.level = parameters.getCompressionLevel();
+        this.maxChunksInFlight = maxChunksInFlight;
+        this.chunk = new byte[chunkSize];
+        GzipCompressorOutputStream.writeHeader(out, parameters);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        write(new byte[]{(byte) (b & 0xff)}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] buffer, int offset, int length) throws IOException {
+        if (finished) {
+            throw new IOException("Cannot write more data, the end of the compressed data stream has been reached");
+        }
+        while (length > 0) {
+            if (chunkLength == chunk.length) {
+                submitChunk(false);
+            }
+            final int n = Math.min(length, chunk.length - chunkLength);
+            System.arraycopy(buffer, offset, chunk, chunkLength, n);
+            chunkLength += n;
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Finishes writing compressed data to the underlying stream without closing it.
+     *
+     * @throws IOException on error
+     */
+    public void finish() throws IOException {
+        if (!finished) {
+            finished = true;
+            try {
+                submitChunk(true);
+                while (!chunksInFlight.isEmpty()) {
+                    writeOldestChunk();
+                }
+            } finally {
+                for (final Future<DeflatedChunk> f : chunksInFlight) {
+                    f.cancel(true);
+                }
+                chunksInFlight.clear();
+                chunk = null;
+                dictionary = null;
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate(8);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt((int) crc);
+            buffer.putInt((int) totalIn);
+            out.write(buffer.array());
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            try {
+                finish();
+            } finally {
+                out.close();
+                closed = true;
+            }
+        }
+    }
+
+    private void submitChunk(final boolean last) throws IOException {
+        while (chunksInFlight.size() >= maxChunksInFlight) {
+            writeOldestChunk();
+        }
+        final byte[] data = chunk;
+        final int length = chunkLength;
+        final byte[] dict = dictionary;
+        final int compressionLevel = level;
+        chunksInFlight.add(executor.submit(new Callable<DeflatedChunk>() {
+            @Override
+            public DeflatedChunk call() {
+                return ParallelDeflateUtils.deflateChunk(data, length, dict, compressionLevel, last);
+            }
+        }));
+        if (!last) {
+            dictionary = Arrays.copyOfRange(data, length - DICTIONARY_SIZE, length);
+            chunk = new byte[data.length];
+            chunkLength = 0;
+        }
+    }
+
+    private void writeOldestChunk() throws IOException {
+        final DeflatedChunk compressed;
+        try {
+            compressed = chunksInFlight.remove().get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a compressed chunk");
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+        out.write(compressed.getData(), 0, compressed.getLength());
+        crc = ParallelDeflateUtils.combineCrc32(crc, compressed.getCrc32(), compressed.getSize());
+        totalIn += compressed.getSize();
+    }
+}
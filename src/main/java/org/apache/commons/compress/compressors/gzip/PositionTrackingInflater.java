@@ -0,0 +1,438 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.compressors.gzip;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Pure Java inflater for raw deflate data that keeps track of the
+ * exact bit position inside the compressed input and knows when it
+ * is positioned at the start of a deflate block.
+ *
+ * <p>This is a lot slower than {@link java.util.zip.Inflater} and
+ * only used while building a {@link GzipIndex}, the access points
+ * recorded this way are resumed using {@link java.util.zip.Inflater}
+ * later.</p>
+ *
+ * <p>In addition to the deflate data this class provides byte aligned
+ * access to the underlying stream so the gzip header and trailer can
+ * be read using the same instance.</p>
+ *
+ * @NotThreadSafe
+ * @since 1.20
+ */
+class PositionTrackingInflater {
+
+    /** Size of the deflate window. */
+    static final int WINDOW_SIZE = 1 << 15;
+
+    private static final int[] LENGTH_BASE = {
+        3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31,
+        35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258
+    };
+    private static final int[] LENGTH_EXTRA = {
+        0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2,
+        3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0
+    };
+    private static final int[] DISTANCE_BASE = {
+        1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193,
+        257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145,
+        8193, 12289, 16385, 24577
+    };
+    private static final int[] DISTANCE_EXTRA = {
+        0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6,
+        7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13
+    };
+    private static final int[] CODE_LENGTH_ORDER = {
+        16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15
+    };
+    private static final int MAX_BITS = 15;
+
+    private static final Huffman FIXED_LITERALS;
+    private static final Huffman FIXED_DISTANCES;
+
+    static {
+        final int[] lengths = new int[288];
+        int i = 0;
+        for (; i < 144; i++) {
+            lengths[i] = 8;
+        }
+        for (; i < 256; i++) {
+            lengths[i] = 9;
+        }
+        for (; i < 280; i++) {
+            lengths[i] = 7;
+        }
+        for (; i < 288; i++) {
+            lengths[i] = 8;
+        }
+        FIXED_LITERALS = new Huffman(lengths, 0, 288);
+        final int[] distances = new int[30];
+        for (i = 0; i < 30; i++) {
+            distances[i] = 5;
+        }
+        FIXED_DISTANCES = new Huffman(distances, 0, 30);
+    }
+
+    private enum State {
+        BLOCK_START, STORED, CODES, END_OF_STREAM
+    }
+
+    private final InputStream in;
+    private final byte[] inBuffer = new byte[8192];
+    private int inPos, inLen;
+    // number of bytes read from in before the start of inBuffer
+    private long inBase;
+    private long bitBuffer;
+    private int bitsCached;
+
+    private final byte[] window = new byte[WINDOW_SIZE];
+    private long totalOut;
+
+    private State state = State.BLOCK_START;
+    private boolean lastBlock;
+    private int storedRemaining;
+    private Huffman literals, distances;
+    private int copyLength, copyDistance;
+
+    /**
+     * @param in the compressed input, positioned at the start of the
+     * stream
+     */
+    PositionTrackingInflater(final InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Prepares the inflater for a new raw deflate stream starting at
+     * the current (byte aligned) position.
+     */
+    void reset() {
+        state = State.BLOCK_START;
+        lastBlock = false;
+        totalOut = 0;
+        copyLength = 0;
+    }
+
+    /**
+     * The number of bits consumed from the underlying stream.
+     * @return the number of bits consumed from the underlying stream
+     */
+    long getBitPosition() {
+        return (inBase + inPos) * 8 - bitsCached;
+    }
+
+    /**
+     * The number of bytes that have been inflated since the last reset.
+     * @return the number of bytes that have been inflated since the last reset
+     */
+    long getBytesWritten() {
+        return totalOut;
+    }
+
+    /**
+     * Whether the inflater is positioned right in front of the header
+     * of a deflate block which is not the first block of the stream.
+     * @return true if the next bit to read starts a deflate block
+     */
+    boolean isAtBlockBoundary() {
+        return state == State.BLOCK_START && !lastBlock && totalOut > 0 && copyLength == 0;
+    }
+
+    /**
+     * Whether the final block of the deflate stream has been inflated completely.
+     * @return true if the end of the deflate stream has been reached
+     */
+    boolean finished() {
+        return state == State.END_OF_STREAM && copyLength == 0;
+    }
+
+    /**
+     * Returns the last up to 32 KiB of inflated data in order.
+     * @return the current contents of the deflate window
+     */
+    byte[] getWindow() {
+        final int size = (int) Math.min(totalOut, WINDOW_SIZE);
+        final byte[] result = new byte[size];
+        final int end = (int) (totalOut & (WINDOW_SIZE - 1));
+        if (size == WINDOW_SIZE) {
+            System.arraycopy(window, end, result, 0, WINDOW_SIZE - end);
+            System.arraycopy(window, 0, result, WINDOW_SIZE - end, end);
+        } else {
+            System.arraycopy(window, 0, result, 0, size);
+        }
+        return result;
+    }
+
+    /**
+     * Inflates data, stops early at the end of a deflate block.
+     * @return number of bytes inflated, -1 once the end of the stream has been reached
+     */
+    int inflate(final byte[] b, final int off, final int len) throws IOException {
+        int produced = 0;
+        while (produced < len) {
+            if (copyLength > 0) {
+                produced += copyFromWindow(b, off + produced, len - produced);
+                continue;
+            }
+            switch (state) {
+            case BLOCK_START:
+                if (produced > 0) {
+                    return produced;
+                }
+                if (lastBlock) {
+                    state = State.END_OF_STREAM;
+                    continue;
+                }
+                readBlockHeader();
+                break;
+            case STORED:
+                if (storedRemaining == 0) {
+                    state = State.BLOCK_START;
+                    break;
+                }
+                final int n = Math.min(storedRemaining, len - produced);
+                for (int i = 0; i < n; i++) {
+                    output(b, off + produced++, (byte) readAlignedByte());
+                }
+                storedRemaining -= n;
+                break;
+            case CODES:
+                final int symbol = decode(literals);
+                if (symbol < 256) {
+                    output(b, off + produced++, (byte) symbol);
+                } else if (symbol == 256) {
+                    state = State.BLOCK_START;
+                } else {
+                    final int lengthCode = symbol - 257;
+                    if (lengthCode >= LENGTH_BASE.length) {
+                        throw new IOException("Invalid length code " + symbol);
+                    }
+                    copyLength = LENGTH_BASE[lengthCode] + (int) readBits(LENGTH_EXTRA[lengthCode]);
+                    final int distanceCode = decode(distances);
+                    if (distanceCode >= DISTANCE_BASE.length) {
+                        throw new IOException("Invalid distance code " + distanceCode);
+                    }
+                    copyDistance = DISTANCE_BASE[distanceCode] + (int) readBits(DISTANCE_EXTRA[distanceCode]);
+                    if (copyDistance > totalOut) {
+                        throw new IOException("Invalid distance " + copyDistance + " too far back");
+                    }
+                }
+                break;
+            default: // END_OF_STREAM
+                return produced == 0 ? -1 : produced;
+            }
+        }
+        return produced;
+    }
+
+    /**
+     * Skips the remaining bits of the current byte.
+     */
+    void alignToByte() {
+        final int drop = bitsCached % 8;
+        bitBuffer >>>= drop;
+        bitsCached -= drop;
+    }
+
+    /**
+     * Reads a single byte, must only be called when byte aligned.
+     * @return the byte read or -1 at the end of the stream
+     */
+    int readByteOrEof() throws IOException {
+        if (bitsCached >= 8) {
+            final int result = (int) (bitBuffer & 0xff);
+            bitBuffer >>>= 8;
+            bitsCached -= 8;
+            return result;
+        }
+        return nextInputByte();
+    }
+
+    private int readAlignedByte() throws IOException {
+        final int b = readByteOrEof();
+        if (b == -1) {
+            throw new EOFException("Truncated deflate stream");
+        }
+        return b;
+    }
+
+    private void output(final byte[] b, final int off, final byte value) {
+        b[off] = value;
+        window[(int) (totalOut++ & (WINDOW_SIZE - 1))] = value;
+    }
+
+    private int copyFromWindow(final byte[] b, final int off, final int len) {
+        final int n = Math.min(copyLength, len);
+        for (int i = 0; i < n; i++) {
+            output(b, off + i, window[(int) ((totalOut - copyDistance) & (WINDOW_SIZE - 1))]);
+        }
+        copyLength -= n;
+        return n;
+    }
+
+    private void readBlockHeader() throws IOException {
+        lastBlock = readBits(1) == 1;
+        final int type = (int) readBits(2);
+        switch (type) {
+        case 0:
+            alignToByte();
+            final int length = (int) readBits(16);
+            final int complement = (int) readBits(16);
+            if (length != (~complement & 0xffff)) {
+                throw new IOException("Invalid stored block length");
+            }
+            storedRemaining = length;
+            state = State.STORED;
+            break;
+        case 1:
+            literals = FIXED_LITERALS;
+            distances = FIXED_DISTANCES;
+            state = State.CODES;
+            break;
+        case 2:
+            readDynamicTables();
+            state = State.CODES;
+            break;
+        default:
+            throw new IOException("Invalid deflate block type " + type);
+        }
+    }
+
+    private void readDynamicTables() throws IOException {
+        final int literalCount = (int) readBits(5) + 257;
+        final int distanceCount = (int) readBits(5) + 1;
+        final int codeLengthCount = (int) readBits(4) + 4;
+        if (literalCount > 286 || distanceCount > 30) {
+            throw new IOException("Invalid dynamic Huffman table sizes");
+        }
+        final int[] codeLengthLengths = new int[19];
+        for (int i = 0; i < codeLengthCount; i++) {
+            codeLengthLengths[CODE_LENGTH_ORDER[i]] = (int) readBits(3);
+        }
+        final Huffman codeLengths = new Huffman(codeLengthLengths, 0, 19);
+        final int[] lengths = new int[literalCount + distanceCount];
+        int index = 0;
+        while (index < lengths.length) {
+            final int symbol = decode(codeLengths);
+            if (symbol < 16) {
+                lengths[index++] = symbol;
+                continue;
+            }
+            int value = 0;
+            int repeat;
+            if (symbol == 16) {
+                if (index == 0) {
+                    throw new IOException("Repeat code without previous length");
+                }
+                value = lengths[index - 1];
+                repeat = 3 + (int) readBits(2);
+            } else if (symbol == 17) {
+                repeat = 3 + (int) readBits(3);
+            } else {
+                repeat = 11 + (int) readBits(7);
+            }
+            if (index + repeat > lengths.length) {
+                throw new IOException("Too many code lengths in dynamic Huffman table");
+            }
+            while (repeat-- > 0) {
+                lengths[index++] = value;
+            }
+        }
+        if (lengths[256] == 0) {
+            throw new IOException("Dynamic Huffman table lacks an end-of-block code");
+        }
+        literals = new Huffman(lengths, 0, literalCount);
+        distances = new Huffman(lengths, literalCount, distanceCount);
+    }
+
+    private int decode(final Huffman h) throws IOException {
+        int code = 0;
+        int first = 0;
+        int index = 0;
+        for (int len = 1; len <= MAX_BITS; len++) {
+            code |= (int) readBits(1);
+            final int count = h.count[len];
+            if (code - count < first) {
+                return h.symbol[index + (code - first)];
+            }
+            index += count;
+            first += count;
+            first <<= 1;
+            code <<= 1;
+        }
+        throw new IOException("Invalid Huffman code");
+    }
+
+    private long readBits(final int n) throws IOException {
+        while (bitsCached < n) {
+            final int b = nextInputByte();
+            if (b == -1) {
+                throw new EOFException("Truncated deflate stream");
+            }
+            bitBuffer |= ((long) b) << bitsCached;
+            bitsCached += 8;
+        }
+        final long result = bitBuffer & ((1L << n) - 1);
+        bitBuffer >>>= n;
+        bitsCached -= n;
+        return result;
+    }
+
+    private int nextInputByte() throws IOException {
+        if (inPos == inLen) {
+            inBase += inLen;
+            inPos = inLen = 0;
+            final int n = in.read(inBuffer);
+            if (n <= 0) {
+                return -1;
+            }
+            inLen = n;
+        }
+        return inBuffer[inPos++] & 0xff;
+    }
+
+    /**
+     * Canonical Huffman code stored as number of codes per length and
+     * symbols ordered by code.
+     */
+    private static final class Huffman {
+        private final int[] count = new int[MAX_BITS + 1];
+        private final int[] symbol;
+
+        Huffman(final int[] lengths, final int offset, final int n) {
+            symbol = new int[n];
+            for (int i = 0; i < n; i++) {
+                count[lengths[offset + i]]++;
+            }
+            final int[] offsets = new int[MAX_BITS + 2];
+            for (int len = 1; len <= MAX_BITS; len++) {
+                offsets[len + 1] = offsets[len] + count[len];
+            }
+            for (int i = 0; i < n; i++) {
+                if (lengths[offset + i] != 0) {
+                    symbol[offsets[lengths[offset + i]]++] = i;
+                }
+            }
+            count[0] = 0;
+        }
+    }
+}
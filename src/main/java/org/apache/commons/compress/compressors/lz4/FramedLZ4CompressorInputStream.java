@@ -18,9 +18,17 @@
  */
 package org.apache.commons.compress.compressors.lz4;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.compress.compressors.CompressorInputStream;
 import org.apache.commons.compress.utils.BoundedInputStream;
@@ -35,6 +43,14 @@
  *
  * <p>Based on the "spec" in the version "1.5.1 (31/03/2015)"</p>
  *
+ * <p>If an {@link ExecutorService} has been provided, frames with
+ * independent blocks are decompressed by reading several blocks
+ * ahead and decoding them in parallel. At most {@code
+ * maxBlocksInFlight} blocks - each of them no bigger than the
+ * maximum block size of the frame - are held in memory at any
+ * time. Frames with dependent blocks are always decompressed
+ * sequentially.</p>
+ *
  * @see <a href="http://lz4.github.io/lz4/lz4_Frame_format.html">LZ4 Frame Format Description</a>
  * @since 1.14
  * @NotThreadSafe
@@ -90,6 +106,13 @@ public int getAsByte() throws IOException {
     // only created if the frame doesn't set the block independence flag
     private byte[] blockDependencyBuffer;
 
+    // only used when decoding blocks in parallel
+    private final ExecutorService executor;
+    private final int maxBlocksInFlight;
+    private final Deque<Future<DecodedBlock>> blocksInFlight = new ArrayDeque<>();
+    private boolean readAhead, endMarkRead;
+    private int maxBlockSize;
+
     /**
      * Creates a new input stream that decompresses streams compressed
      * using the LZ4 frame format and stops after decompressing the
@@ -112,6 +135,54 @@ public FramedLZ4CompressorInputStream(InputStream in) throws IOException {
      * @throws IOException if reading fails
      */
     public FramedLZ4CompressorInputStream(InputStream in, boolean decompressConcatenated) throws IOException {
+        this(in, decompressConcatenated, null, 0);
+    }
+
+    /**
+     * Creates a new input stream that decompresses streams compressed
+     * using the LZ4 frame format, stops after decompressing the first
+     * frame and decodes independent blocks in parallel.
+     *
+     * <p>At most as many blocks as there are available processors
+     * are read ahead.</p>
+     *
+     * @param in  the InputStream from which to read the compressed data
+     * @param executor the executor that decodes the blocks, it is
+     * not shut down by this stream
+     * @throws IOException if reading fails
+     * @since 1.20
+     */
+    public FramedLZ4CompressorInputStream(InputStream in, ExecutorService executor) throws IOException {
+        this(in, false, executor, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new input stream that decompresses streams compressed
+     * using the LZ4 frame format and decodes independent blocks in
+     * parallel.
+     *
+     * @param in  the InputStream from which to read the compressed data
+     * @param decompressConcatenated if true, decompress until the end
+     *          of the input; if false, stop after the first LZ4 frame
+     *          and leave the input position to point to the next byte
+     *          after the frame stream
+     * @param executor the executor that decodes the blocks, it is
+     * not shut down by this stream. If null blocks are decoded
+     * sequentially.
+     * @param maxBlocksInFlight the maximum number of blocks that are
+     * read ahead and handed to the executor
+     * @throws IOException if reading fails
+     * @throws IllegalArgumentException if an executor has been
+     * provided and maxBlocksInFlight is smaller than 1
+     * @since 1.20
+     */
+    public FramedLZ4CompressorInputStream(InputStream in, boolean decompressConcatenated, ExecutorService executor,
+        int maxBlocksInFlight) throws IOException {
+        if (executor != null && maxBlocksInFlight < 1) {
+            throw new IllegalArgumentException("maxBlocksInFlight must be positive");
+        }
+        this.executor = executor;
+        this.maxBlocksInFlight = maxBlocksInFlight;
         this.inputStream = new CountingInputStream(in);
         this.decompressConcatenated = decompressConcatenated;
         init(true);
@@ -127,6 +198,7 @@ public int read() throws IOException {
     @Override
     public void close() throws IOException {
         try {
+            cancelBlocksInFlight();
             if (currentBlock != null) {
                 currentBlock.close();
                 currentBlock = null;
@@ -221,14 +293,22 @@ private void readFrameDescriptor() throws IOException {
         } else {
             blockDependencyBuffer = null;
         }
+        readAhead = executor != null && !expectBlockDependency;
+        endMarkRead = false;
         expectBlockChecksum = (flags & BLOCK_CHECKSUM_MASK) != 0;
         expectContentSize = (flags & CONTENT_SIZE_MASK) != 0;
         expectContentChecksum = (flags & CONTENT_CHECKSUM_MASK) != 0;
         int bdByte = readOneByte();
-        if (bdByte == -1) { // max size is irrelevant for this implementation
+        if (bdByte == -1) {
             throw new IOException("Premature end of stream while reading frame BD byte");
         }
         contentHash.update(bdByte);
+        final int blockMaxSizeId = (bdByte & BLOCK_MAX_SIZE_MASK) >> 4;
+        // ids 4 to 7 stand for 64k, 256k, 1M and 4M, the others are reserved
+        if (blockMaxSizeId < 4) {
+            throw new IOException("unsupported block maximum size id");
+        }
+        maxBlockSize = 1 << (2 * blockMaxSizeId + 8);
         if (expectContentSize) { // for now we don't care, contains the uncompressed size
             byte[] contentSize = new byte[8];
             int skipped = IOUtils.readFully(inputStream, contentSize);
@@ -251,6 +331,10 @@ private void readFrameDescriptor() throws IOException {
 
     private void nextBlock() throws IOException {
         maybeFinishCurrentBlock();
+        if (readAhead) {
+            nextDecodedBlock();
+            return;
+        }
         long len = ByteUtils.fromLittleEndian(supplier, 4);
         boolean uncompressed = (len & UNCOMPRESSED_FLAG_MASK) != 0;
         int realLen = (int) (len & (~UNCOMPRESSED_FLAG_MASK));
@@ -258,12 +342,7 @@ private void nextBlock() throws IOException {
             throw new IOException("Found illegal block with negative size");
         }
         if (realLen == 0) {
-            verifyContentChecksum();
-            if (!decompressConcatenated) {
-                endReached = true;
-            } else {
-                init(false);
-            }
+            endOfFrame();
             return;
         }
         InputStream capped = new BoundedInputStream(inputStream, realLen);
@@ -283,11 +362,117 @@ private void nextBlock() throws IOException {
         }
     }
 
+    private void endOfFrame() throws IOException {
+        verifyContentChecksum();
+        if (!decompressConcatenated) {
+            endReached = true;
+        } else {
+            init(false);
+        }
+    }
+
+    private void nextDecodedBlock() throws IOException {
+        fillReadAheadQueue();
+        if (blocksInFlight.isEmpty()) {
+            endOfFrame();
+            return;
+        }
+        final DecodedBlock block;
+        try {
+            block = blocksInFlight.remove().get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a decoded block");
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+        // keep the executor busy while the caller consumes this block
+        fillReadAheadQueue();
+        inUncompressed = true;
+        currentBlock = new ByteArrayInputStream(block.data, 0, block.length);
+    }
+
+    /**
+     * Reads blocks until either maxBlocksInFlight blocks are waiting
+     * to be consumed or the end mark of the frame has been read.
+     */
+    private void fillReadAheadQueue() throws IOException {
+        while (!endMarkRead && blocksInFlight.size() < maxBlocksInFlight) {
+            final long len = ByteUtils.fromLittleEndian(supplier, 4);
+            final boolean uncompressed = (len & UNCOMPRESSED_FLAG_MASK) != 0;
+            final int realLen = (int) (len & (~UNCOMPRESSED_FLAG_MASK));
+            if (realLen < 0) {
+                throw new IOException("Found illegal block with negative size");
+            }
+            if (realLen == 0) {
+                endMarkRead = true;
+                return;
+            }
+            if (realLen > maxBlockSize) {
+                throw new IOException("Block size " + realLen + " exceeds the maximum block size " + maxBlockSize);
+            }
+            final byte[] data = new byte[realLen];
+            if (IOUtils.readFully(inputStream, data) != realLen) {
+                throw new IOException("Premature end of stream while reading block");
+            }
+            final long checksum;
+            if (expectBlockChecksum) {
+                final byte[] b = new byte[4];
+                final int read = IOUtils.readFully(inputStream, b);
+                count(read);
+                if (4 != read) {
+                    throw new IOException("Premature end of stream while reading block checksum");
+                }
+                checksum = ByteUtils.fromLittleEndian(b);
+            } else {
+                checksum = -1;
+            }
+            final boolean verifyChecksum = expectBlockChecksum;
+            final int maxSize = maxBlockSize;
+            blocksInFlight.add(executor.submit(new Callable<DecodedBlock>() {
+                @Override
+                public DecodedBlock call() throws IOException {
+                    return decodeBlock(data, uncompressed, verifyChecksum, checksum, maxSize);
+                }
+            }));
+        }
+    }
+
+    private static DecodedBlock decodeBlock(final byte[] data, final boolean uncompressed,
+        final boolean verifyChecksum, final long checksum, final int maxBlockSize) throws IOException {
+        if (verifyChecksum) {
+            final XXHash32 hash = new XXHash32();
+            hash.update(data, 0, data.length);
+            if (hash.getValue() != checksum) {
+                throw new IOException("block checksum mismatch.");
+            }
+        }
+        if (uncompressed) {
+            return new DecodedBlock(data, data.length);
+        }
+        final byte[] decoded = new byte[maxBlockSize];
+        try (BlockLZ4CompressorInputStream s = new BlockLZ4CompressorInputStream(new ByteArrayInputStream(data))) {
+            final int length = IOUtils.readFully(s, decoded);
+            if (length == decoded.length && s.read() != -1) {
+                throw new IOException("Decompressed block exceeds the maximum block size " + maxBlockSize);
+            }
+            return new DecodedBlock(decoded, length);
+        }
+    }
+
+    private void cancelBlocksInFlight() {
+        for (final Future<DecodedBlock> f : blocksInFlight) {
+            f.cancel(true);
+        }
+        blocksInFlight.clear();
+    }
+
     private void maybeFinishCurrentBlock() throws IOException {
         if (currentBlock != null) {
             currentBlock.close();
             currentBlock = null;
-            if (expectBlockChecksum) {
+            if (expectBlockChecksum && !readAhead) {
                 verifyChecksum(blockHash, "block");
                 blockHash.reset();
             }
@@ -336,6 +521,16 @@ private int readOnce(byte[] b, int off, int len) throws IOException {
         return cnt;
     }
 
+    private static final class DecodedBlock {
+        private final byte[] data;
+        private final int length;
+
+        DecodedBlock(final byte[] data, final int length) {
+            this.data = data;
+            this.length = length;
+        }
+    }
+
     private static boolean isSkippableFrameSignature(byte[] b) {
         if ((b[0] & SKIPPABLE_FRAME_PREFIX_BYTE_MASK) != SKIPPABLE_FRAME_PREFIX_BYTE_MASK) {
             return false;
@@ -20,7 +20,14 @@
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.compress.compressors.CompressorOutputStream;
 import org.apache.commons.compress.utils.ByteUtils;
@@ -30,6 +37,12 @@
  *
  * <p>Based on the "spec" in the version "1.5.1 (31/03/2015)"</p>
  *
+ * <p>If the parameters request independent blocks an {@link
+ * ExecutorService} can be used to compress several blocks and
+ * compute their checksums in parallel. Blocks are written in order
+ * and the content checksum is still computed on the writing
+ * thread.</p>
+ *
  * @see <a href="http://lz4.github.io/lz4/lz4_Frame_format.html">LZ4 Frame Format Description</a>
  * @since 1.14
  * @NotThreadSafe
@@ -41,7 +54,7 @@ public class FramedLZ4CompressorOutputStream extends CompressorOutputStream {
     // used in one-arg write method
     private final byte[] oneByte = new byte[1];
 
-    private final byte[] blockData;
+    private byte[] blockData;
     private final OutputStream out;
     private final Parameters params;
     private boolean finished = false;
@@ -56,6 +69,12 @@ public class FramedLZ4CompressorOutputStream extends CompressorOutputStream {
     private byte[] blockDependencyBuffer;
     private int collectedBlockDependencyBytes;
 
+    // only used when compressing blocks in parallel
+    private final ExecutorService executor;
+    private final int maxBlocksInFlight;
+    private final Deque<Future<CompressedBlock>> blocksInFlight = new ArrayDeque<>();
+    private final Deque<byte[]> idleBlockBuffers = new ArrayDeque<>();
+
     /**
      * The block sizes supported by the format.
      */
@@ -188,6 +207,57 @@ public FramedLZ4CompressorOutputStream(OutputStream out) throws IOException {
      * @throws IOException if writing the signature fails
      */
     public FramedLZ4CompressorOutputStream(OutputStream out, Parameters params) throws IOException {
+        this(out, params, null, 0);
+    }
+
+    /**
+     * Constructs a new output stream that compresses data using the
+     * LZ4 frame format and compresses independent blocks in parallel.
+     *
+     * <p>At most as many blocks as there are available processors
+     * are compressed at the same time.</p>
+     *
+     * @param out the OutputStream to which to write the compressed data
+     * @param params the parameters to use, must not enable block dependency
+     * @param executor the executor that compresses the blocks, it is
+     * not shut down by this stream
+     * @throws IOException if writing the signature fails
+     * @throws IllegalArgumentException if the parameters enable block dependency
+     * @since 1.20
+     */
+    public FramedLZ4CompressorOutputStream(OutputStream out, Parameters params, ExecutorService executor)
+        throws IOException {
+        this(out, params, executor, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a new output stream that compresses data using the
+     * LZ4 frame format and compresses independent blocks in parallel.
+     *
+     * @param out the OutputStream to which to write the compressed data
+     * @param params the parameters to use, must not enable block dependency
+     * @param executor the executor that compresses the blocks, it is
+     * not shut down by this stream
+     * @param maxBlocksInFlight the maximum number of blocks handed to
+     * the executor that haven't been written, yet. Each block in
+     * flight holds a copy of its uncompressed and compressed data.
+     * @throws IOException if writing the signature fails
+     * @throws IllegalArgumentException if the parameters enable block
+     * dependency or maxBlocksInFlight is smaller than 1
+     * @since 1.20
+     */
+    public FramedLZ4CompressorOutputStream(OutputStream out, Parameters params, ExecutorService executor,
+        int maxBlocksInFlight) throws IOException {
+        if (executor != null) {
+            if (params.withBlockDependency) {
+                throw new IllegalArgumentException("Blocks can only be compressed in parallel if they are independent");
+            }
+            if (maxBlocksInFlight < 1) {
+                throw new IllegalArgumentException("maxBlocksInFlight must be positive");
+            }
+        }
+        this.executor = executor;
+        this.maxBlocksInFlight = maxBlocksInFlight;
         this.params = params;
         blockData = new byte[params.blockSize.getSize()];
         this.out = out;
@@ -240,8 +310,19 @@ public void close() throws IOException {
      */
     public void finish() throws IOException {
         if (!finished) {
-            if (currentIndex > 0) {
-                flushBlock();
+            try {
+                if (currentIndex > 0) {
+                    flushBlock();
+                }
+                while (!blocksInFlight.isEmpty()) {
+                    writeOldestBlockInFlight();
+                }
+            } finally {
+                for (final Future<CompressedBlock> f : blocksInFlight) {
+                    f.cancel(true);
+                }
+                blocksInFlight.clear();
+                idleBlockBuffers.clear();
             }
             writeTrailer();
             finished = true;
@@ -269,6 +350,13 @@ private void writeFrameDescriptor() throws IOException {
     }
 
     private void flushBlock() throws IOException {
+        if (currentIndex == 0) {
+            return;
+        }
+        if (executor != null) {
+            submitBlock();
+            return;
+        }
         final boolean withBlockDependency = params.withBlockDependency;
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         try (BlockLZ4CompressorOutputStream o = new BlockLZ4CompressorOutputStream(baos, params.lz77params)) {
@@ -281,28 +369,78 @@ private void flushBlock() throws IOException {
         if (withBlockDependency) {
             appendToBlockDependencyBuffer(blockData, 0, currentIndex);
         }
-        byte[] b = baos.toByteArray();
-        if (b.length > currentIndex) { // compression increased size, maybe beyond blocksize
-            ByteUtils.toLittleEndian(out, currentIndex | FramedLZ4CompressorInputStream.UNCOMPRESSED_FLAG_MASK,
+        writeBlock(out, blockData, currentIndex, baos.toByteArray(), blockHash);
+        currentIndex = 0;
+    }
+
+    private void writeBlock(final OutputStream target, final byte[] data, final int length, final byte[] b,
+        final XXHash32 hash) throws IOException {
+        if (b.length > length) { // compression increased size, maybe beyond blocksize
+            ByteUtils.toLittleEndian(target, length | FramedLZ4CompressorInputStream.UNCOMPRESSED_FLAG_MASK,
                 4);
-            out.write(blockData, 0, currentIndex);
+            target.write(data, 0, length);
             if (params.withBlockChecksum) {
-                blockHash.update(blockData, 0, currentIndex);
+                hash.update(data, 0, length);
             }
         } else {
-            ByteUtils.toLittleEndian(out, b.length, 4);
-            out.write(b);
+            ByteUtils.toLittleEndian(target, b.length, 4);
+            target.write(b);
             if (params.withBlockChecksum) {
-                blockHash.update(b, 0, b.length);
+                hash.update(b, 0, b.length);
             }
         }
         if (params.withBlockChecksum) {
-            ByteUtils.toLittleEndian(out, blockHash.getValue(), 4);
-            blockHash.reset();
+            ByteUtils.toLittleEndian(target, hash.getValue(), 4);
+            hash.reset();
         }
+    }
+
+    /**
+     * Hands the current block to the executor and provides a fresh
+     * buffer for the next block.
+     */
+    private void submitBlock() throws IOException {
+        while (blocksInFlight.size() >= maxBlocksInFlight) {
+            writeOldestBlockInFlight();
+        }
+        final byte[] data = blockData;
+        final int length = currentIndex;
+        blocksInFlight.add(executor.submit(new Callable<CompressedBlock>() {
+            @Override
+            public CompressedBlock call() throws IOException {
+                return compressBlock(data, length);
+            }
+        }));
+        final byte[] idle = idleBlockBuffers.poll();
+        blockData = idle != null ? idle : new byte[data.length];
         currentIndex = 0;
     }
 
+    private CompressedBlock compressBlock(final byte[] data, final int length) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (BlockLZ4CompressorOutputStream o = new BlockLZ4CompressorOutputStream(baos, params.lz77params)) {
+            o.write(data, 0, length);
+        }
+        final ByteArrayOutputStream block = new ByteArrayOutputStream(Math.min(baos.size(), length) + 8);
+        writeBlock(block, data, length, baos.toByteArray(), new XXHash32());
+        return new CompressedBlock(data, block);
+    }
+
+    private void writeOldestBlockInFlight() throws IOException {
+        final CompressedBlock block;
+        try {
+            block = blocksInFlight.remove().get();
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a compressed block");
+        } catch (final ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+        block.framedBlock.writeTo(out);
+        idleBlockBuffers.add(block.uncompressed);
+    }
+
     private void writeTrailer() throws IOException {
         out.write(END_MARK);
         if (params.withContentChecksum) {
@@ -310,6 +448,16 @@ private void writeTrailer() throws IOException {
         }
     }
 
+    private static final class CompressedBlock {
+        private final byte[] uncompressed;
+        private final ByteArrayOutputStream framedBlock;
+
+        CompressedBlock(final byte[] uncompressed, final ByteArrayOutputStream framedBlock) {
+            this.uncompressed = uncompressed;
+            this.framedBlock = framedBlock;
+        }
+    }
+
     private void appendToBlockDependencyBuffer(final byte[] b, final int off, int len) {
         len = Math.min(len, blockDependencyBuffer.length);
         if (len > 0) {
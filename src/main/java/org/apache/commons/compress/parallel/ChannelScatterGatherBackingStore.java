@@ -0,0 +1,45 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.parallel;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link ScatterGatherBackingStore} that may keep its payload in a
+ * file and can provide a {@link FileChannel} for it.
+ *
+ * <p>This allows the gather phase to transfer the payload into the
+ * target archive using {@link FileChannel#transferTo} without
+ * copying it to the heap.</p>
+ *
+ * @since 1.20
+ */
+public interface ChannelScatterGatherBackingStore extends ScatterGatherBackingStore {
+
+    /**
+     * A channel for reading the payload, only valid after {@link
+     * #closeForWriting} has been called.
+     *
+     * @return A channel positioned at the start of the payload that
+     * should be closed by the caller of this method, or null if the
+     * payload is not kept in a file
+     * @throws IOException when something fails
+     */
+    FileChannel getFileChannel() throws IOException;
+}
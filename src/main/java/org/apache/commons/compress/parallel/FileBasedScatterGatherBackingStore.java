@@ -22,14 +22,16 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 
 /**
  * ScatterGatherBackingStore that is backed by a file.
  *
  * @since 1.10
  */
-public class FileBasedScatterGatherBackingStore implements ScatterGatherBackingStore {
+public class FileBasedScatterGatherBackingStore implements ChannelScatterGatherBackingStore {
     private final File target;
     private final OutputStream os;
     private boolean closed;
@@ -51,6 +53,16 @@ public InputStream getInputStream() throws IOException {
         return Files.newInputStream(target.toPath());
     }
 
+    /**
+     * {@inheritDoc}
+     *
+     * @since 1.20
+     */
+    @Override
+    public FileChannel getFileChannel() throws IOException {
+        return FileChannel.open(target.toPath(), StandardOpenOption.READ);
+    }
+
     @Override
     @SuppressWarnings("ResultOfMethodCallIgnored")
     public void closeForWriting() throws IOException {
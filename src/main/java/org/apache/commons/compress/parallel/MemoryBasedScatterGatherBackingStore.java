@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.parallel;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ScatterGatherBackingStore that keeps its payload in chunks of
+ * memory and spills it to a temporary file when a memory budget is
+ * exceeded.
+ *
+ * <p>Instances are created by {@link
+ * MemoryBasedScatterGatherBackingStoreSupplier}, which also
+ * provides the chunks and defines the budgets.</p>
+ *
+ * @since 1.20
+ * @NotThreadSafe
+ */
+public class MemoryBasedScatterGatherBackingStore implements ChannelScatterGatherBackingStore {
+    private final MemoryBasedScatterGatherBackingStoreSupplier pool;
+    private final int chunkSize;
+    private final long maxSize;
+    private final File spillDirectory;
+    private final List<byte[]> chunks = new ArrayList<>();
+    private long size;
+    private File spillFile;
+    private OutputStream spillStream;
+    private boolean closedForWriting;
+
+    MemoryBasedScatterGatherBackingStore(final MemoryBasedScatterGatherBackingStoreSupplier pool, final long maxSize,
+        final File spillDirectory) {
+        this.pool = pool;
+        this.chunkSize = pool.getChunkSize();
+        this.maxSize = maxSize;
+        this.spillDirectory = spillDirectory;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if (spillFile != null) {
+            return Files.newInputStream(spillFile.toPath());
+        }
+        return new ChunkInputStream(new ArrayList<>(chunks), chunkSize, size);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @return a channel for the spill file or null if the payload is
+     * kept in memory
+     */
+    @Override
+    public FileChannel getFileChannel() throws IOException {
+        return spillFile != null ? FileChannel.open(spillFile.toPath(), StandardOpenOption.READ) : null;
+    }
+
+    @Override
+    public void writeOut(final byte[] data, final int offset, final int length) throws IOException {
+        if (closedForWriting) {
+            throw new IOException("Backing store has been closed for writing");
+        }
+        if (spillFile == null && !ensureCapacity(size + length)) {
+            spill();
+        }
+        if (spillFile != null) {
+            spillStream.write(data, offset, length);
+            size += length;
+            return;
+        }
+        int off = offset;
+        int remaining = length;
+        while (remaining > 0) {
+            final int offsetInChunk = (int) (size % chunkSize);
+            final int n = Math.min(remaining, chunkSize - offsetInChunk);
+            System.arraycopy(data, off, chunks.get((int) (size / chunkSize)), offsetInChunk, n);
+            off += n;
+            remaining -= n;
+            size += n;
+        }
+    }
+
+    @Override
+    public void closeForWriting() throws IOException {
+        if (!closedForWriting) {
+            closedForWriting = true;
+            if (spillStream != null) {
+                spillStream.close();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            closeForWriting();
+        } finally {
+            releaseChunks();
+            if (spillFile != null && spillFile.exists() && !spillFile.delete()) {
+                spillFile.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Whether the payload of this store has been spilled to a file.
+     *
+     * @return true if the payload has been spilled
+     */
+    public boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    /**
+     * The number of bytes that have been written to the spill file.
+     *
+     * @return the number of bytes written to disk, 0 if the store
+     * has not been spilled
+     */
+    public long getSpilledBytes() {
+        return spillFile != null ? size : 0;
+    }
+
+    private boolean ensureCapacity(final long needed) {
+        if (needed > maxSize) {
+            return false;
+        }
+        while ((long) chunks.size() * chunkSize < needed) {
+            final byte[] chunk = pool.allocateChunk();
+            if (chunk == null) {
+                return false;
+            }
+            chunks.add(chunk);
+        }
+        return true;
+    }
+
+    private void spill() throws IOException {
+        spillFile = File.createTempFile("scattergather", ".spill", spillDirectory);
+        spillStream = Files.newOutputStream(spillFile.toPath());
+        long remaining = size;
+        for (final byte[] chunk : chunks) {
+            if (remaining <= 0) {
+                break;
+            }
+            final int n = (int) Math.min(remaining, chunkSize);
+            spillStream.write(chunk, 0, n);
+            remaining -= n;
+        }
+        releaseChunks();
+    }
+
+    private void releaseChunks() {
+        for (final byte[] chunk : chunks) {
+            pool.releaseChunk(chunk);
+        }
+        chunks.clear();
+    }
+
+    private static class ChunkInputStream extends InputStream {
+        private final List<byte[]> chunks;
+        private final int chunkSize;
+        private final long size;
+        private long position;
+
+        ChunkInputStream(final List<byte[]> chunks, final int chunkSize, final long size) {
+            this.chunks = chunks;
+            this.chunkSize = chunkSize;
+            this.size = size;
+        }
+
+        @Override
+        public int read() {
+            if (position >= size) {
+                return -1;
+            }
+            final int b = chunks.get((int) (position / chunkSize))[(int) (position % chunkSize)] & 0xff;
+            position++;
+            return b;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= size) {
+                return -1;
+            }
+            final int offsetInChunk = (int) (position % chunkSize);
+            final int n = (int) Math.min(Math.min(len, chunkSize - offsetInChunk), size - position);
+            System.arraycopy(chunks.get((int) (position / chunkSize)), offsetInChunk, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(final long n) {
+            final long skipped = Math.max(0, Math.min(n, size - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, size - position);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.parallel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+
+/**
+ * Supplies {@link MemoryBasedScatterGatherBackingStore}s that keep
+ * their payload in memory until a budget is exceeded.
+ *
+ * <p>All stores created by the same supplier share a pool of
+ * fixed-size chunks of memory. A store spills its payload to a
+ * temporary file once it would grow beyond the per-store limit or
+ * once the pool cannot provide another chunk without exceeding the
+ * global limit. Chunks are returned to the pool when a store spills
+ * or is closed and reused by other stores.</p>
+ *
+ * @since 1.20
+ * @ThreadSafe
+ */
+public class MemoryBasedScatterGatherBackingStoreSupplier implements ScatterGatherBackingStoreSupplier {
+
+    /**
+     * The default size of the chunks of memory, 64 KiB.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private final int chunkSize;
+    private final long maxStoreSize;
+    private final long maxMemory;
+    private final File spillDirectory;
+    private final ArrayDeque<byte[]> idleChunks = new ArrayDeque<>();
+    private long allocatedMemory;
+
+    /**
+     * Creates a supplier using chunks of {@link #DEFAULT_CHUNK_SIZE}
+     * bytes that spills to the default temporary directory.
+     *
+     * @param maxStoreSize the maximum number of bytes a single store
+     * may keep in memory
+     * @param maxMemory the maximum number of bytes all stores created
+     * by this supplier may keep in memory
+     * @throws IllegalArgumentException if any of the limits is negative
+     */
+    public MemoryBasedScatterGatherBackingStoreSupplier(final long maxStoreSize, final long maxMemory) {
+        this(DEFAULT_CHUNK_SIZE, maxStoreSize, maxMemory, null);
+    }
+
+    /**
+     * Creates a supplier.
+     *
+     * @param chunkSize the size of the chunks of memory
+     * @param maxStoreSize the maximum number of bytes a single store
+     * may keep in memory
+     * @param maxMemory the maximum number of bytes all stores created
+     * by this supplier may keep in memory
+     * @param spillDirectory the directory to create temporary files
+     * in, null for the default temporary directory
+     * @throws IllegalArgumentException if chunkSize is not positive
+     * or any of the limits is negative
+     */
+    public MemoryBasedScatterGatherBackingStoreSupplier(final int chunkSize, final long maxStoreSize,
+        final long maxMemory, final File spillDirectory) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive but is " + chunkSize);
+        }
+        if (maxStoreSize < 0 || maxMemory < 0) {
+            throw new IllegalArgumentException("memory limits must not be negative");
+        }
+        this.chunkSize = chunkSize;
+        this.maxStoreSize = maxStoreSize;
+        this.maxMemory = maxMemory;
+        this.spillDirectory = spillDirectory;
+    }
+
+    @Override
+    public MemoryBasedScatterGatherBackingStore get() throws IOException {
+        return new MemoryBasedScatterGatherBackingStore(this, maxStoreSize, spillDirectory);
+    }
+
+    /**
+     * The number of bytes currently held by stores created by this
+     * supplier.
+     *
+     * @return the number of bytes in use
+     */
+    public synchronized long getUsedMemory() {
+        return allocatedMemory - (long) idleChunks.size() * chunkSize;
+    }
+
+    /**
+     * Drops all chunks that are not in use by any store.
+     */
+    public synchronized void clear() {
+        allocatedMemory -= (long) idleChunks.size() * chunkSize;
+        idleChunks.clear();
+    }
+
+    int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Provides a chunk of memory.
+     *
+     * @return the chunk or null if the global limit would be exceeded
+     */
+    synchronized byte[] allocateChunk() {
+        final byte[] chunk = idleChunks.poll();
+        if (chunk != null) {
+            return chunk;
+        }
+        if (allocatedMemory + chunkSize > maxMemory) {
+            return null;
+        }
+        allocatedMemory += chunkSize;
+        return new byte[chunkSize];
+    }
+
+    synchronized void releaseChunk(final byte[] chunk) {
+        idleChunks.push(chunk);
+    }
+}
@@ -80,6 +80,9 @@ public void close() {
     @Override
     public long skip(final long n) throws IOException {
         long bytesToSkip = Math.min(bytesRemaining, n);
+        if (bytesToSkip <= 0) {
+            return 0;
+        }
         long bytesSkipped = in.skip(bytesToSkip);
         bytesRemaining -= bytesSkipped;
 
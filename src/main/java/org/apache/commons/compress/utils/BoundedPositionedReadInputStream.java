@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * InputStream that delegates requests to the underlying
+ * SeekableByteChannel, making sure that only bytes from a certain
+ * range can be read.
+ *
+ * <p>Uses positioned reads for {@link FileChannel}s and channels
+ * implementing {@link PositionedReadable}, other channels are
+ * positioned and read while holding the channel's lock so several
+ * streams may share the same channel.</p>
+ *
+ * @ThreadSafe
+ * @since 1.20
+ */
+public class BoundedPositionedReadInputStream extends BoundedArchiveInputStream {
+
+    private final SeekableByteChannel channel;
+
+    /**
+     * Create a new bounded input stream.
+     *
+     * @param start     position in the channel from where the reading of this bounded stream starts.
+     * @param remaining amount of bytes which are allowed to read from the bounded stream.
+     * @param channel   channel which this stream is reading from.
+     */
+    public BoundedPositionedReadInputStream(final long start, final long remaining,
+        final SeekableByteChannel channel) {
+        super(start, remaining);
+        this.channel = channel;
+    }
+
+    @Override
+    protected int read(final long pos, final ByteBuffer buf) throws IOException {
+        final int read;
+        if (channel instanceof FileChannel) {
+            read = ((FileChannel) channel).read(buf, pos);
+        } else if (channel instanceof PositionedReadable) {
+            read = ((PositionedReadable) channel).read(buf, pos);
+        } else {
+            synchronized (channel) {
+                channel.position(pos);
+                read = channel.read(buf);
+            }
+        }
+        buf.flip();
+        return read;
+    }
+}
@@ -22,6 +22,7 @@
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.NonWritableChannelException;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
@@ -40,9 +41,13 @@
  * href="https://github.com/frugalmechanic/fm-common/blob/master/jvm/src/main/scala/fm/common/MultiReadOnlySeekableByteChannel.scala">MultiReadOnlySeekableByteChannel</a>
  * by Tim Underwood.</p>
  *
+ * <p>{@link #read(ByteBuffer, long) Positioned reads} don't lock
+ * this channel as long as all concatenated channels are {@link
+ * FileChannel}s or implement {@link PositionedReadable} themselves.</p>
+ *
  * @since 1.19
  */
-public class MultiReadOnlySeekableByteChannel implements SeekableByteChannel {
+public class MultiReadOnlySeekableByteChannel implements SeekableByteChannel, PositionedReadable {
 
     private final List<SeekableByteChannel> channels;
     private long globalPosition;
@@ -90,6 +95,69 @@ public synchronized int read(ByteBuffer dst) throws IOException {
         return -1;
     }
 
+    /**
+     * Reads a sequence of bytes into the given buffer, starting at
+     * the given position, without modifying the position of this
+     * channel.
+     *
+     * <p>Concatenated channels that are neither {@link FileChannel}s
+     * nor implement {@link PositionedReadable} are temporarily
+     * repositioned while holding the lock of this channel.</p>
+     *
+     * @since 1.20
+     */
+    @Override
+    public int read(ByteBuffer dst, long position) throws IOException {
+        if (position < 0) {
+            throw new IllegalArgumentException("Negative position: " + position);
+        }
+        if (!isOpen()) {
+            throw new ClosedChannelException();
+        }
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+
+        int totalBytesRead = 0;
+        long pos = position;
+        int channelIdx = 0;
+        while (dst.hasRemaining() && channelIdx < channels.size()) {
+            final SeekableByteChannel currentChannel = channels.get(channelIdx);
+            final long size = currentChannel.size();
+            if (pos >= size) {
+                // position lies behind this channel
+                pos -= size;
+                channelIdx++;
+                continue;
+            }
+            final int newBytesRead = read(currentChannel, dst, pos);
+            if (newBytesRead <= 0) {
+                break;
+            }
+            pos += newBytesRead;
+            totalBytesRead += newBytesRead;
+        }
+        return totalBytesRead > 0 ? totalBytesRead : -1;
+    }
+
+    private int read(final SeekableByteChannel channel, final ByteBuffer dst, final long pos) throws IOException {
+        if (channel instanceof FileChannel) {
+            return ((FileChannel) channel).read(dst, pos);
+        }
+        if (channel instanceof PositionedReadable) {
+            return ((PositionedReadable) channel).read(dst, pos);
+        }
+        synchronized (this) {
+            final long oldPosition = channel.position();
+            try {
+                channel.position(pos);
+                return channel.read(dst);
+            } finally {
+                channel.position(oldPosition);
+            }
+        }
+    }
+
     @Override
     public void close() throws IOException {
         IOException first = null;
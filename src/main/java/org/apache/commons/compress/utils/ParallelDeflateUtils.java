@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package org.apache.commons.compress.utils;
+
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Helpers for deflating a stream in independent chunks the way pigz
+ * does.
+ *
+ * <p>Each chunk uses the end of the preceding chunk as preset
+ * dictionary and all chunks but the last one end with a sync flush,
+ * which aligns the output to a byte boundary without finishing the
+ * stream. The deflated chunks can therefore be concatenated to a
+ * single raw DEFLATE stream and the CRC32 checksums of the chunks
+ * can be combined into the checksum of the whole stream.</p>
+ *
+ * <p>This class is only public so it can be shared between the
+ * compressor and archiver packages, it is not considered part of
+ * the public API.</p>
+ *
+ * @since 1.20
+ * @Immutable
+ */
+public final class ParallelDeflateUtils {
+
+    /** Size of the DEFLATE window, the maximum useful size of a preset dictionary. */
+    public static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static final int GF2_DIM = 32;
+    private static final long POLYNOMIAL = 0xedb88320L;
+
+    private ParallelDeflateUtils() {
+    }
+
+    /**
+     * Deflates a chunk of data.
+     *
+     * @param data the array holding the chunk
+     * @param length the length of the chunk, starting at the beginning of the array
+     * @param dictionary the preceding data, at most its last {@link #DICTIONARY_SIZE} bytes are used as preset
+     * dictionary, may be null for the first chunk
+     * @param level the compression level
+     * @param last whether this is the last chunk of the stream, which finishes the stream rather than ending with a
+     * sync flush
+     * @return the deflated chunk
+     */
+    public static DeflatedChunk deflateChunk(final byte[] data, final int length, final byte[] dictionary,
+        final int level, final boolean last) {
+        final CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        final Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                final int dictionaryLength = Math.min(DICTIONARY_SIZE, dictionary.length);
+                deflater.setDictionary(dictionary, dictionary.length - dictionaryLength, dictionaryLength);
+            }
+            deflater.setInput(data, 0, length);
+            if (last) {
+                deflater.finish();
+            }
+            byte[] out = new byte[length + length / 1000 + 64];
+            int outLength = 0;
+            while (true) {
+                if (outLength == out.length) {
+                    out = Arrays.copyOf(out, out.length * 2);
+                }
+                final int available = out.length - outLength;
+                final int n = last ? deflater.deflate(out, outLength, available)
+                    : deflater.deflate(out, outLength, available, Deflater.SYNC_FLUSH);
+                outLength += n;
+                // a sync flush is complete once the deflater doesn't fill the buffer
+                if (last ? deflater.finished() : n < available) {
+                    break;
+                }
+            }
+            return new DeflatedChunk(out, outLength, crc.getValue(), length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Computes the CRC32 of the concatenation of two sequences from
+     * their checksums.
+     *
+     * <p>This is a port of zlib's {@code crc32_combine} which is not
+     * available via {@link CRC32}.</p>
+     *
+     * @param crc1 CRC32 of the first sequence
+     * @param crc2 CRC32 of the second sequence
+     * @param length2 length of the second sequence
+     * @return CRC32 of the concatenation
+     */
+    public static long combineCrc32(long crc1, final long crc2, long length2) {
+        if (length2 <= 0) {
+            return crc1;
+        }
+        final long[] even = new long[GF2_DIM];
+        final long[] odd = new long[GF2_DIM];
+
+        // operator for one zero bit
+        odd[0] = POLYNOMIAL;
+        long row = 1;
+        for (int n = 1; n < GF2_DIM; n++) {
+            odd[n] = row;
+            row <<= 1;
+        }
+        // operators for two and four zero bits
+        square(even, odd);
+        square(odd, even);
+
+        // apply len2 zeros to crc1, first square will put the
+        // operator for one zero byte, eight zero bits, in even
+        do {
+            square(even, odd);
+            if ((length2 & 1) != 0) {
+                crc1 = times(even, crc1);
+            }
+            length2 >>= 1;
+            if (length2 == 0) {
+                break;
+            }
+            square(odd, even);
+            if ((length2 & 1) != 0) {
+                crc1 = times(odd, crc1);
+            }
+            length2 >>= 1;
+        } while (length2 != 0);
+
+        return (crc1 ^ crc2) & 0xffffffffL;
+    }
+
+    private static long times(final long[] matrix, long vector) {
+        long sum = 0;
+        int i = 0;
+        while (vector != 0) {
+            if ((vector & 1) != 0) {
+                sum ^= matrix[i];
+            }
+            vector >>>= 1;
+            i++;
+        }
+        return sum;
+    }
+
+    private static void square(final long[] result, final long[] matrix) {
+        for (int n = 0; n < GF2_DIM; n++) {
+            result[n] = times(matrix, matrix[n]);
+        }
+    }
+
+    /**
+     * The result of deflating a chunk.
+     */
+    public static final class DeflatedChunk {
+        private final byte[] data;
+        private final int length;
+        private final long crc;
+        private final int size;
+
+        private DeflatedChunk(final byte[] data, final int length, final long crc, final int size) {
+            this.data = data;
+            this.length = length;
+            this.crc = crc;
+            this.size = size;
+        }
+
+        /**
+         * The array holding the deflated data.
+         * @return the array holding the deflated data, it may be bigger than {@link #getLength}
+         */
+        public byte[] getData() {
+            return data;
+        }
+
+        /**
+         * The number of deflated bytes.
+         * @return the number of deflated bytes
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * The CRC32 checksum of the uncompressed chunk.
+         * @return the checksum of the uncompressed chunk
+         */
+        public long getCrc32() {
+            return crc;
+        }
+
+        /**
+         * The size of the uncompressed chunk.
+         * @return the size of the uncompressed chunk
+         */
+        public int getSize() {
+            return size;
+        }
+    }
+}
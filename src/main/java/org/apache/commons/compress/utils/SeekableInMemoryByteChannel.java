@@ -33,10 +33,15 @@
  * {@link #truncate truncate} to a value bigger than that.  Internal buffer can be accessed via {@link
  * SeekableInMemoryByteChannel#array()}.</p>
  *
+ * <p>{@link #read(ByteBuffer, long) Positioned reads} don't modify
+ * the state of the channel and may be performed by several threads
+ * concurrently as long as no thread writes to or truncates the
+ * channel at the same time.</p>
+ *
  * @since 1.13
  * @NotThreadSafe
  */
-public class SeekableInMemoryByteChannel implements SeekableByteChannel {
+public class SeekableInMemoryByteChannel implements SeekableByteChannel, PositionedReadable {
 
     private static final int NAIVE_RESIZE_LIMIT = Integer.MAX_VALUE >> 1;
 
@@ -144,6 +149,28 @@ public int read(ByteBuffer buf) throws IOException {
         return wanted;
     }
 
+    /**
+     * Reads a sequence of bytes into the given buffer, starting at
+     * the given position, without modifying the position of this
+     * channel.
+     *
+     * @since 1.20
+     */
+    @Override
+    public int read(ByteBuffer buf, long position) throws IOException {
+        ensureOpen();
+        if (position < 0L) {
+            throw new IllegalArgumentException("Position must not be negative");
+        }
+        final int currentSize = size;
+        if (position >= currentSize) {
+            return -1;
+        }
+        final int wanted = (int) Math.min(buf.remaining(), currentSize - position);
+        buf.put(data, (int) position, wanted);
+        return wanted;
+    }
+
     @Override
     public void close() {
         closed.set(true);
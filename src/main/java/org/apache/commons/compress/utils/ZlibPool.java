@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.commons.compress.utils;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A bounded pool of {@link Inflater} and {@link Deflater} instances.
+ *
+ * <p>Creating and ending an {@link Inflater} or {@link Deflater}
+ * allocates and frees native memory, which gets expensive when
+ * many small streams are processed - like when reading thousands of
+ * small entries from a zip archive. Classes that support a pool
+ * borrow an instance when they need one and return it once they are
+ * done, the pool resets returned instances and keeps up to a
+ * configurable number of idle instances per kind of instance. An
+ * instance returned while the maximum number of idle instances is
+ * already reached is ended.</p>
+ *
+ * <p>Inflaters are pooled per value of their {@code nowrap} flag,
+ * deflaters per compression level and {@code nowrap} flag.</p>
+ *
+ * <p>An instance must not be used in any way after it has been
+ * returned to the pool, neither must it be returned more than
+ * once.</p>
+ *
+ * @since 1.20
+ * @ThreadSafe
+ */
+public class ZlibPool {
+
+    /**
+     * The default maximum number of idle instances kept per kind of
+     * instance.
+     */
+    public static final int DEFAULT_MAX_IDLE = 32;
+
+    private final int maxIdle;
+    private final Map<Integer, ArrayDeque<Inflater>> idleInflaters = new HashMap<>();
+    private final Map<Integer, ArrayDeque<Deflater>> idleDeflaters = new HashMap<>();
+    private final AtomicLong inflaterHits = new AtomicLong();
+    private final AtomicLong inflaterMisses = new AtomicLong();
+    private final AtomicLong deflaterHits = new AtomicLong();
+    private final AtomicLong deflaterMisses = new AtomicLong();
+
+    /**
+     * Creates a pool that keeps up to {@link #DEFAULT_MAX_IDLE} idle
+     * instances per kind of instance.
+     */
+    public ZlibPool() {
+        this(DEFAULT_MAX_IDLE);
+    }
+
+    /**
+     * Creates a pool.
+     *
+     * @param maxIdle the maximum number of idle instances kept per
+     * kind of instance
+     * @throws IllegalArgumentException if maxIdle is negative
+     */
+    public ZlibPool(final int maxIdle) {
+        if (maxIdle < 0) {
+            throw new IllegalArgumentException("maxIdle must not be negative");
+        }
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Borrows an inflater from the pool or creates a new one if no
+     * idle inflater is available.
+     *
+     * @param nowrap the {@code nowrap} flag the inflater needs to use
+     * @return an inflater ready to be used
+     */
+    public Inflater borrowInflater(final boolean nowrap) {
+        final Inflater inflater = poll(idleInflaters, key(nowrap));
+        if (inflater != null) {
+            inflaterHits.incrementAndGet();
+            return inflater;
+        }
+        inflaterMisses.incrementAndGet();
+        return new Inflater(nowrap);
+    }
+
+    /**
+     * Returns an inflater to the pool.
+     *
+     * @param inflater the inflater to return, it has been created
+     * using the given {@code nowrap} flag
+     * @param nowrap the {@code nowrap} flag of the inflater
+     */
+    public void returnInflater(final Inflater inflater, final boolean nowrap) {
+        inflater.reset();
+        if (!offer(idleInflaters, key(nowrap), inflater)) {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Borrows a deflater from the pool or creates a new one if no
+     * idle deflater is available.
+     *
+     * @param level the compression level the deflater needs to use
+     * @param nowrap the {@code nowrap} flag the deflater needs to use
+     * @return a deflater ready to be used
+     */
+    public Deflater borrowDeflater(final int level, final boolean nowrap) {
+        final Deflater deflater = poll(idleDeflaters, key(level, nowrap));
+        if (deflater != null) {
+            deflaterHits.incrementAndGet();
+            return deflater;
+        }
+        deflaterMisses.incrementAndGet();
+        return new Deflater(level, nowrap);
+    }
+
+    /**
+     * Returns a deflater to the pool.
+     *
+     * <p>The deflater's level is reset to the given level and its
+     * strategy to the default strategy, so users may change either
+     * while they have borrowed the deflater.</p>
+     *
+     * @param deflater the deflater to return, it has been created
+     * using the given {@code nowrap} flag
+     * @param level the compression level the deflater has been
+     * borrowed with
+     * @param nowrap the {@code nowrap} flag of the deflater
+     */
+    public void returnDeflater(final Deflater deflater, final int level, final boolean nowrap) {
+        deflater.reset();
+        deflater.setLevel(level);
+        deflater.setStrategy(Deflater.DEFAULT_STRATEGY);
+        if (!offer(idleDeflaters, key(level, nowrap), deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Ends all idle instances.
+     *
+     * <p>The pool can still be used after this method has been
+     * called.</p>
+     */
+    public void clear() {
+        synchronized (this) {
+            for (final ArrayDeque<Inflater> inflaters : idleInflaters.values()) {
+                for (final Inflater inflater : inflaters) {
+                    inflater.end();
+                }
+            }
+            for (final ArrayDeque<Deflater> deflaters : idleDeflaters.values()) {
+                for (final Deflater deflater : deflaters) {
+                    deflater.end();
+                }
+            }
+            idleInflaters.clear();
+            idleDeflaters.clear();
+        }
+    }
+
+    /**
+     * The number of times {@link #borrowInflater} has been served by
+     * an idle inflater.
+     * @return the number of times an idle inflater has been reused
+     */
+    public long getInflaterHits() {
+        return inflaterHits.get();
+    }
+
+    /**
+     * The number of times {@link #borrowInflater} had to create a new
+     * inflater.
+     * @return the number of inflaters created by the pool
+     */
+    public long getInflaterMisses() {
+        return inflaterMisses.get();
+    }
+
+    /**
+     * The number of times {@link #borrowDeflater} has been served by
+     * an idle deflater.
+     * @return the number of times an idle deflater has been reused
+     */
+    public long getDeflaterHits() {
+        return deflaterHits.get();
+    }
+
+    /**
+     * The number of times {@link #borrowDeflater} had to create a new
+     * deflater.
+     * @return the number of deflaters created by the pool
+     */
+    public long getDeflaterMisses() {
+        return deflaterMisses.get();
+    }
+
+    private synchronized <T> T poll(final Map<Integer, ArrayDeque<T>> idle, final int key) {
+        final ArrayDeque<T> instances = idle.get(key);
+        return instances != null ? instances.pollFirst() : null;
+    }
+
+    private synchronized <T> boolean offer(final Map<Integer, ArrayDeque<T>> idle, final int key,
+        final T instance) {
+        ArrayDeque<T> instances = idle.get(key);
+        if (instances == null) {
+            instances = new ArrayDeque<>();
+            idle.put(key, instances);
+        }
+        if (instances.size() >= maxIdle) {
+            return false;
+        }
+        instances.addFirst(instance);
+        return true;
+    }
+
+    private static int key(final boolean nowrap) {
+        return nowrap ? 1 : 0;
+    }
+
+    private static int key(final int level, final boolean nowrap) {
+        // levels range from -1 to 9
+        return 2 * (level + 1) + key(nowrap);
+    }
+}
@@ -35,6 +35,7 @@
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.Random;
 
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
@@ -136,6 +137,33 @@ public static boolean tryHardToDelete(final File f) {
         return true;
     }
 
+    /**
+     * Creates compressible data made of a few words with a random
+     * byte every now and then. The same size always creates the same
+     * data.
+     *
+     * @param size the number of bytes to create
+     * @return the data
+     */
+    public static byte[] createCompressibleData(final int size) {
+        final Random random = new Random(size);
+        final byte[] data = new byte[size];
+        final String[] words = { "foo ", "bar ", "baz ", "commons ", "compress ", "\n" };
+        int i = 0;
+        while (i < size) {
+            if (random.nextInt(10) == 0) {
+                data[i++] = (byte) random.nextInt();
+            } else {
+                for (final char c : words[random.nextInt(words.length)].toCharArray()) {
+                    if (i < size) {
+                        data[i++] = (byte) c;
+                    }
+                }
+            }
+        }
+        return data;
+    }
+
     /**
      * Creates an archive of textbased files in several directories. The
      * archivername is the factory identifier for the archiver, for example zip,
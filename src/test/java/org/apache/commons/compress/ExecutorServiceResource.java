@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.rules.ExternalResource;
+
+/**
+ * Provides a fixed thread pool to each test and shuts it down
+ * afterwards.
+ */
+public class ExecutorServiceResource extends ExternalResource {
+
+    private static final int THREADS = 4;
+
+    private ExecutorService executor;
+
+    @Override
+    protected void before() {
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @Override
+    protected void after() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return the executor of the running test
+     */
+    public ExecutorService get() {
+        return executor;
+    }
+}
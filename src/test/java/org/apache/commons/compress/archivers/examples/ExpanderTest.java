@@ -28,10 +28,14 @@
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import org.apache.commons.compress.AbstractTestCase;
+import org.apache.commons.compress.ExecutorServiceResource;
 import org.apache.commons.compress.archivers.ArchiveEntry;
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.compress.archivers.ArchiveInputStream;
@@ -40,6 +44,8 @@
 import org.apache.commons.compress.archivers.StreamingNotSupportedException;
 import org.apache.commons.compress.archivers.sevenz.SevenZFile;
 import org.apache.commons.compress.archivers.sevenz.SevenZOutputFile;
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.apache.commons.compress.utils.IOUtils;
 import org.junit.Assert;
@@ -53,6 +59,9 @@ public class ExpanderTest extends AbstractTestCase {
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
+    @Rule
+    public final ExecutorServiceResource executor = new ExecutorServiceResource();
+
     private File archive;
 
     @Test
@@ -112,6 +121,105 @@ public void zipFileVersion() throws IOException, ArchiveException {
         verifyTargetDir();
     }
 
+    @Test
+    public void zipFileParallelVersion() throws IOException, ArchiveException {
+        setupZip();
+        final List<String> expanded = Collections.synchronizedList(new ArrayList<String>());
+        try (ZipFile f = new ZipFile(archive)) {
+            new Expander().expand(f, resultDir, 2, new ExpansionListener() {
+                @Override
+                public void entryExpanded(ArchiveEntry entry, File target) {
+                    Assert.assertTrue(target.exists());
+                    expanded.add(entry.getName());
+                }
+            });
+        }
+        verifyTargetDir();
+        Collections.sort(expanded);
+        Assert.assertEquals(Arrays.asList("a/", "a/b/", "a/b/c/", "a/b/c/e.txt", "a/b/d.txt"), expanded);
+    }
+
+    @Test
+    public void zipFileParallelVersionWithExecutor() throws IOException, ArchiveException {
+        setupZip();
+        try (ZipFile f = new ZipFile(archive)) {
+            new Expander().expand(f, resultDir, executor.get(), null);
+        }
+        verifyTargetDir();
+    }
+
+    @Test
+    public void zipFileParallelVersionLeavesTheArchiveUsableAfterAFailure() throws IOException, ArchiveException {
+        archive = new File(dir, "test.zip");
+        final byte[][] contents = new byte[8][];
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(archive)) {
+            for (int i = 0; i < contents.length; i++) {
+                // the largest entry is started first and fails right away
+                contents[i] = createCompressibleData((i == 0 ? 2048 : 1024) * 1024 + i);
+                zos.putArchiveEntry(new ZipArchiveEntry("entry" + i));
+                zos.write(contents[i]);
+                zos.closeArchiveEntry();
+            }
+        }
+        Assert.assertTrue(new File(resultDir, "entry0").mkdirs());
+        try (ZipFile f = new ZipFile(archive)) {
+            try {
+                new Expander().expand(f, resultDir, executor.get(), null);
+                Assert.fail("expected an exception");
+            } catch (final IOException ex) { // NOSONAR
+                // expected
+            }
+            for (int i = 0; i < contents.length; i++) {
+                try (InputStream in = f.getInputStream(f.getEntry("entry" + i))) {
+                    Assert.assertArrayEquals(contents[i], IOUtils.toByteArray(in));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void zipFileParallelVersionExpandsTheLastEntryOfTheSameName() throws IOException, ArchiveException {
+        archive = new File(dir, "test.zip");
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(archive)) {
+            for (final String content : new String[] { "Hello, world 1", "Hello, world 2" }) {
+                zos.putArchiveEntry(new ZipArchiveEntry("a.txt"));
+                zos.write(content.getBytes(StandardCharsets.UTF_8));
+                zos.closeArchiveEntry();
+            }
+        }
+        try (ZipFile f = new ZipFile(archive)) {
+            new Expander().expand(f, resultDir, executor.get(), null);
+        }
+        assertHelloWorld("a.txt", "2");
+    }
+
+    @Test
+    public void zipFileParallelVersionRejectsFilesNamedLikeDirectories() throws IOException, ArchiveException {
+        archive = new File(dir, "test.zip");
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(archive)) {
+            for (final String name : new String[] { "a", "a/b.txt" }) {
+                zos.putArchiveEntry(new ZipArchiveEntry(name));
+                zos.write("Hello, world 1".getBytes(StandardCharsets.UTF_8));
+                zos.closeArchiveEntry();
+            }
+        }
+        thrown.expect(IOException.class);
+        thrown.expectMessage("as it is a directory");
+        try (ZipFile f = new ZipFile(archive)) {
+            new Expander().expand(f, resultDir, executor.get(), null);
+        }
+    }
+
+    @Test
+    public void fileCantEscapeDoubleDotPathInParallelVersion() throws IOException, ArchiveException {
+        thrown.expect(IOException.class);
+        thrown.expectMessage("Expanding ../foo would create file outside of");
+        setupZip("../foo");
+        try (ZipFile f = new ZipFile(archive)) {
+            new Expander().expand(f, resultDir, 2, null);
+        }
+    }
+
     @Test
     public void fileCantEscapeViaAbsolutePath() throws IOException, ArchiveException {
         setupZip("/tmp/foo");
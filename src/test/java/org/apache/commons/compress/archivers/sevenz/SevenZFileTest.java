@@ -26,15 +26,23 @@
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.crypto.Cipher;
 
 import org.apache.commons.compress.AbstractTestCase;
+import org.apache.commons.compress.ExecutorServiceResource;
 import org.apache.commons.compress.MemoryLimitException;
 import org.apache.commons.compress.PasswordRequiredException;
 import org.apache.commons.compress.utils.IOUtils;
@@ -51,6 +59,9 @@ public class SevenZFileTest extends AbstractTestCase {
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
+    @Rule
+    public final ExecutorServiceResource executor = new ExecutorServiceResource();
+
     // https://issues.apache.org/jira/browse/COMPRESS-320
     @Test
     public void testRandomlySkippingEntries() throws Exception {
@@ -104,6 +115,159 @@ public void testRandomlySkippingEntries() throws Exception {
         }
     }
 
+    @Test
+    public void decodeInParallelMatchesSequentialReading() throws Exception {
+        final Map<String, byte[]> expected = new HashMap<>();
+        try (SevenZFile archive = new SevenZFile(getFile("COMPRESS-320/Copy.7z"))) {
+            SevenZArchiveEntry entry;
+            while ((entry = archive.getNextEntry()) != null) {
+                expected.put(entry.getName(), readFully(archive));
+            }
+        }
+
+        for (final String fileName : new String[] {
+                "BZip2-solid.7z", "BZip2.7z", "Copy.7z", "Deflate.7z", "LZMA-solid.7z", "LZMA2.7z"
+            }) {
+            final Map<String, byte[]> actual = new ConcurrentHashMap<>();
+            try (SevenZFile archive = new SevenZFile(getFile("COMPRESS-320/" + fileName))) {
+                // start reading sequentially to ensure it doesn't interfere
+                archive.getNextEntry();
+                archive.decodeInParallel(executor.get(), new SevenZEntryHandler() {
+                    @Override
+                    public void handle(final SevenZArchiveEntry entry, final InputStream content)
+                        throws IOException {
+                        assertTrue(entry.getContentMethods() != null || !entry.hasStream());
+                        actual.put(entry.getName(), IOUtils.toByteArray(content));
+                    }
+                });
+                // and sequential reading works again
+                final SevenZArchiveEntry entry = archive.getNextEntry();
+                assertArrayEquals(expected.get(entry.getName()), readFully(archive));
+            }
+            assertEquals(fileName, expected.keySet(), actual.keySet());
+            for (final Map.Entry<String, byte[]> e : expected.entrySet()) {
+                assertArrayEquals(fileName + "!" + e.getKey(), e.getValue(), actual.get(e.getKey()));
+            }
+        }
+    }
+
+    @Test
+    public void decodeInParallelPropagatesHandlerFailures() throws Exception {
+        try (SevenZFile archive = new SevenZFile(getFile("COMPRESS-320/LZMA2.7z"))) {
+            thrown.expect(IOException.class);
+            thrown.expectMessage("handler failed");
+            archive.decodeInParallel(executor.get(), new SevenZEntryHandler() {
+                @Override
+                public void handle(final SevenZArchiveEntry entry, final InputStream content) throws IOException {
+                    if (entry.hasStream()) {
+                        throw new IOException("handler failed");
+                    }
+                }
+            });
+        }
+    }
+
+    @Test
+    public void decodeInParallelDoesNotInterruptRunningFolders() throws Exception {
+        final AtomicBoolean first = new AtomicBoolean(true);
+        final CountDownLatch secondStarted = new CountDownLatch(1);
+        final CountDownLatch secondDone = new CountDownLatch(1);
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        try (SevenZFile archive = new SevenZFile(getFile("COMPRESS-320/LZMA2.7z"))) {
+            try {
+                archive.decodeInParallel(executor.get(), new SevenZEntryHandler() {
+                    @Override
+                    public void handle(final SevenZArchiveEntry entry, final InputStream content)
+                        throws IOException {
+                        if (!entry.hasStream()) {
+                            return;
+                        }
+                        try {
+                            if (first.getAndSet(false)) {
+                                secondStarted.await(10, TimeUnit.SECONDS);
+                                throw new IOException("handler failed");
+                            }
+                            if (secondStarted.getCount() > 0) {
+                                secondStarted.countDown();
+                                Thread.sleep(200);
+                                secondDone.countDown();
+                            }
+                        } catch (final InterruptedException ex) {
+                            interrupted.set(true);
+                            secondDone.countDown();
+                        }
+                        IOUtils.toByteArray(content);
+                    }
+                });
+                fail("expected an exception");
+            } catch (final IOException ex) {
+                assertEquals("handler failed", ex.getMessage());
+            }
+            assertTrue(secondDone.await(10, TimeUnit.SECONDS));
+            assertFalse(interrupted.get());
+            // the archive's channel is still open
+            assertNotNull(archive.getNextEntry());
+            readFully(archive);
+        }
+    }
+
+    @Test
+    public void extractMatchesSequentialReading() throws Exception {
+        final Map<String, byte[]> expected = new HashMap<>();
+        try (SevenZFile archive = new SevenZFile(getFile("COMPRESS-320/Copy.7z"))) {
+            SevenZArchiveEntry entry;
+            while ((entry = archive.getNextEntry()) != null) {
+                expected.put(entry.getName(), readFully(archive));
+            }
+        }
+
+        final Random random = new Random(7);
+        for (final String fileName : new String[] { "BZip2-solid.7z", "Copy-solid.7z", "LZMA2-solid.7z", "LZMA.7z" }) {
+            for (final int cacheSize : new int[] { 0, 64 * 1024 }) {
+                final SevenZFileOptions options = SevenZFileOptions.builder()
+                    .withFolderCacheSizeInKb(cacheSize).build();
+                try (SevenZFile archive = new SevenZFile(getFile("COMPRESS-320/" + fileName), options)) {
+                    final List<SevenZArchiveEntry> entries = new ArrayList<>();
+                    for (final SevenZArchiveEntry entry : archive.getEntries()) {
+                        entries.add(entry);
+                    }
+                    for (int round = 0; round < 3; round++) {
+                        Collections.shuffle(entries, random);
+                        final List<SevenZArchiveEntry> wanted = entries.subList(0, entries.size() / 2);
+                        final List<SevenZArchiveEntry> seen = new ArrayList<>();
+                        archive.extract(wanted, new SevenZEntryHandler() {
+                            @Override
+                            public void handle(final SevenZArchiveEntry entry, final InputStream content)
+                                throws IOException {
+                                assertArrayEquals(fileName + "!" + entry.getName(), expected.get(entry.getName()),
+                                    IOUtils.toByteArray(content));
+                                seen.add(entry);
+                            }
+                        });
+                        assertEquals(wanted.size(), seen.size());
+                        assertTrue(seen.containsAll(wanted));
+                    }
+                    // sequential reading isn't affected
+                    final SevenZArchiveEntry entry = archive.getNextEntry();
+                    assertArrayEquals(expected.get(entry.getName()), readFully(archive));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void extractRejectsForeignEntries() throws Exception {
+        try (SevenZFile archive = new SevenZFile(getFile("COMPRESS-320/Copy.7z"))) {
+            thrown.expect(IllegalArgumentException.class);
+            archive.extract(Collections.singleton(new SevenZArchiveEntry()), new SevenZEntryHandler() {
+                @Override
+                public void handle(final SevenZArchiveEntry entry, final InputStream content) {
+                    fail("handler must not be called");
+                }
+            });
+        }
+    }
+
     private byte[] readFully(final SevenZFile archive) throws IOException {
         final byte [] buf = new byte [1024];
         final ByteArrayOutputStream baos = new ByteArrayOutputStream();
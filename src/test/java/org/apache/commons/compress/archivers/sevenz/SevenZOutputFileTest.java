@@ -18,6 +18,7 @@
 package org.apache.commons.compress.archivers.sevenz;
 
 import static org.junit.Assert.*;
+import org.junit.Rule;
 import org.junit.Test;
 
 import java.io.File;
@@ -28,7 +29,11 @@
 import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.apache.commons.compress.AbstractTestCase;
+import org.apache.commons.compress.ExecutorServiceResource;
 import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
 import org.tukaani.xz.LZMA2Options;
 
@@ -46,6 +51,9 @@ public class SevenZOutputFileTest extends AbstractTestCase {
     }
     private File output;
 
+    @Rule
+    public final ExecutorServiceResource executor = new ExecutorServiceResource();
+
     @Override
     public void tearDown() throws Exception {
         if (output != null && !output.delete()) {
@@ -376,6 +384,97 @@ public void testArchiveWithMixedMethods() throws Exception {
         }
     }
 
+    @Test
+    public void testSolidArchive() throws Exception {
+        final byte[] nonSolid = createArchiveWithManySmallFiles(1, Long.MAX_VALUE, null);
+        final byte[] solid = createArchiveWithManySmallFiles(10, Long.MAX_VALUE, null);
+        assertTrue(solid.length < nonSolid.length);
+        verifyArchiveWithManySmallFiles(solid);
+        verifyArchiveWithManySmallFiles(createArchiveWithManySmallFiles(Integer.MAX_VALUE, 5000, null));
+        verifyArchiveWithManySmallFiles(createArchiveWithManySmallFiles(Integer.MAX_VALUE, Long.MAX_VALUE, null));
+    }
+
+    @Test
+    public void testParallelCompressionCreatesSameArchive() throws Exception {
+        for (final int maxEntries : new int[] { 1, 7 }) {
+            final byte[] expected = createArchiveWithManySmallFiles(maxEntries, Long.MAX_VALUE, null);
+            final byte[] actual = createArchiveWithManySmallFiles(maxEntries, Long.MAX_VALUE, executor.get());
+            assertArrayEquals(expected, actual);
+            verifyArchiveWithManySmallFiles(actual);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParallelCompressionMustBeEnabledBeforeAddingEntries() throws Exception {
+        try (SevenZOutputFile archive = new SevenZOutputFile(new SeekableInMemoryByteChannel())) {
+            addDir(archive);
+            archive.setParallelCompression(Executors.newSingleThreadExecutor(), null, 1);
+        }
+    }
+
+    private static byte[] createArchiveWithManySmallFiles(final int maxEntries, final long maxBytes,
+        final ExecutorService executor) throws IOException {
+        final SeekableInMemoryByteChannel channel = new SeekableInMemoryByteChannel();
+        try (SevenZOutputFile archive = new SevenZOutputFile(channel)) {
+            // a small dictionary keeps the test fast
+            archive.setContentMethods(Arrays.asList(new SevenZMethodConfiguration(SevenZMethod.LZMA2, 1 << 16)));
+            archive.setMaxEntriesPerFolder(maxEntries);
+            archive.setMaxBytesPerFolder(maxBytes);
+            if (executor != null) {
+                archive.setParallelCompression(executor, null, 3);
+            }
+            for (int i = 0; i < 60; i++) {
+                final SevenZArchiveEntry entry = new SevenZArchiveEntry();
+                entry.setName("file" + i);
+                if (i % 10 == 3) {
+                    entry.setDirectory(true);
+                } else if (i == 42) {
+                    entry.setContentMethods(Arrays.asList(new SevenZMethodConfiguration(SevenZMethod.BZIP2)));
+                }
+                archive.putArchiveEntry(entry);
+                if (!entry.isDirectory()) {
+                    archive.write(getContent(i));
+                }
+                archive.closeArchiveEntry();
+            }
+        }
+        return Arrays.copyOf(channel.array(), (int) channel.size());
+    }
+
+    private static void verifyArchiveWithManySmallFiles(final byte[] sevenZ) throws IOException {
+        try (SevenZFile archive = new SevenZFile(new SeekableInMemoryByteChannel(sevenZ))) {
+            for (int i = 0; i < 60; i++) {
+                final SevenZArchiveEntry entry = archive.getNextEntry();
+                assertEquals("file" + i, entry.getName());
+                if (i % 10 == 3) {
+                    assertTrue(entry.isDirectory());
+                } else {
+                    final byte[] content = new byte[(int) entry.getSize()];
+                    int off = 0;
+                    while (off < content.length) {
+                        final int bytesRead = archive.read(content, off, content.length - off);
+                        assertTrue(bytesRead > 0);
+                        off += bytesRead;
+                    }
+                    assertEquals(-1, archive.read());
+                    assertArrayEquals(entry.getName(), getContent(i), content);
+                }
+            }
+            assertNull(archive.getNextEntry());
+        }
+    }
+
+    private static byte[] getContent(final int index) {
+        // similar text so solid compression pays off, every fifth file is empty
+        final Random random = new Random(index);
+        final StringBuilder sb = new StringBuilder();
+        final int words = index % 5 == 0 ? 0 : 200 + random.nextInt(400);
+        for (int i = 0; i < words; i++) {
+            sb.append(random.nextBoolean() ? "lorem " : "ipsum ").append(random.nextInt(20)).append('\n');
+        }
+        return sb.toString().getBytes();
+    }
+
     private void testCompress252(final int numberOfFiles, final int numberOfNonEmptyFiles)
         throws Exception {
         final int nonEmptyModulus = numberOfNonEmptyFiles != 0
@@ -0,0 +1,135 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.commons.compress.archivers.tar;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.compress.AbstractTestCase;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.utils.CharsetNames;
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.junit.Test;
+
+public class TarArchiveIndexTest extends AbstractTestCase {
+
+    @Test
+    public void indexOfPlainArchivesMatchesTheStreamingReader() throws Exception {
+        for (final String archive : new String[] {
+                "bla.tar", "oldgnu_sparse.tar", "oldgnu_extended_sparse.tar", "pax_gnu_sparse.tar",
+                "posix00_sparse.tar", "posix01_sparse.tar", "posix10_sparse.tar"
+            }) {
+            final byte[] tar = Files.readAllBytes(getFile(archive).toPath());
+            final TarArchiveIndex index;
+            try (InputStream in = new ByteArrayInputStream(tar)) {
+                index = roundTrip(TarArchiveIndex.create(in, CharsetNames.UTF_8));
+            }
+            assertSameAsStream(tar, index, new SeekableInMemoryByteChannel(tar));
+        }
+    }
+
+    @Test
+    public void indexOfGzippedArchiveMatchesTheStreamingReader() throws Exception {
+        final ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        final Random random = new Random(17);
+        try (TarArchiveOutputStream tos = new TarArchiveOutputStream(tar, CharsetNames.UTF_8)) {
+            tos.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            for (int i = 0; i < 50; i++) {
+                final byte[] content = new byte[random.nextInt(50000)];
+                for (int j = 0; j < content.length; j++) {
+                    content[j] = (byte) ('a' + random.nextInt(4));
+                }
+                final StringBuilder name = new StringBuilder("dir/");
+                for (int j = 0; j < i * 3; j++) {
+                    name.append('x');
+                }
+                final TarArchiveEntry entry = new TarArchiveEntry(name.append(i).toString());
+                entry.setSize(content.length);
+                tos.putArchiveEntry(entry);
+                tos.write(content);
+                tos.closeArchiveEntry();
+            }
+        }
+        final ByteArrayOutputStream gz = new ByteArrayOutputStream();
+        try (GzipCompressorOutputStream out = new GzipCompressorOutputStream(gz)) {
+            out.write(tar.toByteArray());
+        }
+
+        final TarArchiveIndex index;
+        try (InputStream in = new ByteArrayInputStream(gz.toByteArray())) {
+            index = roundTrip(TarArchiveIndex.createForGzip(in, 32 * 1024, CharsetNames.UTF_8));
+        }
+        assertNotNull(index.getGzipIndex());
+        assertEquals(50, index.getEntries().size());
+        assertSameAsStream(tar.toByteArray(), index, new SeekableInMemoryByteChannel(gz.toByteArray()));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsNonIndexData() throws Exception {
+        TarArchiveIndex.readFrom(new ByteArrayInputStream(new byte[100]));
+    }
+
+    private static TarArchiveIndex roundTrip(final TarArchiveIndex index) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        index.writeTo(bos);
+        return TarArchiveIndex.readFrom(new ByteArrayInputStream(bos.toByteArray()));
+    }
+
+    private static void assertSameAsStream(final byte[] tar, final TarArchiveIndex index,
+        final SeekableByteChannel channel) throws IOException {
+        final List<TarArchiveIndex.Entry> entries = index.getEntries();
+        try (TarArchiveInputStream in = new TarArchiveInputStream(new ByteArrayInputStream(tar),
+                 CharsetNames.UTF_8);
+             TarFile tarFile = new TarFile(tar, CharsetNames.UTF_8)) {
+            int i = 0;
+            TarArchiveEntry expected;
+            while ((expected = in.getNextTarEntry()) != null) {
+                final long expectedOffset = tarFile.getEntries().get(i).getDataOffset();
+                final TarArchiveIndex.Entry entry = entries.get(i++);
+                assertEquals(expected.getName(), entry.getName());
+                assertEquals(expected.getRealSize(), entry.getSize());
+                assertEquals(expectedOffset, entry.getDataOffset());
+
+                final TarArchiveEntry actual = index.readEntry(channel, entry);
+                assertEquals(expected.getName(), actual.getName());
+                assertEquals(expected.getModTime(), actual.getModTime());
+                assertEquals(expectedOffset, actual.getDataOffset());
+
+                final byte[] expectedContent = IOUtils.toByteArray(in);
+                try (InputStream s = index.getInputStream(channel, entry)) {
+                    assertArrayEquals(expected.getName(), expectedContent, IOUtils.toByteArray(s));
+                }
+            }
+            assertEquals(entries.size(), i);
+            assertNull(in.getNextTarEntry());
+        }
+    }
+}
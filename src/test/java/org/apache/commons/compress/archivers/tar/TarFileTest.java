@@ -0,0 +1,177 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.commons.compress.archivers.tar;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import org.apache.commons.compress.AbstractTestCase;
+import org.apache.commons.compress.ExecutorServiceResource;
+import org.apache.commons.compress.utils.CharsetNames;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class TarFileTest extends AbstractTestCase {
+
+    @Rule
+    public final ExecutorServiceResource executor = new ExecutorServiceResource();
+
+    @Test
+    public void entriesMatchTheStreamingReader() throws Exception {
+        for (final String archive : new String[] {
+                "bla.tar", "oldgnu_sparse.tar", "oldgnu_extended_sparse.tar", "pax_gnu_sparse.tar",
+                "posix00_sparse.tar", "posix01_sparse.tar", "posix10_sparse.tar"
+            }) {
+            assertSameAsStream(getFile(archive), CharsetNames.UTF_8);
+        }
+        assertSameAsStream(getFile("COMPRESS-114.tar"), CharsetNames.ISO_8859_1);
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldThrowAnExceptionOnTruncatedEntries() throws Exception {
+        try (TarFile tarFile = new TarFile(getFile("COMPRESS-279.tar"))) {
+            for (final TarArchiveEntry entry : tarFile.getEntries()) {
+                read(tarFile, entry);
+            }
+        }
+    }
+
+    @Test
+    public void readsLongNamesAndPaxHeaders() throws Exception {
+        final String longName = "this/is/a/very/long/name/that/does/not/fit/into/the/one/hundred/characters/"
+            + "of/a/plain/ustar/header/file.txt";
+        final String nonAscii = "\u00e4\u00f6\u00fc.txt";
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tos = new TarArchiveOutputStream(bos, CharsetNames.UTF_8)) {
+            tos.setLongFileMode(TarArchiveOutputStream.LONGFILE_GNU);
+            tos.setAddPaxHeadersForNonAsciiNames(true);
+            addEntry(tos, longName, "hello".getBytes(CharsetNames.UTF_8));
+            addEntry(tos, nonAscii, "world".getBytes(CharsetNames.UTF_8));
+            addEntry(tos, "short.txt", new byte[1000]);
+        }
+
+        try (TarFile tarFile = new TarFile(bos.toByteArray(), CharsetNames.UTF_8)) {
+            final List<TarArchiveEntry> entries = tarFile.getEntries();
+            assertEquals(3, entries.size());
+            assertEquals(longName, entries.get(0).getName());
+            assertEquals(nonAscii, entries.get(1).getName());
+            assertArrayEquals("world".getBytes(CharsetNames.UTF_8), read(tarFile, tarFile.getEntry(nonAscii)));
+            assertArrayEquals("hello".getBytes(CharsetNames.UTF_8), read(tarFile, tarFile.getEntry(longName)));
+            assertEquals(1000, read(tarFile, tarFile.getEntry("short.txt")).length);
+            assertNull(tarFile.getEntry("missing"));
+        }
+    }
+
+    @Test
+    public void lastEntryOfAGivenNameWins() throws Exception {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (TarArchiveOutputStream tos = new TarArchiveOutputStream(bos)) {
+            addEntry(tos, "a.txt", new byte[] { 1 });
+            addEntry(tos, "a.txt", new byte[] { 2, 3 });
+        }
+        try (TarFile tarFile = new TarFile(bos.toByteArray())) {
+            assertEquals(2, tarFile.getEntries().size());
+            assertArrayEquals(new byte[] { 2, 3 }, read(tarFile, tarFile.getEntry("a.txt")));
+        }
+    }
+
+    @Test
+    public void entriesCanBeReadConcurrently() throws Exception {
+        final File archive = new File(dir, "concurrent.tar");
+        final int count = 32;
+        try (TarArchiveOutputStream tos = new TarArchiveOutputStream(new FileOutputStream(archive))) {
+            for (int i = 0; i < count; i++) {
+                final byte[] data = new byte[10000 + i];
+                for (int j = 0; j < data.length; j++) {
+                    data[j] = (byte) (i + j);
+                }
+                addEntry(tos, "entry" + i, data);
+            }
+        }
+
+        try (final TarFile tarFile = new TarFile(archive)) {
+            final List<Future<byte[]>> results = new ArrayList<>();
+            for (int i = count - 1; i >= 0; i--) {
+                final TarArchiveEntry entry = tarFile.getEntry("entry" + i);
+                assertNotNull(entry);
+                results.add(executor.get().submit(new Callable<byte[]>() {
+                    @Override
+                    public byte[] call() throws Exception {
+                        return read(tarFile, entry);
+                    }
+                }));
+            }
+            for (int i = count - 1; i >= 0; i--) {
+                final byte[] data = results.get(count - 1 - i).get();
+                assertEquals(10000 + i, data.length);
+                for (int j = 0; j < data.length; j++) {
+                    assertEquals((byte) (i + j), data[j]);
+                }
+            }
+        }
+    }
+
+    private static void addEntry(final TarArchiveOutputStream tos, final String name, final byte[] data)
+        throws Exception {
+        final TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(data.length);
+        tos.putArchiveEntry(entry);
+        tos.write(data);
+        tos.closeArchiveEntry();
+    }
+
+    private static byte[] read(final TarFile tarFile, final TarArchiveEntry entry) throws Exception {
+        try (InputStream in = tarFile.getInputStream(entry)) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    private static void assertSameAsStream(final File archive, final String encoding) throws Exception {
+        try (TarFile tarFile = new TarFile(archive, encoding);
+             TarArchiveInputStream tin = new TarArchiveInputStream(new FileInputStream(archive), encoding)) {
+            final List<TarArchiveEntry> entries = tarFile.getEntries();
+            int i = 0;
+            TarArchiveEntry expected;
+            while ((expected = tin.getNextTarEntry()) != null) {
+                final TarArchiveEntry actual = entries.get(i++);
+                assertEquals(archive.getName(), expected.getName(), actual.getName());
+                assertEquals(expected.getSize(), actual.getSize());
+                assertEquals(expected.getRealSize(), actual.getRealSize());
+                assertEquals(expected.isSparse(), actual.isSparse());
+                final byte[] expectedData = IOUtils.toByteArray(tin);
+                assertArrayEquals(archive.getName() + " " + actual.getName(), expectedData, read(tarFile, actual));
+            }
+            assertEquals(archive.getName(), i, entries.size());
+        }
+    }
+}
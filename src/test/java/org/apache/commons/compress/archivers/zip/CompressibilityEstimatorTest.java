@@ -0,0 +1,214 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.commons.compress.archivers.zip;
+
+import static org.apache.commons.compress.AbstractTestCase.createCompressibleData;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.compress.AbstractTestCase;
+import org.apache.commons.compress.ExecutorServiceResource;
+import org.apache.commons.compress.parallel.InputStreamSupplier;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class CompressibilityEstimatorTest {
+
+    private static final int SAMPLE_SIZE = 16 * 1024;
+
+    @Rule
+    public final ExecutorServiceResource executor = new ExecutorServiceResource();
+
+    private final CompressibilityEstimator estimator = new CompressibilityEstimator(SAMPLE_SIZE, 0.05);
+    private File result;
+
+    @After
+    public void cleanup() {
+        AbstractTestCase.tryHardToDelete(result);
+    }
+
+    @Test
+    public void distinguishesCompressibleFromIncompressibleContent() {
+        final byte[] random = randomData(SAMPLE_SIZE, 1);
+        assertFalse(estimator.isWorthDeflating(random, 0, random.length));
+        assertFalse(estimator.isWorthDeflating(random, 0, 0));
+
+        final byte[] text = createCompressibleData(SAMPLE_SIZE);
+        assertTrue(CompressibilityEstimator.entropy(text, 0, text.length) < 7);
+        assertTrue(estimator.isWorthDeflating(text, 0, text.length));
+
+        // high order-0 entropy but lots of repeated strings
+        final byte[] repeated = new byte[SAMPLE_SIZE];
+        for (int i = 0; i < repeated.length; i++) {
+            repeated[i] = random[i % 1024];
+        }
+        assertTrue(CompressibilityEstimator.entropy(repeated, 0, repeated.length) > 7.5);
+        assertTrue(estimator.isWorthDeflating(repeated, 0, repeated.length));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMinimumSavingsOfOne() {
+        new CompressibilityEstimator(SAMPLE_SIZE, 1);
+    }
+
+    @Test
+    public void storesIncompressibleEntriesWhenWritingToAFile() throws IOException {
+        final byte[][] contents = contents();
+        result = File.createTempFile("compressibility", ".zip");
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(result)) {
+            zos.setCompressibilityEstimator(estimator);
+            addEntries(zos, contents);
+        }
+        assertEntries(contents, ZipEntry.DEFLATED, ZipEntry.STORED, ZipEntry.STORED, ZipEntry.STORED,
+            ZipEntry.DEFLATED);
+    }
+
+    @Test
+    public void skipsDeflatingIncompressibleEntriesWhenWritingToAStream() throws IOException {
+        final byte[][] contents = contents();
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(bos)) {
+            zos.setCompressibilityEstimator(estimator);
+            addEntries(zos, contents);
+        }
+        final byte[] zip = bos.toByteArray();
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            for (int i = 0; i < contents.length; i++) {
+                assertEquals("entry" + i, zis.getNextEntry().getName());
+                assertArrayEquals(contents[i], IOUtils.toByteArray(zis));
+            }
+            assertNull(zis.getNextEntry());
+        }
+        result = File.createTempFile("compressibility", ".zip");
+        Files.write(result.toPath(), zip);
+        // big incompressible entries are deflated without compression and slightly grow
+        assertEntries(contents, ZipEntry.DEFLATED, ZipEntry.STORED, ZipEntry.DEFLATED, ZipEntry.DEFLATED,
+            ZipEntry.DEFLATED);
+        try (ZipFile zf = new ZipFile(result)) {
+            final ZipArchiveEntry big = zf.getEntry("entry2");
+            assertTrue(big.getCompressedSize() >= big.getSize());
+            final ZipArchiveEntry text = zf.getEntry("entry4");
+            assertTrue(text.getCompressedSize() < text.getSize() / 2);
+        }
+    }
+
+    @Test
+    public void updatesTheGivenEntryWhenStoringIt() throws IOException {
+        final byte[] random = randomData(1000, 1);
+        final CRC32 crc = new CRC32();
+        crc.update(random);
+        result = File.createTempFile("compressibility", ".zip");
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(result)) {
+            zos.setCompressibilityEstimator(estimator);
+            final ZipArchiveEntry entry = new ZipArchiveEntry("entry");
+            zos.addArchiveEntry(entry, new ByteArrayInputStream(random));
+            assertEquals(ZipEntry.STORED, entry.getMethod());
+            assertEquals(random.length, entry.getSize());
+            assertEquals(random.length, entry.getCompressedSize());
+            assertEquals(crc.getValue(), entry.getCrc());
+        }
+    }
+
+    @Test
+    public void storesIncompressibleEntriesOfScatterStreams() throws Exception {
+        final byte[][] contents = contents();
+        result = File.createTempFile("compressibility", ".zip");
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(result);
+             PipelinedScatterZipCreator creator = new PipelinedScatterZipCreator(executor.get(), zos, 2)) {
+            creator.setCompressibilityEstimator(estimator);
+            for (int i = 0; i < contents.length; i++) {
+                final ZipArchiveEntry entry = new ZipArchiveEntry("entry" + i);
+                entry.setMethod(ZipEntry.DEFLATED);
+                creator.addArchiveEntry(entry, supplier(contents[i]));
+            }
+            creator.finish();
+        }
+        assertEntries(contents, ZipEntry.DEFLATED, ZipEntry.STORED, ZipEntry.STORED, ZipEntry.STORED,
+            ZipEntry.DEFLATED);
+    }
+
+    private void assertEntries(final byte[][] contents, final int... methods) throws IOException {
+        try (ZipFile zf = new ZipFile(result)) {
+            for (int i = 0; i < contents.length; i++) {
+                final ZipArchiveEntry entry = zf.getEntry("entry" + i);
+                assertEquals(entry.getName(), methods[i], entry.getMethod());
+                assertEquals(contents[i].length, entry.getSize());
+                try (InputStream in = zf.getInputStream(entry)) {
+                    assertArrayEquals(entry.getName(), contents[i], IOUtils.toByteArray(in));
+                }
+            }
+        }
+    }
+
+    private void addEntries(final ZipArchiveOutputStream zos, final byte[][] contents) throws IOException {
+        for (int i = 0; i < contents.length; i++) {
+            final ZipArchiveEntry entry = new ZipArchiveEntry("entry" + i);
+            if (i % 2 == 0) {
+                zos.addArchiveEntry(entry, new ByteArrayInputStream(contents[i]));
+            } else {
+                zos.addArchiveEntry(entry, new ByteArrayInputStream(contents[i]), executor.get(), 32 * 1024, 2);
+            }
+        }
+    }
+
+    /**
+     * Text, small random, big random, random followed by text and big text.
+     */
+    private static byte[][] contents() {
+        final byte[] randomThenText = Arrays.copyOf(randomData(SAMPLE_SIZE, 3), 3 * SAMPLE_SIZE);
+        final byte[] text = createCompressibleData(2 * SAMPLE_SIZE);
+        System.arraycopy(text, 0, randomThenText, SAMPLE_SIZE, text.length);
+        return new byte[][] {
+            createCompressibleData(1000), randomData(1000, 1), randomData(5 * SAMPLE_SIZE, 2), randomThenText,
+            createCompressibleData(5 * SAMPLE_SIZE)
+        };
+    }
+
+    private static InputStreamSupplier supplier(final byte[] content) {
+        return new InputStreamSupplier() {
+            @Override
+            public InputStream get() {
+                return new ByteArrayInputStream(content);
+            }
+        };
+    }
+
+    private static byte[] randomData(final int size, final long seed) {
+        final byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.commons.compress.archivers.zip;
+
+import static org.apache.commons.compress.AbstractTestCase.createCompressibleData;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.compress.AbstractTestCase;
+import org.apache.commons.compress.ExecutorServiceResource;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ParallelDeflaterTest {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    @Rule
+    public final ExecutorServiceResource executor = new ExecutorServiceResource();
+
+    private File result;
+
+    @After
+    public void cleanup() {
+        AbstractTestCase.tryHardToDelete(result);
+    }
+
+    @Test
+    public void parallelDeflatedEntriesCanBeReadByStreamsAndFiles() throws IOException {
+        final byte[][] contents = new byte[][] {
+            new byte[0], createCompressibleData(100), createCompressibleData(CHUNK_SIZE),
+            createCompressibleData(3 * CHUNK_SIZE), createCompressibleData(10 * CHUNK_SIZE + 12345)
+        };
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(bos)) {
+            addEntries(zos, contents);
+        }
+        assertReadableByZipInputStream(bos.toByteArray(), contents);
+
+        result = File.createTempFile("parallelDeflate", ".zip");
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(result)) {
+            addEntries(zos, contents);
+        }
+        try (ZipFile zf = new ZipFile(result)) {
+            for (int i = 0; i < contents.length; i++) {
+                final ZipArchiveEntry entry = zf.getEntry("entry" + i);
+                assertEquals(ZipEntry.DEFLATED, entry.getMethod());
+                assertEquals(contents[i].length, entry.getSize());
+                assertEquals(crc(contents[i], 0, contents[i].length), entry.getCrc());
+                try (InputStream in = zf.getInputStream(entry)) {
+                    assertArrayEquals(entry.getName(), contents[i], IOUtils.toByteArray(in));
+                }
+            }
+            final ZipArchiveEntry stored = zf.getEntry("stored");
+            assertEquals(ZipEntry.STORED, stored.getMethod());
+            try (InputStream in = zf.getInputStream(stored)) {
+                assertArrayEquals(contents[2], IOUtils.toByteArray(in));
+            }
+        }
+    }
+
+    @Test
+    public void parallelDeflateCompressesLikeSequentialDeflate() throws IOException {
+        final byte[] content = createCompressibleData(20 * CHUNK_SIZE);
+        final ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(sequential)) {
+            zos.putArchiveEntry(new ZipArchiveEntry("entry"));
+            zos.write(content);
+            zos.closeArchiveEntry();
+        }
+        final ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(parallel)) {
+            zos.addArchiveEntry(new ZipArchiveEntry("entry"), new ByteArrayInputStream(content), executor.get(),
+                CHUNK_SIZE, 8);
+        }
+        // sync flushes and restarted blocks cost a little but the dictionary keeps the ratio close
+        assertTrue(parallel.size() < sequential.size() * 1.05);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveChunkSize() throws IOException {
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(new ByteArrayOutputStream())) {
+            zos.addArchiveEntry(new ZipArchiveEntry("entry"), new ByteArrayInputStream(new byte[0]), executor.get(),
+                0, 1);
+        }
+    }
+
+    private void addEntries(final ZipArchiveOutputStream zos, final byte[][] contents) throws IOException {
+        for (int i = 0; i < contents.length; i++) {
+            zos.addArchiveEntry(new ZipArchiveEntry("entry" + i), new ByteArrayInputStream(contents[i]), executor.get(),
+                CHUNK_SIZE, 3);
+        }
+        final ZipArchiveEntry stored = new ZipArchiveEntry("stored");
+        stored.setMethod(ZipEntry.STORED);
+        stored.setSize(contents[2].length);
+        stored.setCrc(crc(contents[2], 0, contents[2].length));
+        zos.addArchiveEntry(stored, new ByteArrayInputStream(contents[2]), executor.get(), CHUNK_SIZE, 3);
+    }
+
+    private static void assertReadableByZipInputStream(final byte[] zip, final byte[][] contents)
+        throws IOException {
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            for (int i = 0; i < contents.length; i++) {
+                final ZipEntry entry = zis.getNextEntry();
+                assertEquals("entry" + i, entry.getName());
+                assertArrayEquals(entry.getName(), contents[i], IOUtils.toByteArray(zis));
+            }
+            assertEquals("stored", zis.getNextEntry().getName());
+            assertArrayEquals(contents[2], IOUtils.toByteArray(zis));
+            assertNull(zis.getNextEntry());
+        }
+    }
+
+    private static long crc(final byte[] data, final int from, final int to) {
+        final CRC32 crc = new CRC32();
+        crc.update(Arrays.copyOfRange(data, from, to));
+        return crc.getValue();
+    }
+}
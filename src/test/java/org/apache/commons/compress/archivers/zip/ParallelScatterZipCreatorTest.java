@@ -17,12 +17,15 @@
  */
 package org.apache.commons.compress.archivers.zip;
 
+import org.apache.commons.compress.ExecutorServiceResource;
 import org.apache.commons.compress.parallel.FileBasedScatterGatherBackingStore;
 import org.apache.commons.compress.parallel.InputStreamSupplier;
+import org.apache.commons.compress.parallel.MemoryBasedScatterGatherBackingStoreSupplier;
 import org.apache.commons.compress.parallel.ScatterGatherBackingStore;
 import org.apache.commons.compress.parallel.ScatterGatherBackingStoreSupplier;
 import org.apache.commons.compress.utils.IOUtils;
 import org.junit.After;
+import org.junit.Rule;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
@@ -44,6 +47,9 @@ public class ParallelScatterZipCreatorTest {
 
     private final int NUMITEMS = 5000;
 
+    @Rule
+    public final ExecutorServiceResource executor = new ExecutorServiceResource();
+
     private File result;
     private File tmp;
 
@@ -69,6 +75,38 @@ public void concurrent()
         assertNotNull( zipCreator.getStatisticsMessage());
     }
 
+    @Test
+    public void concurrentWithMemoryBasedBackingStores() throws Exception {
+        result = File.createTempFile("parallelScatterGather4", "");
+        final ParallelScatterZipCreator zipCreator = new ParallelScatterZipCreator(executor.get(),
+            new MemoryBasedScatterGatherBackingStoreSupplier(1024, 16 * 1024, 1024 * 1024, null));
+        final Map<String, byte[]> entries = writeEntries(zipCreator);
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(result)) {
+            zos.setEncoding("UTF-8");
+            zipCreator.writeTo(zos);
+        }
+        removeEntriesFoundInZipFile(result, entries);
+        assertTrue(entries.isEmpty());
+        assertTrue(zipCreator.getStatisticsMessage().getSpilledStores() > 0);
+        assertTrue(zipCreator.getStatisticsMessage().getSpilledBytes() > 0);
+    }
+
+    @Test
+    public void memoryBasedBackingStoresWithinBudgetDontSpill() throws Exception {
+        result = File.createTempFile("parallelScatterGather5", "");
+        final ParallelScatterZipCreator zipCreator = new ParallelScatterZipCreator(executor.get(),
+            new MemoryBasedScatterGatherBackingStoreSupplier(Long.MAX_VALUE, Long.MAX_VALUE));
+        final Map<String, byte[]> entries = writeEntries(zipCreator);
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(result)) {
+            zos.setEncoding("UTF-8");
+            zipCreator.writeTo(zos);
+        }
+        removeEntriesFoundInZipFile(result, entries);
+        assertTrue(entries.isEmpty());
+        assertEquals(0, zipCreator.getStatisticsMessage().getSpilledStores());
+        assertEquals(0, zipCreator.getStatisticsMessage().getSpilledBytes());
+    }
+
     @Test
     public void callableApiUsingSubmit() throws Exception {
         result = File.createTempFile("parallelScatterGather2", "");
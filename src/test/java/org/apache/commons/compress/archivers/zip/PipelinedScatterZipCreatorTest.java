@@ -0,0 +1,236 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.archivers.zip;
+
+import org.apache.commons.compress.ExecutorServiceResource;
+import org.apache.commons.compress.parallel.FileBasedScatterGatherBackingStore;
+import org.apache.commons.compress.parallel.InputStreamSupplier;
+import org.apache.commons.compress.parallel.ScatterGatherBackingStore;
+import org.apache.commons.compress.parallel.ScatterGatherBackingStoreSupplier;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Enumeration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+
+import static org.apache.commons.compress.AbstractTestCase.tryHardToDelete;
+import static org.junit.Assert.*;
+
+public class PipelinedScatterZipCreatorTest {
+
+    private static final int NUMITEMS = 2000;
+    private static final int MAX_IN_FLIGHT = 8;
+
+    @Rule
+    public final ExecutorServiceResource executor = new ExecutorServiceResource();
+
+    private File result;
+
+    @After
+    public void cleanup() {
+        tryHardToDelete(result);
+    }
+
+    @Test
+    public void writesEntriesInOrderWithBoundedStorage() throws Exception {
+        result = File.createTempFile("pipelinedScatterGather", "");
+        final CountingSupplier supplier = new CountingSupplier();
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(result);
+             PipelinedScatterZipCreator zipCreator = new PipelinedScatterZipCreator(executor.get(), supplier, zos,
+                 MAX_IN_FLIGHT)) {
+            for (int i = 0; i < NUMITEMS; i++) {
+                final ZipArchiveEntry za = createZipArchiveEntry(i);
+                final InputStreamSupplier iss = payload(i);
+                if (i % 2 == 0) {
+                    zipCreator.addArchiveEntry(za, iss);
+                } else {
+                    zipCreator.addArchiveEntry(new ZipArchiveEntryRequestSupplier() {
+                        @Override
+                        public ZipArchiveEntryRequest get() {
+                            return ZipArchiveEntryRequest.createZipArchiveEntryRequest(za, iss);
+                        }
+                    });
+                }
+            }
+            zipCreator.finish();
+        }
+        assertEquals(NUMITEMS, supplier.created.get());
+        assertEquals(0, supplier.open.get());
+        assertTrue("up to " + supplier.maxOpen.get() + " stores were open",
+            supplier.maxOpen.get() <= MAX_IN_FLIGHT);
+
+        try (ZipFile zf = new ZipFile(result)) {
+            final Enumeration<ZipArchiveEntry> entries = zf.getEntriesInPhysicalOrder();
+            int i = 0;
+            while (entries.hasMoreElements()) {
+                final ZipArchiveEntry entry = entries.nextElement();
+                assertEquals("file" + i, entry.getName());
+                try (InputStream in = zf.getInputStream(entry)) {
+                    assertArrayEquals(entry.getName(), content(i), IOUtils.toByteArray(in));
+                }
+                i++;
+            }
+            assertEquals(NUMITEMS, i);
+        }
+    }
+
+    @Test
+    public void failuresOfCompressionArePropagated() throws Exception {
+        result = File.createTempFile("pipelinedScatterGather", "");
+        final CountingSupplier supplier = new CountingSupplier();
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(result);
+             PipelinedScatterZipCreator zipCreator = new PipelinedScatterZipCreator(executor.get(), supplier, zos,
+                 MAX_IN_FLIGHT)) {
+            try {
+                zipCreator.addArchiveEntry(createZipArchiveEntry(0), payload(0));
+                zipCreator.addArchiveEntry(createZipArchiveEntry(1), new InputStreamSupplier() {
+                    @Override
+                    public InputStream get() {
+                        return new InputStream() {
+                            @Override
+                            public int read() throws IOException {
+                                throw new IOException("broken payload");
+                            }
+                        };
+                    }
+                });
+                // depending on timing the failure may already surface here
+                zipCreator.addArchiveEntry(createZipArchiveEntry(2), payload(2));
+                zipCreator.finish();
+                fail("expected an exception");
+            } catch (final IOException ex) {
+                assertEquals("broken payload", ex.getMessage());
+            }
+        }
+        assertEquals(0, supplier.open.get());
+    }
+
+    @Test
+    public void closeReleasesStoresOfEntriesBeingCompressed() throws Exception {
+        result = File.createTempFile("pipelinedScatterGather", "");
+        final CountingSupplier supplier = new CountingSupplier();
+        final CountDownLatch compressing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(result);
+             PipelinedScatterZipCreator zipCreator = new PipelinedScatterZipCreator(executor.get(), supplier, zos,
+                 MAX_IN_FLIGHT)) {
+            zipCreator.addArchiveEntry(createZipArchiveEntry(1), new InputStreamSupplier() {
+                @Override
+                public InputStream get() {
+                    compressing.countDown();
+                    try {
+                        release.await();
+                    } catch (final InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return new ByteArrayInputStream(content(1));
+                }
+            });
+            assertTrue(compressing.await(10, TimeUnit.SECONDS));
+            // interrupted callers must not leak the store either
+            Thread.currentThread().interrupt();
+            try {
+                zipCreator.finish();
+                fail("expected an exception");
+            } catch (final InterruptedIOException ex) {
+                assertTrue(Thread.interrupted());
+            }
+            executor.get().execute(new Runnable() {
+                @Override
+                public void run() {
+                    release.countDown();
+                }
+            });
+            Thread.currentThread().interrupt();
+            zipCreator.close();
+            assertTrue(Thread.interrupted());
+            assertEquals(1, supplier.created.get());
+            assertEquals(0, supplier.open.get());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositiveNumberOfEntriesInFlight() throws IOException {
+        result = File.createTempFile("pipelinedScatterGather", "");
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(result)) {
+            new PipelinedScatterZipCreator(executor.get(), zos, 0);
+        }
+    }
+
+    private static ZipArchiveEntry createZipArchiveEntry(final int i) {
+        final ZipArchiveEntry za = new ZipArchiveEntry("file" + i);
+        za.setMethod(i % 3 == 0 ? ZipEntry.STORED : ZipEntry.DEFLATED);
+        za.setUnixMode(UnixStat.FILE_FLAG | 0664);
+        return za;
+    }
+
+    private static InputStreamSupplier payload(final int i) {
+        return new InputStreamSupplier() {
+            @Override
+            public InputStream get() {
+                return new ByteArrayInputStream(content(i));
+            }
+        };
+    }
+
+    private static byte[] content(final int i) {
+        final StringBuilder sb = new StringBuilder();
+        for (int j = 0; j < i % 50; j++) {
+            sb.append("content").append(i);
+        }
+        return sb.toString().getBytes();
+    }
+
+    private static class CountingSupplier implements ScatterGatherBackingStoreSupplier {
+        private final AtomicInteger created = new AtomicInteger();
+        private final AtomicInteger open = new AtomicInteger();
+        private final AtomicInteger maxOpen = new AtomicInteger();
+
+        @Override
+        public ScatterGatherBackingStore get() throws IOException {
+            created.incrementAndGet();
+            final int nowOpen = open.incrementAndGet();
+            int max;
+            while ((max = maxOpen.get()) < nowOpen && !maxOpen.compareAndSet(max, nowOpen)) {
+                // retry
+            }
+            return new FileBasedScatterGatherBackingStore(File.createTempFile("pipelinedscatter", "n")) {
+                private boolean closed;
+
+                @Override
+                public void close() throws IOException {
+                    if (!closed) {
+                        closed = true;
+                        open.decrementAndGet();
+                    }
+                    super.close();
+                }
+            };
+        }
+    }
+}
@@ -23,8 +23,11 @@
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Random;
 import java.util.zip.ZipEntry;
 
 import static org.apache.commons.compress.AbstractTestCase.tryHardToDelete;
@@ -77,6 +80,34 @@ public void putArchiveEntry() throws Exception {
         zf.close();
     }
 
+    @Test
+    public void transferToFileMatchesCopyToStream() throws Exception {
+        scatterFile = File.createTempFile("scattertest", ".notzip");
+        target = File.createTempFile("scattertest", ".zip");
+        try (ScatterZipOutputStream scatterZipOutputStream = ScatterZipOutputStream.fileBased(scatterFile)) {
+            final Random random = new Random(42);
+            for (int i = 0; i < 10; i++) {
+                final byte[] data = new byte[i * 10000];
+                for (int j = 0; j < data.length; j++) {
+                    data[j] = (byte) ('a' + random.nextInt(i + 1));
+                }
+                final ZipArchiveEntry entry = new ZipArchiveEntry("entry" + i);
+                entry.setMethod(i % 2 == 0 ? ZipEntry.DEFLATED : ZipEntry.STORED);
+                scatterZipOutputStream.addArchiveEntry(createZipArchiveEntryRequest(entry,
+                    createPayloadSupplier(new ByteArrayInputStream(data))));
+            }
+
+            try (ZipArchiveOutputStream outputStream = new ZipArchiveOutputStream(target)) {
+                scatterZipOutputStream.writeTo(outputStream);
+            }
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (ZipArchiveOutputStream outputStream = new ZipArchiveOutputStream(bos)) {
+                scatterZipOutputStream.writeTo(outputStream);
+            }
+            assertArrayEquals(bos.toByteArray(), Files.readAllBytes(target.toPath()));
+        }
+    }
+
     private InputStreamSupplier createPayloadSupplier(final ByteArrayInputStream payload) {
         return new InputStreamSupplier() {
             @Override
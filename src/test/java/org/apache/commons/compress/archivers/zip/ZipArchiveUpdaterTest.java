@@ -0,0 +1,203 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.commons.compress.archivers.zip;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.compress.AbstractTestCase;
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.junit.Test;
+
+public class ZipArchiveUpdaterTest extends AbstractTestCase {
+
+    @Test
+    public void appendsAndDeletesWithoutTouchingExistingData() throws IOException {
+        final byte[] a = createCompressibleData(10000);
+        final byte[] b = createCompressibleData(20000);
+        final byte[] c = createCompressibleData(30000);
+        final byte[] d = createCompressibleData(5000);
+        final byte[] original = createArchive(Zip64Mode.AsNeeded, "a", a, "b", b, "c", c);
+        final long centralDirectoryStart;
+        try (ZipFile zf = new ZipFile(new SeekableInMemoryByteChannel(original))) {
+            centralDirectoryStart = zf.getCentralDirectoryStartOffset();
+        }
+
+        final SeekableInMemoryByteChannel channel = new SeekableInMemoryByteChannel(original);
+        try (ZipArchiveUpdater updater = new ZipArchiveUpdater(channel)) {
+            assertEquals(Arrays.asList("a", "b", "c"), names(updater.getEntries()));
+            assertTrue(updater.delete("b"));
+            assertEquals(Arrays.asList("a", "c"), names(updater.getEntries()));
+            updater.addArchiveEntry(new ZipArchiveEntry("d"), new ByteArrayInputStream(d));
+        }
+        final byte[] updated = Arrays.copyOf(channel.array(), (int) channel.size());
+
+        assertArrayEquals(Arrays.copyOf(original, (int) centralDirectoryStart),
+            Arrays.copyOf(updated, (int) centralDirectoryStart));
+        assertContent(updated, "the comment", "a", a, "c", c, "d", d);
+    }
+
+    @Test
+    public void compactionRemovesDeletedData() throws IOException {
+        final byte[] a = createCompressibleData(10000);
+        final byte[] b = createCompressibleData(20000);
+        final byte[] c = createCompressibleData(30000);
+        final byte[] d = createCompressibleData(5000);
+        final byte[] original = createArchive(Zip64Mode.AsNeeded, "a", a, "b", b, "c", c);
+        final byte[] onlyC = createArchive(Zip64Mode.AsNeeded, "c", c);
+
+        final SeekableInMemoryByteChannel channel = new SeekableInMemoryByteChannel(original);
+        try (ZipArchiveUpdater updater = new ZipArchiveUpdater(channel)) {
+            updater.delete("a");
+            updater.delete("b");
+            updater.compact();
+        }
+        assertEquals(onlyC.length, channel.size());
+        final byte[] updated = Arrays.copyOf(channel.array(), (int) channel.size());
+        assertContent(updated, "the comment", "c", c);
+        assertStreamContent(updated, "c", c);
+
+        final SeekableInMemoryByteChannel compacted = new SeekableInMemoryByteChannel(updated);
+        try (ZipArchiveUpdater updater = new ZipArchiveUpdater(compacted)) {
+            updater.addArchiveEntry(new ZipArchiveEntry("d"), new ByteArrayInputStream(d));
+        }
+        assertStreamContent(Arrays.copyOf(compacted.array(), (int) compacted.size()), "c", c, "d", d);
+    }
+
+    @Test
+    public void compactionUpdatesZip64Offsets() throws IOException {
+        final byte[] a = createCompressibleData(10000);
+        final byte[] b = createCompressibleData(20000);
+        final byte[] c = createCompressibleData(30000);
+        final byte[] original = createArchive(Zip64Mode.Always, "a", a, "b", b, "c", c);
+
+        final SeekableInMemoryByteChannel channel = new SeekableInMemoryByteChannel(original);
+        try (ZipArchiveUpdater updater = new ZipArchiveUpdater(channel)) {
+            updater.delete("a");
+            updater.compact();
+        }
+        final byte[] updated = Arrays.copyOf(channel.array(), (int) channel.size());
+        assertTrue(updated.length < original.length);
+        assertContent(updated, "the comment", "b", b, "c", c);
+        assertStreamContent(updated, "b", b, "c", c);
+    }
+
+    @Test
+    public void updatesFiles() throws IOException {
+        final byte[] a = createCompressibleData(10000);
+        final byte[] b = createCompressibleData(20000);
+        final File archive = new File(dir, "update.zip");
+        Files.write(archive.toPath(), createArchive(Zip64Mode.AsNeeded, "a", a));
+        try (ZipArchiveUpdater updater = new ZipArchiveUpdater(archive)) {
+            final ZipArchiveEntry entry = new ZipArchiveEntry("b");
+            entry.setMethod(ZipArchiveEntry.STORED);
+            updater.addArchiveEntry(entry, new ByteArrayInputStream(b));
+        }
+        assertContent(Files.readAllBytes(archive.toPath()), "the comment", "a", a, "b", b);
+    }
+
+    @Test
+    public void deletesAllEntriesOfTheSameName() throws IOException {
+        final byte[] a = createCompressibleData(100);
+        final byte[] b = createCompressibleData(200);
+        final SeekableInMemoryByteChannel channel =
+            new SeekableInMemoryByteChannel(createArchive(Zip64Mode.AsNeeded, "a", a, "b", b, "a", b));
+        try (ZipArchiveUpdater updater = new ZipArchiveUpdater(channel)) {
+            assertTrue(updater.delete("a"));
+            assertFalse(updater.delete("a"));
+            assertFalse(updater.delete("c"));
+            assertEquals(Arrays.asList("b"), names(updater.getEntries()));
+        }
+        assertContent(Arrays.copyOf(channel.array(), (int) channel.size()), "the comment", "b", b);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void cantCompactAfterAddingEntries() throws IOException {
+        final SeekableInMemoryByteChannel channel =
+            new SeekableInMemoryByteChannel(createArchive(Zip64Mode.AsNeeded, "a", createCompressibleData(100)));
+        try (ZipArchiveUpdater updater = new ZipArchiveUpdater(channel)) {
+            updater.addArchiveEntry(new ZipArchiveEntry("b"), new ByteArrayInputStream(createCompressibleData(100)));
+            updater.compact();
+        }
+    }
+
+    private static byte[] createArchive(final Zip64Mode mode, final Object... namesAndContents) throws IOException {
+        final SeekableInMemoryByteChannel channel = new SeekableInMemoryByteChannel();
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(channel)) {
+            zos.setUseZip64(mode);
+            zos.setComment("the comment");
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zos.putArchiveEntry(new ZipArchiveEntry((String) namesAndContents[i]));
+                zos.write((byte[]) namesAndContents[i + 1]);
+                zos.closeArchiveEntry();
+            }
+        }
+        return Arrays.copyOf(channel.array(), (int) channel.size());
+    }
+
+    private static void assertContent(final byte[] archive, final String comment, final Object... namesAndContents)
+        throws IOException {
+        try (ZipFile zf = new ZipFile(new SeekableInMemoryByteChannel(archive))) {
+            final List<ZipArchiveEntry> entries = Collections.list(zf.getEntries());
+            assertEquals(namesAndContents.length / 2, entries.size());
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                final ZipArchiveEntry entry = entries.get(i / 2);
+                assertEquals(namesAndContents[i], entry.getName());
+                try (InputStream in = zf.getInputStream(entry)) {
+                    assertArrayEquals((byte[]) namesAndContents[i + 1], IOUtils.toByteArray(in));
+                }
+            }
+        }
+        final int commentLength = comment.length();
+        assertEquals(comment, new String(archive, archive.length - commentLength, commentLength, "UTF-8"));
+    }
+
+    private static void assertStreamContent(final byte[] archive, final Object... namesAndContents)
+        throws IOException {
+        try (ZipArchiveInputStream in = new ZipArchiveInputStream(new ByteArrayInputStream(archive))) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                assertEquals(namesAndContents[i], in.getNextZipEntry().getName());
+                assertArrayEquals((byte[]) namesAndContents[i + 1], IOUtils.toByteArray(in));
+            }
+            assertNull(in.getNextZipEntry());
+        }
+    }
+
+    private static List<String> names(final List<ZipArchiveEntry> entries) {
+        final List<String> names = new ArrayList<>();
+        for (final ZipArchiveEntry entry : entries) {
+            names.add(entry.getName());
+        }
+        return names;
+    }
+}
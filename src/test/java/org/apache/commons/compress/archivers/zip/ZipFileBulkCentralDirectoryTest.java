@@ -0,0 +1,127 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.commons.compress.archivers.zip;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.compress.AbstractTestCase;
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.junit.Test;
+
+public class ZipFileBulkCentralDirectoryTest {
+
+    @Test
+    public void bulkReadProvidesTheSameEntries() throws IOException {
+        for (final String archive : new String[] {
+                "bla.zip", "ordertest.zip", "COMPRESS-227.zip", "COMPRESS-228.zip", "utf8-7zip-test.zip",
+                "utf8-winzip-test.zip", "COMPRESS-214_unix_symlinks.zip", "archive_with_bytes_after_data.zip"
+            }) {
+            try (final ZipFile expected = new ZipFile(AbstractTestCase.getFile(archive), ZipEncodingHelper.UTF8,
+                     true, false);
+                 final ZipFile actual = new ZipFile(AbstractTestCase.getFile(archive), bulkOptions().build())) {
+                assertSameEntries(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void bulkReadNeedsFewerReadsOfTheArchive() throws IOException {
+        final byte[] archive = createArchive(2000);
+        final CountingChannel perEntry = new CountingChannel(archive);
+        final CountingChannel bulk = new CountingChannel(archive);
+        try (final ZipFile expected = new ZipFile(perEntry, "expected", ZipEncodingHelper.UTF8, true, true);
+             final ZipFile actual = new ZipFile(bulk, "actual",
+                 bulkOptions().withIgnoreLocalFileHeader(true).build())) {
+            assertTrue(perEntry.reads > 2000);
+            assertTrue("bulk read used " + bulk.reads + " reads", bulk.reads < 50);
+            assertSameEntries(expected, actual);
+        }
+    }
+
+    @Test
+    public void bulkReadWorksWithCompactIndex() throws IOException {
+        final byte[] archive = createArchive(500);
+        try (final ZipFile expected = new ZipFile(new SeekableInMemoryByteChannel(archive), "expected",
+                 ZipEncodingHelper.UTF8, true, true);
+             final ZipFile actual = new ZipFile(new SeekableInMemoryByteChannel(archive), "actual",
+                 bulkOptions().withUseCompactIndex(true).build())) {
+            assertSameEntries(expected, actual);
+        }
+    }
+
+    private static ZipFileOptions.Builder bulkOptions() {
+        return ZipFileOptions.builder().withEncoding(ZipEncodingHelper.UTF8).withReadCentralDirectoryInBulk(true);
+    }
+
+    private static byte[] createArchive(final int numberOfEntries) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (final ZipArchiveOutputStream zos = new ZipArchiveOutputStream(bos)) {
+            for (int i = 0; i < numberOfEntries; i++) {
+                final ZipArchiveEntry entry = new ZipArchiveEntry("dir" + (i % 13) + "/file-" + i);
+                entry.setComment(i % 7 == 0 ? "comment " + i : null);
+                zos.putArchiveEntry(entry);
+                zos.write(("content of " + i).getBytes("US-ASCII"));
+                zos.closeArchiveEntry();
+            }
+        }
+        return bos.toByteArray();
+    }
+
+    private static void assertSameEntries(final ZipFile expected, final ZipFile actual) throws IOException {
+        final List<ZipArchiveEntry> expectedEntries = Collections.list(expected.getEntries());
+        final List<ZipArchiveEntry> actualEntries = Collections.list(actual.getEntries());
+        assertEquals(expectedEntries, actualEntries);
+        for (int i = 0; i < expectedEntries.size(); i++) {
+            final ZipArchiveEntry e = expectedEntries.get(i);
+            final ZipArchiveEntry a = actualEntries.get(i);
+            assertEquals(e.getName(), e.getDataOffset(), a.getDataOffset());
+            assertEquals(e.getName(), e.getLocalHeaderOffset(), a.getLocalHeaderOffset());
+            if (expected.canReadEntryData(e)) {
+                try (InputStream ein = expected.getInputStream(e);
+                     InputStream ain = actual.getInputStream(a)) {
+                    assertArrayEquals(e.getName(), IOUtils.toByteArray(ein), IOUtils.toByteArray(ain));
+                }
+            }
+        }
+    }
+
+    private static class CountingChannel extends SeekableInMemoryByteChannel {
+        private int reads;
+
+        CountingChannel(final byte[] data) {
+            super(data);
+        }
+
+        @Override
+        public int read(final ByteBuffer buf) throws IOException {
+            reads++;
+            return super.read(buf);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.commons.compress.archivers.zip;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+import org.apache.commons.compress.AbstractTestCase;
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.junit.Test;
+
+public class ZipFileCompactIndexTest {
+
+    @Test
+    public void compactIndexProvidesTheSameEntries() throws IOException {
+        for (final String archive : new String[] {
+                "bla.zip", "ordertest.zip", "COMPRESS-227.zip", "COMPRESS-228.zip", "utf8-7zip-test.zip",
+                "utf8-winzip-test.zip", "COMPRESS-214_unix_symlinks.zip"
+            }) {
+            try (final ZipFile expected = new ZipFile(AbstractTestCase.getFile(archive), ZipEncodingHelper.UTF8,
+                     true, true);
+                 final ZipFile actual = new ZipFile(AbstractTestCase.getFile(archive), compactOptions("UTF8"))) {
+                assertSameEntries(expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void compactIndexFindsEntriesOfBigArchives() throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (final ZipArchiveOutputStream zos = new ZipArchiveOutputStream(bos)) {
+            zos.setEncoding("CP437");
+            zos.setUseLanguageEncodingFlag(false);
+            zos.setCreateUnicodeExtraFields(ZipArchiveOutputStream.UnicodeExtraFieldPolicy.NEVER);
+            for (int i = 0; i < 5000; i++) {
+                final ZipArchiveEntry entry = new ZipArchiveEntry("dir" + (i % 17) + "/äfile-" + i);
+                zos.putArchiveEntry(entry);
+                zos.write(("content of " + i).getBytes("US-ASCII"));
+                zos.closeArchiveEntry();
+            }
+        }
+        try (final ZipFile expected = new ZipFile(new SeekableInMemoryByteChannel(bos.toByteArray()),
+                 "expected", "CP437", true, true);
+             final ZipFile actual = new ZipFile(new SeekableInMemoryByteChannel(bos.toByteArray()), "actual",
+                 compactOptions("CP437"))) {
+            assertSameEntries(expected, actual);
+            assertEquals("content of 4711", new String(IOUtils.toByteArray(
+                actual.getInputStream(actual.getEntry("dir2/äfile-4711"))), "US-ASCII"));
+            assertNull(actual.getEntry("dir2/file-4711"));
+            assertFalse(actual.getEntries("dir2/äfile-4712").iterator().hasNext());
+        }
+    }
+
+    @Test
+    public void compactIndexReadsOffsetsOfZip64Archives() throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (final ZipArchiveOutputStream zos = new ZipArchiveOutputStream(bos)) {
+            zos.setUseZip64(Zip64Mode.Always);
+            for (int i = 0; i < 20; i++) {
+                zos.putArchiveEntry(new ZipArchiveEntry("file-" + i));
+                zos.write(("content of " + i).getBytes("US-ASCII"));
+                zos.closeArchiveEntry();
+            }
+        }
+        try (final ZipFile expected = new ZipFile(new SeekableInMemoryByteChannel(bos.toByteArray()),
+                 "expected", "UTF8", true, true);
+             final ZipFile actual = new ZipFile(new SeekableInMemoryByteChannel(bos.toByteArray()), "actual",
+                 compactOptions("UTF8"))) {
+            assertSameEntries(expected, actual);
+            assertEquals("content of 17", new String(IOUtils.toByteArray(
+                actual.getInputStream(actual.getEntry("file-17"))), "US-ASCII"));
+        }
+    }
+
+    private static ZipFileOptions compactOptions(final String encoding) {
+        return ZipFileOptions.builder().withEncoding(encoding).withUseCompactIndex(true).build();
+    }
+
+    private static void assertSameEntries(final ZipFile expected, final ZipFile actual) throws IOException {
+        final List<ZipArchiveEntry> expectedEntries = Collections.list(expected.getEntries());
+        assertEquals(expectedEntries, Collections.list(actual.getEntries()));
+        assertEquals(Collections.list(expected.getEntriesInPhysicalOrder()),
+            Collections.list(actual.getEntriesInPhysicalOrder()));
+        for (final ZipArchiveEntry entry : expectedEntries) {
+            assertEquals(expected.getEntry(entry.getName()), actual.getEntry(entry.getName()));
+            assertEquals(toList(expected.getEntries(entry.getName())), toList(actual.getEntries(entry.getName())));
+            assertEquals(toList(expected.getEntriesInPhysicalOrder(entry.getName())),
+                toList(actual.getEntriesInPhysicalOrder(entry.getName())));
+        }
+        final Enumeration<ZipArchiveEntry> actualEntries = actual.getEntries();
+        for (final ZipArchiveEntry entry : expectedEntries) {
+            final ZipArchiveEntry actualEntry = actualEntries.nextElement();
+            if (expected.canReadEntryData(entry)) {
+                try (InputStream e = expected.getInputStream(entry);
+                     InputStream a = actual.getInputStream(actualEntry)) {
+                    assertArrayEquals(entry.getName(), IOUtils.toByteArray(e), IOUtils.toByteArray(a));
+                }
+            }
+        }
+    }
+
+    private static List<ZipArchiveEntry> toList(final Iterable<ZipArchiveEntry> entries) {
+        final List<ZipArchiveEntry> result = new ArrayList<>();
+        for (final ZipArchiveEntry entry : entries) {
+            result.add(entry);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.commons.compress.archivers.zip;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.compress.AbstractTestCase;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.Test;
+
+public class ZipFileLazyLocalFileHeaderTest {
+
+    private static final String[] ARCHIVES = {
+        "bla.zip", "ordertest.zip", "COMPRESS-210_unix_time_zip_test.zip", "COMPRESS-227.zip",
+        "COMPRESS-228.zip", "utf8-winzip-test.zip"
+    };
+
+    @Test
+    public void resolvedEntriesEqualEagerlyReadEntries() throws IOException {
+        for (final String archive : ARCHIVES) {
+            try (final ZipFile expected = new ZipFile(AbstractTestCase.getFile(archive));
+                 final ZipFile actual = new ZipFile(AbstractTestCase.getFile(archive), lazyOptions())) {
+                final List<ZipArchiveEntry> entries = Collections.list(actual.getEntries());
+                actual.resolveLocalFileHeaders(entries);
+                assertEquals(archive, Collections.list(expected.getEntries()), entries);
+            }
+        }
+    }
+
+    @Test
+    public void entriesAreResolvedWhenReadingTheirData() throws IOException {
+        for (final String archive : ARCHIVES) {
+            try (final ZipFile expected = new ZipFile(AbstractTestCase.getFile(archive));
+                 final ZipFile actual = new ZipFile(AbstractTestCase.getFile(archive), lazyOptions())) {
+                final List<ZipArchiveEntry> expectedEntries = Collections.list(expected.getEntriesInPhysicalOrder());
+                final List<ZipArchiveEntry> actualEntries = Collections.list(actual.getEntriesInPhysicalOrder());
+                for (int i = 0; i < expectedEntries.size(); i++) {
+                    final ZipArchiveEntry expectedEntry = expectedEntries.get(i);
+                    final ZipArchiveEntry actualEntry = actualEntries.get(i);
+                    if (!expected.canReadEntryData(expectedEntry)) {
+                        continue;
+                    }
+                    try (InputStream e = expected.getInputStream(expectedEntry);
+                         InputStream a = actual.getInputStream(actualEntry)) {
+                        assertArrayEquals(IOUtils.toByteArray(e), IOUtils.toByteArray(a));
+                    }
+                    assertEquals(expectedEntry, actualEntry);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void localExtraFieldsAreOnlyAddedOnDemand() throws IOException {
+        try (final ZipFile expected = new ZipFile(AbstractTestCase.getFile("COMPRESS-210_unix_time_zip_test.zip"));
+             final ZipFile actual = new ZipFile(AbstractTestCase.getFile("COMPRESS-210_unix_time_zip_test.zip"),
+                 lazyOptions())) {
+            final ZipArchiveEntry expectedEntry = expected.getEntries().nextElement();
+            final ZipArchiveEntry actualEntry = actual.getEntries().nextElement();
+            assertNotEquals(expectedEntry, actualEntry);
+            try (InputStream e = expected.getRawInputStream(expectedEntry);
+                 InputStream a = actual.getRawInputStream(actualEntry)) {
+                assertNotNull(a);
+                assertArrayEquals(IOUtils.toByteArray(e), IOUtils.toByteArray(a));
+            }
+            assertEquals(expectedEntry, actualEntry);
+        }
+    }
+
+    @Test
+    public void readsFromSplitArchives() throws IOException {
+        final File lastFile = AbstractTestCase.getFile("COMPRESS-477/split_zip_created_by_zip/split_zip_created_by_zip.zip");
+        try (final SeekableByteChannel expectedChannel =
+                 ZipSplitReadOnlySeekableByteChannel.buildFromLastSplitSegment(lastFile);
+             final SeekableByteChannel actualChannel =
+                 ZipSplitReadOnlySeekableByteChannel.buildFromLastSplitSegment(lastFile);
+             final ZipFile expected = new ZipFile(expectedChannel);
+             final ZipFile actual = new ZipFile(actualChannel, "split", lazyOptions())) {
+            final List<ZipArchiveEntry> entries = Collections.list(actual.getEntries());
+            for (final ZipArchiveEntry entry : entries) {
+                try (InputStream e = expected.getInputStream(expected.getEntry(entry.getName()));
+                     InputStream a = actual.getInputStream(entry)) {
+                    assertArrayEquals(entry.getName(), IOUtils.toByteArray(e), IOUtils.toByteArray(a));
+                }
+            }
+            assertEquals(Collections.list(expected.getEntries()), entries);
+        }
+    }
+
+    private static ZipFileOptions lazyOptions() {
+        return ZipFileOptions.builder().withResolveLocalFileHeadersLazily(true).build();
+    }
+}
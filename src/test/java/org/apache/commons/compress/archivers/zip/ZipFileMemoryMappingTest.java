@@ -0,0 +1,134 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.commons.compress.archivers.zip;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.compress.AbstractTestCase;
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ZipFileMemoryMappingTest {
+
+    private File dir;
+    private File archive;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = AbstractTestCase.mkdir("dir");
+        archive = new File(dir, "mixed.zip");
+        final Random random = new Random(11);
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(archive)) {
+            for (int i = 0; i < 20; i++) {
+                final ZipArchiveEntry entry = new ZipArchiveEntry("entry-" + i);
+                entry.setMethod(i % 2 == 0 ? ZipEntry.STORED : ZipEntry.DEFLATED);
+                zos.putArchiveEntry(entry);
+                final byte[] content = new byte[random.nextInt(3000)];
+                for (int j = 0; j < content.length; j++) {
+                    content[j] = (byte) ('a' + random.nextInt(i + 1));
+                }
+                zos.write(content);
+                zos.closeArchiveEntry();
+            }
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        AbstractTestCase.rmdir(dir);
+    }
+
+    @Test
+    public void mappedArchiveProvidesTheSameContent() throws IOException {
+        for (final int regionSize : new int[] { 1000, 4096, 1 << 30 }) {
+            final ZipFileOptions options = ZipFileOptions.builder().withUseMemoryMapping(true)
+                .withMappedRegionSize(regionSize).build();
+            try (final ZipFile expected = new ZipFile(archive);
+                 final ZipFile actual = new ZipFile(archive, options)) {
+                final List<ZipArchiveEntry> entries = Collections.list(actual.getEntries());
+                assertEquals(Collections.list(expected.getEntries()), entries);
+                for (final ZipArchiveEntry entry : entries) {
+                    final ZipArchiveEntry expectedEntry = expected.getEntry(entry.getName());
+                    final byte[] content;
+                    try (InputStream e = expected.getInputStream(expectedEntry);
+                         InputStream a = actual.getInputStream(entry)) {
+                        content = IOUtils.toByteArray(e);
+                        assertArrayEquals(content, IOUtils.toByteArray(a));
+                    }
+                    try (InputStream e = expected.getRawInputStream(expectedEntry);
+                         InputStream a = actual.getRawInputStream(entry)) {
+                        assertArrayEquals(IOUtils.toByteArray(e), IOUtils.toByteArray(a));
+                    }
+                    if (entry.getMethod() == ZipEntry.STORED) {
+                        assertArrayEquals(content, toByteArray(actual.getStoredContent(entry)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void storedContentIsAvailableWithoutMapping() throws IOException {
+        try (final ZipFile file = new ZipFile(archive);
+             final ZipFile inMemory = new ZipFile(new SeekableInMemoryByteChannel(
+                 Files.readAllBytes(archive.toPath())))) {
+            for (final ZipArchiveEntry entry : Collections.list(file.getEntries())) {
+                if (entry.getMethod() == ZipEntry.STORED) {
+                    final byte[] content;
+                    try (InputStream in = file.getInputStream(entry)) {
+                        content = IOUtils.toByteArray(in);
+                    }
+                    final ByteBuffer buffer = file.getStoredContent(entry);
+                    assertTrue(buffer.isReadOnly());
+                    assertArrayEquals(content, toByteArray(buffer));
+                    assertArrayEquals(content, toByteArray(inMemory.getStoredContent(
+                        inMemory.getEntry(entry.getName()))));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void storedContentIsNotAvailableForDeflatedEntries() throws IOException {
+        try (final ZipFile zf = new ZipFile(archive)) {
+            zf.getStoredContent(zf.getEntry("entry-1"));
+        }
+    }
+
+    private static byte[] toByteArray(final ByteBuffer buffer) {
+        final byte[] result = new byte[buffer.remaining()];
+        buffer.get(result);
+        return result;
+    }
+}
@@ -376,6 +376,38 @@ public void run() {
         assertEquals(2, passedCount.get());
     }
 
+    @Test
+    public void testConcurrentReadSplitArchive() throws Exception {
+        final String dir = "COMPRESS-477/split_zip_created_by_zip/split_zip_created_by_zip.";
+        zf = new ZipFile(ZipSplitReadOnlySeekableByteChannel.forOrderedSeekableByteChannels(
+            new SeekableInMemoryByteChannel(Files.readAllBytes(getFile(dir + "z01").toPath())),
+            new SeekableInMemoryByteChannel(Files.readAllBytes(getFile(dir + "z02").toPath())),
+            new SeekableInMemoryByteChannel(Files.readAllBytes(getFile(dir + "zip").toPath()))));
+
+        final Map<String, byte[]> content = new HashMap<String, byte[]>();
+        for (ZipArchiveEntry entry: Collections.list(zf.getEntries())) {
+            content.put(entry.getName(), IOUtils.toByteArray(zf.getInputStream(entry)));
+        }
+
+        final AtomicInteger passedCount = new AtomicInteger();
+        Runnable run = new Runnable() {
+            @Override
+            public void run() {
+                for (ZipArchiveEntry entry: Collections.list(zf.getEntries())) {
+                    assertAllReadMethods(content.get(entry.getName()), zf, entry);
+                }
+                passedCount.incrementAndGet();
+            }
+        };
+        Thread t0 = new Thread(run);
+        Thread t1 = new Thread(run);
+        t0.start();
+        t1.start();
+        t0.join();
+        t1.join();
+        assertEquals(2, passedCount.get());
+    }
+
     @Test
     public void testConcurrentReadFile() throws Exception {
         // mixed.zip contains both inflated and stored files
@@ -22,14 +22,19 @@
 
 import java.io.BufferedInputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.zip.Deflater;
 
 import org.apache.commons.compress.AbstractTestCase;
 import org.apache.commons.compress.archivers.ArchiveEntry;
@@ -40,7 +45,10 @@
 import org.apache.commons.compress.archivers.jar.JarArchiveEntry;
 import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.utils.IOUtils;
 import org.junit.Test;
 
 /**
@@ -631,6 +639,84 @@ public void testDeleteFromAndAddToZipUsingZipFilePerform() throws Exception {
         this.checkArchiveContent(result, archiveList);
     }
 
+    /**
+     * A delete change only deletes the first entry of its name while
+     * a delete dir change deletes all entries of the directory.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testDeleteMatchesEntriesInOrder() throws Exception {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(bos)) {
+            for (final String name : new String[] { "a/1", "a/b/2", "ab/3", "b", "b", "c", "c" }) {
+                zos.putArchiveEntry(new ZipArchiveEntry(name));
+                zos.write(name.getBytes(StandardCharsets.UTF_8));
+                zos.closeArchiveEntry();
+            }
+        }
+        final ChangeSet changes = new ChangeSet();
+        changes.deleteDir("a");
+        changes.delete("b");
+        changes.delete("c");
+        changes.delete("c");
+
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final ChangeSetResults results;
+        try (ZipArchiveInputStream in = new ZipArchiveInputStream(new ByteArrayInputStream(bos.toByteArray()));
+             ZipArchiveOutputStream out = new ZipArchiveOutputStream(result)) {
+            results = new ChangeSetPerformer(changes).perform(in, out);
+        }
+        assertEquals(Arrays.asList("a/1", "a/b/2", "b", "c", "c"), results.getDeleted());
+        assertEquals(Arrays.asList("ab/3", "b"), results.getAddedFromStream());
+    }
+
+    /**
+     * Entries kept from a ZipFile are copied without recompressing
+     * them when writing to a ZipArchiveOutputStream.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testKeptZipFileEntriesAreCopiedRaw() throws Exception {
+        final byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 13 + i / 1000);
+        }
+        final File input = File.createTempFile("test", ".zip");
+        input.deleteOnExit();
+        try (ZipArchiveOutputStream zos = new ZipArchiveOutputStream(input)) {
+            zos.setLevel(Deflater.BEST_SPEED);
+            for (final String name : new String[] { "keep.bin", "delete.bin" }) {
+                zos.putArchiveEntry(new ZipArchiveEntry(name));
+                zos.write(data);
+                zos.closeArchiveEntry();
+            }
+        }
+
+        final File result = File.createTempFile("test", ".zip");
+        result.deleteOnExit();
+        final ChangeSet changes = new ChangeSet();
+        changes.delete("delete.bin");
+        final long originalCompressedSize;
+        try (ZipFile zf = new ZipFile(input);
+             ZipArchiveOutputStream out = new ZipArchiveOutputStream(result)) {
+            originalCompressedSize = zf.getEntry("keep.bin").getCompressedSize();
+            final ChangeSetResults results = new ChangeSetPerformer(changes).perform(zf, out);
+            assertEquals(1, results.getAddedFromStream().size());
+            assertEquals(1, results.getDeleted().size());
+        }
+
+        try (ZipFile zf = new ZipFile(result)) {
+            assertNull(zf.getEntry("delete.bin"));
+            final ZipArchiveEntry kept = zf.getEntry("keep.bin");
+            assertEquals(originalCompressedSize, kept.getCompressedSize());
+            try (InputStream in = zf.getInputStream(kept)) {
+                assertArrayEquals(data, IOUtils.toByteArray(in));
+            }
+        }
+    }
+
     /**
      * add blub/test.txt + delete blub Should add blub/test.txt and delete it
      * afterwards. In this example, the archive should stay untouched.
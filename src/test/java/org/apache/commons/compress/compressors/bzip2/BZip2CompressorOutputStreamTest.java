@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.compressors.bzip2;
+
+import static org.apache.commons.compress.AbstractTestCase.createCompressibleData;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.compress.ExecutorServiceResource;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class BZip2CompressorOutputStreamTest {
+
+    @Rule
+    public final ExecutorServiceResource executor = new ExecutorServiceResource();
+
+    @Test
+    public void parallelOutputIsIdenticalToSerialOutput() throws IOException {
+        final byte[] data = createCompressibleData(700 * 1024);
+        for (final int blockSize : new int[] { 1, 3, 9 }) {
+            final byte[] serial = compress(data, blockSize, null);
+            assertArrayEquals(serial, compress(data, blockSize, executor.get()));
+            assertArrayEquals(data, decompress(serial));
+        }
+    }
+
+    @Test
+    public void parallelOutputIsIdenticalForEmptyAndTinyInput() throws IOException {
+        assertArrayEquals(compress(new byte[0], 1, null), compress(new byte[0], 1, executor.get()));
+        assertArrayEquals(compress(new byte[] { 1, 2, 3 }, 1, null),
+            compress(new byte[] { 1, 2, 3 }, 1, executor.get()));
+    }
+
+    @Test
+    public void limitsBlocksInFlight() throws IOException {
+        final byte[] data = createCompressibleData(700 * 1024);
+        final CountingExecutor counting = new CountingExecutor(4);
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (BZip2CompressorOutputStream out = new BZip2CompressorOutputStream(bos, 1, counting, 2)) {
+            out.write(data);
+        } finally {
+            counting.shutdownNow();
+        }
+        assertTrue("up to " + counting.maxPending.get() + " blocks were in flight",
+            counting.maxPending.get() <= 2);
+        assertTrue(counting.maxPending.get() > 0);
+        assertArrayEquals(compress(data, 1, null), bos.toByteArray());
+    }
+
+    private static byte[] compress(final byte[] data, final int blockSize, final ExecutorService executor)
+        throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (BZip2CompressorOutputStream out = executor == null
+                 ? new BZip2CompressorOutputStream(bos, blockSize)
+                 : new BZip2CompressorOutputStream(bos, blockSize, executor)) {
+            out.write(data);
+        }
+        return bos.toByteArray();
+    }
+
+    /**
+     * Keeps track of the maximum number of tasks that have been
+     * submitted but not completed at the same time.
+     */
+    private static class CountingExecutor extends ThreadPoolExecutor {
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicInteger maxPending = new AtomicInteger();
+
+        CountingExecutor(final int threads) {
+            super(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+        }
+
+        @Override
+        protected <T> RunnableFuture<T> newTaskFor(final Callable<T> callable) {
+            final int nowPending = pending.incrementAndGet();
+            int max;
+            while ((max = maxPending.get()) < nowPending && !maxPending.compareAndSet(max, nowPending)) {
+                // retry
+            }
+            return super.newTaskFor(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    try {
+                        return callable.call();
+                    } finally {
+                        // before the result is set, so a caller seeing the result sees the count
+                        pending.decrementAndGet();
+                    }
+                }
+            });
+        }
+    }
+
+    private static byte[] decompress(final byte[] compressed) throws IOException {
+        try (BZip2CompressorInputStream in = new BZip2CompressorInputStream(new ByteArrayInputStream(compressed))) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+}
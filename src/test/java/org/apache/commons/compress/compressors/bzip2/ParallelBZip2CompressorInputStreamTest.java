@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.compressors.bzip2;
+
+import static org.apache.commons.compress.AbstractTestCase.createCompressibleData;
+import static org.apache.commons.compress.AbstractTestCase.getFile;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import org.apache.commons.compress.ExecutorServiceResource;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ParallelBZip2CompressorInputStreamTest {
+
+    @Rule
+    public final ExecutorServiceResource executor = new ExecutorServiceResource();
+
+    @Test
+    public void decompressesMultipleBlocks() throws IOException {
+        final byte[] data = createCompressibleData(1200 * 1024);
+        final byte[] compressed = compress(data, 1);
+        try (InputStream in = new ParallelBZip2CompressorInputStream(new ByteArrayInputStream(compressed),
+                 executor.get())) {
+            assertArrayEquals(data, IOUtils.toByteArray(in));
+        }
+        try (InputStream in = new ParallelBZip2CompressorInputStream(new ByteArrayInputStream(compressed), false,
+                 executor.get(), 1)) {
+            assertArrayEquals(data, IOUtils.toByteArray(in));
+        }
+    }
+
+    @Test
+    public void decompressesConcatenatedStreams() throws IOException {
+        final byte[] first = createCompressibleData(300 * 1024);
+        final byte[] second = createCompressibleData(10);
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        compressed.write(compress(first, 1));
+        compressed.write(compress(new byte[0], 1));
+        compressed.write(compress(second, 9));
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(first);
+        expected.write(second);
+        try (InputStream in = new ParallelBZip2CompressorInputStream(
+                 new ByteArrayInputStream(compressed.toByteArray()), true, executor.get(), 2)) {
+            assertArrayEquals(expected.toByteArray(), IOUtils.toByteArray(in));
+        }
+        try (InputStream in = new ParallelBZip2CompressorInputStream(
+                 new ByteArrayInputStream(compressed.toByteArray()), executor.get())) {
+            assertArrayEquals(first, IOUtils.toByteArray(in));
+        }
+    }
+
+    @Test
+    public void matchesTheSerialStreamForTestFiles() throws Exception {
+        for (final String file : new String[] { "bla.tar.bz2", "bla.txt.bz2", "multiple.bz2", "lbzip2_32767.bz2" }) {
+            final byte[] compressed = Files.readAllBytes(getFile(file).toPath());
+            try (InputStream serial = new BZip2CompressorInputStream(new ByteArrayInputStream(compressed), true);
+                 InputStream parallel = new ParallelBZip2CompressorInputStream(new ByteArrayInputStream(compressed),
+                     true, executor.get(), 4)) {
+                assertArrayEquals(file, IOUtils.toByteArray(serial), IOUtils.toByteArray(parallel));
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void detectsCorruptedBlocks() throws IOException {
+        final byte[] compressed = compress(createCompressibleData(300 * 1024), 1);
+        compressed[compressed.length / 2] ^= 0x10;
+        try (InputStream in = new ParallelBZip2CompressorInputStream(new ByteArrayInputStream(compressed),
+                 executor.get())) {
+            IOUtils.toByteArray(in);
+        }
+    }
+
+    @Test
+    public void reportsGarbageAfterAStreamOnceTheStreamHasBeenRead() throws IOException {
+        final byte[] data = createCompressibleData(300 * 1024);
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        compressed.write(compress(data, 1));
+        compressed.write("garbage".getBytes("US-ASCII"));
+        try (InputStream in = new ParallelBZip2CompressorInputStream(
+                 new ByteArrayInputStream(compressed.toByteArray()), true, executor.get(), 4)) {
+            final byte[] actual = new byte[data.length];
+            assertEquals(data.length, IOUtils.readFully(in, actual));
+            assertArrayEquals(data, actual);
+            try {
+                in.read();
+                fail("expected an exception");
+            } catch (final IOException ex) {
+                assertEquals("Garbage after a valid BZip2 stream", ex.getMessage());
+            }
+        }
+    }
+
+    private static byte[] compress(final byte[] data, final int blockSize) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (BZip2CompressorOutputStream out = new BZip2CompressorOutputStream(bos, blockSize)) {
+            out.write(data);
+        }
+        return bos.toByteArray();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.commons.compress.compressors.gzip;
+
+import static org.apache.commons.compress.AbstractTestCase.createCompressibleData;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.compress.utils.IOUtils;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
+import org.junit.Test;
+
+public class GzipIndexTest {
+
+    @Test
+    public void indexingStreamDecompressesLikeTheRegularStream() throws IOException {
+        final byte[] data = createCompressibleData(1024 * 1024);
+        final byte[] gz = concat(compress(data, 6), compress(new byte[0], 6), compress(data, 1));
+        try (InputStream in = new GzipIndexingInputStream(new ByteArrayInputStream(gz), 64 * 1024)) {
+            assertArrayEquals(concat(data, data), IOUtils.toByteArray(in));
+        }
+    }
+
+    @Test
+    public void canReadFromAnyOffset() throws IOException {
+        final byte[] data = createCompressibleData(1024 * 1024);
+        final byte[] expected = concat(data, data);
+        final byte[] gz = concat(compress(data, 6), compress(data, 9));
+        final GzipIndex index = roundTrip(createIndex(gz, 64 * 1024));
+        assertEquals(expected.length, index.getUncompressedSize());
+        assertTrue(index.getAccessPoints().size() > 4);
+        boolean seenUnalignedPoint = false;
+        for (final GzipIndex.AccessPoint p : index.getAccessPoints()) {
+            seenUnalignedPoint |= p.getCompressedBitOffset() % 8 != 0;
+        }
+        assertTrue(seenUnalignedPoint);
+
+        final Random random = new Random(42);
+        final SeekableInMemoryByteChannel channel = new SeekableInMemoryByteChannel(gz);
+        for (int i = 0; i < 20; i++) {
+            final int offset = random.nextInt(expected.length);
+            final int length = Math.min(100 * 1024, expected.length - offset);
+            try (InputStream in = index.getInputStream(channel, offset)) {
+                final byte[] actual = new byte[length];
+                assertEquals(length, IOUtils.readFully(in, actual));
+                assertArrayEquals(Arrays.copyOfRange(expected, offset, offset + length), actual);
+            }
+        }
+        try (InputStream in = index.getInputStream(channel, expected.length - 10)) {
+            assertEquals(10, IOUtils.toByteArray(in).length);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void indexIsOnlyAvailableAtTheEndOfTheStream() throws IOException {
+        final byte[] gz = compress(createCompressibleData(1024), 6);
+        try (GzipIndexingInputStream in = new GzipIndexingInputStream(new ByteArrayInputStream(gz))) {
+            in.getIndex();
+        }
+    }
+
+    private static GzipIndex createIndex(final byte[] gz, final long span) throws IOException {
+        try (GzipIndexingInputStream in = new GzipIndexingInputStream(new ByteArrayInputStream(gz), span)) {
+            IOUtils.toByteArray(in);
+            return in.getIndex();
+        }
+    }
+
+    private static GzipIndex roundTrip(final GzipIndex index) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bos)) {
+            index.writeTo(out);
+        }
+        return GzipIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bos.toByteArray())));
+    }
+
+    private static byte[] compress(final byte[] data, final int level) throws IOException {
+        final GzipParameters parameters = new GzipParameters();
+        parameters.setCompressionLevel(level);
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (GzipCompressorOutputStream out = new GzipCompressorOutputStream(bos, parameters)) {
+            out.write(data);
+        }
+        return bos.toByteArray();
+    }
+
+    private static byte[] concat(final byte[]... arrays) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        for (final byte[] a : arrays) {
+            bos.write(a);
+        }
+        return bos.toByteArray();
+    }
+}
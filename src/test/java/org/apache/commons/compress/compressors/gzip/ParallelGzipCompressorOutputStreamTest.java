@@ -0,0 +1,77 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+
+package org.apache.commons.compress.compressors.gzip;
+
+import static org.apache.commons.compress.AbstractTestCase.createCompressibleData;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.compress.ExecutorServiceResource;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class ParallelGzipCompressorOutputStreamTest {
+
+    @Rule
+    public final ExecutorServiceResource executor = new ExecutorServiceResource();
+
+    @Test
+    public void createsASingleMemberThatCanBeDecompressed() throws IOException {
+        final byte[] data = createCompressibleData(1024 * 1024 + 17);
+        final GzipParameters parameters = new GzipParameters();
+        parameters.setFilename("test.txt");
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (ParallelGzipCompressorOutputStream out = new ParallelGzipCompressorOutputStream(bos, parameters,
+                 executor.get(), 32 * 1024, 3)) {
+            for (int i = 0; i < data.length; i += 1000) {
+                out.write(data, i, Math.min(1000, data.length - i));
+            }
+        }
+        final byte[] compressed = bos.toByteArray();
+        try (GzipCompressorInputStream in = new GzipCompressorInputStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(data, IOUtils.toByteArray(in));
+            assertEquals("test.txt", in.getMetaData().getFilename());
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertArrayEquals(data, IOUtils.toByteArray(in));
+        }
+    }
+
+    @Test
+    public void handlesEmptyInputAndInputOfExactlyOneChunk() throws IOException {
+        for (final byte[] data : new byte[][] {
+                new byte[0], createCompressibleData(ParallelGzipCompressorOutputStream.DEFAULT_CHUNK_SIZE)
+            }) {
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (ParallelGzipCompressorOutputStream out = new ParallelGzipCompressorOutputStream(bos, executor.get())) {
+                out.write(data);
+            }
+            try (InputStream in = new GzipCompressorInputStream(new ByteArrayInputStream(bos.toByteArray()))) {
+                assertArrayEquals(data, IOUtils.toByteArray(in));
+            }
+        }
+    }
+}
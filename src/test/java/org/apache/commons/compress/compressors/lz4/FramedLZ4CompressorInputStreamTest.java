@@ -23,13 +23,16 @@
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Random;
 
 import org.apache.commons.compress.AbstractTestCase;
+import org.apache.commons.compress.ExecutorServiceResource;
 import org.apache.commons.compress.compressors.CompressorStreamFactory;
 import org.apache.commons.compress.utils.IOUtils;
 import org.junit.Rule;
@@ -42,6 +45,9 @@
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
+    @Rule
+    public final ExecutorServiceResource executor = new ExecutorServiceResource();
+
     @Test
     public void testMatches() throws IOException {
         assertFalse(FramedLZ4CompressorInputStream.matches(new byte[10], 4));
@@ -636,6 +642,112 @@ public void backreferenceWithOffsetTooBigCausesIOException() throws IOException
         expectIOException("COMPRESS-490/ArrayIndexOutOfBoundsException2.lz4");
     }
 
+    @Test
+    public void readDoubledBlaLz4WithReadAhead() throws Exception {
+        readDoubledBlaLz4(new StreamWrapper() {
+            @Override
+            public InputStream wrap(InputStream in) throws Exception {
+                return new FramedLZ4CompressorInputStream(in, true, executor.get(), 2);
+            }
+        }, true);
+    }
+
+    @Test
+    public void readAheadDecodesIndependentBlocks() throws IOException {
+        final byte[] data = new byte[512 * 1024];
+        final Random random = new Random(7);
+        random.nextBytes(data);
+        // make sure most blocks are compressible
+        for (int i = 4096; i < data.length; i += 256) {
+            System.arraycopy(data, random.nextInt(i - 128), data, i, 128);
+        }
+        final byte[] compressed = compressWithIndependentBlocks(data);
+        for (final int maxBlocksInFlight : new int[] { 1, 3, 32 }) {
+            try (FramedLZ4CompressorInputStream in = new FramedLZ4CompressorInputStream(
+                     new ByteArrayInputStream(compressed), false, executor.get(), maxBlocksInFlight)) {
+                assertArrayEquals(data, IOUtils.toByteArray(in));
+                assertEquals(compressed.length, in.getCompressedCount());
+            }
+        }
+    }
+
+    @Test
+    public void readAheadVerifiesBlockChecksums() throws IOException {
+        final byte[] data = new byte[200 * 1024];
+        new Random(7).nextBytes(data);
+        final byte[] compressed = compressWithIndependentBlocks(data);
+        // first byte of the second block's payload, blocks are stored uncompressed
+        compressed[7 + 4 + 64 * 1024 + 4 + 4] ^= 1;
+        thrown.expect(IOException.class);
+        thrown.expectMessage("block checksum mismatch");
+        try (InputStream in = new FramedLZ4CompressorInputStream(new ByteArrayInputStream(compressed),
+                 executor.get())) {
+            IOUtils.toByteArray(in);
+        }
+    }
+
+    @Test
+    public void readAheadVerifiesContentChecksum() throws IOException {
+        final byte[] data = new byte[200 * 1024];
+        new Random(7).nextBytes(data);
+        final byte[] compressed = compressWithIndependentBlocks(data);
+        compressed[compressed.length - 1] ^= 1;
+        thrown.expect(IOException.class);
+        thrown.expectMessage("content checksum mismatch");
+        try (InputStream in = new FramedLZ4CompressorInputStream(new ByteArrayInputStream(compressed),
+                 executor.get())) {
+            IOUtils.toByteArray(in);
+        }
+    }
+
+    @Test
+    public void readAheadReadsUncompressedBlocks() throws IOException {
+        byte[] input = new byte[] {
+            4, 0x22, 0x4d, 0x18, // signature
+            0x60, // flag - Version 01, block independent, no block checksum, no content size, no content checksum
+            0x70, // block size 4MB
+            115, // checksum
+            13, 0, 0, (byte) 0x80, // 13 bytes length and uncompressed bit set
+            'H', 'e', 'l', 'l', 'o', ',', ' ', 'w', 'o', 'r', 'l', 'd', '!', // content
+            0, 0, 0, 0, // empty block marker
+        };
+        try (InputStream a = new FramedLZ4CompressorInputStream(new ByteArrayInputStream(input), executor.get())) {
+            byte[] actual = IOUtils.toByteArray(a);
+            assertArrayEquals(new byte[] {
+                    'H', 'e', 'l', 'l', 'o', ',', ' ', 'w', 'o', 'r', 'l', 'd', '!'
+                }, actual);
+        }
+    }
+
+    @Test
+    public void rejectsReservedBlockMaxSizeIds() throws IOException {
+        byte[] input = new byte[] {
+            4, 0x22, 0x4d, 0x18, // signature
+            0x60, // flag - Version 01, block independent, no block checksum, no content size, no content checksum
+            0x30, // reserved block size id 3
+            115, // checksum
+            13, 0, 0, (byte) 0x80, // 13 bytes length and uncompressed bit set
+            'H', 'e', 'l', 'l', 'o', ',', ' ', 'w', 'o', 'r', 'l', 'd', '!', // content
+            0, 0, 0, 0, // empty block marker
+        };
+        thrown.expect(IOException.class);
+        thrown.expectMessage("unsupported block maximum size id");
+        try (InputStream a = new FramedLZ4CompressorInputStream(new ByteArrayInputStream(input), executor.get())) {
+            IOUtils.toByteArray(a);
+        }
+    }
+
+    private static byte[] compressWithIndependentBlocks(final byte[] data) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (FramedLZ4CompressorOutputStream out = new FramedLZ4CompressorOutputStream(bos,
+                 new FramedLZ4CompressorOutputStream.Parameters(FramedLZ4CompressorOutputStream.BlockSize.K64,
+                     true, true, false, BlockLZ4CompressorOutputStream.createParameterBuilder()
+                         .tunedForSpeed().build()))) {
+            out.write(data);
+        }
+        return bos.toByteArray();
+    }
+
     interface StreamWrapper {
         InputStream wrap(InputStream in) throws Exception;
     }
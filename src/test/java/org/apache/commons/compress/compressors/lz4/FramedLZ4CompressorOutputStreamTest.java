@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.commons.compress.compressors.lz4;
+
+import static org.apache.commons.compress.AbstractTestCase.getFile;
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+
+import org.apache.commons.compress.ExecutorServiceResource;
+import org.apache.commons.compress.compressors.lz77support.Parameters;
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class FramedLZ4CompressorOutputStreamTest {
+
+    @Rule
+    public final ExecutorServiceResource executor = new ExecutorServiceResource();
+
+    @Test
+    public void parallelOutputIsIdenticalToSerialOutput() throws IOException {
+        final byte[] data = Files.readAllBytes(getFile("COMPRESS-358.uncompressed").toPath());
+        final Parameters lz77params = BlockLZ4CompressorOutputStream.createParameterBuilder().tunedForSpeed().build();
+        for (final FramedLZ4CompressorOutputStream.Parameters params : new FramedLZ4CompressorOutputStream.Parameters[] {
+                new FramedLZ4CompressorOutputStream.Parameters(FramedLZ4CompressorOutputStream.BlockSize.K64,
+                    true, false, false, lz77params),
+                new FramedLZ4CompressorOutputStream.Parameters(FramedLZ4CompressorOutputStream.BlockSize.K64,
+                    false, true, false, lz77params),
+            }) {
+            final byte[] serial = compress(data, params, null, 0);
+            for (final int maxBlocksInFlight : new int[] { 1, 3, 16 }) {
+                final byte[] parallel = compress(data, params, executor.get(), maxBlocksInFlight);
+                assertArrayEquals(serial, parallel);
+                try (InputStream in = new FramedLZ4CompressorInputStream(new ByteArrayInputStream(parallel))) {
+                    assertArrayEquals(data, IOUtils.toByteArray(in));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void incompressibleBlocksAreStoredInParallelMode() throws IOException {
+        final byte[] data = new byte[300 * 1024];
+        new Random(5).nextBytes(data);
+        final ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        try (FramedLZ4CompressorOutputStream out = new FramedLZ4CompressorOutputStream(parallel,
+                 new FramedLZ4CompressorOutputStream.Parameters(FramedLZ4CompressorOutputStream.BlockSize.K64,
+                     true, true, false), executor.get())) {
+            out.write(data);
+        }
+        try (InputStream in = new FramedLZ4CompressorInputStream(new ByteArrayInputStream(parallel.toByteArray()))) {
+            assertArrayEquals(data, IOUtils.toByteArray(in));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void blockDependencyCannotBeCompressedInParallel() throws IOException {
+        new FramedLZ4CompressorOutputStream(new ByteArrayOutputStream(),
+            new FramedLZ4CompressorOutputStream.Parameters(FramedLZ4CompressorOutputStream.BlockSize.K64,
+                true, false, true), executor.get());
+    }
+
+    private static byte[] compress(final byte[] data, final FramedLZ4CompressorOutputStream.Parameters params,
+        final ExecutorService executor, final int maxBlocksInFlight) throws IOException {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try (FramedLZ4CompressorOutputStream out =
+                 new FramedLZ4CompressorOutputStream(bos, params, executor, maxBlocksInFlight)) {
+            // block boundaries depend on the sizes of the individual writes
+            final Random random = new Random(data.length);
+            int off = 0;
+            while (off < data.length) {
+                final int len = Math.min(data.length - off, random.nextInt(200 * 1024));
+                out.write(data, off, len);
+                off += len;
+            }
+        }
+        return bos.toByteArray();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ */
+package org.apache.commons.compress.parallel;
+
+import static org.apache.commons.compress.AbstractTestCase.createCompressibleData;
+import static org.apache.commons.compress.AbstractTestCase.mkdir;
+import static org.apache.commons.compress.AbstractTestCase.rmdir;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.apache.commons.compress.utils.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MemoryBasedScatterGatherBackingStoreTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = mkdir("spill");
+    }
+
+    @After
+    public void tearDown() {
+        rmdir(dir);
+    }
+
+    @Test
+    public void keepsPayloadInMemoryWhileWithinBudget() throws IOException {
+        final MemoryBasedScatterGatherBackingStoreSupplier supplier =
+            new MemoryBasedScatterGatherBackingStoreSupplier(16, 1000, 1000, dir);
+        final byte[] data = createCompressibleData(100);
+        try (MemoryBasedScatterGatherBackingStore store = supplier.get()) {
+            write(store, data);
+            assertFalse(store.isSpilled());
+            assertEquals(0, store.getSpilledBytes());
+            assertEquals(7 * 16, supplier.getUsedMemory());
+            assertEquals(0, dir.list().length);
+            assertContent(data, store);
+        }
+        assertEquals(0, supplier.getUsedMemory());
+    }
+
+    @Test
+    public void spillsWhenStoreLimitIsExceeded() throws IOException {
+        final MemoryBasedScatterGatherBackingStoreSupplier supplier =
+            new MemoryBasedScatterGatherBackingStoreSupplier(16, 50, 1000, dir);
+        final byte[] data = createCompressibleData(100);
+        try (MemoryBasedScatterGatherBackingStore store = supplier.get()) {
+            write(store, data);
+            assertTrue(store.isSpilled());
+            assertEquals(100, store.getSpilledBytes());
+            assertEquals(0, supplier.getUsedMemory());
+            assertEquals(1, dir.list().length);
+            assertContent(data, store);
+        }
+        assertEquals(0, dir.list().length);
+    }
+
+    @Test
+    public void spillsWhenGlobalLimitIsExceededAndReusesChunks() throws IOException {
+        final MemoryBasedScatterGatherBackingStoreSupplier supplier =
+            new MemoryBasedScatterGatherBackingStoreSupplier(16, 1000, 64, dir);
+        final byte[] data = createCompressibleData(48);
+        try (MemoryBasedScatterGatherBackingStore first = supplier.get();
+             MemoryBasedScatterGatherBackingStore second = supplier.get()) {
+            write(first, data);
+            write(second, data);
+            assertFalse(first.isSpilled());
+            assertTrue(second.isSpilled());
+            assertEquals(48, supplier.getUsedMemory());
+            assertContent(data, first);
+            assertContent(data, second);
+        }
+        assertEquals(0, supplier.getUsedMemory());
+        try (MemoryBasedScatterGatherBackingStore third = supplier.get()) {
+            write(third, createCompressibleData(64));
+            assertFalse(third.isSpilled());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void cannotWriteAfterClosingForWriting() throws IOException {
+        try (MemoryBasedScatterGatherBackingStore store =
+                 new MemoryBasedScatterGatherBackingStoreSupplier(1000, 1000).get()) {
+            store.closeForWriting();
+            store.writeOut(new byte[1], 0, 1);
+        }
+    }
+
+    private static void write(final ScatterGatherBackingStore store, final byte[] data) throws IOException {
+        int offset = 0;
+        int length = 1;
+        while (offset < data.length) {
+            final int n = Math.min(length++, data.length - offset);
+            store.writeOut(data, offset, n);
+            offset += n;
+        }
+    }
+
+    private static void assertContent(final byte[] expected, final ScatterGatherBackingStore store)
+        throws IOException {
+        store.closeForWriting();
+        try (InputStream in = store.getInputStream()) {
+            assertArrayEquals(expected, IOUtils.toByteArray(in));
+        }
+        try (InputStream in = store.getInputStream()) {
+            assertEquals(10, in.skip(10));
+            assertEquals(expected[10] & 0xff, in.read());
+            final byte[] rest = IOUtils.toByteArray(in);
+            assertArrayEquals(Arrays.copyOfRange(expected, 11, expected.length), rest);
+            assertEquals(-1, in.read());
+        }
+    }
+}
@@ -143,6 +143,39 @@ public void cantPositionToANegativePosition() throws IOException {
         s.position(-1);
     }
 
+    @Test
+    public void positionedReadsDontChangePosition() throws IOException {
+        final byte[] data = new byte[100];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        final byte[][] groups = grouped(data, 7);
+        checkPositionedReads(data, (MultiReadOnlySeekableByteChannel) makeMulti(groups));
+
+        final SeekableByteChannel[] plain = new SeekableByteChannel[groups.length];
+        for (int i = 0; i < plain.length; i++) {
+            plain[i] = new NonPositionedReadableChannel(groups[i]);
+        }
+        checkPositionedReads(data, new MultiReadOnlySeekableByteChannel(Arrays.asList(plain)));
+    }
+
+    private void checkPositionedReads(final byte[] expected, final MultiReadOnlySeekableByteChannel channel)
+        throws IOException {
+        channel.position(3);
+        for (int start = 0; start < expected.length; start++) {
+            final ByteBuffer buf = ByteBuffer.allocate(Math.min(20, expected.length - start));
+            Assert.assertEquals(buf.capacity(), channel.read(buf, start));
+            Assert.assertArrayEquals(Arrays.copyOfRange(expected, start, start + buf.capacity()), buf.array());
+        }
+        Assert.assertEquals(-1, channel.read(ByteBuffer.allocate(1), expected.length));
+        Assert.assertEquals(3, channel.position());
+        final ByteBuffer rest = ByteBuffer.allocate(expected.length - 3);
+        while (rest.hasRemaining() && channel.read(rest) > 0) {
+            // read on
+        }
+        Assert.assertArrayEquals(Arrays.copyOfRange(expected, 3, expected.length), rest.array());
+    }
+
     private SeekableByteChannel makeEmpty() {
         return makeSingle(new byte[0]);
     }
@@ -256,6 +289,47 @@ private byte[][] grouped(final byte[] input, final int chunkSize) {
         return groups.toArray(new byte[0][]);
     }
 
+    private static class NonPositionedReadableChannel implements SeekableByteChannel {
+        private final SeekableInMemoryByteChannel delegate;
+        NonPositionedReadableChannel(byte[] data) {
+            delegate = new SeekableInMemoryByteChannel(data);
+        }
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+        @Override
+        public void close() {
+            delegate.close();
+        }
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+        @Override
+        public long position() {
+            return delegate.position();
+        }
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+        @Override
+        public long size() {
+            return delegate.size();
+        }
+        @Override
+        public SeekableByteChannel truncate(long size) {
+            delegate.truncate(size);
+            return this;
+        }
+    }
+
     private static class ThrowingSeekableByteChannel implements SeekableByteChannel {
         private boolean closed = false;
         @Override
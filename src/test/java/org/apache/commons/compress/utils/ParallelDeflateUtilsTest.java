@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.commons.compress.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.compress.utils.ParallelDeflateUtils.DeflatedChunk;
+import org.junit.Test;
+
+public class ParallelDeflateUtilsTest {
+
+    @Test
+    public void combinedCrcMatchesCrcOfConcatenation() {
+        final byte[] data = new byte[100000];
+        new Random(42).nextBytes(data);
+        final long all = crc(data, 0, data.length);
+        for (final int split : new int[] { 0, 1, 17, 4096, 40000, 99999, 100000 }) {
+            assertEquals("split at " + split, all, ParallelDeflateUtils.combineCrc32(crc(data, 0, split),
+                crc(data, split, data.length), data.length - split));
+        }
+    }
+
+    @Test
+    public void concatenatedChunksFormASingleDeflateStream() throws IOException {
+        final byte[] data = new byte[300000];
+        final Random random = new Random(17);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + random.nextInt(random.nextBoolean() ? 4 : 26));
+        }
+        final int chunkSize = 100000;
+        final ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+        long crc = 0;
+        for (int offset = 0; offset < data.length; offset += chunkSize) {
+            final byte[] chunk = Arrays.copyOfRange(data, offset, offset + chunkSize);
+            final byte[] dictionary = offset == 0 ? null : Arrays.copyOfRange(data, 0, offset);
+            final DeflatedChunk result = ParallelDeflateUtils.deflateChunk(chunk, chunk.length, dictionary,
+                Deflater.DEFAULT_COMPRESSION, offset + chunkSize == data.length);
+            assertEquals(chunkSize, result.getSize());
+            deflated.write(result.getData(), 0, result.getLength());
+            crc = ParallelDeflateUtils.combineCrc32(crc, result.getCrc32(), result.getSize());
+        }
+        assertEquals(crc(data, 0, data.length), crc);
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(deflated.toByteArray()),
+                 new Inflater(true))) {
+            assertArrayEquals(data, IOUtils.toByteArray(in));
+        }
+    }
+
+    private static long crc(final byte[] data, final int from, final int to) {
+        final CRC32 crc = new CRC32();
+        crc.update(data, from, to - from);
+        return crc.getValue();
+    }
+}
@@ -95,6 +95,22 @@ public void shouldSignalEOFWhenPositionAtTheEnd() throws IOException {
         c.close();
     }
 
+    @Test
+    public void shouldReadDataFromGivenPositionWithoutChangingPosition() throws IOException {
+        //given
+        SeekableInMemoryByteChannel c = new SeekableInMemoryByteChannel(testData);
+        ByteBuffer readBuffer = ByteBuffer.allocate(4);
+        //when
+        c.position(2L);
+        int readCount = c.read(readBuffer, 5L);
+        //then
+        assertEquals(4L, readCount);
+        assertEquals("data", new String(readBuffer.array(), Charset.forName(UTF_8)));
+        assertEquals(2L, c.position());
+        assertEquals(-1, c.read(ByteBuffer.allocate(1), testData.length));
+        c.close();
+    }
+
     @Test(expected = ClosedChannelException.class)
     public void shouldThrowExceptionOnReadingClosedChannel() throws IOException {
         //given
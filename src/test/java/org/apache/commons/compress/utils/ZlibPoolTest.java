@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package org.apache.commons.compress.utils;
+
+import static org.apache.commons.compress.AbstractTestCase.createCompressibleData;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Enumeration;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.compress.archivers.zip.ZipFileOptions;
+import org.apache.commons.compress.compressors.deflate.DeflateCompressorInputStream;
+import org.apache.commons.compress.compressors.deflate.DeflateCompressorOutputStream;
+import org.apache.commons.compress.compressors.deflate.DeflateParameters;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.junit.Test;
+
+public class ZlibPoolTest {
+
+    @Test
+    public void reusesReturnedInstances() {
+        final ZlibPool pool = new ZlibPool();
+        final Inflater inflater = pool.borrowInflater(true);
+        pool.returnInflater(inflater, true);
+        assertSame(inflater, pool.borrowInflater(true));
+        assertNotSame(inflater, pool.borrowInflater(true));
+        assertEquals(1, pool.getInflaterHits());
+        assertEquals(2, pool.getInflaterMisses());
+
+        final Deflater deflater = pool.borrowDeflater(9, true);
+        pool.returnDeflater(deflater, 9, true);
+        assertNotSame(deflater, pool.borrowDeflater(1, true));
+        assertNotSame(deflater, pool.borrowDeflater(9, false));
+        assertSame(deflater, pool.borrowDeflater(9, true));
+        assertEquals(1, pool.getDeflaterHits());
+        assertEquals(3, pool.getDeflaterMisses());
+        pool.clear();
+    }
+
+    @Test
+    public void keepsAtMostMaxIdleInstances() {
+        final ZlibPool pool = new ZlibPool(1);
+        final Inflater first = pool.borrowInflater(false);
+        final Inflater second = pool.borrowInflater(false);
+        pool.returnInflater(first, false);
+        pool.returnInflater(second, false);
+        assertSame(first, pool.borrowInflater(false));
+        pool.borrowInflater(false);
+        assertEquals(1, pool.getInflaterHits());
+        assertEquals(3, pool.getInflaterMisses());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeMaxIdle() {
+        new ZlibPool(-1);
+    }
+
+    @Test
+    public void returnedDeflaterUsesOriginalSettings() throws IOException {
+        final byte[] data = createCompressibleData(100 * 1024);
+        final ZlibPool pool = new ZlibPool();
+        final Deflater deflater = pool.borrowDeflater(1, true);
+        deflater.setLevel(Deflater.NO_COMPRESSION);
+        deflater.setStrategy(Deflater.HUFFMAN_ONLY);
+        pool.returnDeflater(deflater, 1, true);
+
+        final Deflater reused = pool.borrowDeflater(1, true);
+        assertSame(deflater, reused);
+        final Deflater fresh = new Deflater(1, true);
+        try {
+            assertArrayEquals(deflate(fresh, data), deflate(reused, data));
+        } finally {
+            fresh.end();
+            pool.clear();
+        }
+    }
+
+    @Test
+    public void streamsReturnInstancesToThePool() throws IOException {
+        final byte[] data = createCompressibleData(50 * 1024);
+        final ZlibPool pool = new ZlibPool();
+
+        for (int i = 0; i < 3; i++) {
+            final ByteArrayOutputStream gz = new ByteArrayOutputStream();
+            try (GzipCompressorOutputStream out = new GzipCompressorOutputStream(gz)) {
+                out.write(data);
+            }
+            try (InputStream in = new GzipCompressorInputStream(new ByteArrayInputStream(gz.toByteArray()), false,
+                     pool)) {
+                assertArrayEquals(data, IOUtils.toByteArray(in));
+            }
+
+            final ByteArrayOutputStream deflated = new ByteArrayOutputStream();
+            try (DeflateCompressorOutputStream out = new DeflateCompressorOutputStream(deflated)) {
+                out.write(data);
+            }
+            try (InputStream in = new DeflateCompressorInputStream(new ByteArrayInputStream(deflated.toByteArray()),
+                     new DeflateParameters(), pool)) {
+                assertArrayEquals(data, IOUtils.toByteArray(in));
+            }
+        }
+        assertEquals(4, pool.getInflaterHits());
+        assertEquals(2, pool.getInflaterMisses());
+        pool.clear();
+    }
+
+    @Test
+    public void zipClassesReturnInstancesToThePool() throws IOException {
+        final byte[] data = createCompressibleData(20 * 1024);
+        final ZlibPool pool = new ZlibPool();
+        byte[] zip = null;
+        for (int i = 0; i < 2; i++) {
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            try (ZipArchiveOutputStream out = new ZipArchiveOutputStream(bos, pool)) {
+                for (int j = 0; j < 5; j++) {
+                    out.putArchiveEntry(new ZipArchiveEntry("entry" + j));
+                    out.write(data);
+                    out.closeArchiveEntry();
+                }
+            }
+            zip = bos.toByteArray();
+        }
+        assertEquals(1, pool.getDeflaterHits());
+        assertEquals(1, pool.getDeflaterMisses());
+
+        try (ZipArchiveInputStream in = new ZipArchiveInputStream(new ByteArrayInputStream(zip), CharsetNames.UTF_8,
+                 true, false, false, pool)) {
+            int entries = 0;
+            while (in.getNextZipEntry() != null) {
+                assertArrayEquals(data, IOUtils.toByteArray(in));
+                entries++;
+            }
+            assertEquals(5, entries);
+        }
+        assertEquals(0, pool.getInflaterHits());
+        assertEquals(1, pool.getInflaterMisses());
+
+        try (ZipFile zf = new ZipFile(new SeekableInMemoryByteChannel(zip), "pooled",
+                 ZipFileOptions.builder().withZlibPool(pool).build())) {
+            final Enumeration<ZipArchiveEntry> entries = zf.getEntries();
+            while (entries.hasMoreElements()) {
+                try (InputStream in = zf.getInputStream(entries.nextElement())) {
+                    assertArrayEquals(data, IOUtils.toByteArray(in));
+                }
+            }
+        }
+        assertEquals(5, pool.getInflaterHits());
+        assertEquals(1, pool.getInflaterMisses());
+        pool.clear();
+    }
+
+    private static byte[] deflate(final Deflater deflater, final byte[] data) {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+        deflater.setInput(data);
+        deflater.finish();
+        while (!deflater.finished()) {
+            bos.write(buffer, 0, deflater.deflate(buffer));
+        }
+        return bos.toByteArray();
+    }
+}